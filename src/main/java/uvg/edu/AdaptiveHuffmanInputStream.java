@@ -0,0 +1,100 @@
+package uvg.edu;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Input stream that decompresses data written by an {@link AdaptiveHuffmanOutputStream},
+ * one byte per code, updating its tree exactly as the writer did.
+ */
+class AdaptiveHuffmanInputStream extends InputStream {
+
+    // Bits that always cover a whole code: a path through every node plus a 9-bit symbol in plain binary
+    private static final int MAX_CODE_BITS = 2 * (AdaptiveHuffmanOutputStream.END_OF_STREAM + 1) + 1 + 9;
+
+    private final AdaptiveHuffmanTree tree = new AdaptiveHuffmanTree(AdaptiveHuffmanOutputStream.END_OF_STREAM + 1);
+    private final BitInputStream in; // The bit stream the codes are read from
+    private boolean ended; // Whether the end-of-stream code has been read
+
+    /**
+     * Constructs an AdaptiveHuffmanInputStream and reads the stream header.
+     *
+     * @param in The stream supplying the compressed data.
+     * @throws IOException If an I/O error occurs or the data is not an adaptive stream.
+     */
+    public AdaptiveHuffmanInputStream(InputStream in) throws IOException {
+        byte[] magic = new byte[AdaptiveHuffmanOutputStream.MAGIC.length];
+        for (int i = 0; i < magic.length; i++) {
+            magic[i] = (byte) in.read();
+        }
+        if (!Arrays.equals(magic, AdaptiveHuffmanOutputStream.MAGIC)) {
+            throw new IOException("El archivo no es un flujo comprimido adaptativo.");
+        }
+        int version = in.read();
+        if (version != AdaptiveHuffmanOutputStream.VERSION) {
+            throw new IOException("Versión de formato no soportada: " + version);
+        }
+        this.in = new BitInputStream(in);
+    }
+
+    /**
+     * Checks whether a file starts with the magic number of the adaptive format.
+     *
+     * @param file The path of the file.
+     * @return True if the file is an adaptive stream.
+     * @throws IOException If the file cannot be read.
+     */
+    public static boolean isAdaptiveFile(String file) throws IOException {
+        try (InputStream in = Files.newInputStream(Paths.get(file))) {
+            byte[] magic = new byte[AdaptiveHuffmanOutputStream.MAGIC.length];
+            return in.read(magic) == magic.length && Arrays.equals(magic, AdaptiveHuffmanOutputStream.MAGIC);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (ended) {
+            return -1;
+        }
+        int symbol;
+        try {
+            symbol = tree.decode(in);
+        } catch (EOFException e) {
+            throw new IOException("Flujo comprimido adaptativo incompleto.", e);
+        }
+        if (symbol == AdaptiveHuffmanOutputStream.END_OF_STREAM) {
+            ended = true;
+            return -1;
+        }
+        return symbol;
+    }
+
+    /**
+     * Reads decompressed bytes. After the first byte, decoding continues only while the bits of a
+     * whole code are already buffered, so a live stream is not waited on once some data is available.
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int count = 0;
+        do {
+            int symbol = read();
+            if (symbol == -1) {
+                return count == 0 ? -1 : count;
+            }
+            b[off + count++] = (byte) symbol;
+        } while (count < len && in.bufferedBits() >= MAX_CODE_BITS);
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
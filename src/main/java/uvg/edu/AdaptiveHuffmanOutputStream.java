@@ -0,0 +1,81 @@
+package uvg.edu;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream that compresses bytes with an {@link AdaptiveHuffmanTree} as they are written.
+ * The data is coded in a single pass, so streams of unknown length such as pipes or log tails
+ * can be compressed as they are produced. The compressed stream is laid out as:
+ * <pre>
+ *   'H' 'U' 'A' version    magic number and format version
+ *   codes                  one adaptive code per byte, then the code of {@link #END_OF_STREAM}
+ * </pre>
+ * {@link #flush()} pushes every complete byte of output to the underlying stream, so a reader
+ * on the other end can decode all but the last few bits of what was written.
+ */
+class AdaptiveHuffmanOutputStream extends OutputStream {
+
+    static final byte[] MAGIC = {'H', 'U', 'A'};
+    static final int VERSION = 1; // Version of the adaptive stream format
+    static final int END_OF_STREAM = 256; // Symbol marking the end of the data, after the 256 byte values
+
+    private final AdaptiveHuffmanTree tree = new AdaptiveHuffmanTree(END_OF_STREAM + 1);
+    private final BitOutputStream out; // The bit stream the codes are written to
+    private long count; // Number of bytes written so far
+    private boolean closed; // Whether the end of the stream has been written
+
+    /**
+     * Constructs an AdaptiveHuffmanOutputStream and writes the stream header.
+     *
+     * @param out The stream that receives the compressed data.
+     * @throws IOException If an I/O error occurs while writing the header.
+     */
+    public AdaptiveHuffmanOutputStream(OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+        this.out = new BitOutputStream(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        tree.encode(b & 0xFF, out);
+        count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            tree.encode(b[i] & 0xFF, out);
+        }
+        count += len;
+    }
+
+    /**
+     * Returns the number of bytes compressed so far.
+     *
+     * @return The number of bytes written to this stream.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Writes the end-of-stream code and closes the underlying stream.
+     *
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            tree.encode(END_OF_STREAM, out);
+            out.close();
+        }
+    }
+}
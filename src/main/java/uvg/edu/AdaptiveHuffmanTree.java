@@ -0,0 +1,186 @@
+package uvg.edu;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Huffman tree that adapts to the data as it is coded, following the FGK algorithm.
+ * Encoder and decoder start from the same tree, made of a single "not yet transmitted" (NYT) leaf,
+ * and update it identically after every symbol, so no frequencies or code lengths are ever stored.
+ * A symbol seen for the first time is sent as the code of the NYT leaf followed by its value in
+ * plain binary; the NYT leaf then splits into a new NYT leaf and a leaf for that symbol.
+ * <p>
+ * Nodes are numbered so that weights never decrease with the number and siblings are adjacent
+ * (the sibling property). After coding a symbol, each node on the path to the root is first swapped
+ * with the highest-numbered node of equal weight and then incremented, which keeps the property and
+ * therefore keeps the tree a Huffman tree for the counts seen so far. The work per symbol is bounded
+ * by the size of the alphabet and does not depend on how much data has been coded.
+ */
+class AdaptiveHuffmanTree {
+
+    static final int NYT = -1; // Symbol of the leaf standing for symbols not seen yet
+
+    private final int alphabetSize; // Number of symbols, including any end-of-stream symbol
+    private final int rawBits; // Bits used to send a symbol seen for the first time
+    private final HuffmanNode[] leaves; // Leaf of each symbol seen so far
+    private final HuffmanNode[] nodes; // Nodes by number, the root holding the highest one
+    private final boolean[] path; // Scratch space for the bits of a code, collected from leaf to root
+    private HuffmanNode root; // Root of the tree
+    private HuffmanNode nyt; // Leaf standing for symbols not seen yet
+
+    /**
+     * Constructs an empty adaptive tree.
+     *
+     * @param alphabetSize The number of different symbols that can be coded.
+     */
+    public AdaptiveHuffmanTree(int alphabetSize) {
+        this.alphabetSize = alphabetSize;
+        this.rawBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(alphabetSize - 1));
+        this.leaves = new HuffmanNode[alphabetSize];
+        this.nodes = new HuffmanNode[2 * alphabetSize + 1]; // Every symbol and the NYT leaf, plus internal nodes
+        this.path = new boolean[nodes.length];
+
+        root = new HuffmanNode(0, NYT);
+        root.order = nodes.length - 1;
+        nodes[root.order] = root;
+        nyt = root;
+    }
+
+    /**
+     * Writes the code of a symbol and updates the tree.
+     *
+     * @param symbol The symbol to encode, between 0 and the alphabet size minus one.
+     * @param out    The bit stream that receives the code.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public void encode(int symbol, BitOutputStream out) throws IOException {
+        HuffmanNode leaf = leaves[symbol];
+        writePath(leaf != null ? leaf : nyt, out);
+        if (leaf == null) {
+            out.writeBits(symbol, rawBits);
+        }
+        update(symbol);
+    }
+
+    /**
+     * Reads the code of a symbol and updates the tree.
+     *
+     * @param in The bit stream to read from.
+     * @return The decoded symbol.
+     * @throws IOException  If an I/O error occurs or the symbol is out of range.
+     * @throws EOFException If the stream ends in the middle of a code.
+     */
+    public int decode(BitInputStream in) throws IOException {
+        HuffmanNode node = root;
+        while (!node.isLeaf) {
+            node = in.readBit() ? node.right : node.left;
+        }
+
+        int symbol = node.symbol;
+        if (symbol == NYT) {
+            symbol = 0;
+            for (int i = 0; i < rawBits; i++) {
+                symbol = (symbol << 1) | (in.readBit() ? 1 : 0);
+            }
+            if (symbol >= alphabetSize || leaves[symbol] != null) {
+                throw new IOException("Símbolo inválido en el flujo adaptativo: " + symbol);
+            }
+        }
+        update(symbol);
+        return symbol;
+    }
+
+    /**
+     * Writes the path from the root to a node, with 0 for left and 1 for right.
+     */
+    private void writePath(HuffmanNode node, BitOutputStream out) throws IOException {
+        int length = 0;
+        for (; node != root; node = node.parent) {
+            path[length++] = node.parent.right == node;
+        }
+        while (length > 0) {
+            out.writeBit(path[--length]);
+        }
+    }
+
+    /**
+     * Counts one more occurrence of a symbol, restructuring the tree to keep the sibling property.
+     *
+     * @param symbol The symbol just coded.
+     */
+    private void update(int symbol) {
+        HuffmanNode node = leaves[symbol];
+
+        if (node == null) {
+            // The NYT leaf becomes the parent of a new NYT leaf and of the symbol's leaf
+            HuffmanNode oldNyt = nyt;
+            node = new HuffmanNode(0, symbol);
+            nyt = new HuffmanNode(0, NYT);
+            attach(node, oldNyt, oldNyt.order - 1);
+            attach(nyt, oldNyt, oldNyt.order - 2);
+            oldNyt.left = nyt;
+            oldNyt.right = node;
+            oldNyt.isLeaf = false;
+            leaves[symbol] = node;
+        }
+
+        while (node != null) {
+            HuffmanNode leader = leader(node);
+            if (leader != node && leader != node.parent) {
+                swap(node, leader);
+            }
+            node.frequency++;
+            node = node.parent;
+        }
+    }
+
+    /**
+     * Places a new node below a parent with the given number.
+     */
+    private void attach(HuffmanNode node, HuffmanNode parent, int order) {
+        node.parent = parent;
+        node.order = order;
+        nodes[order] = node;
+    }
+
+    /**
+     * Finds the highest-numbered node with the same weight as the given one.
+     */
+    private HuffmanNode leader(HuffmanNode node) {
+        int order = node.order;
+        while (order + 1 < nodes.length && nodes[order + 1].frequency == node.frequency) {
+            order++;
+        }
+        return nodes[order];
+    }
+
+    /**
+     * Exchanges the positions of two nodes, neither of which is an ancestor of the other,
+     * together with their subtrees and numbers.
+     */
+    private void swap(HuffmanNode a, HuffmanNode b) {
+        HuffmanNode parentA = a.parent;
+        HuffmanNode parentB = b.parent;
+        boolean aIsLeft = parentA.left == a;
+        boolean bIsLeft = parentB.left == b;
+
+        if (aIsLeft) {
+            parentA.left = b;
+        } else {
+            parentA.right = b;
+        }
+        if (bIsLeft) {
+            parentB.left = a;
+        } else {
+            parentB.right = a;
+        }
+        a.parent = parentB;
+        b.parent = parentA;
+
+        int order = a.order;
+        a.order = b.order;
+        b.order = order;
+        nodes[a.order] = a;
+        nodes[b.order] = b;
+    }
+}
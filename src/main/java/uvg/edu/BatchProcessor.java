@@ -0,0 +1,402 @@
+package uvg.edu;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compresses or decompresses many files in one process, one task per file.
+ * Tasks run on virtual threads when the runtime provides them (Java 21 and later) and on a pool of
+ * platform threads otherwise. Before reading its file, every task reserves from a shared budget the
+ * bytes it will hold in memory, so memory use stays within the budget no matter how many files are
+ * queued; files that need more than the whole budget run alone and are streamed where possible.
+ * Compressed files use the byte-by-byte format of {@link HuffmanCoding#compressBytes(String, String)}.
+ */
+class BatchProcessor {
+
+    static final long DEFAULT_MEMORY_BUDGET = 256L << 20; // Bytes of input held in memory at once
+    static final String EXTENSION = ".huff"; // Extension of the compressed files
+
+    private static final int PERMIT_SIZE = 1024; // Bytes of budget per semaphore permit
+
+    private final long memoryBudget; // Bytes of input held in memory at once
+    private final int totalPermits; // Size of the whole budget in permits
+    private final Semaphore memory; // Budget still available, in permits of PERMIT_SIZE bytes
+
+    /**
+     * Constructs a BatchProcessor with the default memory budget.
+     */
+    public BatchProcessor() {
+        this(DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * Constructs a BatchProcessor.
+     *
+     * @param memoryBudget The number of bytes of input that may be held in memory at once.
+     */
+    public BatchProcessor(long memoryBudget) {
+        this.memoryBudget = Math.max(PERMIT_SIZE, memoryBudget);
+        this.totalPermits = (int) Math.min(Integer.MAX_VALUE, this.memoryBudget / PERMIT_SIZE);
+        this.memory = new Semaphore(totalPermits);
+    }
+
+    /**
+     * Lists the files of a batch: every regular file under a directory, or the paths listed one
+     * per line in a text file.
+     *
+     * @param source A directory or a file listing paths.
+     * @return The files of the batch.
+     * @throws IOException If the source cannot be read.
+     */
+    public static List<Path> listFiles(Path source) throws IOException {
+        if (Files.isDirectory(source)) {
+            try (Stream<Path> files = Files.walk(source)) {
+                return files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+        }
+        List<Path> files = new ArrayList<>();
+        for (String line : Files.readAllLines(source)) {
+            if (!line.trim().isEmpty()) {
+                files.add(Paths.get(line.trim()));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Compresses every file into an output directory, as the file name followed by {@value #EXTENSION}.
+     * Files keep their path relative to the base directory, so files with the same name in different
+     * directories do not collide; a file whose output another file of the batch already claims fails.
+     *
+     * @param files           The files to compress.
+     * @param base            The directory the files are relative to, or null for the deepest directory
+     *                        that holds all of them.
+     * @param outputDirectory The directory that receives the compressed files.
+     * @return The totals of the batch.
+     * @throws IOException If the output directory cannot be created.
+     */
+    public Report compress(List<Path> files, Path base, Path outputDirectory) throws IOException {
+        return run(files, base, outputDirectory, true);
+    }
+
+    /**
+     * Decompresses every file into an output directory, dropping the {@value #EXTENSION} extension.
+     *
+     * @param files           The files to decompress.
+     * @param base            The directory the files are relative to, or null for the deepest directory
+     *                        that holds all of them.
+     * @param outputDirectory The directory that receives the decompressed files.
+     * @return The totals of the batch.
+     * @throws IOException If the output directory cannot be created.
+     */
+    public Report decompress(List<Path> files, Path base, Path outputDirectory) throws IOException {
+        return run(files, base, outputDirectory, false);
+    }
+
+    /**
+     * Runs one task per file and waits for all of them.
+     */
+    private Report run(List<Path> files, Path base, Path outputDirectory, boolean compress) throws IOException {
+        Files.createDirectories(outputDirectory);
+        Report report = new Report();
+        long start = System.nanoTime();
+
+        if (base == null) {
+            base = commonDirectory(files);
+        }
+        ExecutorService executor = newPerFileExecutor();
+        try {
+            Set<Path> outputs = new HashSet<>();
+            for (Path file : files) {
+                Path output = outputDirectory.resolve(relativeName(file, base, compress))
+                        .toAbsolutePath().normalize();
+                if (!outputs.add(output)) {
+                    // Both tasks would write the same file, and the last one would silently win
+                    report.fail(file, new IOException("Otro archivo del lote ya se escribe en " + output));
+                    continue;
+                }
+                executor.execute(() -> process(file, output, compress, report));
+            }
+        } finally {
+            executor.shutdown();
+            try {
+                while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    // Keep waiting; every task ends on its own
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new IOException("Procesamiento por lotes interrumpido.", e);
+            }
+        }
+
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread per task, or a pool of platform threads
+     * on runtimes without virtual threads.
+     *
+     * @return The executor.
+     */
+    static ExecutorService newPerFileExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    /**
+     * Processes one file, reserving its share of the memory budget first, and records the outcome.
+     */
+    private void process(Path input, Path output, boolean compress, Report report) {
+        int permits = 0;
+        try {
+            long size = Files.size(input);
+            long bytes = size; // Decoded output is streamed, so only the input is held in memory
+            int needed = (int) Math.min(totalPermits, (Math.max(bytes, 1) + PERMIT_SIZE - 1) / PERMIT_SIZE);
+            memory.acquire(needed);
+            permits = needed;
+
+            Files.createDirectories(output.toAbsolutePath().getParent());
+            boolean inMemory = bytes <= memoryBudget;
+            if (compress) {
+                compressFile(input, output, inMemory);
+            } else {
+                decompressFile(input, output, inMemory);
+            }
+            report.add(size, Files.size(output));
+        } catch (IOException | RuntimeException e) {
+            report.fail(input, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            report.fail(input, e);
+        } finally {
+            memory.release(permits);
+        }
+    }
+
+    /**
+     * Compresses one file byte by byte, in memory or streamed twice from disk, publishing its metrics.
+     */
+    private static void compressFile(Path input, Path output, boolean inMemory) throws IOException {
+        CompressionMetrics metrics = new CompressionMetrics(CompressionMetrics.COMPRESS, input.toString());
+        byte[] data = null;
+        long[] frequencies = new long[256];
+        long start = metrics.begin();
+        if (inMemory) {
+            long read = System.nanoTime();
+            data = Files.readAllBytes(input);
+            metrics.endRead(read, data.length);
+            FrequencyHistogram.countBytes(data, 0, data.length, frequencies); // Files already run in parallel
+        } else {
+            frequencies = new FrequencyHistogram().countBytes(input);
+        }
+        metrics.end(CompressionMetrics.Phase.HISTOGRAM, start);
+        metrics.setFrequencies(frequencies);
+
+        start = metrics.begin();
+        HuffmanTree tree = new HuffmanTree();
+        tree.buildTree(frequencies, SymbolMode.BYTE);
+        metrics.endTree(tree, start);
+
+        long compressedBits;
+        try (InputStream in = inMemory ? new ByteArrayInputStream(data) : new BufferedInputStream(
+                     metrics.timed(Files.newInputStream(input)), HuffmanCompressor.BUFFER_SIZE);
+             OutputStream file = metrics.timed(Files.newOutputStream(output));
+             BitOutputStream out = new BitOutputStream(file)) {
+            HuffmanHeader.write(tree, file); // The header goes before any encoded bits
+            start = metrics.begin();
+            compressedBits = new HuffmanCompressor().compress(in, tree, out);
+            metrics.end(CompressionMetrics.Phase.ENCODE, start);
+        }
+        metrics.setSymbols(tree.getSymbolCount(), compressedBits);
+        metrics.finish();
+    }
+
+    /**
+     * Decompresses one file in whichever format it was written, publishing its metrics.
+     */
+    private static void decompressFile(Path input, Path output, boolean inMemory) throws IOException {
+        CompressionMetrics metrics = new CompressionMetrics(CompressionMetrics.DECOMPRESS, input.toString());
+        if (BlockDecompressor.isBlockFile(input.toString())) {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output),
+                    HuffmanCompressor.BUFFER_SIZE)) {
+                new BlockDecompressor().decompress(input.toString(), out, metrics);
+            }
+            metrics.finish();
+            return;
+        }
+
+        InputStream source;
+        if (inMemory) {
+            long read = System.nanoTime();
+            byte[] data = Files.readAllBytes(input);
+            metrics.endRead(read, data.length);
+            source = new ByteArrayInputStream(data);
+        } else {
+            source = new BufferedInputStream(metrics.timed(Files.newInputStream(input)), HuffmanCompressor.BUFFER_SIZE);
+        }
+        try (InputStream in = AdaptiveHuffmanInputStream.isAdaptiveFile(input.toString())
+                ? new AdaptiveHuffmanInputStream(source) : source;
+             OutputStream out = new BufferedOutputStream(metrics.timed(Files.newOutputStream(output)),
+                     HuffmanCompressor.BUFFER_SIZE)) {
+            long start = metrics.begin();
+            if (in instanceof AdaptiveHuffmanInputStream) {
+                in.transferTo(out);
+                metrics.end(CompressionMetrics.Phase.DECODE, start);
+            } else {
+                HuffmanTree tree = HuffmanHeader.read(in);
+                metrics.end(CompressionMetrics.Phase.HEADER, start);
+                metrics.setMaxCodeLength(tree.getMaxCodeLength());
+                start = metrics.begin();
+                new HuffmanDecompressor().decompress(in, tree, out);
+                metrics.end(CompressionMetrics.Phase.DECODE, start);
+                metrics.setSymbols(tree.getSymbolCount(), 0); // The code lengths alone do not give the encoded size
+            }
+        }
+        metrics.finish();
+    }
+
+    /**
+     * Returns the deepest directory that holds all the files, or null if they have no common root.
+     */
+    private static Path commonDirectory(List<Path> files) {
+        Path common = null;
+        for (int i = 0; i < files.size(); i++) {
+            Path parent = files.get(i).toAbsolutePath().normalize().getParent();
+            if (parent == null) {
+                return null;
+            }
+            if (i == 0) {
+                common = parent;
+            }
+            while (common != null && !parent.startsWith(common)) {
+                common = common.getParent();
+            }
+            if (common == null) {
+                return null;
+            }
+        }
+        return common;
+    }
+
+    /**
+     * Returns the output path of a file relative to the output directory.
+     */
+    private static Path relativeName(Path file, Path base, boolean compress) {
+        if (base != null) {
+            base = base.toAbsolutePath().normalize();
+            file = file.toAbsolutePath().normalize();
+        }
+        Path relative = base != null && file.startsWith(base) && !file.equals(base)
+                ? base.relativize(file) : file.getFileName();
+        String name = relative.getFileName().toString();
+        if (compress) {
+            name += EXTENSION;
+        } else if (name.endsWith(EXTENSION) && name.length() > EXTENSION.length()) {
+            name = name.substring(0, name.length() - EXTENSION.length());
+        } else {
+            name += ".out";
+        }
+        return relative.resolveSibling(name);
+    }
+
+    /**
+     * Totals of a batch, updated concurrently by its tasks.
+     */
+    static class Report {
+        private final AtomicLong files = new AtomicLong(); // Files processed successfully
+        private final AtomicLong inputBytes = new AtomicLong(); // Bytes read from the processed files
+        private final AtomicLong outputBytes = new AtomicLong(); // Bytes written for the processed files
+        private final List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        private long elapsedNanos; // Wall-clock time of the whole batch
+
+        private void add(long input, long output) {
+            files.incrementAndGet();
+            inputBytes.addAndGet(input);
+            outputBytes.addAndGet(output);
+        }
+
+        private void fail(Path file, Exception e) {
+            failures.add(file + ": " + e.getMessage());
+        }
+
+        /**
+         * Returns the number of files processed successfully.
+         *
+         * @return The file count.
+         */
+        public long getFiles() {
+            return files.get();
+        }
+
+        /**
+         * Returns the number of bytes read from the processed files.
+         *
+         * @return The input size.
+         */
+        public long getInputBytes() {
+            return inputBytes.get();
+        }
+
+        /**
+         * Returns the number of bytes written for the processed files.
+         *
+         * @return The output size.
+         */
+        public long getOutputBytes() {
+            return outputBytes.get();
+        }
+
+        /**
+         * Returns a description of every file that could not be processed.
+         *
+         * @return The failures, as the path followed by the error.
+         */
+        public List<String> getFailures() {
+            return failures;
+        }
+
+        /**
+         * Returns the wall-clock time of the whole batch.
+         *
+         * @return The elapsed time in nanoseconds.
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Returns the throughput of the batch.
+         *
+         * @return Input megabytes (2^20 bytes) processed per second.
+         */
+        public double getMegabytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : inputBytes.get() / (1024.0 * 1024.0) / (elapsedNanos / 1e9);
+        }
+    }
+}
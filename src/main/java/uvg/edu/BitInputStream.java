@@ -6,13 +6,19 @@ package uvg.edu;
 
     /**
      * BitInputStream class provides functionality to read individual bits from an input stream.
-     * It maintains the current byte being read and the position of the bit within that byte.
+     * Bytes are read in bulk into an internal buffer and shifted into a 64-bit bit buffer,
+     * so callers can either read single bits or peek and skip several bits at once.
      * Implements AutoCloseable to ensure the input stream is properly closed.
      */
     class BitInputStream implements AutoCloseable {
-        private InputStream in; // The underlying input stream
-        private int currentByte; // The current byte being processed
-        private int bitPosition; // The position of the next bit to read in the current byte
+        private static final int BUFFER_SIZE = 64 * 1024; // Size of the byte buffer used for bulk reads
+
+        private InputStream in; // The underlying input stream (null when reading from an array)
+        private byte[] buffer; // Bytes read from the input but not yet moved into the bit buffer
+        private int bufferPosition; // The position of the next byte to take from the buffer
+        private int bufferLimit; // The number of valid bytes in the buffer
+        private long bitBuffer; // Pending bits, the oldest one at position bitCount - 1
+        private int bitCount; // The number of valid bits in the bit buffer
 
         /**
          * Constructs a BitInputStream with the specified input stream.
@@ -21,7 +27,20 @@ package uvg.edu;
          */
         public BitInputStream(InputStream in) {
             this.in = in;
-            this.bitPosition = 8; // Initialize bit position to 8 (indicating a new byte needs to be read)
+            this.buffer = new byte[BUFFER_SIZE];
+        }
+
+        /**
+         * Constructs a BitInputStream that reads bits directly from a region of a byte array.
+         *
+         * @param data   The array holding the bits.
+         * @param offset The index of the first byte to read.
+         * @param length The number of bytes to read.
+         */
+        public BitInputStream(byte[] data, int offset, int length) {
+            this.buffer = data;
+            this.bufferPosition = offset;
+            this.bufferLimit = offset + length;
         }
 
         /**
@@ -32,18 +51,86 @@ package uvg.edu;
          * @throws EOFException If the end of the stream is reached.
          */
         public boolean readBit() throws IOException {
-            if (bitPosition == 8) { // If all bits in the current byte have been read
-                currentByte = in.read(); // Read the next byte from the input stream
-                if (currentByte == -1) { // Check for end of stream
+            if (bitCount == 0) { // If all buffered bits have been read
+                if (bufferPosition == bufferLimit && !refillBuffer()) {
                     throw new EOFException();
                 }
-                bitPosition = 0; // Reset bit position for the new byte
+                // Take only bytes already buffered, so a live stream is not waited on needlessly
+                while (bitCount <= 56 && bufferPosition < bufferLimit) {
+                    bitBuffer = (bitBuffer << 8) | (buffer[bufferPosition++] & 0xFF);
+                    bitCount += 8;
+                }
             }
 
-            // Extract the bit at the current position
-            boolean bit = ((currentByte >> (7 - bitPosition)) & 1) == 1;
-            bitPosition++; // Move to the next bit
-            return bit;
+            bitCount--; // Consume the oldest pending bit
+            return ((bitBuffer >>> bitCount) & 1) == 1;
+        }
+
+        /**
+         * Moves as many whole bytes as fit into the 64-bit bit buffer.
+         *
+         * @return The number of bits available after refilling, which is 0 only at the end of the stream.
+         * @throws IOException If an I/O error occurs while reading the stream.
+         */
+        public int fill() throws IOException {
+            while (bitCount <= 56) {
+                if (bufferPosition == bufferLimit && !refillBuffer()) {
+                    break;
+                }
+                bitBuffer = (bitBuffer << 8) | (buffer[bufferPosition++] & 0xFF);
+                bitCount += 8;
+            }
+            return bitCount;
+        }
+
+        /**
+         * Returns how many bits can be read without reading from the underlying stream.
+         *
+         * @return The number of buffered bits.
+         */
+        public long bufferedBits() {
+            return bitCount + 8L * (bufferLimit - bufferPosition);
+        }
+
+        /**
+         * Returns the next bits without consuming them.
+         * If fewer bits are available, the missing low-order bits are returned as zeros.
+         * Callers are expected to call {@link #fill()} beforehand.
+         *
+         * @param count The number of bits to peek, at most 32.
+         * @return The next {@code count} bits, the first one in the most significant position.
+         */
+        public int peekBits(int count) {
+            long bits = count <= bitCount ? bitBuffer >>> (bitCount - count) : bitBuffer << (count - bitCount);
+            return (int) (bits & ((1L << count) - 1));
+        }
+
+        /**
+         * Consumes bits previously inspected with {@link #peekBits(int)}.
+         *
+         * @param count The number of bits to consume, at most the number of available bits.
+         */
+        public void skipBits(int count) {
+            bitCount -= count;
+        }
+
+        /**
+         * Reads the next chunk of bytes from the underlying stream into the buffer.
+         *
+         * @return True if at least one byte was read, false at the end of the stream.
+         * @throws IOException If an I/O error occurs while reading the stream.
+         */
+        private boolean refillBuffer() throws IOException {
+            if (in == null) { // Arrays are consumed in place and cannot be refilled
+                return false;
+            }
+            int read = in.read(buffer, 0, buffer.length);
+            if (read <= 0) {
+                return false;
+            }
+            bufferPosition = 0;
+            bufferLimit = read;
+            return true;
         }
 
         /**
@@ -53,6 +140,8 @@ package uvg.edu;
          */
         @Override
         public void close() throws IOException {
-            in.close();
+            if (in != null) {
+                in.close();
+            }
         }
-    }
\ No newline at end of file
+    }
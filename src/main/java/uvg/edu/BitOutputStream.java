@@ -4,14 +4,19 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 /**
- * BitOutputStream class provides functionality to write individual bits to an output stream.
- * It maintains the current byte being written and the position of the bit within that byte.
+ * BitOutputStream class provides functionality to write bits to an output stream.
+ * Bits are collected in a 64-bit accumulator and moved to a byte buffer one 32-bit word at a time;
+ * the buffer is written to the underlying stream only when it is full.
  * Implements AutoCloseable to ensure the output stream is properly closed.
  */
 class BitOutputStream implements AutoCloseable {
+    private static final int BUFFER_SIZE = 64 * 1024; // Size of the byte buffer written in bulk
+
     private OutputStream out; // The underlying output stream
-    private int currentByte; // The current byte being constructed
-    private int bitPosition; // The position of the next bit to write in the current byte
+    private byte[] buffer; // Completed bytes waiting to be written
+    private int bufferPosition; // The number of bytes in the buffer
+    private long bitBuffer; // Pending bits, the newest one in the lowest position
+    private int bitCount; // The number of pending bits in the accumulator, always below 32 between calls
 
     /**
      * Constructs a BitOutputStream with the specified output stream.
@@ -20,8 +25,7 @@ class BitOutputStream implements AutoCloseable {
      */
     public BitOutputStream(OutputStream out) {
         this.out = out;
-        this.currentByte = 0; // Initialize the current byte to 0
-        this.bitPosition = 0; // Initialize the bit position to 0
+        this.buffer = new byte[BUFFER_SIZE];
     }
 
     /**
@@ -31,31 +35,86 @@ class BitOutputStream implements AutoCloseable {
      * @throws IOException If an I/O error occurs while writing to the stream.
      */
     public void writeBit(boolean bit) throws IOException {
-        if (bit) {
-            // Set the bit at the current position in the current byte
-            currentByte = currentByte | (1 << (7 - bitPosition));
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Writes the lowest bits of a value, most significant bit first.
+     *
+     * @param bits  The value holding the bits to write.
+     * @param count The number of bits to write, between 0 and 64.
+     * @throws IOException If an I/O error occurs while writing to the stream.
+     */
+    public void writeBits(long bits, int count) throws IOException {
+        if (count > 32) { // Keep the accumulator from overflowing
+            writeBits(bits >>> 32, count - 32);
+            count = 32;
+        }
+
+        bitBuffer = (bitBuffer << count) | (bits & ((1L << count) - 1));
+        bitCount += count;
+
+        if (bitCount >= 32) { // A whole word is ready
+            if (bufferPosition + 4 > buffer.length) {
+                flushBuffer();
+            }
+            int word = (int) (bitBuffer >>> (bitCount - 32));
+            buffer[bufferPosition++] = (byte) (word >>> 24);
+            buffer[bufferPosition++] = (byte) (word >>> 16);
+            buffer[bufferPosition++] = (byte) (word >>> 8);
+            buffer[bufferPosition++] = (byte) word;
+            bitCount -= 32;
         }
+    }
 
-        bitPosition++; // Move to the next bit position
+    /**
+     * Writes the buffered bytes to the underlying stream.
+     *
+     * @throws IOException If an I/O error occurs while writing to the stream.
+     */
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, bufferPosition);
+        bufferPosition = 0;
+    }
 
-        if (bitPosition == 8) { // If the current byte is full
-            out.write(currentByte); // Write the byte to the output stream
-            currentByte = 0; // Reset the current byte
-            bitPosition = 0; // Reset the bit position
+    /**
+     * Writes every complete byte to the underlying stream and flushes it.
+     * Fewer than eight bits may stay pending; they are written with later bits or on close.
+     *
+     * @throws IOException If an I/O error occurs while writing to the stream.
+     */
+    public void flush() throws IOException {
+        while (bitCount >= 8) {
+            if (bufferPosition == buffer.length) {
+                flushBuffer();
+            }
+            bitCount -= 8;
+            buffer[bufferPosition++] = (byte) (bitBuffer >>> bitCount);
         }
+        flushBuffer();
+        out.flush();
     }
 
     /**
      * Closes the output stream.
-     * If there are remaining bits in the current byte, it writes the byte before closing.
+     * Pending bits are written first, with the last byte padded with zeros.
      *
      * @throws IOException If an I/O error occurs while closing the stream.
      */
     @Override
     public void close() throws IOException {
-        if (bitPosition > 0) { // If there are unwritten bits in the current byte
-            out.write(currentByte); // Write the remaining bits
+        if (bitCount > 0) { // If there are unwritten bits, pad them to whole bytes
+            int padding = (8 - bitCount % 8) % 8;
+            writeBits(0, padding);
+            while (bitCount > 0) {
+                if (bufferPosition == buffer.length) {
+                    flushBuffer();
+                }
+                bitCount -= 8;
+                buffer[bufferPosition++] = (byte) (bitBuffer >>> bitCount);
+            }
         }
+        flushBuffer();
         out.close(); // Close the underlying output stream
     }
-}
\ No newline at end of file
+}
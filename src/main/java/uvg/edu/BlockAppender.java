@@ -0,0 +1,227 @@
+package uvg.edu;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Appends data to an existing compressed file without recompressing what it already holds.
+ * The new data is compressed into blocks, each with its own code, written after the old trailer;
+ * a new index covering the old and the new blocks and a new trailer follow them. The cost of an
+ * append therefore depends only on the size of the new data, and the result is an ordinary block
+ * file that {@link BlockDecompressor} reads like any other. The old index and trailer stay in the
+ * file, unused, at the cost of a few bytes per block for each append.
+ * <p>
+ * The new blocks are coded with the options recorded in the header of the file, so appending keeps
+ * the transforms, context models and interleaving the file was written with.
+ * <p>
+ * Nothing the file already holds is overwritten, and the new blocks and index are forced to disk
+ * before the new trailer is written, so until the trailer is complete the old trailer is the last
+ * valid one in the file. If the append fails, the file is cut back to its old end; if it is cut
+ * short by a crash or a full disk, reading the file fails until the next append cuts the torn tail
+ * off. A file whose last trailer was damaged after its append completed is never cut back: the
+ * append is refused instead, since the blocks after the previous trailer are complete.
+ * A file with a single header, as written by {@link HuffmanCompressor}, is first turned into a block
+ * file whose blocks hold its encoded data split at block boundaries, without recoding it.
+ */
+class BlockAppender {
+
+    private final ForkJoinPool pool; // Pool the new blocks are encoded on
+
+    /**
+     * Constructs a BlockAppender on the common pool.
+     */
+    public BlockAppender() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a BlockAppender.
+     *
+     * @param pool The pool the new blocks are encoded on.
+     */
+    public BlockAppender(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Appends data to a compressed file. The data is split into symbols with the alphabet of the file
+     * and coded with the options recorded in its header.
+     *
+     * @param archive The compressed file, in the block format or with a single header.
+     * @param in      The stream supplying the data to append.
+     * @return The number of symbols appended.
+     * @throws IOException If an I/O error occurs, or the file is of a format that cannot be appended to.
+     */
+    public long append(Path archive, InputStream in) throws IOException {
+        return append(archive, in, new CompressionMetrics(CompressionMetrics.COMPRESS, null));
+    }
+
+    /**
+     * Appends data to a compressed file with the options recorded in its header, measuring the append.
+     *
+     * @param archive The compressed file, in the block format or with a single header.
+     * @param in      The stream supplying the data to append.
+     * @param metrics The metrics of the operation, which receive the time spent reading the data and
+     *                writing the file, the encoding time of every new block added up and the symbols
+     *                and bits encoded; the caller finishes them.
+     * @return The number of symbols appended.
+     * @throws IOException If an I/O error occurs, or the file is of a format that cannot be appended to.
+     */
+    public long append(Path archive, InputStream in, CompressionMetrics metrics) throws IOException {
+        if (!BlockDecompressor.isBlockFile(archive.toString())) {
+            convertToBlocks(archive, BlockOptions.DEFAULT);
+        }
+        BlockOptions options;
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            options = BlockDecompressor.readOptions(BlockDecompressor.openHeader(channel));
+        }
+        return append(archive, in, options, metrics);
+    }
+
+    /**
+     * Appends data to a compressed file, coding the new blocks with other options than the ones the
+     * file was written with. The header keeps the old options, so the blocks cannot be larger than the
+     * recorded block size, which bounds every block when the file is read.
+     *
+     * @param archive The compressed file, in the block format or with a single header.
+     * @param in      The stream supplying the data to append.
+     * @param options How the new blocks are coded.
+     * @param metrics The metrics of the operation; the caller finishes them.
+     * @return The number of symbols appended.
+     * @throws IOException If an I/O error occurs, or the file is of a format that cannot be appended to.
+     * @throws IllegalArgumentException If transforms are configured and the file is not by bytes, or
+     *                                  the block size is larger than the one recorded in the header.
+     */
+    public long append(Path archive, InputStream in, BlockOptions options, CompressionMetrics metrics)
+            throws IOException {
+        if (!BlockDecompressor.isBlockFile(archive.toString())) {
+            convertToBlocks(archive, options);
+        }
+
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            SymbolMode mode = BlockDecompressor.readHeader(BlockDecompressor.openHeader(channel));
+            int blockSize = BlockDecompressor.readOptions(BlockDecompressor.openHeader(channel)).getBlockSize();
+            if (options.getBlockSize() > blockSize) {
+                throw new IllegalArgumentException(
+                        "El tamaño de bloque no puede superar el registrado en el archivo: " + blockSize);
+            }
+
+            // A torn tail left by an interrupted append is cut off first
+            List<long[]> index = new ArrayList<>();
+            long indexOffset = BlockDecompressor.recoverIndex(channel, index);
+            long end = BlockDecompressor.trailerEnd(indexOffset, index.size());
+            if (end < channel.size()) {
+                channel.truncate(end);
+            }
+
+            channel.position(end);
+            BlockCompressor.CountingOutputStream counter = new BlockCompressor.CountingOutputStream(
+                    new BufferedOutputStream(metrics.timed(Channels.newOutputStream(channel)),
+                            HuffmanCompressor.BUFFER_SIZE), end);
+            DataOutputStream data = new DataOutputStream(counter);
+            try {
+                BlockCompressor compressor = new BlockCompressor(pool, options);
+                long symbols = compressor.compressBlocks(metrics.timed(in), mode, counter, index, metrics);
+                if (symbols == 0) {
+                    return 0; // Nothing was written, and the old trailer still ends the file
+                }
+                long newIndexOffset = counter.count;
+                BlockCompressor.writeEntries(data, index);
+                data.flush();
+                channel.force(true); // The blocks and the index are on disk before the trailer points to them
+                BlockCompressor.writeTrailer(data, newIndexOffset, index.size());
+                data.flush();
+                channel.force(true);
+                return symbols;
+            } catch (IOException | RuntimeException e) {
+                channel.truncate(end);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Rewrites a file with a single header as a block file. The header already holds the code lengths
+     * every block needs, so the encoded data is only split, not recoded: the codes are walked once
+     * and the bits of every run of at most a block size of symbols are copied into a block of their
+     * own, all with the code of the file. Only one block is held in memory at a time, and the blocks
+     * decode in parallel like those of any other block file. The file is replaced only once the
+     * block file is complete.
+     *
+     * @param archive The compressed file.
+     * @param options The options recorded in the header of the block file, whose block size splits
+     *                the data.
+     * @throws IOException If an I/O error occurs, or the file is not a single-header file that can be
+     *                     split into blocks.
+     * @throws IllegalArgumentException If transforms are configured and the file is not by bytes.
+     */
+    static void convertToBlocks(Path archive, BlockOptions options) throws IOException {
+        Path converted = archive.resolveSibling(archive.getFileName() + ".tmp");
+        try (BufferedInputStream in = new BufferedInputStream(Files.newInputStream(archive));
+             OutputStream file = Files.newOutputStream(converted)) {
+            byte[] magic = new byte[HuffmanHeader.MAGIC.length];
+            in.mark(magic.length);
+            if (in.read(magic) != magic.length || !Arrays.equals(magic, HuffmanHeader.MAGIC)) {
+                throw new IOException(
+                        "Solo se pueden anexar datos a archivos comprimidos con un encabezado o por bloques.");
+            }
+            in.reset();
+
+            HuffmanTree tree = HuffmanHeader.read(in);
+            if (tree.getMode() == SymbolMode.WORD) {
+                throw new IOException("El archivo no se puede convertir al formato por bloques.");
+            }
+            options.checkMode(tree.getMode());
+
+            BlockCompressor.CountingOutputStream counter = new BlockCompressor.CountingOutputStream(
+                    new BufferedOutputStream(file, HuffmanCompressor.BUFFER_SIZE));
+            DataOutputStream data = new DataOutputStream(counter);
+            BlockCompressor.writeHeader(data, tree.getMode(), options);
+            List<long[]> index = new ArrayList<>();
+            byte[] codeLengths = tree.getCodeLengths();
+            HuffmanTableDecoder decoder = new HuffmanTableDecoder(codeLengths);
+            long[] codes = CanonicalCode.assignCodes(codeLengths);
+            BitInputStream bits = new BitInputStream(in);
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+
+            for (long remaining = tree.getSymbolCount(); remaining > 0; ) {
+                int count = (int) Math.min(remaining, options.getBlockSize());
+                payload.reset();
+                BitOutputStream blockBits = new BitOutputStream(payload);
+                for (int i = 0; i < count; i++) {
+                    int symbol = decoder.decodeSymbol(bits);
+                    if (symbol < 0) {
+                        throw new IOException("Los datos comprimidos terminan antes de tiempo.");
+                    }
+                    blockBits.writeBits(codes[symbol], codeLengths[symbol]);
+                }
+                blockBits.close(); // Pads the last byte of the block
+
+                index.add(new long[]{counter.count, count});
+                new HuffmanBlock(count, codeLengths, payload.toByteArray()).write(data);
+                remaining -= count;
+            }
+            BlockCompressor.writeIndex(data, index, counter.count);
+            data.flush();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(converted);
+            throw e;
+        }
+        Files.move(converted, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,349 @@
+package uvg.edu;
+
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Compresses data as a sequence of independent blocks, each with its own Huffman code,
+ * encoding several blocks at once on a {@link ForkJoinPool}.
+ * The file layout is:
+ * <pre>
+ *   'H' 'U' 'B' version mode options      header, options as written by {@link BlockOptions#write}
+ *   block*                                 as written by {@link HuffmanBlock#write}
+ *   (offset symbolCount)*                  index: 8-byte offset and 4-byte symbol count per block
+ *   indexOffset blockCount 'H' 'U' 'B' version   16-byte trailer
+ * </pre>
+ * The index lets the decompressor locate every block up front and decode them in parallel too.
+ * Version 1 files record only the block size in place of the options; they are still read.
+ */
+class BlockCompressor {
+
+    static final int DEFAULT_BLOCK_SIZE = 1 << 20; // Symbols per block unless configured otherwise
+    static final byte[] MAGIC = {'H', 'U', 'B'};
+    static final int VERSION = 2; // Version of the block file format
+    static final int MAX_HEADER_SIZE = 512; // Upper bound on the header size, options included
+    static final int TRAILER_SIZE = 16; // Size in bytes of the trailer at the end of the file
+    static final int INDEX_ENTRY_SIZE = 12; // Size in bytes of each index entry
+
+    private final ForkJoinPool pool; // Pool the blocks are encoded on
+    private final BlockOptions options; // How the blocks are coded
+    private int storedBlocks; // Blocks written uncompressed so far
+    private int contextBlocks; // Blocks written with a context model so far
+    private long encodedBits; // Payload bits of the blocks written so far
+    private long unlimitedBits; // Payload bits the same blocks would need without a length limit
+
+    /**
+     * Constructs a BlockCompressor with the default options on the common pool.
+     */
+    public BlockCompressor() {
+        this(ForkJoinPool.commonPool(), BlockOptions.DEFAULT);
+    }
+
+    /**
+     * Constructs a BlockCompressor. Blocks are coded as the options say: codes no longer than a
+     * maximum, interleaved streams, byte blocks stored unless coding saves enough, context models
+     * and transforms, which all run on the pool in parallel.
+     *
+     * @param pool    The pool the blocks are encoded on.
+     * @param options How the blocks are coded.
+     */
+    public BlockCompressor(ForkJoinPool pool, BlockOptions options) {
+        this.pool = pool;
+        this.options = options;
+    }
+
+    /**
+     * Compresses a stream into the block format.
+     * Blocks are read one after another and handed to the pool; at most two blocks per worker
+     * are in flight, so memory use depends on the block size and not on the input size.
+     *
+     * @param in   The stream supplying the data to compress.
+     * @param mode The alphabet the data is split into.
+     * @param out  The stream that receives the compressed file.
+     * @return The number of symbols compressed.
+     * @throws IOException If an I/O error occurs while reading or writing.
+     * @throws IllegalArgumentException If the alphabet is words, or transforms are configured and the
+     *                                  alphabet is not bytes.
+     */
+    public long compress(InputStream in, SymbolMode mode, OutputStream out) throws IOException {
+        return compress(in, mode, out, new CompressionMetrics(CompressionMetrics.COMPRESS, null));
+    }
+
+    /**
+     * Compresses a stream into the block format, measuring the compression.
+     *
+     * @param in      The stream supplying the data to compress.
+     * @param mode    The alphabet the data is split into.
+     * @param out     The stream that receives the compressed file.
+     * @param metrics The metrics of the operation, which receive the time spent reading and writing,
+     *                the encoding time of every block added up and the symbols and bits encoded;
+     *                the caller finishes them.
+     * @return The number of symbols compressed.
+     * @throws IOException If an I/O error occurs while reading or writing.
+     * @throws IllegalArgumentException If the alphabet is words, or transforms are configured and the
+     *                                  alphabet is not bytes.
+     */
+    public long compress(InputStream in, SymbolMode mode, OutputStream out, CompressionMetrics metrics)
+            throws IOException {
+        CountingOutputStream counter = new CountingOutputStream(metrics.timed(out));
+        DataOutputStream data = new DataOutputStream(counter);
+
+        writeHeader(data, mode, options);
+        List<long[]> index = new ArrayList<>();
+        long totalSymbols = compressBlocks(metrics.timed(in), mode, counter, index, metrics);
+        writeIndex(data, index, counter.count);
+        data.flush();
+
+        return totalSymbols;
+    }
+
+    /**
+     * Compresses a stream into blocks written one after another, without the header or the index,
+     * so they can also be appended to an existing block file. Each block is encoded by a task that
+     * times itself into metrics of its own, merged into those of the operation as the block is written.
+     *
+     * @param in      The stream supplying the data to compress.
+     * @param mode    The alphabet the data is split into.
+     * @param counter The stream that receives the blocks, counting from the file offset it starts at.
+     * @param index   The index the offset and symbol count of every block written are added to.
+     * @param metrics The metrics of the operation.
+     * @return The number of symbols compressed.
+     * @throws IOException If an I/O error occurs while reading or writing.
+     */
+    long compressBlocks(InputStream in, SymbolMode mode, CountingOutputStream counter, List<long[]> index,
+                        CompressionMetrics metrics) throws IOException {
+        options.checkMode(mode);
+        SymbolReader reader = mode.openReader(in);
+        Deque<ForkJoinTask<EncodedBlock>> pending = new ArrayDeque<>();
+        int window = pool.getParallelism() * 2;
+        long totalSymbols = 0;
+
+        while (true) {
+            int[] symbols = new int[options.getBlockSize()];
+            int count = readBlock(reader, symbols);
+            if (count == 0) {
+                break;
+            }
+            totalSymbols += count;
+            CompressionMetrics task = metrics.forTask();
+            pending.add(pool.submit(() -> encodeBlock(symbols, count, mode, task)));
+
+            // Write finished blocks in order once the window is full
+            if (pending.size() >= window) {
+                writeBlock(join(pending.poll()), counter, index, metrics);
+            }
+        }
+        while (!pending.isEmpty()) {
+            writeBlock(join(pending.poll()), counter, index, metrics);
+        }
+        return totalSymbols;
+    }
+
+    /**
+     * Encodes a block on a worker, timing each phase into the metrics of its task.
+     */
+    private EncodedBlock encodeBlock(int[] symbols, int count, SymbolMode mode, CompressionMetrics task)
+            throws IOException {
+        HuffmanBlock block = HuffmanBlock.encode(symbols, count, mode, options, task);
+        task.setSymbols(count, block.getEncodedBits());
+        task.setMaxCodeLength(block.getMaxCodeLength());
+        return new EncodedBlock(block, task);
+    }
+
+    /**
+     * Writes the header of a block file.
+     *
+     * @param out     The stream to write to.
+     * @param mode    The alphabet the blocks are encoded over.
+     * @param options How the blocks are coded, recorded so that data appended later is coded alike.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    static void writeHeader(OutputStream out, SymbolMode mode, BlockOptions options) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+        out.write(mode.ordinal());
+        options.write(out);
+    }
+
+    /**
+     * Writes the block index and the trailer that ends a block file.
+     *
+     * @param out         The stream to write to.
+     * @param index       The offset and symbol count of every block, in order.
+     * @param indexOffset The offset in the file where the index starts.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    static void writeIndex(DataOutputStream out, List<long[]> index, long indexOffset) throws IOException {
+        writeEntries(out, index);
+        writeTrailer(out, indexOffset, index.size());
+    }
+
+    /**
+     * Writes the entries of the block index.
+     *
+     * @param out   The stream to write to.
+     * @param index The offset and symbol count of every block, in order.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    static void writeEntries(DataOutputStream out, List<long[]> index) throws IOException {
+        for (long[] entry : index) {
+            out.writeLong(entry[0]);
+            out.writeInt((int) entry[1]);
+        }
+    }
+
+    /**
+     * Writes the trailer that ends a block file and points to its index.
+     *
+     * @param out         The stream to write to.
+     * @param indexOffset The offset in the file where the index starts.
+     * @param blockCount  The number of blocks in the index.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    static void writeTrailer(DataOutputStream out, long indexOffset, int blockCount) throws IOException {
+        out.writeLong(indexOffset);
+        out.writeInt(blockCount);
+        out.write(MAGIC);
+        out.write(VERSION);
+    }
+
+    /**
+     * Returns how much larger the payload of the compressed blocks is because of the code length limit.
+     *
+     * @return The relative size increase, 0 when no limit was applied.
+     */
+    public double getLengthLimitLoss() {
+        return unlimitedBits == 0 ? 0 : (double) (encodedBits - unlimitedBits) / unlimitedBits;
+    }
+
+    /**
+     * Returns the number of blocks written uncompressed because coding them would not save enough.
+     *
+     * @return The number of stored blocks.
+     */
+    public int getStoredBlocks() {
+        return storedBlocks;
+    }
+
+    /**
+     * Returns the number of blocks written with an order-1 context model.
+     *
+     * @return The number of context blocks.
+     */
+    public int getContextBlocks() {
+        return contextBlocks;
+    }
+
+    /**
+     * Fills a block with symbols from the reader.
+     *
+     * @param reader  The reader to take symbols from.
+     * @param symbols The array that receives the symbols.
+     * @return The number of symbols read, 0 at the end of the input.
+     * @throws IOException If an I/O error occurs while reading.
+     */
+    static int readBlock(SymbolReader reader, int[] symbols) throws IOException {
+        int count = 0;
+        while (count < symbols.length) {
+            int read = reader.read(symbols, count, symbols.length - count);
+            if (read == -1) {
+                break;
+            }
+            count += read;
+        }
+        return count;
+    }
+
+    /**
+     * Writes an encoded block, records it in the index and adds the metrics of its task to those
+     * of the operation.
+     */
+    private void writeBlock(EncodedBlock encoded, CountingOutputStream counter, List<long[]> index,
+                            CompressionMetrics metrics) throws IOException {
+        HuffmanBlock block = encoded.block;
+        index.add(new long[]{counter.count, block.getSymbolCount()});
+        if (block.isStored()) {
+            storedBlocks++;
+        }
+        if (block.isContextCoded()) {
+            contextBlocks++;
+        }
+        encodedBits += block.getEncodedBits();
+        unlimitedBits += block.getUnlimitedBits();
+        block.write(counter);
+        metrics.merge(encoded.metrics);
+    }
+
+    /**
+     * A block encoded by a task, with the metrics the task was timed into.
+     */
+    private static final class EncodedBlock {
+        final HuffmanBlock block; // The encoded block
+        final CompressionMetrics metrics; // Metrics of the task that encoded it
+
+        EncodedBlock(HuffmanBlock block, CompressionMetrics metrics) {
+            this.block = block;
+            this.metrics = metrics;
+        }
+    }
+
+    /**
+     * Waits for a task and returns its result, unwrapping I/O errors.
+     *
+     * @param task The task to wait for.
+     * @param <T>  The type of the result.
+     * @return The result of the task.
+     * @throws IOException If the task failed.
+     */
+    static <T> T join(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Compresión interrumpida.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Output stream that keeps track of how many bytes went through it.
+     */
+    static class CountingOutputStream extends FilterOutputStream {
+        long count; // Number of bytes written so far
+
+        CountingOutputStream(OutputStream out) {
+            this(out, 0);
+        }
+
+        CountingOutputStream(OutputStream out, long start) {
+            super(out);
+            this.count = start;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package uvg.edu;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Decompresses files written by {@link BlockCompressor}.
+ * The block index at the end of the file gives the position of every block,
+ * so blocks are read and decoded in parallel on a {@link ForkJoinPool} and written out in order.
+ * Stored blocks are not decoded: their bytes are copied to the output in a single write.
+ * <p>
+ * A file whose last append was cut short, by a crash or a full disk, ends in a torn tail after its
+ * last complete trailer. Reading such a file fails rather than quietly returning less data than it
+ * holds; {@link BlockAppender} cuts the torn tail off before its next append.
+ */
+class BlockDecompressor {
+
+    private static final int MIN_HEADER_SIZE = 6; // Size of the shortest header, that of version 1
+    private static final int MIN_FILE_SIZE = MIN_HEADER_SIZE + BlockCompressor.TRAILER_SIZE; // Size of an empty file
+
+    private final ForkJoinPool pool; // Pool the blocks are decoded on
+
+    /**
+     * Constructs a BlockDecompressor on the common pool.
+     */
+    public BlockDecompressor() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a BlockDecompressor.
+     *
+     * @param pool The pool the blocks are decoded on.
+     */
+    public BlockDecompressor(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Checks whether a file starts with the magic number of the block format.
+     *
+     * @param file The path of the file.
+     * @return True if the file is a block-format file.
+     * @throws IOException If the file cannot be read.
+     */
+    public static boolean isBlockFile(String file) throws IOException {
+        try (InputStream in = Files.newInputStream(Paths.get(file))) {
+            byte[] magic = new byte[BlockCompressor.MAGIC.length];
+            return in.read(magic) == magic.length && Arrays.equals(magic, BlockCompressor.MAGIC);
+        }
+    }
+
+    /**
+     * Decompresses a block-format file.
+     *
+     * @param compressedFile The path to the compressed file.
+     * @param out            The stream that receives the decompressed data.
+     * @return The number of symbols decompressed.
+     * @throws IOException If an I/O error occurs or the file is malformed.
+     */
+    public long decompress(String compressedFile, OutputStream out) throws IOException {
+        return decompress(compressedFile, out, new CompressionMetrics(CompressionMetrics.DECOMPRESS, null));
+    }
+
+    /**
+     * Decompresses a block-format file, measuring the decompression. Each block is read and decoded
+     * by a task that times itself into metrics of its own, merged into those of the operation as the
+     * block is written.
+     *
+     * @param compressedFile The path to the compressed file.
+     * @param out            The stream that receives the decompressed data.
+     * @param metrics        The metrics of the operation, which receive the time spent reading and
+     *                       writing, the time every block took to parse and decode added up, and the
+     *                       symbols decoded; the caller finishes them.
+     * @return The number of symbols decompressed.
+     * @throws IOException If an I/O error occurs or the file is malformed.
+     */
+    public long decompress(String compressedFile, OutputStream out, CompressionMetrics metrics) throws IOException {
+        Path path = Paths.get(compressedFile);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // Header: magic, version, mode and options
+            SymbolMode mode = readHeader(openHeader(channel));
+            int blockSize = readOptions(openHeader(channel)).getBlockSize();
+
+            // Trailer and index
+            List<long[]> index = new ArrayList<>();
+            long indexOffset = readIndex(channel, index);
+            int blockCount = index.size();
+            long[] offsets = new long[blockCount + 1];
+            for (int i = 0; i < blockCount; i++) {
+                offsets[i] = index.get(i)[0];
+            }
+            offsets[blockCount] = indexOffset;
+
+            // Decode blocks in parallel, keeping at most two per worker in flight
+            OutputStream timed = metrics.timed(out);
+            SymbolWriter writer = mode.openWriter(timed);
+            Deque<ForkJoinTask<DecodedBlock>> pending = new ArrayDeque<>();
+            int window = pool.getParallelism() * 2;
+            long totalSymbols = 0;
+
+            for (int i = 0; i < blockCount; i++) {
+                long offset = offsets[i];
+                long length = offsets[i + 1] - offset;
+                long symbols = index.get(i)[1];
+                if (symbols > blockSize || length > Integer.MAX_VALUE) {
+                    throw new IOException("El bloque " + i + " del archivo por bloques es inválido.");
+                }
+                CompressionMetrics task = metrics.forTask();
+                pending.add(pool.submit(() -> decodeBlock(channel, offset, (int) length, mode, blockSize,
+                        (int) symbols, task)));
+
+                if (pending.size() >= window) {
+                    totalSymbols += writeBlock(BlockCompressor.join(pending.poll()), mode, writer, timed, metrics);
+                }
+            }
+            while (!pending.isEmpty()) {
+                totalSymbols += writeBlock(BlockCompressor.join(pending.poll()), mode, writer, timed, metrics);
+            }
+            writer.flush();
+
+            return totalSymbols;
+        }
+    }
+
+    /**
+     * Reads the trailer and the block index at the end of a block-format file.
+     *
+     * @param channel The channel of the file.
+     * @param index   The list the offset and symbol count of every block are added to, in order.
+     * @return The offset in the file where the index starts, right after the last block.
+     * @throws IOException If an I/O error occurs or the file does not end in a valid trailer.
+     */
+    static long readIndex(FileChannel channel, List<long[]> index) throws IOException {
+        long size = channel.size();
+        if (size < MIN_FILE_SIZE) {
+            throw new IOException("El archivo por bloques está incompleto.");
+        }
+        long indexOffset = readIndex(channel, size, index);
+        if (indexOffset < 0) {
+            throw new IOException("El índice del archivo por bloques está dañado o un anexo quedó incompleto.");
+        }
+        return indexOffset;
+    }
+
+    /**
+     * Returns where the trailer of a block-format file ends, which is where the file should end.
+     *
+     * @param indexOffset The offset in the file where the index starts.
+     * @param blockCount  The number of blocks in the index.
+     * @return The offset right after the trailer.
+     */
+    static long trailerEnd(long indexOffset, int blockCount) {
+        return indexOffset + (long) blockCount * BlockCompressor.INDEX_ENTRY_SIZE + BlockCompressor.TRAILER_SIZE;
+    }
+
+    /**
+     * Reads the index of the trailer that ends at a given position, if it is a valid trailer: it ends
+     * with the magic number and a known version, its index ends where the trailer starts, and the
+     * blocks of the index follow one another between the header and the index.
+     *
+     * @param channel The channel of the file.
+     * @param end     The position right after the trailer.
+     * @param index   The list the index is added to, left unchanged if the trailer is not valid.
+     * @return The offset where the index starts, or -1 if the trailer is not valid.
+     * @throws IOException If an I/O error occurs.
+     */
+    private static long readIndex(FileChannel channel, long end, List<long[]> index) throws IOException {
+        DataInputStream trailer = new DataInputStream(new ByteArrayInputStream(
+                readFully(channel, end - BlockCompressor.TRAILER_SIZE, BlockCompressor.TRAILER_SIZE)));
+        long indexOffset = trailer.readLong();
+        int blockCount = trailer.readInt();
+        byte[] magic = new byte[BlockCompressor.MAGIC.length];
+        trailer.readFully(magic);
+        int version = trailer.readUnsignedByte();
+        if (!Arrays.equals(magic, BlockCompressor.MAGIC) || version < 1 || version > BlockCompressor.VERSION
+                || blockCount < 0 || indexOffset < MIN_HEADER_SIZE || trailerEnd(indexOffset, blockCount) != end) {
+            return -1;
+        }
+
+        DataInputStream entries = new DataInputStream(new ByteArrayInputStream(
+                readFully(channel, indexOffset, blockCount * BlockCompressor.INDEX_ENTRY_SIZE)));
+        List<long[]> read = new ArrayList<>(blockCount);
+        long previous = MIN_HEADER_SIZE - 1;
+        for (int i = 0; i < blockCount; i++) {
+            long offset = entries.readLong();
+            int symbols = entries.readInt();
+            if (offset <= previous || offset >= indexOffset || symbols <= 0) {
+                return -1;
+            }
+            read.add(new long[]{offset, symbols});
+            previous = offset;
+        }
+        index.addAll(read);
+        return indexOffset;
+    }
+
+    /**
+     * Reads the index of a file that may end in the torn tail of an interrupted append. If the file
+     * ends in a valid trailer, its index is read as by {@link #readIndex(FileChannel, List)}.
+     * Otherwise the last valid trailer before the end is looked for, scanning backwards for the magic
+     * number that ends every trailer, and its index is read; the caller then cuts off the tail.
+     * <p>
+     * The bytes after that trailer are taken for a torn tail only if they do not end in something
+     * shaped like a trailer. The trailer of an append is written last, after the blocks and the index
+     * are on disk, so a tail that ends in one belongs to an append that completed and whose trailer
+     * was damaged later; cutting it off would throw away data, so the file is rejected instead.
+     *
+     * @param channel The channel of the file.
+     * @param index   The list the offset and symbol count of every block are added to, in order.
+     * @return The offset where the index starts; the file should end at {@link #trailerEnd}.
+     * @throws IOException If an I/O error occurs, no valid trailer is found, or the end of the file is
+     *                     a damaged trailer rather than a torn tail.
+     */
+    static long recoverIndex(FileChannel channel, List<long[]> index) throws IOException {
+        long size = channel.size();
+        if (size < MIN_FILE_SIZE) {
+            throw new IOException("El archivo por bloques está incompleto.");
+        }
+        long indexOffset = readIndex(channel, size, index);
+        if (indexOffset >= 0) {
+            return indexOffset;
+        }
+
+        byte[] magic = BlockCompressor.MAGIC;
+        long end = size - 1; // The trailer at the very end was already rejected
+        while (end >= MIN_FILE_SIZE) {
+            long start = Math.max(0, end - HuffmanCompressor.BUFFER_SIZE);
+            byte[] bytes = readFully(channel, start, (int) (end - start));
+            // Every candidate ends right after a version byte preceded by the magic number
+            for (int i = bytes.length; i > magic.length && start + i >= MIN_FILE_SIZE; i--) {
+                if (Arrays.equals(bytes, i - magic.length - 1, i - 1, magic, 0, magic.length)) {
+                    List<long[]> candidate = new ArrayList<>();
+                    indexOffset = readIndex(channel, start + i, candidate);
+                    if (indexOffset >= 0) {
+                        if (endsInTrailer(channel, start + i)) {
+                            throw new IOException("El último tráiler del archivo por bloques está dañado;"
+                                    + " los datos anexados después de la posición " + (start + i)
+                                    + " no se descartan.");
+                        }
+                        index.addAll(candidate);
+                        return indexOffset;
+                    }
+                }
+            }
+            if (start == 0) {
+                break;
+            }
+            end = start + magic.length; // Candidates that straddle the two reads are checked next
+        }
+        throw new IOException("El índice del archivo por bloques está dañado.");
+    }
+
+    /**
+     * Checks whether the bytes after a valid trailer end in something shaped like a trailer: the magic
+     * number where a complete trailer would have it, or an index offset that points into those bytes
+     * with room for whole index entries before the end.
+     *
+     * @param channel The channel of the file.
+     * @param valid   The position right after the valid trailer.
+     * @return True if the file ends in a trailer, damaged or not.
+     * @throws IOException If an I/O error occurs.
+     */
+    private static boolean endsInTrailer(FileChannel channel, long valid) throws IOException {
+        long size = channel.size();
+        if (size - valid < BlockCompressor.TRAILER_SIZE) {
+            return false;
+        }
+        byte[] tail = readFully(channel, size - BlockCompressor.TRAILER_SIZE, BlockCompressor.TRAILER_SIZE);
+        byte[] magic = BlockCompressor.MAGIC;
+        if (Arrays.equals(tail, tail.length - magic.length - 1, tail.length - 1, magic, 0, magic.length)) {
+            return true;
+        }
+        long indexOffset = new DataInputStream(new ByteArrayInputStream(tail)).readLong();
+        long entries = size - BlockCompressor.TRAILER_SIZE - indexOffset;
+        return indexOffset >= valid && entries >= 0 && entries % BlockCompressor.INDEX_ENTRY_SIZE == 0;
+    }
+
+    /**
+     * Opens the start of a block-format file, which holds the header.
+     *
+     * @param channel The channel of the file.
+     * @return A stream over the first bytes of the file, at least the whole header.
+     * @throws IOException If an I/O error occurs.
+     */
+    static DataInputStream openHeader(FileChannel channel) throws IOException {
+        int length = (int) Math.min(channel.size(), BlockCompressor.MAX_HEADER_SIZE);
+        return new DataInputStream(new ByteArrayInputStream(readFully(channel, 0, length)));
+    }
+
+    /**
+     * Reads the header of a block-format file.
+     *
+     * @param in The stream positioned at the start of the file.
+     * @return The symbol mode of the file.
+     * @throws IOException If the header is not valid.
+     */
+    static SymbolMode readHeader(DataInputStream in) throws IOException {
+        int version = readVersion(in);
+        SymbolMode mode = readMode(in);
+        BlockOptions.read(in, version); // Only needed to append to the file
+        return mode;
+    }
+
+    /**
+     * Reads the options a block-format file was written with from its header.
+     *
+     * @param in The stream positioned at the start of the file.
+     * @return The options recorded in the header; for files of version 1, the defaults with the
+     *         recorded block size.
+     * @throws IOException If the header is not valid.
+     */
+    static BlockOptions readOptions(DataInputStream in) throws IOException {
+        int version = readVersion(in);
+        readMode(in);
+        return BlockOptions.read(in, version);
+    }
+
+    /**
+     * Reads the magic number and the version at the start of a block-format file.
+     *
+     * @return The version, 1 or {@link BlockCompressor#VERSION}.
+     */
+    private static int readVersion(DataInputStream in) throws IOException {
+        byte[] magic = new byte[BlockCompressor.MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, BlockCompressor.MAGIC)) {
+            throw new IOException("El archivo no es un archivo comprimido por bloques.");
+        }
+        int version = in.readUnsignedByte();
+        if (version < 1 || version > BlockCompressor.VERSION) {
+            throw new IOException("Versión de formato no soportada: " + version);
+        }
+        return version;
+    }
+
+    /**
+     * Reads the symbol mode that follows the version in the header.
+     */
+    private static SymbolMode readMode(DataInputStream in) throws IOException {
+        int mode = in.readUnsignedByte();
+        if (mode >= SymbolMode.values().length || SymbolMode.values()[mode] == SymbolMode.WORD) {
+            throw new IOException("Modo de símbolos desconocido: " + mode);
+        }
+        return SymbolMode.values()[mode];
+    }
+
+    /**
+     * Reads one block and decodes it unless it is stored, timing the work into the metrics of its task.
+     *
+     * @param channel   The channel of the file.
+     * @param offset    The position of the block in the file.
+     * @param length    The length of the block in bytes.
+     * @param mode      The alphabet of the file.
+     * @param blockSize The block size recorded in the header, the most symbols a block may hold.
+     * @param symbols   The number of symbols the index records for the block, which the block must hold.
+     * @param task      The metrics of the task.
+     * @return The decoded symbols, or the bytes of a stored block.
+     * @throws IOException If an I/O error occurs or the block is malformed.
+     */
+    private static DecodedBlock decodeBlock(FileChannel channel, long offset, int length, SymbolMode mode,
+                                            int blockSize, int symbols, CompressionMetrics task)
+            throws IOException {
+        long start = System.nanoTime();
+        byte[] data = readFully(channel, offset, length);
+        task.endRead(start, length);
+
+        start = task.begin();
+        HuffmanBlock block = HuffmanBlock.read(new ByteArrayInputStream(data), mode, blockSize);
+        task.end(CompressionMetrics.Phase.HEADER, start);
+        if (block.getSymbolCount() != symbols) {
+            throw new IOException("El bloque no tiene los símbolos que registra el índice.");
+        }
+        task.setMaxCodeLength(block.getMaxCodeLength());
+        task.setSymbols(block.getSymbolCount(), 0); // As for single-header files, the encoded size is not measured
+        if (block.isStored()) {
+            return new DecodedBlock(null, block.getStoredBytes(), task);
+        }
+        start = task.begin();
+        int[] decoded = new int[symbols];
+        block.decode(decoded);
+        task.end(CompressionMetrics.Phase.DECODE, start);
+        return new DecodedBlock(decoded, null, task);
+    }
+
+    /**
+     * Writes a block: the decoded symbols of a coded block, or the bytes of a stored block in one write.
+     * The metrics of the task that decoded it are added to those of the operation.
+     *
+     * @return The number of symbols written.
+     */
+    private static int writeBlock(DecodedBlock block, SymbolMode mode, SymbolWriter writer, OutputStream out,
+                                  CompressionMetrics metrics) throws IOException {
+        metrics.merge(block.metrics);
+        if (block.symbols != null) {
+            writer.write(block.symbols, 0, block.symbols.length);
+            return block.symbols.length;
+        }
+        if (mode != SymbolMode.BYTE) {
+            throw new IOException("Bloque almacenado en un archivo que no es por bytes.");
+        }
+        writer.flush(); // Anything the writer holds goes first
+        out.write(block.stored);
+        return block.stored.length;
+    }
+
+    /**
+     * A block ready to be written: its decoded symbols, or the bytes of a stored block.
+     */
+    private static final class DecodedBlock {
+        final int[] symbols; // Decoded symbols, null for a stored block
+        final byte[] stored; // Bytes of a stored block, null for a coded block
+        final CompressionMetrics metrics; // Metrics of the task that read and decoded the block
+
+        DecodedBlock(int[] symbols, byte[] stored, CompressionMetrics metrics) {
+            this.symbols = symbols;
+            this.stored = stored;
+            this.metrics = metrics;
+        }
+    }
+
+    /**
+     * Reads a range of a file with positional reads, which are safe to issue from several threads.
+     *
+     * @param channel  The channel of the file.
+     * @param position The position of the first byte to read.
+     * @param length   The number of bytes to read.
+     * @return The bytes read.
+     * @throws IOException If an I/O error occurs or the file ends before the range.
+     */
+    static byte[] readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read == -1) {
+                throw new EOFException();
+            }
+        }
+        return buffer.array();
+    }
+}
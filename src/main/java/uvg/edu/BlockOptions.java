@@ -0,0 +1,270 @@
+package uvg.edu;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Settings that decide how the blocks of a block file are coded: how many symbols a block holds,
+ * how long its codes may be, whether it is split into interleaved streams, when a byte block is
+ * stored instead, whether it may use a context model and which transforms run first.
+ * <p>
+ * Options are immutable: each {@code with} method checks its value and returns a copy with that one
+ * setting changed, starting from {@link #DEFAULT}. The same options can therefore be handed to every
+ * thread and pipeline stage that codes blocks, and a new setting is added here once instead of to
+ * every constructor and method that passes the settings along.
+ * <p>
+ * Block files record the options they were written with in their header, so data appended later
+ * is coded the same way as the rest of the file:
+ * <pre>
+ *   blockSize        maximum number of symbols per block (variable-length integer)
+ *   maxCodeLength    code length limit in bits, 0 for none
+ *   interleaved      1 if blocks are split into interleaved streams, 0 otherwise
+ *   minSavings       8-byte IEEE 754 double
+ *   contextTables    maximum code tables of a context model, 0 for none (variable-length integer)
+ *   transforms       number of transforms and the identifier of each in the order applied, one byte each
+ * </pre>
+ * Files of version 1 of the block format record only the block size.
+ */
+final class BlockOptions {
+
+    static final BlockOptions DEFAULT = new BlockOptions(BlockCompressor.DEFAULT_BLOCK_SIZE, 0, false,
+            HuffmanBlock.DEFAULT_MIN_SAVINGS, 0, new BlockTransform[0]);
+
+    private final int blockSize; // Maximum number of symbols per block
+    private final int maxCodeLength; // Maximum code length in bits, or 0 for no limit
+    private final boolean interleaved; // Whether blocks coded with a single code are split into streams
+    private final double minSavings; // Fraction of its size a byte block must save to be coded rather than stored
+    private final int contextTables; // Maximum code tables of the context model of a byte block, 0 for none
+    private final BlockTransform[] transforms; // Transforms applied to each byte block before coding
+
+    private BlockOptions(int blockSize, int maxCodeLength, boolean interleaved, double minSavings,
+                         int contextTables, BlockTransform[] transforms) {
+        this.blockSize = blockSize;
+        this.maxCodeLength = maxCodeLength;
+        this.interleaved = interleaved;
+        this.minSavings = minSavings;
+        this.contextTables = contextTables;
+        this.transforms = transforms;
+    }
+
+    /**
+     * Returns these options with another block size.
+     *
+     * @param blockSize The maximum number of symbols per block.
+     * @return The new options.
+     * @throws IllegalArgumentException If the block size is not positive.
+     */
+    public BlockOptions withBlockSize(int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("El tamaño de bloque debe ser positivo.");
+        }
+        return new BlockOptions(blockSize, maxCodeLength, interleaved, minSavings, contextTables, transforms);
+    }
+
+    /**
+     * Returns these options with another code length limit.
+     *
+     * @param maxCodeLength The maximum code length in bits, between 1 and 63, or 0 for no limit.
+     * @return The new options.
+     * @throws IllegalArgumentException If the length is out of range.
+     */
+    public BlockOptions withMaxCodeLength(int maxCodeLength) {
+        if (maxCodeLength < 0 || maxCodeLength > 63) {
+            throw new IllegalArgumentException("La longitud máxima de código debe estar entre 0 y 63.");
+        }
+        return new BlockOptions(blockSize, maxCodeLength, interleaved, minSavings, contextTables, transforms);
+    }
+
+    /**
+     * Returns these options with blocks coded with a single code split into
+     * {@value HuffmanBlock#STREAMS} interleaved streams, or not, for faster decoding.
+     *
+     * @param interleaved Whether to split blocks into interleaved streams.
+     * @return The new options.
+     */
+    public BlockOptions withInterleaved(boolean interleaved) {
+        return new BlockOptions(blockSize, maxCodeLength, interleaved, minSavings, contextTables, transforms);
+    }
+
+    /**
+     * Returns these options with byte blocks stored uncompressed unless coding them saves
+     * at least another fraction of their size.
+     *
+     * @param minSavings The fraction of its size a byte block must save to be coded, from 0 up to but
+     *                   not including 1; 0 stores only blocks that coding would enlarge.
+     * @return The new options.
+     * @throws IllegalArgumentException If the fraction is out of range.
+     */
+    public BlockOptions withMinSavings(double minSavings) {
+        if (!(minSavings >= 0 && minSavings < 1)) {
+            throw new IllegalArgumentException("El ahorro mínimo debe estar entre 0 y 1.");
+        }
+        return new BlockOptions(blockSize, maxCodeLength, interleaved, minSavings, contextTables, transforms);
+    }
+
+    /**
+     * Returns these options with byte blocks coded with an order-1 context model of at most a given
+     * number of code tables whenever that is smaller than a single code.
+     *
+     * @param contextTables The maximum number of code tables per block, between 0 and
+     *                      {@value ContextModel#CONTEXTS}; 0 disables context modeling.
+     * @return The new options.
+     * @throws IllegalArgumentException If the number of tables is out of range.
+     */
+    public BlockOptions withContextTables(int contextTables) {
+        if (contextTables < 0 || contextTables > ContextModel.CONTEXTS) {
+            throw new IllegalArgumentException("El número de tablas de contexto debe estar entre 0 y 256.");
+        }
+        return new BlockOptions(blockSize, maxCodeLength, interleaved, minSavings, contextTables, transforms);
+    }
+
+    /**
+     * Returns these options with byte blocks passed through a chain of transforms before coding.
+     *
+     * @param transforms The transforms in the order to apply them, none to code the bytes as they are.
+     * @return The new options.
+     */
+    public BlockOptions withTransforms(BlockTransform... transforms) {
+        return new BlockOptions(blockSize, maxCodeLength, interleaved, minSavings, contextTables,
+                transforms.clone());
+    }
+
+    /**
+     * Checks that the options can code blocks of an alphabet. Words are never coded in blocks, since
+     * their alphabet is built from the whole file and no block could be read without it.
+     *
+     * @param mode The alphabet of the blocks.
+     * @throws IllegalArgumentException If the alphabet is words, or transforms are configured and the
+     *                                  alphabet is not bytes.
+     */
+    public void checkMode(SymbolMode mode) {
+        if (mode == SymbolMode.WORD) {
+            throw new IllegalArgumentException("Los archivos por bloques no admiten el modo por palabras.");
+        }
+        if (transforms.length > 0 && mode != SymbolMode.BYTE) {
+            throw new IllegalArgumentException("Las transformaciones solo se aplican a archivos por bytes.");
+        }
+    }
+
+    /**
+     * Returns the maximum number of symbols per block.
+     *
+     * @return The block size.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Returns the maximum code length.
+     *
+     * @return The length in bits, or 0 for no limit.
+     */
+    public int getMaxCodeLength() {
+        return maxCodeLength;
+    }
+
+    /**
+     * Returns whether blocks coded with a single code are split into interleaved streams.
+     *
+     * @return True for interleaved blocks.
+     */
+    public boolean isInterleaved() {
+        return interleaved;
+    }
+
+    /**
+     * Returns the fraction of its size a byte block must save to be coded rather than stored.
+     *
+     * @return The minimum savings.
+     */
+    public double getMinSavings() {
+        return minSavings;
+    }
+
+    /**
+     * Returns the maximum number of code tables of the context model of a byte block.
+     *
+     * @return The number of tables, or 0 for no context modeling.
+     */
+    public int getContextTables() {
+        return contextTables;
+    }
+
+    /**
+     * Returns the transforms applied to each byte block before coding.
+     *
+     * @return A copy of the transforms in the order applied, empty for none.
+     */
+    public BlockTransform[] getTransforms() {
+        return transforms.clone();
+    }
+
+    /**
+     * Returns whether byte blocks go through transforms before coding.
+     *
+     * @return True if at least one transform is configured.
+     */
+    public boolean hasTransforms() {
+        return transforms.length > 0;
+    }
+
+    /**
+     * Writes the options to the header of a block file.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    void write(OutputStream out) throws IOException {
+        HuffmanHeader.writeVarLong(out, blockSize);
+        out.write(maxCodeLength);
+        out.write(interleaved ? 1 : 0);
+        new DataOutputStream(out).writeDouble(minSavings);
+        HuffmanHeader.writeVarLong(out, contextTables);
+        out.write(transforms.length);
+        for (BlockTransform transform : transforms) {
+            out.write(transform.id());
+        }
+    }
+
+    /**
+     * Reads options written by {@link #write(OutputStream)}.
+     *
+     * @param in      The stream to read from, positioned after the symbol mode in the header.
+     * @param version The version of the block file; version 1 records only the block size, and the
+     *                other options are the defaults.
+     * @return The options.
+     * @throws IOException If an I/O error occurs or the options are not valid.
+     */
+    static BlockOptions read(InputStream in, int version) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        long blockSize = HuffmanHeader.readVarLong(data);
+        if (blockSize < 1 || blockSize > Integer.MAX_VALUE) {
+            throw new IOException("Tamaño de bloque inválido: " + blockSize);
+        }
+        if (version == 1) {
+            return DEFAULT.withBlockSize((int) blockSize);
+        }
+        try {
+            int maxCodeLength = data.readUnsignedByte();
+            int interleaved = data.readUnsignedByte();
+            double minSavings = data.readDouble();
+            long contextTables = HuffmanHeader.readVarLong(data);
+            BlockTransform[] transforms = new BlockTransform[data.readUnsignedByte()];
+            for (int i = 0; i < transforms.length; i++) {
+                transforms[i] = BlockTransform.forId(data.readUnsignedByte());
+            }
+            if (interleaved > 1 || contextTables > ContextModel.CONTEXTS) {
+                throw new IOException("Opciones de bloque inválidas.");
+            }
+            return DEFAULT.withBlockSize((int) blockSize).withMaxCodeLength(maxCodeLength)
+                    .withInterleaved(interleaved == 1).withMinSavings(minSavings)
+                    .withContextTables((int) contextTables).withTransforms(transforms);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Opciones de bloque inválidas.", e);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package uvg.edu;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A reversible transform applied to the bytes of a block before Huffman coding, to turn structure a
+ * symbol-by-symbol code cannot see, such as runs and repeated contexts, into skewed byte frequencies.
+ * Transforms are chained: the output of each one is the input of the next, and decoding applies
+ * their inverses in the opposite order. The identifier of each transform is stored in the blocks
+ * it was applied to, so identifiers are never reused.
+ */
+interface BlockTransform {
+
+    String DEFAULT_CHAIN = "bwt,mtf,rle"; // Block sorting, then move-to-front, then runs of the zeros it leaves
+
+    /**
+     * Returns the identifier of the transform stored in transformed blocks.
+     *
+     * @return The identifier, between 1 and 255.
+     */
+    int id();
+
+    /**
+     * Returns the name of the transform as given on the command line.
+     *
+     * @return The name.
+     */
+    String name();
+
+    /**
+     * Transforms a block of bytes.
+     *
+     * @param data The bytes to transform.
+     * @return The transformed bytes, which may be longer than the input.
+     */
+    byte[] forward(byte[] data);
+
+    /**
+     * Reverses {@link #forward(byte[])}.
+     *
+     * @param data The transformed bytes.
+     * @return The original bytes.
+     * @throws IOException If the data is not the output of the transform.
+     */
+    byte[] inverse(byte[] data) throws IOException;
+
+    /**
+     * Returns the transform with the given identifier.
+     *
+     * @param id The identifier read from a block.
+     * @return The transform.
+     * @throws IOException If no transform has that identifier.
+     */
+    static BlockTransform forId(int id) throws IOException {
+        for (BlockTransform transform : available()) {
+            if (transform.id() == id) {
+                return transform;
+            }
+        }
+        throw new IOException("Transformación desconocida: " + id);
+    }
+
+    /**
+     * Parses a comma-separated list of transform names, such as {@value #DEFAULT_CHAIN}.
+     *
+     * @param names The names in the order the transforms are applied.
+     * @return The transforms.
+     * @throws IllegalArgumentException If a name does not belong to any transform.
+     */
+    static List<BlockTransform> parseChain(String names) {
+        List<BlockTransform> chain = new ArrayList<>();
+        for (String name : names.split(",")) {
+            BlockTransform found = null;
+            for (BlockTransform transform : available()) {
+                if (transform.name().equalsIgnoreCase(name.trim())) {
+                    found = transform;
+                }
+            }
+            if (found == null) {
+                throw new IllegalArgumentException("Transformación desconocida: " + name);
+            }
+            chain.add(found);
+        }
+        return chain;
+    }
+
+    /**
+     * Returns every transform that blocks can name.
+     *
+     * @return The known transforms.
+     */
+    static BlockTransform[] available() {
+        return new BlockTransform[] {
+                new RunLengthTransform(), new MoveToFrontTransform(), new BurrowsWheelerTransform()
+        };
+    }
+}
@@ -0,0 +1,202 @@
+package uvg.edu;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Block-sorting (Burrows-Wheeler) transform: sorts all suffixes of the block and outputs the byte
+ * before each one, so bytes that precede similar contexts end up next to each other. The output is
+ * a 4-byte big-endian primary index, the row where the end of the block falls, followed by the
+ * permuted bytes; it has no more distinct bytes than the input but far more runs.
+ * <p>
+ * The suffixes are sorted by prefix doubling with counting sorts, which takes O(n log n) time
+ * whatever the data, including long runs that make comparison-based sorting quadratic.
+ */
+class BurrowsWheelerTransform implements BlockTransform {
+
+    static final int ID = 3;
+
+    /**
+     * Returns the identifier of the transform.
+     *
+     * @return {@value #ID}.
+     */
+    @Override
+    public int id() {
+        return ID;
+    }
+
+    /**
+     * Returns the name of the transform.
+     *
+     * @return "bwt".
+     */
+    @Override
+    public String name() {
+        return "bwt";
+    }
+
+    /**
+     * Sorts the suffixes of the block and outputs the primary index and the byte before each suffix.
+     * The end of the block acts as a sentinel smaller than any byte, which is left out of the output
+     * and recorded by the primary index instead.
+     *
+     * @param data The bytes to transform.
+     * @return The primary index followed by the permuted bytes.
+     */
+    @Override
+    public byte[] forward(byte[] data) {
+        int n = data.length;
+        int[] suffixes = suffixArray(data);
+        byte[] out = new byte[n + 4];
+        int primary = 0;
+        int position = 4;
+        if (n > 0) {
+            out[position++] = data[n - 1]; // Row 0 is the empty suffix, preceded by the last byte
+        }
+        for (int i = 0; i < n; i++) {
+            if (suffixes[i] == 0) {
+                primary = i + 1; // The whole block is preceded by the sentinel
+            } else {
+                out[position++] = data[suffixes[i] - 1];
+            }
+        }
+        out[0] = (byte) (primary >>> 24);
+        out[1] = (byte) (primary >>> 16);
+        out[2] = (byte) (primary >>> 8);
+        out[3] = (byte) primary;
+        return out;
+    }
+
+    /**
+     * Rebuilds the block by following the last-to-first mapping from the row of the empty suffix.
+     *
+     * @param data The primary index followed by the permuted bytes.
+     * @return The original bytes.
+     * @throws IOException If the primary index is out of range.
+     */
+    @Override
+    public byte[] inverse(byte[] data) throws IOException {
+        if (data.length < 4) {
+            throw new IOException("Bloque transformado inválido.");
+        }
+        int n = data.length - 4;
+        int primary = ((data[0] & 0xFF) << 24) | ((data[1] & 0xFF) << 16)
+                | ((data[2] & 0xFF) << 8) | (data[3] & 0xFF);
+        if (n == 0 ? primary != 0 : primary < 1 || primary > n) {
+            throw new IOException("Bloque transformado inválido.");
+        }
+
+        // Symbol of each row: 0 for the sentinel, byte + 1 otherwise
+        int rows = n + 1;
+        int[] first = new int[258]; // First row of each symbol once the rows are sorted
+        for (int row = 0; row < rows; row++) {
+            first[symbolAt(data, row, primary) + 1]++;
+        }
+        for (int symbol = 1; symbol < first.length; symbol++) {
+            first[symbol] += first[symbol - 1];
+        }
+        int[] next = new int[rows]; // Row of the suffix one byte longer
+        for (int row = 0; row < rows; row++) {
+            next[row] = first[symbolAt(data, row, primary)]++;
+        }
+
+        byte[] out = new byte[n];
+        int row = 0;
+        for (int i = n - 1; i >= 0; i--) {
+            out[i] = (byte) (symbolAt(data, row, primary) - 1);
+            row = next[row];
+        }
+        return out;
+    }
+
+    /**
+     * Returns the symbol in the last column of a row.
+     */
+    private static int symbolAt(byte[] data, int row, int primary) {
+        if (row == primary) {
+            return 0;
+        }
+        return (data[4 + (row < primary ? row : row - 1)] & 0xFF) + 1;
+    }
+
+    /**
+     * Builds the suffix array of a block, with the end of the block smaller than any byte.
+     * Each pass sorts the suffixes by their first {@code 2k} bytes from the ranks of their first
+     * {@code k} bytes, with two counting sorts, until every suffix has a rank of its own.
+     *
+     * @param data The bytes of the block.
+     * @return The start of each suffix in increasing order of the suffixes.
+     */
+    static int[] suffixArray(byte[] data) {
+        int n = data.length;
+        int[] suffixes = new int[n];
+        int[] rank = new int[n];
+        int[] next = new int[n];
+        int[] counts = new int[Math.max(256, n) + 1];
+
+        // Sort by the first byte
+        for (int i = 0; i < n; i++) {
+            counts[(data[i] & 0xFF) + 1]++;
+        }
+        for (int value = 1; value <= 256; value++) {
+            counts[value] += counts[value - 1];
+        }
+        for (int i = 0; i < n; i++) {
+            suffixes[counts[data[i] & 0xFF]++] = i;
+        }
+        int classes = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || data[suffixes[i]] != data[suffixes[i - 1]]) {
+                classes++;
+            }
+            rank[suffixes[i]] = classes - 1;
+        }
+
+        for (int k = 1; classes < n; k <<= 1) {
+            // Order by the rank k bytes further on: suffixes that end before then come first
+            int p = 0;
+            for (int i = Math.max(0, n - k); i < n; i++) {
+                next[p++] = i;
+            }
+            for (int i = 0; i < n; i++) {
+                if (suffixes[i] >= k) {
+                    next[p++] = suffixes[i] - k;
+                }
+            }
+
+            // Stable counting sort by the rank of the first k bytes
+            Arrays.fill(counts, 0, classes + 1, 0);
+            for (int i = 0; i < n; i++) {
+                counts[rank[i] + 1]++;
+            }
+            for (int c = 1; c <= classes; c++) {
+                counts[c] += counts[c - 1];
+            }
+            for (int i = 0; i < n; i++) {
+                suffixes[counts[rank[next[i]]]++] = next[i];
+            }
+
+            // Suffixes keep sharing a rank only if both halves match
+            int[] newRank = next;
+            classes = 0;
+            for (int i = 0; i < n; i++) {
+                int current = suffixes[i];
+                if (i == 0) {
+                    classes++;
+                } else {
+                    int previous = suffixes[i - 1];
+                    int currentSecond = current + k < n ? rank[current + k] : -1;
+                    int previousSecond = previous + k < n ? rank[previous + k] : -1;
+                    if (rank[current] != rank[previous] || currentSecond != previousSecond) {
+                        classes++;
+                    }
+                }
+                newRank[current] = classes - 1;
+            }
+            next = rank;
+            rank = newRank;
+        }
+        return suffixes;
+    }
+}
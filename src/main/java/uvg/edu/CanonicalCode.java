@@ -0,0 +1,135 @@
+package uvg.edu;
+
+/**
+ * Helper methods for canonical Huffman codes.
+ * In a canonical code, symbols are ordered by code length and then by symbol value, and each
+ * symbol receives the next binary value in that order. The code length of every symbol is
+ * therefore enough to rebuild the whole code.
+ */
+final class CanonicalCode {
+
+    private CanonicalCode() {
+    }
+
+    /**
+     * Assigns canonical code values from code lengths.
+     *
+     * @param codeLengths The code length of each symbol, 0 for symbols that do not occur.
+     * @return The code value of each symbol, right-aligned.
+     */
+    public static long[] assignCodes(byte[] codeLengths) {
+        int maxLength = 0;
+        for (byte length : codeLengths) {
+            maxLength = Math.max(maxLength, length);
+        }
+
+        // Count the codes of each length
+        long[] lengthCounts = new long[maxLength + 1];
+        for (byte length : codeLengths) {
+            if (length > 0) {
+                lengthCounts[length]++;
+            }
+        }
+
+        // Compute the first code of each length
+        long[] nextCode = new long[maxLength + 1];
+        long code = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            code = (code + lengthCounts[length - 1]) << 1;
+            nextCode[length] = code;
+        }
+
+        // Hand out consecutive codes to the symbols of each length in symbol order
+        long[] codeValues = new long[codeLengths.length];
+        for (int symbol = 0; symbol < codeLengths.length; symbol++) {
+            int length = codeLengths[symbol];
+            if (length > 0) {
+                codeValues[symbol] = nextCode[length]++;
+            }
+        }
+        return codeValues;
+    }
+
+    /**
+     * Lists the symbols that have a code, ordered by code length and then by symbol.
+     * For canonical codes this is also the lexicographic order of the codes.
+     *
+     * @param codeLengths The code length of each symbol, 0 for symbols that do not occur.
+     * @return The symbols in canonical order.
+     */
+    public static int[] sortedSymbols(byte[] codeLengths) {
+        int maxLength = 0;
+        int count = 0;
+        for (byte length : codeLengths) {
+            maxLength = Math.max(maxLength, length);
+            if (length > 0) {
+                count++;
+            }
+        }
+
+        // Counting sort by length keeps symbols of equal length in increasing order
+        int[] offsets = new int[maxLength + 2];
+        for (byte length : codeLengths) {
+            if (length > 0) {
+                offsets[length + 1]++;
+            }
+        }
+        for (int length = 1; length <= maxLength; length++) {
+            offsets[length + 1] += offsets[length];
+        }
+
+        int[] symbols = new int[count];
+        for (int symbol = 0; symbol < codeLengths.length; symbol++) {
+            int length = codeLengths[symbol];
+            if (length > 0) {
+                symbols[offsets[length]++] = symbol;
+            }
+        }
+        return symbols;
+    }
+
+    /**
+     * Builds the tree whose root-to-leaf paths spell out the given codes.
+     *
+     * @param codeValues  The code value of each symbol, right-aligned.
+     * @param codeLengths The code length of each symbol, 0 for symbols that do not occur.
+     * @return The root of the tree, or null if no symbol has a code.
+     */
+    public static HuffmanNode buildTree(long[] codeValues, byte[] codeLengths) {
+        HuffmanNode root = null;
+
+        for (int symbol = 0; symbol < codeLengths.length; symbol++) {
+            int length = codeLengths[symbol];
+            if (length == 0) {
+                continue;
+            }
+            if (root == null) {
+                root = new HuffmanNode(0, null, null);
+            }
+
+            // Follow the code from the root, creating internal nodes as needed
+            HuffmanNode node = root;
+            for (int bit = length - 1; bit > 0; bit--) {
+                boolean right = ((codeValues[symbol] >>> bit) & 1) == 1;
+                HuffmanNode child = right ? node.right : node.left;
+                if (child == null) {
+                    child = new HuffmanNode(0, null, null);
+                    if (right) {
+                        node.right = child;
+                    } else {
+                        node.left = child;
+                    }
+                }
+                node = child;
+            }
+
+            HuffmanNode leaf = new HuffmanNode(0, symbol);
+            if ((codeValues[symbol] & 1) == 1) {
+                node.right = leaf;
+            } else {
+                node.left = leaf;
+            }
+        }
+        return root;
+    }
+}
@@ -0,0 +1,214 @@
+package uvg.edu;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Index of decoding checkpoints for a compressed file, kept next to it with the extension {@value #EXTENSION}.
+ * Checkpoint {@code k} is taken before symbol {@code k * interval} and records the position of that
+ * symbol's code as a bit offset from the start of the encoded data, so decoding can start there
+ * instead of at the first symbol. The index file is laid out as:
+ * <pre>
+ *   'H' 'U' 'I' version    magic number and format version
+ *   payloadOffset          byte offset of the encoded data in the compressed file (variable-length integer)
+ *   symbolCount            number of encoded symbols (variable-length integer)
+ *   interval               symbols between checkpoints (variable-length integer)
+ *   count                  number of checkpoints (variable-length integer)
+ *   bitOffset*             distance in bits from the previous checkpoint (variable-length integers)
+ * </pre>
+ */
+class CheckpointIndex {
+
+    static final byte[] MAGIC = {'H', 'U', 'I'};
+    static final int VERSION = 1; // Version of the index format
+    static final int DEFAULT_INTERVAL = 1 << 16; // Symbols between checkpoints unless configured otherwise
+    static final String EXTENSION = ".idx"; // Appended to the name of the compressed file
+
+    private final int interval; // Symbols between checkpoints
+    private long payloadOffset; // Byte offset of the encoded data in the compressed file
+    private long symbolCount; // Number of encoded symbols
+    private long[] bitOffsets = new long[16]; // Bit offset of each checkpoint
+    private int count; // Number of checkpoints
+
+    /**
+     * Constructs an empty index.
+     *
+     * @param interval The number of symbols between checkpoints.
+     * @throws IllegalArgumentException If the interval is not positive.
+     */
+    public CheckpointIndex(int interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("El intervalo entre puntos de control debe ser positivo.");
+        }
+        this.interval = interval;
+    }
+
+    /**
+     * Returns the path of the index of a compressed file.
+     *
+     * @param compressedFile The path of the compressed file.
+     * @return The path of its index.
+     */
+    public static Path pathFor(Path compressedFile) {
+        return compressedFile.resolveSibling(compressedFile.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Records the next checkpoint.
+     *
+     * @param bitOffset The position of the code of symbol {@code count * interval}, in bits from the start
+     *                  of the encoded data.
+     */
+    public void add(long bitOffset) {
+        if (count == bitOffsets.length) {
+            bitOffsets = Arrays.copyOf(bitOffsets, count * 2);
+        }
+        bitOffsets[count++] = bitOffset;
+    }
+
+    /**
+     * Returns the last checkpoint at or before a symbol.
+     *
+     * @param symbol The index of the symbol.
+     * @return The number of the checkpoint, or -1 if there are none.
+     */
+    public int checkpointBefore(long symbol) {
+        return (int) Math.min(symbol / interval, count - 1L);
+    }
+
+    /**
+     * Returns the bit offset of a checkpoint.
+     *
+     * @param checkpoint The number of the checkpoint.
+     * @return The position of its symbol's code, in bits from the start of the encoded data.
+     */
+    public long getBitOffset(int checkpoint) {
+        return bitOffsets[checkpoint];
+    }
+
+    /**
+     * Returns the symbol a checkpoint was taken before.
+     *
+     * @param checkpoint The number of the checkpoint.
+     * @return The index of the symbol.
+     */
+    public long getSymbolOffset(int checkpoint) {
+        return (long) checkpoint * interval;
+    }
+
+    /**
+     * Returns the number of symbols between checkpoints.
+     *
+     * @return The checkpoint interval.
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Returns the number of checkpoints.
+     *
+     * @return The checkpoint count.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the byte offset of the encoded data in the compressed file.
+     *
+     * @return The size of the header that precedes the encoded data.
+     */
+    public long getPayloadOffset() {
+        return payloadOffset;
+    }
+
+    /**
+     * Sets the byte offset of the encoded data in the compressed file.
+     *
+     * @param payloadOffset The size of the header that precedes the encoded data.
+     */
+    public void setPayloadOffset(long payloadOffset) {
+        this.payloadOffset = payloadOffset;
+    }
+
+    /**
+     * Returns the number of encoded symbols.
+     *
+     * @return The symbol count.
+     */
+    public long getSymbolCount() {
+        return symbolCount;
+    }
+
+    /**
+     * Sets the number of encoded symbols.
+     *
+     * @param symbolCount The symbol count.
+     */
+    public void setSymbolCount(long symbolCount) {
+        this.symbolCount = symbolCount;
+    }
+
+    /**
+     * Writes the index.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public void write(OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+        HuffmanHeader.writeVarLong(out, payloadOffset);
+        HuffmanHeader.writeVarLong(out, symbolCount);
+        HuffmanHeader.writeVarLong(out, interval);
+        HuffmanHeader.writeVarLong(out, count);
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            HuffmanHeader.writeVarLong(out, bitOffsets[i] - previous);
+            previous = bitOffsets[i];
+        }
+    }
+
+    /**
+     * Reads an index written by {@link #write(OutputStream)}.
+     *
+     * @param in The stream to read from.
+     * @return The index read.
+     * @throws IOException If an I/O error occurs or the data is not a valid index.
+     */
+    public static CheckpointIndex read(InputStream in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        for (int i = 0; i < magic.length; i++) {
+            magic[i] = (byte) in.read();
+        }
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("El archivo no es un índice de puntos de control.");
+        }
+        int version = in.read();
+        if (version != VERSION) {
+            throw new IOException("Versión de formato no soportada: " + version);
+        }
+
+        long payloadOffset = HuffmanHeader.readVarLong(in);
+        long symbolCount = HuffmanHeader.readVarLong(in);
+        long interval = HuffmanHeader.readVarLong(in);
+        long count = HuffmanHeader.readVarLong(in);
+        if (interval <= 0 || interval > Integer.MAX_VALUE || count > symbolCount / interval + 1) {
+            throw new IOException("Índice de puntos de control inválido.");
+        }
+
+        CheckpointIndex index = new CheckpointIndex((int) interval);
+        index.payloadOffset = payloadOffset;
+        index.symbolCount = symbolCount;
+        long bitOffset = 0;
+        for (long i = 0; i < count; i++) {
+            bitOffset += HuffmanHeader.readVarLong(in);
+            index.add(bitOffset);
+        }
+        return index;
+    }
+}
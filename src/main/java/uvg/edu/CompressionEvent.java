@@ -0,0 +1,62 @@
+package uvg.edu;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event committed when a compression or decompression finishes, with its totals.
+ * Enable it with {@code -XX:StartFlightRecording} or in a recording, as {@value #NAME}.
+ */
+@Name(CompressionEvent.NAME)
+@Label("Huffman Operation")
+@Category("Huffman")
+@Description("A finished compression or decompression, with its throughput and code statistics")
+@StackTrace(false)
+class CompressionEvent extends Event {
+
+    static final String NAME = "uvg.edu.Compression";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("File")
+    String file;
+
+    @Label("Input Size")
+    @DataAmount
+    long inputBytes;
+
+    @Label("Output Size")
+    @DataAmount
+    long outputBytes;
+
+    @Label("Symbols")
+    long symbols;
+
+    @Label("Time")
+    @Timespan
+    long time;
+
+    @Label("Bytes per Second")
+    double bytesPerSecond;
+
+    @Label("Symbols per Second")
+    double symbolsPerSecond;
+
+    @Label("Bits per Symbol")
+    @Description("Average code length achieved")
+    double bitsPerSymbol;
+
+    @Label("Entropy")
+    @Description("Shannon entropy of the symbols, in bits per symbol")
+    double entropy;
+
+    @Label("Maximum Code Length")
+    int maxCodeLength;
+}
@@ -0,0 +1,411 @@
+package uvg.edu;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Timings and statistics of one compression or decompression.
+ * When the operation finishes they are committed as JFR events ({@link CompressionEvent} and one
+ * {@link CompressionPhaseEvent} per phase) and added to the totals of the {@link CompressionStats} MXBean.
+ * <p>
+ * Phases are timed exclusively: time spent blocked in a stream wrapped with {@link #timed(InputStream)}
+ * or {@link #timed(OutputStream)} is counted as {@link Phase#READ} or {@link Phase#WRITE}, not as part
+ * of the phase that was running. An instance belongs to a single operation on a single thread.
+ * Operations that spread their work over several threads, such as block compression, time each task
+ * into an instance of its own from {@link #forTask()} and {@link #merge} it into the instance of the
+ * operation once the task is done; phase times are then added up across threads.
+ */
+class CompressionMetrics {
+
+    /**
+     * Steps of a compression or decompression.
+     */
+    enum Phase {
+        READ, // Waiting for input data while encoding or decoding
+        HISTOGRAM, // Counting symbol frequencies
+        TREE_BUILD, // Merging nodes into code lengths
+        CODE_GENERATION, // Assigning canonical codes to the lengths
+        ENCODE, // Turning symbols into codes
+        HEADER, // Parsing the header and rebuilding the canonical code
+        TABLE_BUILD, // Filling the decoding lookup tables
+        DECODE, // Turning codes back into symbols
+        WRITE // Handing output data to the file
+    }
+
+    static final String COMPRESS = "compress"; // Name of compression operations
+    static final String DECOMPRESS = "decompress"; // Name of decompression operations
+
+    private static final double LOG_2 = Math.log(2);
+
+    private final String operation; // Name of the operation, such as "compress"
+    private final String file; // File the operation reads
+    private final long start = System.nanoTime(); // Time the operation started
+    private final long[] phaseNanos = new long[Phase.values().length]; // Exclusive time of each phase
+    private long ioNanos; // Time spent in timed streams so far
+    private long ioAtBegin; // Time spent in timed streams when the current phase began
+    private long elapsedNanos; // Wall-clock time of the whole operation, set when it finishes
+    private long inputBytes; // Bytes read
+    private long outputBytes; // Bytes written
+    private long symbolCount; // Symbols encoded or decoded
+    private long encodedBits; // Size of the encoded data
+    private double entropy; // Shannon entropy of the symbols, in bits per symbol
+    private int maxCodeLength; // Length of the longest code
+
+    /**
+     * Starts measuring an operation.
+     *
+     * @param operation The name of the operation, {@value #COMPRESS} or {@value #DECOMPRESS}.
+     * @param file      The file the operation reads.
+     */
+    public CompressionMetrics(String operation, String file) {
+        this.operation = operation;
+        this.file = file;
+    }
+
+    /**
+     * Marks the beginning of a phase.
+     *
+     * @return The start time to pass to {@link #end(Phase, long)}.
+     */
+    public long begin() {
+        ioAtBegin = ioNanos;
+        return System.nanoTime();
+    }
+
+    /**
+     * Marks the end of a phase, leaving out the time spent in timed streams since it began.
+     *
+     * @param phase The phase that ended.
+     * @param begin The value returned by {@link #begin()}.
+     */
+    public void end(Phase phase, long begin) {
+        phaseNanos[phase.ordinal()] += System.nanoTime() - begin - (ioNanos - ioAtBegin);
+    }
+
+    /**
+     * Marks the end of building a tree, splitting the time between building the tree and
+     * generating its codes.
+     *
+     * @param tree  The tree just built.
+     * @param begin The value returned by {@link #begin()}.
+     */
+    public void endTree(HuffmanTree tree, long begin) {
+        long codeGeneration = tree.getCodeGenerationNanos();
+        end(Phase.TREE_BUILD, begin);
+        phaseNanos[Phase.TREE_BUILD.ordinal()] -= codeGeneration;
+        phaseNanos[Phase.CODE_GENERATION.ordinal()] += codeGeneration;
+        maxCodeLength = tree.getMaxCodeLength();
+        symbolCount = tree.getSymbolCount();
+    }
+
+    /**
+     * Wraps a stream so that the time spent reading it is counted as {@link Phase#READ}
+     * and the bytes read as input.
+     *
+     * @param in The stream to wrap.
+     * @return The timed stream.
+     */
+    public InputStream timed(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                long begin = System.nanoTime();
+                int b = super.read();
+                io(Phase.READ, begin, b == -1 ? 0 : 1);
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                long begin = System.nanoTime();
+                int read = super.read(b, off, len);
+                io(Phase.READ, begin, Math.max(read, 0));
+                return read;
+            }
+        };
+    }
+
+    /**
+     * Wraps a stream so that the time spent writing to it is counted as {@link Phase#WRITE}
+     * and the bytes written as output.
+     *
+     * @param out The stream to wrap.
+     * @return The timed stream.
+     */
+    public OutputStream timed(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                long begin = System.nanoTime();
+                out.write(b);
+                io(Phase.WRITE, begin, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                long begin = System.nanoTime();
+                out.write(b, off, len);
+                io(Phase.WRITE, begin, len);
+            }
+        };
+    }
+
+    /**
+     * Records a call to a timed stream.
+     */
+    private void io(Phase phase, long begin, long bytes) {
+        long nanos = System.nanoTime() - begin;
+        phaseNanos[phase.ordinal()] += nanos;
+        ioNanos += nanos;
+        if (phase == Phase.READ) {
+            inputBytes += bytes;
+        } else {
+            outputBytes += bytes;
+        }
+    }
+
+    /**
+     * Records a read made without a timed stream, such as a positional read of a file channel,
+     * as {@link Phase#READ} and its bytes as input.
+     *
+     * @param begin The value of {@link System#nanoTime()} before the read.
+     * @param bytes The number of bytes read.
+     */
+    public void endRead(long begin, long bytes) {
+        io(Phase.READ, begin, bytes);
+    }
+
+    /**
+     * Records bytes accessed without any read or write call, such as through a memory mapping,
+     * whose time falls in the phase that touches them.
+     *
+     * @param inputBytes  The number of bytes read.
+     * @param outputBytes The number of bytes written.
+     */
+    public void addBytes(long inputBytes, long outputBytes) {
+        this.inputBytes += inputBytes;
+        this.outputBytes += outputBytes;
+    }
+
+    /**
+     * Creates metrics for one task of this operation, to be timed on the thread that runs it.
+     *
+     * @return Empty metrics of the same operation and file, never finished themselves.
+     */
+    public CompressionMetrics forTask() {
+        return new CompressionMetrics(operation, file);
+    }
+
+    /**
+     * Adds the metrics of a finished task to those of the operation: phase times, bytes, symbols and
+     * encoded bits are added up, the longest code is kept, and the entropy is averaged over the symbols.
+     *
+     * @param task The metrics of the task, created with {@link #forTask()}.
+     */
+    public void merge(CompressionMetrics task) {
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] += task.phaseNanos[i];
+        }
+        long symbols = symbolCount + task.symbolCount;
+        if (symbols > 0) {
+            entropy = (entropy * symbolCount + task.entropy * task.symbolCount) / symbols;
+        }
+        symbolCount = symbols;
+        inputBytes += task.inputBytes;
+        outputBytes += task.outputBytes;
+        encodedBits += task.encodedBits;
+        maxCodeLength = Math.max(maxCodeLength, task.maxCodeLength);
+    }
+
+    /**
+     * Records the Shannon entropy of a histogram, the lower bound on the average code length.
+     *
+     * @param frequencies The frequency of each symbol.
+     */
+    public void setFrequencies(long[] frequencies) {
+        entropy = entropy(frequencies);
+    }
+
+    /**
+     * Computes the Shannon entropy of a histogram.
+     *
+     * @param frequencies The frequency of each symbol.
+     * @return The entropy in bits per symbol, or 0 for an empty histogram.
+     */
+    static double entropy(long[] frequencies) {
+        long total = 0;
+        for (long frequency : frequencies) {
+            total += frequency;
+        }
+        double entropy = 0;
+        for (long frequency : frequencies) {
+            if (frequency > 0) {
+                double p = (double) frequency / total;
+                entropy -= p * Math.log(p) / LOG_2;
+            }
+        }
+        return entropy;
+    }
+
+    /**
+     * Records the symbols of the operation and the size of their codes.
+     *
+     * @param symbolCount The number of symbols encoded or decoded.
+     * @param encodedBits The size of the encoded data in bits.
+     */
+    public void setSymbols(long symbolCount, long encodedBits) {
+        this.symbolCount = symbolCount;
+        this.encodedBits = encodedBits;
+    }
+
+    /**
+     * Records the length of the longest code.
+     *
+     * @param maxCodeLength The maximum code length in bits.
+     */
+    public void setMaxCodeLength(int maxCodeLength) {
+        this.maxCodeLength = maxCodeLength;
+    }
+
+    /**
+     * Ends the operation and publishes its metrics as JFR events and to the MXBean.
+     */
+    public void finish() {
+        elapsedNanos = System.nanoTime() - start;
+
+        for (Phase phase : Phase.values()) {
+            long nanos = phaseNanos[phase.ordinal()];
+            if (nanos > 0) {
+                CompressionPhaseEvent event = new CompressionPhaseEvent();
+                if (event.shouldCommit()) {
+                    event.operation = operation;
+                    event.file = file;
+                    event.phase = phase.name();
+                    event.time = nanos;
+                    event.commit();
+                }
+            }
+        }
+
+        CompressionEvent event = new CompressionEvent();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.file = file;
+            event.inputBytes = inputBytes;
+            event.outputBytes = outputBytes;
+            event.symbols = symbolCount;
+            event.time = elapsedNanos;
+            event.bytesPerSecond = getBytesPerSecond();
+            event.symbolsPerSecond = getSymbolsPerSecond();
+            event.bitsPerSymbol = getBitsPerSymbol();
+            event.entropy = entropy;
+            event.maxCodeLength = maxCodeLength;
+            event.commit();
+        }
+
+        CompressionStats.getInstance().record(this);
+    }
+
+    /**
+     * Returns the name of the operation.
+     *
+     * @return The operation, {@value #COMPRESS} or {@value #DECOMPRESS}.
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Returns the exclusive time of a phase.
+     *
+     * @param phase The phase.
+     * @return The time in nanoseconds.
+     */
+    public long getNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * Returns the wall-clock time of the whole operation.
+     *
+     * @return The elapsed time in nanoseconds, or 0 before the operation finishes.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the number of bytes read.
+     *
+     * @return The input size.
+     */
+    public long getInputBytes() {
+        return inputBytes;
+    }
+
+    /**
+     * Returns the number of bytes written.
+     *
+     * @return The output size.
+     */
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    /**
+     * Returns the number of symbols encoded or decoded.
+     *
+     * @return The symbol count.
+     */
+    public long getSymbolCount() {
+        return symbolCount;
+    }
+
+    /**
+     * Returns the throughput of the operation, measured on its input.
+     *
+     * @return Input bytes per second, or 0 before the operation finishes.
+     */
+    public double getBytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : inputBytes / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * Returns the number of symbols processed per second.
+     *
+     * @return Symbols per second, or 0 before the operation finishes.
+     */
+    public double getSymbolsPerSecond() {
+        return elapsedNanos == 0 ? 0 : symbolCount / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * Returns the average code length actually achieved.
+     *
+     * @return The encoded bits per symbol, or 0 if there were no symbols.
+     */
+    public double getBitsPerSymbol() {
+        return symbolCount == 0 ? 0 : (double) encodedBits / symbolCount;
+    }
+
+    /**
+     * Returns the Shannon entropy of the symbols.
+     *
+     * @return The entropy in bits per symbol, or 0 if no histogram was recorded.
+     */
+    public double getEntropy() {
+        return entropy;
+    }
+
+    /**
+     * Returns the length of the longest code.
+     *
+     * @return The maximum code length in bits.
+     */
+    public int getMaxCodeLength() {
+        return maxCodeLength;
+    }
+}
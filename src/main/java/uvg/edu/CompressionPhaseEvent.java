@@ -0,0 +1,37 @@
+package uvg.edu;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event with the time a finished compression or decompression spent in one of its phases.
+ * The time is the sum of every stretch spent in the phase, so it is carried in a field rather
+ * than as the duration of the event.
+ */
+@Name(CompressionPhaseEvent.NAME)
+@Label("Huffman Phase")
+@Category("Huffman")
+@Description("Time spent in one phase of a compression or decompression")
+@StackTrace(false)
+class CompressionPhaseEvent extends Event {
+
+    static final String NAME = "uvg.edu.CompressionPhase";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("File")
+    String file;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Time")
+    @Timespan
+    long time;
+}
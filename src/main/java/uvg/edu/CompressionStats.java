@@ -0,0 +1,154 @@
+package uvg.edu;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Totals of the compressions and decompressions run in this JVM, published through JMX.
+ * The single instance registers itself with the platform MBean server the first time it is used,
+ * so tools such as JConsole or JDK Mission Control can watch it under {@value #OBJECT_NAME}.
+ */
+class CompressionStats implements CompressionStatsMXBean {
+
+    static final String OBJECT_NAME = "uvg.edu:type=CompressionStats";
+
+    private static final CompressionStats INSTANCE = register(new CompressionStats());
+
+    private long compressions; // Compressions finished
+    private long decompressions; // Decompressions finished
+    private long inputBytes; // Bytes read by all operations
+    private long outputBytes; // Bytes written by all operations
+    private long symbols; // Symbols encoded or decoded by all operations
+    private final long[] phaseNanos = new long[CompressionMetrics.Phase.values().length]; // Time per phase
+    private double lastBytesPerSecond; // Throughput of the last operation
+    private double lastSymbolsPerSecond; // Symbol rate of the last operation
+    private double lastBitsPerSymbol; // Average code length of the last compression
+    private double lastEntropy; // Entropy of the last compression
+    private int lastMaxCodeLength; // Longest code of the last operation
+
+    /**
+     * Returns the totals of this JVM.
+     *
+     * @return The single instance.
+     */
+    public static CompressionStats getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the instance with the platform MBean server. Failing to register only disables JMX access.
+     */
+    private static CompressionStats register(CompressionStats stats) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stats, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Registered by another class loader of the same application
+        } catch (JMException | SecurityException e) {
+            System.err.println("No se pudieron publicar las métricas por JMX: " + e.getMessage());
+        }
+        return stats;
+    }
+
+    /**
+     * Adds a finished operation to the totals.
+     *
+     * @param metrics The metrics of the operation.
+     */
+    public synchronized void record(CompressionMetrics metrics) {
+        if (CompressionMetrics.COMPRESS.equals(metrics.getOperation())) {
+            compressions++;
+            lastBitsPerSymbol = metrics.getBitsPerSymbol();
+            lastEntropy = metrics.getEntropy();
+        } else {
+            decompressions++;
+        }
+        inputBytes += metrics.getInputBytes();
+        outputBytes += metrics.getOutputBytes();
+        symbols += metrics.getSymbolCount();
+        for (CompressionMetrics.Phase phase : CompressionMetrics.Phase.values()) {
+            phaseNanos[phase.ordinal()] += metrics.getNanos(phase);
+        }
+        lastBytesPerSecond = metrics.getBytesPerSecond();
+        lastSymbolsPerSecond = metrics.getSymbolsPerSecond();
+        lastMaxCodeLength = metrics.getMaxCodeLength();
+    }
+
+    @Override
+    public synchronized long getCompressions() {
+        return compressions;
+    }
+
+    @Override
+    public synchronized long getDecompressions() {
+        return decompressions;
+    }
+
+    @Override
+    public synchronized long getInputBytes() {
+        return inputBytes;
+    }
+
+    @Override
+    public synchronized long getOutputBytes() {
+        return outputBytes;
+    }
+
+    @Override
+    public synchronized long getSymbols() {
+        return symbols;
+    }
+
+    @Override
+    public synchronized Map<String, Long> getPhaseNanos() {
+        Map<String, Long> nanos = new LinkedHashMap<>();
+        for (CompressionMetrics.Phase phase : CompressionMetrics.Phase.values()) {
+            nanos.put(phase.name(), phaseNanos[phase.ordinal()]);
+        }
+        return nanos;
+    }
+
+    @Override
+    public synchronized double getLastBytesPerSecond() {
+        return lastBytesPerSecond;
+    }
+
+    @Override
+    public synchronized double getLastSymbolsPerSecond() {
+        return lastSymbolsPerSecond;
+    }
+
+    @Override
+    public synchronized double getLastBitsPerSymbol() {
+        return lastBitsPerSymbol;
+    }
+
+    @Override
+    public synchronized double getLastEntropy() {
+        return lastEntropy;
+    }
+
+    @Override
+    public synchronized int getLastMaxCodeLength() {
+        return lastMaxCodeLength;
+    }
+
+    @Override
+    public synchronized void reset() {
+        compressions = 0;
+        decompressions = 0;
+        inputBytes = 0;
+        outputBytes = 0;
+        symbols = 0;
+        Arrays.fill(phaseNanos, 0);
+        lastBytesPerSecond = 0;
+        lastSymbolsPerSecond = 0;
+        lastBitsPerSymbol = 0;
+        lastEntropy = 0;
+        lastMaxCodeLength = 0;
+    }
+}
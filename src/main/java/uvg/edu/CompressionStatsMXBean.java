@@ -0,0 +1,92 @@
+package uvg.edu;
+
+import java.util.Map;
+
+/**
+ * Management interface of the compression totals of this JVM, registered as {@value CompressionStats#OBJECT_NAME}.
+ * The interface is public because the JMX introspector only accepts public MXBean interfaces.
+ */
+public interface CompressionStatsMXBean {
+
+    /**
+     * Returns the number of compressions finished.
+     *
+     * @return The compression count.
+     */
+    long getCompressions();
+
+    /**
+     * Returns the number of decompressions finished.
+     *
+     * @return The decompression count.
+     */
+    long getDecompressions();
+
+    /**
+     * Returns the number of bytes read by all operations.
+     *
+     * @return The total input size.
+     */
+    long getInputBytes();
+
+    /**
+     * Returns the number of bytes written by all operations.
+     *
+     * @return The total output size.
+     */
+    long getOutputBytes();
+
+    /**
+     * Returns the number of symbols encoded or decoded by all operations.
+     *
+     * @return The total symbol count.
+     */
+    long getSymbols();
+
+    /**
+     * Returns the time all operations spent in each phase.
+     *
+     * @return The total time in nanoseconds, by phase name.
+     */
+    Map<String, Long> getPhaseNanos();
+
+    /**
+     * Returns the throughput of the last operation.
+     *
+     * @return Input bytes per second.
+     */
+    double getLastBytesPerSecond();
+
+    /**
+     * Returns the number of symbols the last operation processed per second.
+     *
+     * @return Symbols per second.
+     */
+    double getLastSymbolsPerSecond();
+
+    /**
+     * Returns the average code length of the last compression.
+     *
+     * @return The encoded bits per symbol.
+     */
+    double getLastBitsPerSymbol();
+
+    /**
+     * Returns the Shannon entropy of the symbols of the last compression.
+     *
+     * @return The entropy in bits per symbol.
+     */
+    double getLastEntropy();
+
+    /**
+     * Returns the length of the longest code of the last operation.
+     *
+     * @return The maximum code length in bits.
+     */
+    int getLastMaxCodeLength();
+
+    /**
+     * Clears all totals.
+     */
+    void reset();
+}
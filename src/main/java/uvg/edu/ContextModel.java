@@ -0,0 +1,358 @@
+package uvg.edu;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * An order-1 model over bytes: the code used for each byte depends on the byte before it, its context,
+ * so data where a byte strongly predicts the next one, such as text and structured logs, codes below
+ * its order-0 entropy. The first byte of a block is coded in context 0.
+ * <p>
+ * A separate code per context would cost up to 256 code tables per block, so contexts with similar
+ * statistics are clustered into at most a given number of groups that share a code. On disk the model
+ * is stored as:
+ * <pre>
+ *   groupCount     number of groups (variable-length integer)
+ *   group*         group of each of the 256 contexts, one byte each, only if there is more than one group
+ *   code lengths*  code lengths of each group, as written by {@link HuffmanHeader#writeCodeLengths}
+ * </pre>
+ * Both directions are table-driven: each context points straight at the codes or the
+ * {@link HuffmanTableDecoder} of its group, so coding a byte costs one extra array lookup.
+ */
+class ContextModel {
+
+    static final int CONTEXTS = 256; // Number of contexts, one per value of the previous byte
+    static final int DEFAULT_TABLES = 16; // Maximum number of groups unless configured otherwise
+    private static final int ITERATIONS = 8; // Maximum number of refinement passes of the clustering
+
+    private final byte[] groups; // Group of each context
+    private final byte[][] codeLengths; // Code length of each byte in each group
+    private long encodedBits; // Payload bits, known only for models built in this process
+    private long unlimitedBits; // Payload bits unrestricted codes would have needed
+
+    /**
+     * Constructs a model from its parts.
+     *
+     * @param groups      The group of each context.
+     * @param codeLengths The code length of each byte in each group.
+     */
+    ContextModel(byte[] groups, byte[][] codeLengths) {
+        this.groups = groups;
+        this.codeLengths = codeLengths;
+    }
+
+    /**
+     * Builds a model from the bytes it will code. Contexts are clustered by assigning each one to the
+     * group whose code would code its bytes in the fewest bits and recomputing the groups from their
+     * contexts, a few times over, starting from the most frequent contexts as one group each.
+     *
+     * @param symbols       The bytes to model, as unsigned values.
+     * @param count         The number of bytes from the start of the array.
+     * @param maxTables     The maximum number of groups, between 1 and {@value #CONTEXTS}.
+     * @param maxCodeLength The maximum code length in bits, or 0 for no limit.
+     * @return The model.
+     */
+    public static ContextModel build(int[] symbols, int count, int maxTables, int maxCodeLength) {
+        long[][] counts = new long[CONTEXTS][CONTEXTS];
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            counts[previous][symbols[i]]++;
+            previous = symbols[i];
+        }
+
+        int[] assignment = cluster(counts, maxTables);
+        int groupCount = 0;
+        for (int group : assignment) {
+            groupCount = Math.max(groupCount, group + 1);
+        }
+        long[][] frequencies = new long[Math.max(1, groupCount)][CONTEXTS];
+        for (int context = 0; context < CONTEXTS; context++) {
+            for (int symbol = 0; symbol < CONTEXTS; symbol++) {
+                frequencies[assignment[context]][symbol] += counts[context][symbol];
+            }
+        }
+
+        byte[] groups = new byte[CONTEXTS];
+        for (int context = 0; context < CONTEXTS; context++) {
+            groups[context] = (byte) assignment[context];
+        }
+        byte[][] codeLengths = new byte[frequencies.length][];
+        long encodedBits = 0;
+        long unlimitedBits = 0;
+        for (int group = 0; group < frequencies.length; group++) {
+            HuffmanTree tree = new HuffmanTree();
+            tree.buildTree(frequencies[group], SymbolMode.BYTE, maxCodeLength);
+            codeLengths[group] = tree.getCodeLengths();
+            encodedBits += tree.getEncodedBits();
+            unlimitedBits += tree.getUnlimitedBits();
+        }
+
+        ContextModel model = new ContextModel(groups, codeLengths);
+        model.encodedBits = encodedBits;
+        model.unlimitedBits = unlimitedBits;
+        return model;
+    }
+
+    /**
+     * Clusters the contexts that occur into at most a given number of groups.
+     *
+     * @param counts    The number of times each byte follows each context.
+     * @param maxTables The maximum number of groups.
+     * @return The group of each context, numbered from 0 in order of first use; 0 for contexts that do not occur.
+     */
+    private static int[] cluster(long[][] counts, int maxTables) {
+        long[] totals = new long[CONTEXTS];
+        Integer[] byTotal = new Integer[CONTEXTS];
+        int used = 0;
+        for (int context = 0; context < CONTEXTS; context++) {
+            for (long n : counts[context]) {
+                totals[context] += n;
+            }
+            if (totals[context] > 0) {
+                byTotal[used++] = context;
+            }
+        }
+        Arrays.sort(byTotal, 0, used, (a, b) -> Long.compare(totals[b], totals[a]));
+        int[] contexts = new int[used];
+        for (int i = 0; i < used; i++) {
+            contexts[i] = byTotal[i];
+        }
+
+        // The most frequent contexts seed one group each
+        int k = Math.min(maxTables, used);
+        int[] assignment = new int[CONTEXTS];
+        long[][] clusters = new long[k][];
+        for (int i = 0; i < k; i++) {
+            clusters[i] = counts[contexts[i]].clone();
+        }
+
+        double[][] cost = new double[k][CONTEXTS];
+        for (int iteration = 0; iteration < ITERATIONS && k > 1; iteration++) {
+            // Cost of each byte under the code of each group; every byte gets half a count so none is free
+            for (int c = 0; c < k; c++) {
+                long total = 0;
+                for (long n : clusters[c]) {
+                    total += n;
+                }
+                for (int symbol = 0; symbol < CONTEXTS; symbol++) {
+                    cost[c][symbol] = -Math.log((clusters[c][symbol] + 0.5) / (total + CONTEXTS / 2.0));
+                }
+            }
+
+            boolean changed = iteration == 0;
+            for (int context : contexts) {
+                long[] histogram = counts[context];
+                int best = 0;
+                double bestCost = Double.MAX_VALUE;
+                for (int c = 0; c < k; c++) {
+                    double bits = 0;
+                    for (int symbol = 0; symbol < CONTEXTS; symbol++) {
+                        if (histogram[symbol] > 0) {
+                            bits += histogram[symbol] * cost[c][symbol];
+                        }
+                    }
+                    if (bits < bestCost) {
+                        bestCost = bits;
+                        best = c;
+                    }
+                }
+                changed |= assignment[context] != best;
+                assignment[context] = best;
+            }
+            if (!changed) {
+                break;
+            }
+
+            for (long[] cluster : clusters) {
+                Arrays.fill(cluster, 0);
+            }
+            for (int context : contexts) {
+                for (int symbol = 0; symbol < CONTEXTS; symbol++) {
+                    clusters[assignment[context]][symbol] += counts[context][symbol];
+                }
+            }
+        }
+
+        // Renumber the groups that kept any context, so there are no empty ones
+        int[] renumbered = new int[k];
+        Arrays.fill(renumbered, -1);
+        int groupCount = 0;
+        int[] groups = new int[CONTEXTS];
+        for (int context = 0; context < CONTEXTS; context++) {
+            if (totals[context] > 0) {
+                int c = assignment[context];
+                if (renumbered[c] == -1) {
+                    renumbered[c] = groupCount++;
+                }
+                groups[context] = renumbered[c];
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Encodes bytes, each with the code of the group of the byte before it.
+     *
+     * @param symbols The bytes to encode, as unsigned values.
+     * @param count   The number of bytes from the start of the array.
+     * @param out     The bit stream to write to.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public void encode(int[] symbols, int count, BitOutputStream out) throws IOException {
+        long[][] groupValues = new long[codeLengths.length][];
+        for (int group = 0; group < codeLengths.length; group++) {
+            groupValues[group] = CanonicalCode.assignCodes(codeLengths[group]);
+        }
+        long[][] values = new long[CONTEXTS][];
+        byte[][] lengths = new byte[CONTEXTS][];
+        for (int context = 0; context < CONTEXTS; context++) {
+            values[context] = groupValues[groups[context] & 0xFF];
+            lengths[context] = codeLengths[groups[context] & 0xFF];
+        }
+
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            int symbol = symbols[i];
+            out.writeBits(values[previous][symbol], lengths[previous][symbol]);
+            previous = symbol;
+        }
+    }
+
+    /**
+     * Decodes bytes written by {@link #encode(int[], int, BitOutputStream)}.
+     *
+     * @param in      The bit stream to read from.
+     * @param symbols The array that receives the bytes, as unsigned values.
+     * @param count   The number of bytes to decode.
+     * @throws IOException If the stream ends before all of the bytes are decoded.
+     */
+    public void decode(BitInputStream in, int[] symbols, int count) throws IOException {
+        HuffmanTableDecoder[] groupDecoders = new HuffmanTableDecoder[codeLengths.length];
+        for (int group = 0; group < codeLengths.length; group++) {
+            groupDecoders[group] = new HuffmanTableDecoder(codeLengths[group]);
+        }
+        HuffmanTableDecoder[] decoders = new HuffmanTableDecoder[CONTEXTS];
+        for (int context = 0; context < CONTEXTS; context++) {
+            decoders[context] = groupDecoders[groups[context] & 0xFF];
+        }
+
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            int symbol = decoders[previous].decodeSymbol(in);
+            if (symbol == -1) {
+                throw new IOException("Bloque comprimido incompleto.");
+            }
+            symbols[i] = symbol;
+            previous = symbol;
+        }
+    }
+
+    /**
+     * Returns the number of groups of contexts, one code table each.
+     *
+     * @return The group count.
+     */
+    public int getGroupCount() {
+        return codeLengths.length;
+    }
+
+    /**
+     * Returns the length of the longest code of any group.
+     *
+     * @return The maximum code length in bits.
+     */
+    public int getMaxCodeLength() {
+        int max = 0;
+        for (byte[] lengths : codeLengths) {
+            for (byte length : lengths) {
+                max = Math.max(max, length);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the number of payload bits of a model built in this process.
+     *
+     * @return The encoded size in bits.
+     */
+    public long getEncodedBits() {
+        return encodedBits;
+    }
+
+    /**
+     * Returns the number of payload bits unrestricted Huffman codes would have needed.
+     *
+     * @return The unrestricted encoded size in bits.
+     */
+    public long getUnlimitedBits() {
+        return unlimitedBits;
+    }
+
+    /**
+     * Estimates the size of the model on disk: the group map plus one byte per code length.
+     *
+     * @return The estimated size in bits.
+     */
+    public long getTableBits() {
+        long used = 0;
+        for (byte[] lengths : codeLengths) {
+            for (byte length : lengths) {
+                if (length > 0) {
+                    used++;
+                }
+            }
+        }
+        return 8 * (used + (codeLengths.length > 1 ? CONTEXTS : 0));
+    }
+
+    /**
+     * Writes the model.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public void write(OutputStream out) throws IOException {
+        HuffmanHeader.writeVarLong(out, codeLengths.length);
+        if (codeLengths.length > 1) {
+            out.write(groups);
+        }
+        for (byte[] lengths : codeLengths) {
+            HuffmanHeader.writeCodeLengths(out, lengths);
+        }
+    }
+
+    /**
+     * Reads a model written by {@link #write(OutputStream)}.
+     *
+     * @param in The stream to read from.
+     * @return The model read.
+     * @throws IOException If an I/O error occurs or the model is malformed.
+     */
+    public static ContextModel read(InputStream in) throws IOException {
+        long groupCount = HuffmanHeader.readVarLong(in);
+        if (groupCount < 1 || groupCount > CONTEXTS) {
+            throw new IOException("Modelo de contexto inválido.");
+        }
+        byte[] groups = new byte[CONTEXTS];
+        if (groupCount > 1) {
+            for (int context = 0; context < CONTEXTS; context++) {
+                int group = in.read();
+                if (group == -1) {
+                    throw new IOException("Bloque comprimido incompleto.");
+                }
+                if (group >= groupCount) {
+                    throw new IOException("Modelo de contexto inválido.");
+                }
+                groups[context] = (byte) group;
+            }
+        }
+        byte[][] codeLengths = new byte[(int) groupCount][];
+        for (int group = 0; group < groupCount; group++) {
+            codeLengths[group] = HuffmanHeader.readCodeLengths(in, CONTEXTS);
+        }
+        return new ContextModel(groups, codeLengths);
+    }
+}
@@ -0,0 +1,104 @@
+package uvg.edu;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps trained {@link HuffmanDictionary dictionaries} in a directory, one file per ID, and caches
+ * the loaded ones in memory so their tables are prepared only once.
+ * The store is safe to use from several threads.
+ */
+class DictionaryStore {
+
+    static final String EXTENSION = ".hufdict"; // Extension of the dictionary files
+
+    private final Path directory; // Directory holding the dictionary files
+    private final Map<Integer, HuffmanDictionary> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a store over a directory.
+     *
+     * @param directory The directory holding the dictionary files.
+     */
+    public DictionaryStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Saves a dictionary under its ID and keeps it in memory.
+     *
+     * @param dictionary The dictionary to save.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public void save(HuffmanDictionary dictionary) throws IOException {
+        Files.createDirectories(directory);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path(dictionary.getId())))) {
+            dictionary.write(out);
+        }
+        cache.put(dictionary.getId(), dictionary);
+    }
+
+    /**
+     * Returns a dictionary, loading it from its file on first use.
+     *
+     * @param id The identifier of the dictionary.
+     * @return The dictionary.
+     * @throws IOException If the dictionary does not exist or cannot be read.
+     */
+    public HuffmanDictionary get(int id) throws IOException {
+        try {
+            return cache.computeIfAbsent(id, key -> {
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(path(key)))) {
+                    HuffmanDictionary dictionary = HuffmanDictionary.read(in);
+                    if (dictionary.getId() != key) {
+                        throw new IOException("El archivo del diccionario " + key + " tiene el ID " + dictionary.getId());
+                    }
+                    return dictionary;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Compresses a record with a dictionary.
+     *
+     * @param id     The identifier of the dictionary.
+     * @param record The bytes of the record.
+     * @return The compressed record.
+     * @throws IOException If the dictionary cannot be loaded.
+     */
+    public byte[] compress(int id, byte[] record) throws IOException {
+        return get(id).compress(record);
+    }
+
+    /**
+     * Decompresses a record compressed with a dictionary.
+     *
+     * @param id         The identifier of the dictionary the record was compressed with.
+     * @param compressed The compressed record.
+     * @return The original bytes of the record.
+     * @throws IOException If the dictionary cannot be loaded or the record is malformed.
+     */
+    public byte[] decompress(int id, byte[] compressed) throws IOException {
+        return get(id).decompress(compressed);
+    }
+
+    /**
+     * Returns the path of the file of a dictionary.
+     */
+    private Path path(int id) {
+        return directory.resolve(id + EXTENSION);
+    }
+}
@@ -0,0 +1,336 @@
+package uvg.edu;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Counts symbol frequencies into primitive arrays, ready for {@link HuffmanTree#buildTree(long[], SymbolMode)}.
+ * Large inputs are split into one contiguous range per worker of a {@link ForkJoinPool}; each worker
+ * counts into its own arrays and the partial histograms are added up at the end.
+ * Within a range, consecutive bytes or block symbols go to {@value #STRIPES} interleaved sub-histograms,
+ * so a run of equal symbols does not make every increment wait for the store of the previous one.
+ */
+class FrequencyHistogram {
+
+    static final int STRIPES = 4; // Sub-histograms counted in rotation
+    static final int MIN_PARALLEL_SIZE = 1 << 20; // Inputs smaller than this are counted on the calling thread
+    static final int SAMPLE_BLOCK_SIZE = 1 << 16; // Bytes read at each sampled position of a file
+
+    private final ForkJoinPool pool; // Pool the ranges are counted on
+
+    /**
+     * Constructs a histogram engine that runs on the common pool.
+     */
+    public FrequencyHistogram() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a histogram engine that runs on the given pool.
+     *
+     * @param pool The pool the ranges are counted on.
+     */
+    public FrequencyHistogram(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Counts how many times each byte value occurs in an array.
+     *
+     * @param data   The bytes to analyze.
+     * @param offset The index of the first byte.
+     * @param length The number of bytes.
+     * @return An array of 256 counts indexed by unsigned byte value.
+     */
+    public long[] countBytes(byte[] data, int offset, int length) {
+        List<ForkJoinTask<long[]>> tasks = new ArrayList<>();
+        int ranges = ranges(length);
+        for (int i = 0; i < ranges; i++) {
+            int from = offset + (int) ((long) length * i / ranges);
+            int to = offset + (int) ((long) length * (i + 1) / ranges);
+            tasks.add(task(ranges, () -> {
+                long[] frequencies = new long[256];
+                countBytes(data, from, to, frequencies);
+                return frequencies;
+            }));
+        }
+        return merge(tasks, 256);
+    }
+
+    /**
+     * Counts how many times each byte value occurs in a file.
+     * Each worker reads its own range of the file with positional reads.
+     *
+     * @param file The file to analyze.
+     * @return An array of 256 counts indexed by unsigned byte value.
+     * @throws IOException If an I/O error occurs while reading.
+     */
+    public long[] countBytes(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int ranges = ranges(size);
+            if (ranges == 1) {
+                return countBytes(channel, 0, size);
+            }
+            List<ForkJoinTask<long[]>> tasks = new ArrayList<>();
+            for (int i = 0; i < ranges; i++) {
+                long from = size * i / ranges;
+                long to = size * (i + 1) / ranges;
+                tasks.add(task(ranges, () -> countBytes(channel, from, to)));
+            }
+            for (ForkJoinTask<long[]> task : tasks) {
+                BlockCompressor.join(task); // Surface read errors as I/O errors
+            }
+            return merge(tasks, 256);
+        }
+    }
+
+    /**
+     * Estimates how many times each byte value occurs in a file from a strided sample of it.
+     * The file is divided into blocks of {@value #SAMPLE_BLOCK_SIZE} bytes and one block of every
+     * {@code round(1 / fraction)} is read, so the sample covers the whole file evenly. The counts are
+     * scaled up to the size of the file, and every byte value gets a count of at least 1, so bytes the
+     * sample missed still get a (long) code.
+     *
+     * @param file     The file to analyze.
+     * @param fraction The fraction of the file to read, between 0 (exclusive) and 1.
+     * @return An array of 256 estimated counts indexed by unsigned byte value, all 0 for an empty file.
+     * @throws IOException If an I/O error occurs while reading.
+     */
+    public long[] sampleBytes(Path file, double fraction) throws IOException {
+        if (!(fraction > 0 && fraction <= 1)) {
+            throw new IllegalArgumentException("La fracción de muestreo debe estar entre 0 y 1.");
+        }
+        long[] sampled = new long[256];
+        long sampledBytes = 0;
+        long size;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+            long stride = SAMPLE_BLOCK_SIZE * Math.max(1, Math.round(1 / fraction));
+            for (long from = 0; from < size; from += stride) {
+                long to = Math.min(size, from + SAMPLE_BLOCK_SIZE);
+                long[] block = countBytes(channel, from, to);
+                for (int i = 0; i < 256; i++) {
+                    sampled[i] += block[i];
+                }
+                sampledBytes += to - from;
+            }
+        }
+
+        long[] frequencies = new long[256];
+        if (sampledBytes > 0) {
+            double scale = (double) size / sampledBytes;
+            for (int i = 0; i < 256; i++) {
+                frequencies[i] = Math.max(1, Math.round(sampled[i] * scale));
+            }
+        }
+        return frequencies;
+    }
+
+    /**
+     * Counts how many times each character occurs in a text.
+     *
+     * @param text The text to analyze.
+     * @return An array of 65536 counts indexed by character.
+     */
+    public long[] countCharacters(CharSequence text) {
+        int alphabetSize = SymbolMode.CHARACTER.alphabetSize();
+        List<ForkJoinTask<long[]>> tasks = new ArrayList<>();
+        int length = text.length();
+        int ranges = ranges(length);
+        for (int i = 0; i < ranges; i++) {
+            int from = (int) ((long) length * i / ranges);
+            int to = (int) ((long) length * (i + 1) / ranges);
+            tasks.add(task(ranges, () -> {
+                // A single array per range: four copies of the whole character alphabet cost more than they save
+                long[] frequencies = new long[alphabetSize];
+                int[] counts = new int[alphabetSize];
+                for (int j = from; j < to; j++) {
+                    counts[text.charAt(j)]++;
+                }
+                add(counts, frequencies);
+                return frequencies;
+            }));
+        }
+        return merge(tasks, alphabetSize);
+    }
+
+    /**
+     * Counts how many times each character read from a reader occurs.
+     * Decoding a charset is sequential, so the text is counted on the calling thread, in fixed-size chunks.
+     *
+     * @param reader The reader supplying the text to analyze.
+     * @return An array of 65536 counts indexed by character.
+     * @throws IOException If an I/O error occurs while reading.
+     */
+    public long[] countCharacters(Reader reader) throws IOException {
+        long[] frequencies = new long[SymbolMode.CHARACTER.alphabetSize()];
+        char[] buffer = new char[HuffmanCompressor.BUFFER_SIZE];
+        int read;
+
+        while ((read = reader.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                frequencies[buffer[i]]++;
+            }
+        }
+
+        return frequencies;
+    }
+
+    /**
+     * Counts how many times each symbol read from a symbol reader occurs, on the calling thread.
+     * Counts go straight into a single array, since striping a large alphabet such as the
+     * Unicode code points would cost more than it saves.
+     *
+     * @param reader       The reader supplying the symbols to analyze.
+     * @param alphabetSize The number of symbols of the alphabet.
+     * @return The count of each symbol, up to the largest symbol that occurs.
+     * @throws IOException If an I/O error occurs while reading.
+     */
+    public long[] countSymbols(SymbolReader reader, int alphabetSize) throws IOException {
+        long[] frequencies = new long[alphabetSize];
+        int[] buffer = new int[HuffmanCompressor.BUFFER_SIZE];
+        int maxSymbol = -1;
+        int read;
+
+        while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+            for (int i = 0; i < read; i++) {
+                frequencies[buffer[i]]++;
+                maxSymbol = Math.max(maxSymbol, buffer[i]);
+            }
+        }
+
+        return Arrays.copyOf(frequencies, maxSymbol + 1);
+    }
+
+    /**
+     * Counts a range of bytes into a histogram, rotating over {@value #STRIPES} sub-histograms.
+     *
+     * @param data        The bytes to analyze.
+     * @param from        The index of the first byte.
+     * @param to          The index after the last byte.
+     * @param frequencies The histogram of 256 counts the range is added to.
+     */
+    static void countBytes(byte[] data, int from, int to, long[] frequencies) {
+        int[] counts = new int[STRIPES * 256];
+        int i = from;
+        for (; i + STRIPES <= to; i += STRIPES) {
+            counts[data[i] & 0xFF]++;
+            counts[256 | (data[i + 1] & 0xFF)]++;
+            counts[512 | (data[i + 2] & 0xFF)]++;
+            counts[768 | (data[i + 3] & 0xFF)]++;
+        }
+        for (; i < to; i++) {
+            counts[data[i] & 0xFF]++;
+        }
+        add(counts, frequencies);
+    }
+
+    /**
+     * Counts an array of symbols into a histogram, rotating over {@value #STRIPES} sub-histograms
+     * for alphabets of at most 256 symbols. Larger alphabets are counted straight into the histogram,
+     * as in {@link #countSymbols(SymbolReader, int)}: their sub-histograms would not stay in cache.
+     *
+     * @param symbols     The symbols to analyze.
+     * @param count       The number of symbols from the start of the array.
+     * @param frequencies The histogram the symbols are added to, with one count per symbol of the alphabet.
+     */
+    static void countSymbols(int[] symbols, int count, long[] frequencies) {
+        int alphabetSize = frequencies.length;
+        if (alphabetSize > 256) {
+            for (int i = 0; i < count; i++) {
+                frequencies[symbols[i]]++;
+            }
+            return;
+        }
+        int[] counts = new int[STRIPES * alphabetSize];
+        int i = 0;
+        for (; i + STRIPES <= count; i += STRIPES) {
+            counts[symbols[i]]++;
+            counts[alphabetSize + symbols[i + 1]]++;
+            counts[2 * alphabetSize + symbols[i + 2]]++;
+            counts[3 * alphabetSize + symbols[i + 3]]++;
+        }
+        for (; i < count; i++) {
+            counts[symbols[i]]++;
+        }
+        add(counts, frequencies);
+    }
+
+    /**
+     * Counts a range of a file into a new histogram of 256 counts.
+     */
+    private static long[] countBytes(FileChannel channel, long from, long to) throws IOException {
+        long[] frequencies = new long[256];
+        byte[] buffer = new byte[HuffmanCompressor.BUFFER_SIZE];
+        ByteBuffer wrapper = ByteBuffer.wrap(buffer);
+        long position = from;
+
+        while (position < to) {
+            wrapper.clear().limit((int) Math.min(buffer.length, to - position));
+            int read = channel.read(wrapper, position);
+            if (read == -1) {
+                throw new IOException("El archivo cambió de tamaño durante la lectura.");
+            }
+            countBytes(buffer, 0, read, frequencies);
+            position += read;
+        }
+        return frequencies;
+    }
+
+    /**
+     * Adds sub-histograms of int counts into a histogram.
+     * The counts array holds one or more consecutive sub-histograms as long as the histogram.
+     */
+    private static void add(int[] counts, long[] frequencies) {
+        for (int i = 0; i < counts.length; i++) {
+            frequencies[i % frequencies.length] += counts[i];
+        }
+    }
+
+    /**
+     * Returns into how many ranges an input of the given size is split.
+     */
+    private int ranges(long size) {
+        if (size < MIN_PARALLEL_SIZE) {
+            return 1;
+        }
+        return (int) Math.max(1, Math.min(pool.getParallelism(), size / (MIN_PARALLEL_SIZE / 2)));
+    }
+
+    /**
+     * Runs a counting task on the pool, or on the calling thread when there is a single range.
+     */
+    private ForkJoinTask<long[]> task(int ranges, Callable<long[]> counter) {
+        ForkJoinTask<long[]> task = ForkJoinTask.adapt(counter);
+        if (ranges == 1) {
+            task.invoke();
+            return task;
+        }
+        return pool.submit(task);
+    }
+
+    /**
+     * Waits for the partial histograms and adds them up.
+     */
+    private static long[] merge(List<ForkJoinTask<long[]>> tasks, int alphabetSize) {
+        long[] frequencies = new long[alphabetSize];
+        for (ForkJoinTask<long[]> task : tasks) {
+            long[] partial = task.join();
+            for (int i = 0; i < alphabetSize; i++) {
+                frequencies[i] += partial[i];
+            }
+        }
+        return frequencies;
+    }
+}
@@ -0,0 +1,600 @@
+package uvg.edu;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A block of symbols coded independently of the rest of the file, with its own Huffman code.
+ * On disk a block is stored as:
+ * <pre>
+ *   type           block type, {@link #HUFFMAN}, {@link #INTERLEAVED}, {@link #STORED}, {@link #CONTEXT}
+ *                  or {@link #TRANSFORMED}
+ *   symbolCount    number of symbols in the block (variable-length integer)
+ *   bytes          stored blocks only: the original bytes, and nothing else follows
+ *   transforms     transformed blocks only: the number of transforms and the identifier of each in the
+ *                  order they were applied, one byte each, followed by the block of transformed bytes
+ *                  and nothing else
+ *   code lengths   as written by {@link HuffmanHeader#writeCodeLengths}, or for context blocks
+ *                  the model as written by {@link ContextModel#write}
+ *   jump table     interleaved blocks only: byte length of each stream but the last (variable-length integers)
+ *   payloadLength  number of payload bytes (variable-length integer)
+ *   payload        the encoded symbols
+ * </pre>
+ * In an interleaved block symbol {@code i} is written to stream {@code i % }{@value #STREAMS}, and the
+ * streams are stored one after another. Since the streams are independent, the decoder advances
+ * all of them in the same loop and the processor can overlap the work of consecutive symbols,
+ * which a single stream does not allow because every code starts where the previous one ends.
+ * <p>
+ * Blocks of bytes that a Huffman code would not shrink enough, such as already compressed media,
+ * are stored as they are: encoding skips building the code, and decoding is a plain copy.
+ * <p>
+ * Byte blocks can also be coded with an order-1 {@link ContextModel}, a code per group of preceding
+ * bytes, when that is smaller than a single code with its table.
+ * <p>
+ * A chain of {@link BlockTransform}s such as block sorting can be applied to the bytes of a block
+ * first; the transformed bytes are coded as a nested block of any other type.
+ */
+class HuffmanBlock {
+
+    static final int HUFFMAN = 0; // Block type of a Huffman-coded block
+    static final int INTERLEAVED = 1; // Block type of a Huffman-coded block split into interleaved streams
+    static final int STORED = 2; // Block type of a block of bytes kept uncompressed
+    static final int CONTEXT = 3; // Block type of a byte block coded with an order-1 context model
+    static final int TRANSFORMED = 4; // Block type of a byte block coded after a chain of transforms
+    static final int STREAMS = 4; // Number of streams of an interleaved block
+    static final double DEFAULT_MIN_SAVINGS = 0.01; // Fraction of its size a byte block must save to be coded
+
+    private final int type; // Block type
+    private final int symbolCount; // Number of symbols in the block
+    private final byte[] codeLengths; // Code length of each symbol used in the block, null if not Huffman-coded
+    private final ContextModel context; // Order-1 model of a context block, null otherwise
+    private final BlockTransform[] transforms; // Transforms in the order applied, null if not transformed
+    private final HuffmanBlock inner; // Block holding the transformed bytes, null if not transformed
+    private final byte[] payload; // Encoded symbols, or the original bytes of a stored block
+    private final int[] streamOffsets; // Start of each stream and end of the payload, null if not interleaved
+    private long encodedBits; // Payload bits, known only for blocks encoded in this process
+    private long unlimitedBits; // Payload bits an unrestricted code would have needed
+
+    /**
+     * Constructs a block from its parts.
+     *
+     * @param symbolCount The number of symbols in the block.
+     * @param codeLengths The code length of each symbol used in the block.
+     * @param payload     The encoded symbols.
+     */
+    HuffmanBlock(int symbolCount, byte[] codeLengths, byte[] payload) {
+        this(symbolCount, codeLengths, payload, null);
+    }
+
+    /**
+     * Constructs an interleaved block from its parts.
+     *
+     * @param symbolCount   The number of symbols in the block.
+     * @param codeLengths   The code length of each symbol used in the block.
+     * @param payload       The encoded streams, one after another.
+     * @param streamOffsets The start of each stream followed by the payload length, or null if not interleaved.
+     */
+    HuffmanBlock(int symbolCount, byte[] codeLengths, byte[] payload, int[] streamOffsets) {
+        this.type = codeLengths == null ? STORED : streamOffsets == null ? HUFFMAN : INTERLEAVED;
+        this.symbolCount = symbolCount;
+        this.codeLengths = codeLengths;
+        this.context = null;
+        this.transforms = null;
+        this.inner = null;
+        this.payload = payload;
+        this.streamOffsets = streamOffsets;
+    }
+
+    /**
+     * Constructs a context block from its parts.
+     *
+     * @param symbolCount The number of bytes in the block.
+     * @param context     The order-1 model the bytes are coded with.
+     * @param payload     The encoded bytes.
+     */
+    HuffmanBlock(int symbolCount, ContextModel context, byte[] payload) {
+        this.type = CONTEXT;
+        this.symbolCount = symbolCount;
+        this.codeLengths = null;
+        this.context = context;
+        this.transforms = null;
+        this.inner = null;
+        this.payload = payload;
+        this.streamOffsets = null;
+    }
+
+    /**
+     * Constructs a transformed block from its parts.
+     *
+     * @param symbolCount The number of bytes in the block before the transforms.
+     * @param transforms  The transforms in the order they were applied.
+     * @param inner       The block holding the transformed bytes.
+     */
+    HuffmanBlock(int symbolCount, BlockTransform[] transforms, HuffmanBlock inner) {
+        this.type = TRANSFORMED;
+        this.symbolCount = symbolCount;
+        this.codeLengths = null;
+        this.context = null;
+        this.transforms = transforms;
+        this.inner = inner;
+        this.payload = null;
+        this.streamOffsets = null;
+        this.encodedBits = inner.encodedBits;
+        this.unlimitedBits = inner.unlimitedBits;
+    }
+
+    /**
+     * Encodes symbols as the options ask: with a Huffman code built from their own frequencies,
+     * optionally split across {@value #STREAMS} interleaved streams, or for byte blocks with an
+     * order-1 context model when that is smaller, model included, or after a chain of transforms.
+     * Byte blocks that would not save the minimum fraction of their size are stored instead.
+     *
+     * @param symbols The symbols to encode.
+     * @param count   The number of symbols to encode from the start of the array.
+     * @param mode    The alphabet the symbols belong to.
+     * @param options How to code the block; the block size is not used.
+     * @return The encoded, context-coded, transformed or stored block.
+     * @throws IOException If the symbols cannot be encoded.
+     * @throws IllegalArgumentException If the alphabet is words, or transforms are configured and the
+     *                                  alphabet is not bytes.
+     */
+    public static HuffmanBlock encode(int[] symbols, int count, SymbolMode mode, BlockOptions options)
+            throws IOException {
+        return encode(symbols, count, mode, options, new CompressionMetrics(CompressionMetrics.COMPRESS, null));
+    }
+
+    /**
+     * Encodes symbols as {@link #encode(int[], int, SymbolMode, BlockOptions)} does, timing the work
+     * into metrics: counting the histogram, building the tree or context model and its codes, and
+     * encoding, transforms included. The entropy of the histogram coded is recorded as well.
+     *
+     * @param symbols The symbols to encode.
+     * @param count   The number of symbols to encode from the start of the array.
+     * @param mode    The alphabet the symbols belong to.
+     * @param options How to code the block; the block size is not used.
+     * @param metrics The metrics of the task encoding the block.
+     * @return The encoded, context-coded, transformed or stored block.
+     * @throws IOException If the symbols cannot be encoded.
+     * @throws IllegalArgumentException If the alphabet is words, or transforms are configured and the
+     *                                  alphabet is not bytes.
+     */
+    public static HuffmanBlock encode(int[] symbols, int count, SymbolMode mode, BlockOptions options,
+                                      CompressionMetrics metrics) throws IOException {
+        options.checkMode(mode);
+        return options.hasTransforms()
+                ? encodeTransformed(symbols, count, options, metrics) : code(symbols, count, mode, options, metrics);
+    }
+
+    /**
+     * Encodes symbols with a single code or a context model, ignoring the transforms of the options.
+     * The entropy of the histogram bounds the size of any single code from below, so byte blocks it
+     * already rules out are stored without building a code at all. Context blocks are never
+     * interleaved, since each code depends on the symbol decoded before it.
+     */
+    private static HuffmanBlock code(int[] symbols, int count, SymbolMode mode, BlockOptions options,
+                                     CompressionMetrics metrics) throws IOException {
+        int maxCodeLength = options.getMaxCodeLength();
+        int contextTables = options.getContextTables();
+        long start = metrics.begin();
+        long[] frequencies = new long[mode.alphabetSize()];
+        FrequencyHistogram.countSymbols(symbols, count, frequencies);
+        metrics.end(CompressionMetrics.Phase.HISTOGRAM, start);
+        metrics.setFrequencies(frequencies);
+
+        // Most bits a byte block may take once coded, code lengths included
+        boolean storable = mode == SymbolMode.BYTE;
+        boolean contexts = storable && contextTables > 0;
+        double limit = 8.0 * count * (1 - options.getMinSavings());
+        double budget = limit - codeTableBits(frequencies);
+        // The order-0 entropy bounds a single code only; a context model may still get below it
+        if (storable && !contexts && CompressionMetrics.entropy(frequencies) * count > budget) {
+            return stored(symbols, count, metrics);
+        }
+
+        start = metrics.begin();
+        HuffmanTree tree = new HuffmanTree();
+        tree.buildTree(frequencies, mode, maxCodeLength);
+        metrics.endTree(tree, start);
+        if (contexts) {
+            start = metrics.begin();
+            ContextModel model = ContextModel.build(symbols, count, contextTables, maxCodeLength);
+            metrics.end(CompressionMetrics.Phase.TREE_BUILD, start);
+            long modelBits = model.getEncodedBits() + model.getTableBits();
+            if (modelBits < tree.getEncodedBits() + codeTableBits(frequencies)) {
+                return modelBits > limit
+                        ? stored(symbols, count, metrics) : contextCoded(symbols, count, model, metrics);
+            }
+        }
+        if (storable && tree.getEncodedBits() > budget) {
+            return stored(symbols, count, metrics);
+        }
+        start = metrics.begin();
+        long[] codeValues = tree.getCodeValues();
+        byte[] codeLengths = tree.getCodeLengths();
+
+        HuffmanBlock block;
+        if (options.isInterleaved()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(count / 2 + 16 * STREAMS);
+            int[] streamOffsets = new int[STREAMS + 1];
+            for (int stream = 0; stream < STREAMS; stream++) {
+                streamOffsets[stream] = bytes.size();
+                BitOutputStream out = new BitOutputStream(bytes);
+                for (int i = stream; i < count; i += STREAMS) {
+                    out.writeBits(codeValues[symbols[i]], codeLengths[symbols[i]]);
+                }
+                out.close(); // Closing a ByteArrayOutputStream has no effect, so the next stream follows
+            }
+            streamOffsets[STREAMS] = bytes.size();
+            block = new HuffmanBlock(count, codeLengths, bytes.toByteArray(), streamOffsets);
+        } else {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(count / 2 + 16);
+            try (BitOutputStream out = new BitOutputStream(bytes)) {
+                for (int i = 0; i < count; i++) {
+                    out.writeBits(codeValues[symbols[i]], codeLengths[symbols[i]]);
+                }
+            }
+            block = new HuffmanBlock(count, codeLengths, bytes.toByteArray());
+        }
+        metrics.end(CompressionMetrics.Phase.ENCODE, start);
+        block.encodedBits = tree.getEncodedBits();
+        block.unlimitedBits = tree.getUnlimitedBits();
+        return block;
+    }
+
+    /**
+     * Encodes bytes after passing them through the chain of transforms of the options, coding the
+     * transformed bytes with the rest of the options. If the transformed bytes would be stored anyway,
+     * the original bytes are stored instead, since transforms such as run-length coding may make
+     * incompressible data longer.
+     */
+    private static HuffmanBlock encodeTransformed(int[] symbols, int count, BlockOptions options,
+                                                  CompressionMetrics metrics) throws IOException {
+        BlockTransform[] transforms = options.getTransforms();
+        long start = metrics.begin();
+        byte[] data = new byte[count];
+        for (int i = 0; i < count; i++) {
+            data[i] = (byte) symbols[i];
+        }
+        for (BlockTransform transform : transforms) {
+            data = transform.forward(data);
+        }
+        int[] transformed = new int[data.length];
+        for (int i = 0; i < data.length; i++) {
+            transformed[i] = data[i] & 0xFF;
+        }
+        metrics.end(CompressionMetrics.Phase.ENCODE, start);
+
+        // The nested block must save as much as the original bytes would have needed to
+        double savings = 1 - count * (1 - options.getMinSavings()) / Math.max(1, data.length);
+        HuffmanBlock inner = code(transformed, transformed.length, SymbolMode.BYTE,
+                options.withMinSavings(Math.max(0, Math.min(savings, 0.99))), metrics);
+        if (inner.isStored()) {
+            return stored(symbols, count, metrics);
+        }
+        return new HuffmanBlock(count, transforms, inner);
+    }
+
+    /**
+     * Creates a stored block holding bytes as they are, timing the copy as encoding.
+     */
+    private static HuffmanBlock stored(int[] symbols, int count, CompressionMetrics metrics) {
+        long start = metrics.begin();
+        byte[] bytes = new byte[count];
+        for (int i = 0; i < count; i++) {
+            bytes[i] = (byte) symbols[i];
+        }
+        metrics.end(CompressionMetrics.Phase.ENCODE, start);
+        return new HuffmanBlock(count, (byte[]) null, bytes);
+    }
+
+    /**
+     * Creates a context block coding bytes with an order-1 model.
+     */
+    private static HuffmanBlock contextCoded(int[] symbols, int count, ContextModel model,
+                                             CompressionMetrics metrics) throws IOException {
+        long start = metrics.begin();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(count / 2 + 16);
+        try (BitOutputStream out = new BitOutputStream(bytes)) {
+            model.encode(symbols, count, out);
+        }
+        metrics.end(CompressionMetrics.Phase.ENCODE, start);
+        HuffmanBlock block = new HuffmanBlock(count, model, bytes.toByteArray());
+        block.encodedBits = model.getEncodedBits();
+        block.unlimitedBits = model.getUnlimitedBits();
+        return block;
+    }
+
+    /**
+     * Estimates the size of the code lengths of a block, one byte per symbol used.
+     */
+    private static long codeTableBits(long[] frequencies) {
+        long used = 0;
+        for (long frequency : frequencies) {
+            if (frequency > 0) {
+                used++;
+            }
+        }
+        return 8 * used;
+    }
+
+    /**
+     * Decodes the symbols of the block.
+     *
+     * @param symbols The array that receives the symbols; it must hold at least {@link #getSymbolCount()}.
+     * @throws IOException If the payload is shorter than the recorded number of symbols.
+     */
+    public void decode(int[] symbols) throws IOException {
+        if (type == TRANSFORMED) {
+            int[] transformed = new int[inner.symbolCount];
+            inner.decode(transformed);
+            byte[] data = new byte[transformed.length];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) transformed[i];
+            }
+            for (int i = transforms.length - 1; i >= 0; i--) {
+                data = transforms[i].inverse(data);
+            }
+            if (data.length != symbolCount) {
+                throw new IOException("Bloque transformado inválido.");
+            }
+            for (int i = 0; i < symbolCount; i++) {
+                symbols[i] = data[i] & 0xFF;
+            }
+            return;
+        }
+        if (context != null) {
+            context.decode(new BitInputStream(payload, 0, payload.length), symbols, symbolCount);
+            return;
+        }
+        if (codeLengths == null) {
+            for (int i = 0; i < symbolCount; i++) {
+                symbols[i] = payload[i] & 0xFF;
+            }
+            return;
+        }
+        HuffmanTableDecoder decoder = new HuffmanTableDecoder(codeLengths);
+        if (streamOffsets != null) {
+            decoder.decodeInterleaved(payload, streamOffsets, symbols, symbolCount);
+            return;
+        }
+        BitInputStream in = new BitInputStream(payload, 0, payload.length);
+
+        for (int i = 0; i < symbolCount; i++) {
+            int symbol = decoder.decodeSymbol(in);
+            if (symbol == -1) {
+                throw new IOException("Bloque comprimido incompleto.");
+            }
+            symbols[i] = symbol;
+        }
+    }
+
+    /**
+     * Returns whether the symbols of the block are split across interleaved streams.
+     *
+     * @return True for an interleaved block.
+     */
+    public boolean isInterleaved() {
+        return streamOffsets != null;
+    }
+
+    /**
+     * Returns whether the block holds its bytes uncompressed.
+     *
+     * @return True for a stored block.
+     */
+    public boolean isStored() {
+        return type == STORED;
+    }
+
+    /**
+     * Returns whether the block is coded with an order-1 context model.
+     *
+     * @return True for a context block.
+     */
+    public boolean isContextCoded() {
+        return context != null;
+    }
+
+    /**
+     * Returns whether the bytes of the block went through a chain of transforms before coding.
+     *
+     * @return True for a transformed block.
+     */
+    public boolean isTransformed() {
+        return type == TRANSFORMED;
+    }
+
+    /**
+     * Returns the original bytes of a stored block, which can be copied out without decoding.
+     *
+     * @return The bytes of the block, or null if the block is coded.
+     */
+    public byte[] getStoredBytes() {
+        return isStored() ? payload : null;
+    }
+
+    /**
+     * Returns the number of symbols in the block.
+     *
+     * @return The symbol count.
+     */
+    public int getSymbolCount() {
+        return symbolCount;
+    }
+
+    /**
+     * Returns the number of payload bits of a block encoded in this process.
+     *
+     * @return The encoded size in bits.
+     */
+    public long getEncodedBits() {
+        return encodedBits;
+    }
+
+    /**
+     * Returns the length of the longest code of the block.
+     *
+     * @return The maximum code length in bits, 0 for a stored block.
+     */
+    public int getMaxCodeLength() {
+        if (type == TRANSFORMED) {
+            return inner.getMaxCodeLength();
+        }
+        if (context != null) {
+            return context.getMaxCodeLength();
+        }
+        int max = 0;
+        if (codeLengths != null) {
+            for (byte length : codeLengths) {
+                max = Math.max(max, length);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the number of payload bits an unrestricted Huffman code would have needed.
+     *
+     * @return The unrestricted encoded size in bits.
+     */
+    public long getUnlimitedBits() {
+        return unlimitedBits;
+    }
+
+    /**
+     * Writes the block.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public void write(OutputStream out) throws IOException {
+        out.write(type);
+        HuffmanHeader.writeVarLong(out, symbolCount);
+        if (type == STORED) {
+            out.write(payload);
+            return;
+        }
+        if (type == TRANSFORMED) {
+            out.write(transforms.length);
+            for (BlockTransform transform : transforms) {
+                out.write(transform.id());
+            }
+            inner.write(out);
+            return;
+        }
+        if (context != null) {
+            context.write(out);
+        } else {
+            HuffmanHeader.writeCodeLengths(out, codeLengths);
+        }
+        if (streamOffsets != null) {
+            for (int stream = 0; stream < STREAMS - 1; stream++) {
+                HuffmanHeader.writeVarLong(out, streamOffsets[stream + 1] - streamOffsets[stream]);
+            }
+        }
+        HuffmanHeader.writeVarLong(out, payload.length);
+        out.write(payload);
+    }
+
+    /**
+     * Reads a block written by {@link #write(OutputStream)}. The block is read from memory, so every
+     * count and length is checked against what the block may hold before anything is allocated for
+     * it: a stored block has one byte per symbol and a coded one at least one bit per symbol, and no
+     * payload is longer than the bytes left in the block.
+     *
+     * @param in         The bytes of the block.
+     * @param mode       The alphabet of the file the block belongs to.
+     * @param maxSymbols The largest number of symbols the block may hold, the block size of the file.
+     * @return The block read.
+     * @throws IOException If an I/O error occurs or the block is malformed.
+     */
+    public static HuffmanBlock read(ByteArrayInputStream in, SymbolMode mode, int maxSymbols) throws IOException {
+        int type = in.read();
+        if (type < HUFFMAN || type > TRANSFORMED) {
+            throw new IOException("Tipo de bloque desconocido: " + type);
+        }
+        long symbolCount = HuffmanHeader.readVarLong(in);
+        if (symbolCount < 1 || symbolCount > maxSymbols) {
+            throw new IOException("Número de símbolos del bloque inválido: " + symbolCount);
+        }
+        int count = (int) symbolCount;
+        if (type == STORED) {
+            return new HuffmanBlock(count, (byte[]) null, readFully(in, count));
+        }
+        if (type == TRANSFORMED) {
+            int transformCount = in.read();
+            if (transformCount == -1) {
+                throw new IOException("Bloque comprimido incompleto.");
+            }
+            BlockTransform[] transforms = new BlockTransform[transformCount];
+            for (int i = 0; i < transformCount; i++) {
+                transforms[i] = BlockTransform.forId(in.read());
+            }
+            // The transforms may lengthen the bytes, so only what the block holds bounds the inner count
+            HuffmanBlock inner = read(in, SymbolMode.BYTE, Integer.MAX_VALUE);
+            if (inner.type == TRANSFORMED) {
+                throw new IOException("Bloque transformado inválido.");
+            }
+            return new HuffmanBlock(count, transforms, inner);
+        }
+        if (type == CONTEXT) {
+            ContextModel context = ContextModel.read(in);
+            byte[] payload = readFully(in, readLength(in));
+            checkCodedCount(count, payload);
+            return new HuffmanBlock(count, context, payload);
+        }
+        byte[] codeLengths = HuffmanHeader.readCodeLengths(in, mode.alphabetSize());
+        int[] streamOffsets = null;
+        if (type == INTERLEAVED) {
+            streamOffsets = new int[STREAMS + 1];
+            for (int stream = 0; stream < STREAMS - 1; stream++) {
+                long offset = streamOffsets[stream] + HuffmanHeader.readVarLong(in);
+                if (offset < streamOffsets[stream] || offset > in.available()) {
+                    throw new IOException("Tabla de saltos del bloque inválida.");
+                }
+                streamOffsets[stream + 1] = (int) offset;
+            }
+        }
+        byte[] payload = readFully(in, readLength(in));
+        checkCodedCount(count, payload);
+        if (streamOffsets != null) {
+            streamOffsets[STREAMS] = payload.length;
+            if (streamOffsets[STREAMS - 1] > payload.length) {
+                throw new IOException("Tabla de saltos del bloque inválida.");
+            }
+        }
+        return new HuffmanBlock(count, codeLengths, payload, streamOffsets);
+    }
+
+    /**
+     * Reads the length of a payload, which cannot be longer than the bytes left in the block.
+     */
+    private static int readLength(ByteArrayInputStream in) throws IOException {
+        long length = HuffmanHeader.readVarLong(in);
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Bloque comprimido incompleto.");
+        }
+        return (int) length; // At most the bytes left, so it fits
+    }
+
+    /**
+     * Checks that a coded payload can hold the symbols of its block, every code being at least one bit.
+     */
+    private static void checkCodedCount(int symbolCount, byte[] payload) throws IOException {
+        if (symbolCount > payload.length * 8L) {
+            throw new IOException("Número de símbolos del bloque inválido: " + symbolCount);
+        }
+    }
+
+    /**
+     * Reads the given number of bytes of a block, which must all be left in it.
+     */
+    private static byte[] readFully(ByteArrayInputStream in, int length) throws IOException {
+        if (length > in.available()) {
+            throw new IOException("Bloque comprimido incompleto.");
+        }
+        return in.readNBytes(length);
+    }
+}
@@ -0,0 +1,367 @@
+package uvg.edu;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compresses and decompresses byte buffers with a Huffman code built for each message, for use
+ * inside servers on request and response bodies. Buffers may be heap or direct. All the tables the
+ * codec needs are allocated once, when it is constructed, and reused by every call, so encoding and
+ * decoding allocate nothing; the decode table is only rebuilt when a message uses a different code
+ * than the previous one.
+ * <p>
+ * An instance is not thread-safe. Keep one per thread, for example in a {@link ThreadLocal}.
+ * <p>
+ * Each message is self-describing:
+ * <pre>
+ *   length &lt;&lt; 1 | stored     length of the original data and whether it is stored as is (variable-length integer)
+ *   stored:  the original bytes
+ *   encoded: used, then (gap &lt;&lt; 6 | length) per used byte value, as in {@link HuffmanHeader},
+ *            followed by the codes, most significant bit first
+ * </pre>
+ * Codes are limited to {@value #MAX_CODE_LENGTH} bits, so a single lookup table decodes every symbol.
+ * Data that a Huffman code would not shrink is stored, which bounds the output by {@link #maxCompressedLength(int)}.
+ */
+public final class HuffmanBufferCodec {
+
+    static final int MAX_CODE_LENGTH = 11; // Longest code, which sets the size of the decode table
+
+    private static final int SYMBOLS = 256;
+    private static final int LENGTH_BITS = 4; // Bits of a decode table entry holding the code length
+    private static final int LENGTH_MASK = (1 << LENGTH_BITS) - 1;
+
+    private final long[] frequencies = new long[SYMBOLS]; // Histogram of the message being encoded
+    private final long[] keys = new long[SYMBOLS]; // Frequency and symbol of each used byte value, for sorting
+    private final long[] weights = new long[2 * SYMBOLS - 1]; // Weight of each node while building the code
+    private final int[] parents = new int[2 * SYMBOLS - 1]; // Parent, then depth, of each node
+    private final byte[] codeLengths = new byte[SYMBOLS]; // Code length of each byte value
+    private final int[] codeValues = new int[SYMBOLS]; // Canonical code of each byte value
+    private final int[] lengthCounts = new int[MAX_CODE_LENGTH + 2]; // Number of codes of each length
+    private final byte[] tableLengths = new byte[SYMBOLS]; // Code lengths the decode table was built for
+    private final int[] table = new int[1 << MAX_CODE_LENGTH]; // Entries (symbol << 4 | length), 0 if unused
+    private boolean tableValid; // Whether the decode table matches tableLengths
+
+    /**
+     * Returns the largest size a message can take once encoded.
+     *
+     * @param length The number of bytes to encode.
+     * @return The size of the encoded message in the worst case, that of stored data.
+     */
+    public static int maxCompressedLength(int length) {
+        return varIntSize(((long) length << 1) | 1) + length;
+    }
+
+    /**
+     * Encodes the remaining bytes of a buffer as one message.
+     * The source position advances to its limit and the destination position past the message.
+     *
+     * @param src The bytes to encode.
+     * @param dst The buffer that receives the message.
+     * @return The number of bytes written to the destination.
+     * @throws IllegalArgumentException If the message does not fit in the remaining space of the destination;
+     *                                  {@link #maxCompressedLength(int)} bytes are always enough.
+     */
+    public int encode(ByteBuffer src, ByteBuffer dst) {
+        int start = src.position();
+        int length = src.remaining();
+
+        Arrays.fill(frequencies, 0);
+        for (int i = start; i < start + length; i++) {
+            frequencies[src.get(i) & 0xFF]++;
+        }
+        int used = buildCode();
+
+        // Size of the code table and the codes, against storing the bytes as they are
+        long encodedBits = 0;
+        int tableSize = varIntSize(used);
+        int previous = -1;
+        for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+            if (codeLengths[symbol] > 0) {
+                encodedBits += frequencies[symbol] * codeLengths[symbol];
+                tableSize += varIntSize(((long) (symbol - previous - 1) << 6) | codeLengths[symbol]);
+                previous = symbol;
+            }
+        }
+        boolean stored = tableSize + (encodedBits + 7) / 8 >= length;
+        long header = ((long) length << 1) | (stored ? 1 : 0);
+        long size = varIntSize(header) + (stored ? length : tableSize + (encodedBits + 7) / 8);
+        if (size > dst.remaining()) {
+            throw new IllegalArgumentException("El búfer de destino no tiene espacio suficiente.");
+        }
+
+        putVarInt(dst, header);
+        if (stored) {
+            dst.put(src);
+            return (int) size;
+        }
+
+        putVarInt(dst, used);
+        previous = -1;
+        for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+            if (codeLengths[symbol] > 0) {
+                putVarInt(dst, ((long) (symbol - previous - 1) << 6) | codeLengths[symbol]);
+                previous = symbol;
+            }
+        }
+
+        // Fewer than 8 bits stay in the accumulator between bytes
+        long accumulator = 0;
+        int pending = 0;
+        for (int i = start; i < start + length; i++) {
+            int b = src.get(i) & 0xFF;
+            accumulator = (accumulator << codeLengths[b]) | codeValues[b];
+            pending += codeLengths[b];
+            while (pending >= 8) {
+                pending -= 8;
+                dst.put((byte) (accumulator >>> pending));
+            }
+        }
+        if (pending > 0) {
+            dst.put((byte) (accumulator << (8 - pending)));
+        }
+        src.position(start + length);
+        return (int) size;
+    }
+
+    /**
+     * Decodes one message written by {@link #encode(ByteBuffer, ByteBuffer)}.
+     * The source position advances past the message and the destination position past the decoded bytes.
+     *
+     * @param src The buffer positioned at the start of the message.
+     * @param dst The buffer that receives the original bytes.
+     * @return The number of bytes written to the destination.
+     * @throws IOException              If the message is malformed or incomplete.
+     * @throws IllegalArgumentException If the original bytes do not fit in the remaining space of the destination.
+     */
+    public int decode(ByteBuffer src, ByteBuffer dst) throws IOException {
+        long header = getVarInt(src);
+        long length = header >>> 1;
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Mensaje comprimido inválido.");
+        }
+        if (length > dst.remaining()) {
+            throw new IllegalArgumentException("El búfer de destino no tiene espacio suficiente.");
+        }
+
+        if ((header & 1) != 0) {
+            if (length > src.remaining()) {
+                throw new IOException("Mensaje comprimido incompleto.");
+            }
+            int limit = src.limit();
+            src.limit(src.position() + (int) length);
+            dst.put(src);
+            src.limit(limit);
+            return (int) length;
+        }
+
+        readCodeLengths(src);
+        if (length > 0) {
+            decodeSymbols(src, dst, (int) length);
+        }
+        return (int) length;
+    }
+
+    /**
+     * Computes the code lengths and canonical codes for the current histogram with the two-queue
+     * method, limiting the lengths by flattening the histogram until the longest code fits.
+     *
+     * @return The number of byte values with a code.
+     */
+    private int buildCode() {
+        Arrays.fill(codeLengths, (byte) 0);
+        int used = 0;
+        for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+            if (frequencies[symbol] > 0) {
+                keys[used++] = frequencies[symbol] << 8 | symbol;
+            }
+        }
+        if (used == 0) {
+            return 0;
+        }
+        if (used == 1) {
+            codeLengths[(int) (keys[0] & 0xFF)] = 1; // A single symbol still needs a one-bit code
+            assignCodes();
+            return 1;
+        }
+
+        while (true) {
+            Arrays.sort(keys, 0, used);
+            int nodes = 2 * used - 1;
+            for (int i = 0; i < used; i++) {
+                weights[i] = keys[i] >>> 8;
+            }
+            Arrays.fill(weights, used, nodes, 0);
+
+            int leaf = 0; // Next leaf not merged yet
+            int merged = used; // Next merged node not merged again yet
+            for (int node = used; node < nodes; node++) {
+                for (int child = 0; child < 2; child++) {
+                    int lightest = leaf < used && (merged == node || weights[leaf] <= weights[merged]) ? leaf++ : merged++;
+                    weights[node] += weights[lightest];
+                    parents[lightest] = node;
+                }
+            }
+            parents[nodes - 1] = 0;
+            int longest = 0;
+            for (int node = nodes - 2; node >= 0; node--) {
+                parents[node] = parents[parents[node]] + 1;
+                longest = Math.max(longest, parents[node]);
+            }
+
+            if (longest <= MAX_CODE_LENGTH) {
+                for (int i = 0; i < used; i++) {
+                    codeLengths[(int) (keys[i] & 0xFF)] = (byte) parents[i];
+                }
+                assignCodes();
+                return used;
+            }
+
+            // Halve the frequencies, keeping every symbol, and build again
+            for (int i = 0; i < used; i++) {
+                keys[i] = (1 + ((keys[i] >>> 8) >>> 1)) << 8 | (keys[i] & 0xFF);
+            }
+        }
+    }
+
+    /**
+     * Assigns canonical codes to the current code lengths.
+     */
+    private void assignCodes() {
+        Arrays.fill(lengthCounts, 0);
+        for (byte length : codeLengths) {
+            lengthCounts[length]++;
+        }
+        lengthCounts[0] = 0;
+
+        // lengthCounts[length] becomes the first code of each length
+        int code = 0;
+        int previousCount = 0;
+        for (int length = 1; length <= MAX_CODE_LENGTH; length++) {
+            code = (code + previousCount) << 1;
+            previousCount = lengthCounts[length];
+            lengthCounts[length] = code;
+        }
+        for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+            int length = codeLengths[symbol];
+            if (length > 0) {
+                codeValues[symbol] = lengthCounts[length]++;
+            }
+        }
+    }
+
+    /**
+     * Reads the code lengths of a message, checks that they form a valid code and rebuilds
+     * the decode table if they differ from those of the previous message.
+     */
+    private void readCodeLengths(ByteBuffer src) throws IOException {
+        long used = getVarInt(src);
+        if (used > SYMBOLS) {
+            throw new IOException("Mensaje comprimido inválido.");
+        }
+        Arrays.fill(codeLengths, (byte) 0);
+        long kraft = 0;
+        int symbol = -1;
+        for (int i = 0; i < used; i++) {
+            long entry = getVarInt(src);
+            symbol += (entry >>> 6) + 1;
+            int length = (int) (entry & 0x3F);
+            if (symbol >= SYMBOLS || length == 0 || length > MAX_CODE_LENGTH) {
+                throw new IOException("Mensaje comprimido inválido.");
+            }
+            codeLengths[symbol] = (byte) length;
+            kraft += 1 << (MAX_CODE_LENGTH - length);
+        }
+        if (kraft > 1 << MAX_CODE_LENGTH) {
+            throw new IOException("Mensaje comprimido inválido.");
+        }
+
+        if (tableValid && Arrays.equals(codeLengths, tableLengths)) {
+            return; // Same code as the previous message
+        }
+        assignCodes();
+        Arrays.fill(table, 0);
+        for (symbol = 0; symbol < SYMBOLS; symbol++) {
+            int length = codeLengths[symbol];
+            if (length > 0) {
+                // Every index starting with the code decodes to the symbol
+                int first = codeValues[symbol] << (MAX_CODE_LENGTH - length);
+                Arrays.fill(table, first, first + (1 << (MAX_CODE_LENGTH - length)), symbol << LENGTH_BITS | length);
+            }
+        }
+        System.arraycopy(codeLengths, 0, tableLengths, 0, SYMBOLS);
+        tableValid = true;
+    }
+
+    /**
+     * Decodes the codes of a message with one table lookup per symbol.
+     * Bits are kept left-aligned in a 64-bit window, refilled a byte at a time; past the end of the
+     * source the window is filled with zeros, and a message that needs those bits is rejected.
+     */
+    private void decodeSymbols(ByteBuffer src, ByteBuffer dst, int length) throws IOException {
+        int start = src.position();
+        int limit = src.limit();
+        int position = start;
+        long window = 0;
+        int available = 0; // Bits of the window read from the source, padding excluded
+        long consumed = 0; // Bits decoded so far
+
+        for (int i = 0; i < length; i++) {
+            while (available <= 56 && position < limit) {
+                window |= (src.get(position++) & 0xFFL) << (56 - available);
+                available += 8;
+            }
+            int entry = table[(int) (window >>> (64 - MAX_CODE_LENGTH))];
+            int codeLength = entry & LENGTH_MASK;
+            if (entry == 0 || codeLength > available) {
+                throw new IOException("Mensaje comprimido incompleto.");
+            }
+            window <<= codeLength;
+            available -= codeLength;
+            consumed += codeLength;
+            dst.put((byte) (entry >>> LENGTH_BITS));
+        }
+        src.position(start + (int) ((consumed + 7) / 8));
+    }
+
+    /**
+     * Returns the number of bytes of a value written by {@link #putVarInt(ByteBuffer, long)}.
+     */
+    private static int varIntSize(long value) {
+        int size = 1;
+        while (value >= 0x80) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Writes a non-negative value in the variable-length format of {@link HuffmanHeader}.
+     */
+    private static void putVarInt(ByteBuffer dst, long value) {
+        while (value >= 0x80) {
+            dst.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        dst.put((byte) value);
+    }
+
+    /**
+     * Reads a value written by {@link #putVarInt(ByteBuffer, long)}.
+     */
+    private static long getVarInt(ByteBuffer src) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!src.hasRemaining()) {
+                throw new IOException("Mensaje comprimido incompleto.");
+            }
+            int b = src.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Mensaje comprimido inválido.");
+    }
+}
@@ -1,9 +1,12 @@
 package uvg.edu;
 
 import java.io.*;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Main class for compressing and decompressing files using the Huffman algorithm.
@@ -12,67 +15,750 @@ public class HuffmanCoding {
 
     private static Scanner scanner = new Scanner(System.in);
 
+    // Operations whose optional fourth argument is max_bits; for the others it means something else
+    private static final Set<String> MAX_BITS_OPERATIONS = new HashSet<>(Arrays.asList(
+            "-c", "-cb", "-cp", "-ci", "-cm", "-cu", "-cw"));
+
     /**
      * Compresses a text file using the Huffman algorithm.
+     * The input is streamed twice: once to count character frequencies and once to encode it,
+     * so memory use stays constant regardless of the file size.
      *
      * @param inputFile  The path to the input file to be compressed.
-     * @param outputFile The base path for the generated compressed files.
+     * @param outputFile The base path for the generated compressed file.
      */
     public static void compress(String inputFile, String outputFile) {
+        compress(inputFile, outputFile, 0);
+    }
+
+    /**
+     * Compresses a text file using the Huffman algorithm, with codes no longer than a maximum.
+     *
+     * @param inputFile     The path to the input file to be compressed.
+     * @param outputFile    The base path for the generated compressed file.
+     * @param maxCodeLength The maximum code length in bits, or 0 for no limit.
+     */
+    public static void compress(String inputFile, String outputFile, int maxCodeLength) {
+        try {
+            Path inputPath = Paths.get(inputFile);
+            HuffmanCompressor compressor = new HuffmanCompressor();
+            CompressionMetrics metrics = new CompressionMetrics(CompressionMetrics.COMPRESS, inputFile);
+
+            long[] frequencies;
+            long start = metrics.begin();
+            try (Reader reader = openReader(Files.newInputStream(inputPath))) {
+                frequencies = new FrequencyHistogram().countCharacters(reader);
+            }
+            metrics.end(CompressionMetrics.Phase.HISTOGRAM, start);
+            metrics.setFrequencies(frequencies);
+
+            HuffmanTree tree = new HuffmanTree();
+            start = metrics.begin();
+            tree.buildTree(frequencies, SymbolMode.CHARACTER, maxCodeLength);
+            metrics.endTree(tree, start);
+
+            long compressedBits;
+            try (Reader reader = openReader(metrics.timed(Files.newInputStream(inputPath)));
+                 OutputStream file = metrics.timed(new FileOutputStream(outputFile + ".huff"));
+                 BitOutputStream out = new BitOutputStream(file)) {
+                HuffmanHeader.write(tree, file); // The header goes before any encoded bits
+                start = metrics.begin();
+                compressedBits = compressor.compress(reader, tree, out);
+                metrics.end(CompressionMetrics.Phase.ENCODE, start);
+            }
+            metrics.setSymbols(tree.getSymbolCount(), compressedBits);
+            metrics.finish();
+
+            printReport(tree.getSymbolCount() * 8, compressedBits, tree.getLengthLimitLoss());
+            printMetrics(metrics);
+
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("\nError durante la compresión: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Compresses any file byte by byte using the Huffman algorithm.
+     * No charset decoding takes place, so binary files are restored byte for byte.
+     *
+     * @param inputFile  The path to the input file to be compressed.
+     * @param outputFile The base path for the generated compressed file.
+     */
+    public static void compressBytes(String inputFile, String outputFile) {
+        compressBytes(inputFile, outputFile, 0);
+    }
+
+    /**
+     * Compresses any file byte by byte, with codes no longer than a maximum.
+     *
+     * @param inputFile     The path to the input file to be compressed.
+     * @param outputFile    The base path for the generated compressed file.
+     * @param maxCodeLength The maximum code length in bits, or 0 for no limit.
+     */
+    public static void compressBytes(String inputFile, String outputFile, int maxCodeLength) {
+        try {
+            Path inputPath = Paths.get(inputFile);
+            HuffmanCompressor compressor = new HuffmanCompressor();
+            CompressionMetrics metrics = new CompressionMetrics(CompressionMetrics.COMPRESS, inputFile);
+
+            long start = metrics.begin();
+            long[] frequencies = new FrequencyHistogram().countBytes(inputPath); // Counted in parallel
+            metrics.end(CompressionMetrics.Phase.HISTOGRAM, start);
+            metrics.setFrequencies(frequencies);
+
+            HuffmanTree tree = new HuffmanTree();
+            start = metrics.begin();
+            tree.buildTree(frequencies, SymbolMode.BYTE, maxCodeLength);
+            metrics.endTree(tree, start);
+
+            long compressedBits;
+            try (InputStream in = metrics.timed(Files.newInputStream(inputPath));
+                 OutputStream file = metrics.timed(new FileOutputStream(outputFile + ".huff"));
+                 BitOutputStream out = new BitOutputStream(file)) {
+                HuffmanHeader.write(tree, file); // The header goes before any encoded bits
+                start = metrics.begin();
+                compressedBits = compressor.compress(in, tree, out);
+                metrics.end(CompressionMetrics.Phase.ENCODE, start);
+            }
+            metrics.setSymbols(tree.getSymbolCount(), compressedBits);
+            metrics.finish();
+
+            printReport(tree.getSymbolCount() * 8, compressedBits, tree.getLengthLimitLoss());
+            printMetrics(metrics);
+
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("\nError durante la compresión: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Compresses any file byte by byte, building the code from a sample of the file instead of an
+     * exact count, so the file is read about once instead of twice. The exact histogram is counted
+     * while encoding, and the cost of the estimated code against the exact one is reported.
+     * The output is an ordinary byte-mode file.
+     *
+     * @param inputFile     The path to the input file to be compressed.
+     * @param outputFile    The base path for the generated compressed file.
+     * @param fraction      The fraction of the file to sample, between 0 (exclusive) and 1.
+     * @param maxCodeLength The maximum code length in bits, or 0 for no limit.
+     */
+    public static void compressSampled(String inputFile, String outputFile, double fraction, int maxCodeLength) {
         try {
-            String text = new String(Files.readAllBytes(Paths.get(inputFile)));
+            Path inputPath = Paths.get(inputFile);
+            HuffmanCompressor compressor = new HuffmanCompressor();
+            CompressionMetrics metrics = new CompressionMetrics(CompressionMetrics.COMPRESS, inputFile);
+            long size = Files.size(inputPath);
+
+            long start = metrics.begin();
+            long[] estimated = new FrequencyHistogram().sampleBytes(inputPath, fraction);
+            metrics.end(CompressionMetrics.Phase.HISTOGRAM, start);
+
+            HuffmanTree estimatedTree = new HuffmanTree();
+            start = metrics.begin();
+            estimatedTree.buildTree(estimated, SymbolMode.BYTE, maxCodeLength);
+            metrics.endTree(estimatedTree, start);
+            HuffmanTree tree = HuffmanTree.fromCodeLengths(estimatedTree.getCodeLengths(), SymbolMode.BYTE, size);
+
+            long[] exact = new long[256];
+            long compressedBits;
+            try (InputStream in = new FilterInputStream(metrics.timed(Files.newInputStream(inputPath))) {
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        int read = super.read(b, off, len);
+                        if (read > 0) {
+                            FrequencyHistogram.countBytes(b, off, off + read, exact);
+                        }
+                        return read;
+                    }
+                 };
+                 OutputStream file = metrics.timed(new FileOutputStream(outputFile + ".huff"));
+                 BitOutputStream out = new BitOutputStream(file)) {
+                HuffmanHeader.write(tree, file); // The header goes before any encoded bits
+                start = metrics.begin();
+                compressedBits = compressor.compress(in, tree, out);
+                metrics.end(CompressionMetrics.Phase.ENCODE, start);
+            }
+            if (Arrays.stream(exact).sum() != size) {
+                throw new IOException("El archivo cambió de tamaño durante la lectura.");
+            }
+            metrics.setFrequencies(exact);
+            metrics.setSymbols(size, compressedBits);
+            metrics.finish();
+
+            HuffmanTree exactTree = new HuffmanTree();
+            exactTree.buildTree(exact, SymbolMode.BYTE, maxCodeLength);
+            long exactBits = exactTree.getEncodedBits();
 
+            printReport(size * 8, compressedBits);
+            printMetrics(metrics);
+            System.out.println("Muestra: " + String.format("%.1f", fraction * 100) + "% del archivo. "
+                    + "Penalización frente al árbol exacto: "
+                    + String.format("%.3f", exactBits == 0 ? 0 : (double) (compressedBits - exactBits) / exactBits * 100)
+                    + "%");
+
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("\nError durante la compresión: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Compresses a UTF-8 text over a large alphabet: its Unicode code points, so supplementary
+     * characters get a code of their own, or its words and other tokens, whose alphabet is stored
+     * after the header.
+     *
+     * @param inputFile     The path to the input file to be compressed.
+     * @param outputFile    The base path for the generated compressed file.
+     * @param mode          {@link SymbolMode#CODE_POINT} or {@link SymbolMode#WORD}.
+     * @param maxCodeLength The maximum code length in bits, or 0 for no limit.
+     */
+    public static void compressSymbols(String inputFile, String outputFile, SymbolMode mode, int maxCodeLength) {
+        try {
+            Path inputPath = Paths.get(inputFile);
             HuffmanCompressor compressor = new HuffmanCompressor();
-            Map<Character, Integer> frequencies = compressor.calculateFrequencies(text);
+            CompressionMetrics metrics = new CompressionMetrics(CompressionMetrics.COMPRESS, inputFile);
+
+            TokenAlphabet alphabet = null;
+            long[] frequencies;
+            long start = metrics.begin();
+            try (InputStream in = Files.newInputStream(inputPath)) {
+                if (mode == SymbolMode.WORD) {
+                    alphabet = TokenAlphabet.build(in);
+                    frequencies = alphabet.getFrequencies();
+                } else {
+                    frequencies = new FrequencyHistogram().countSymbols(mode.openReader(in), mode.alphabetSize());
+                }
+            }
+            metrics.end(CompressionMetrics.Phase.HISTOGRAM, start);
+            metrics.setFrequencies(frequencies);
+
+            HuffmanTree tree = new HuffmanTree();
+            start = metrics.begin();
+            tree.buildTree(frequencies, mode, maxCodeLength);
+            metrics.endTree(tree, start);
+
+            long compressedBits;
+            try (InputStream in = metrics.timed(Files.newInputStream(inputPath));
+                 OutputStream file = new BufferedOutputStream(metrics.timed(new FileOutputStream(outputFile + ".huff")));
+                 BitOutputStream out = new BitOutputStream(file)) {
+                HuffmanHeader.write(tree, file); // The header goes before any encoded bits
+                if (alphabet != null) {
+                    alphabet.write(file);
+                }
+                SymbolReader reader = alphabet != null ? alphabet.openReader(in) : mode.openReader(in);
+                start = metrics.begin();
+                compressedBits = compressor.compress(reader, tree, out);
+                metrics.end(CompressionMetrics.Phase.ENCODE, start);
+            }
+            metrics.setSymbols(tree.getSymbolCount(), compressedBits);
+            metrics.finish();
+
+            printReport(Files.size(inputPath) * 8, compressedBits, tree.getLengthLimitLoss());
+            long distinct = Arrays.stream(frequencies).filter(frequency -> frequency > 0).count();
+            System.out.println("Símbolos distintos: " + distinct + (alphabet != null ? " tokens" : " puntos de código"));
+            printMetrics(metrics);
+
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("\nError durante la compresión: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Compresses any file byte by byte and writes a checkpoint index next to the compressed file,
+     * so that ranges of the data can later be decompressed without decoding what comes before them.
+     * The compressed file is the same as that of {@link #compressBytes(String, String, int)}.
+     *
+     * @param inputFile          The path to the input file to be compressed.
+     * @param outputFile         The base path for the generated compressed file.
+     * @param maxCodeLength      The maximum code length in bits, or 0 for no limit.
+     * @param checkpointInterval The number of bytes between checkpoints.
+     */
+    public static void compressIndexed(String inputFile, String outputFile, int maxCodeLength,
+                                       int checkpointInterval) {
+        try {
+            Path inputPath = Paths.get(inputFile);
+            Path outputPath = Paths.get(outputFile + ".huff");
+            CompressionMetrics metrics = new CompressionMetrics(CompressionMetrics.COMPRESS, inputFile);
+
+            long start = metrics.begin();
+            long[] frequencies = new FrequencyHistogram().countBytes(inputPath);
+            metrics.end(CompressionMetrics.Phase.HISTOGRAM, start);
+            metrics.setFrequencies(frequencies);
 
             HuffmanTree tree = new HuffmanTree();
-            tree.buildTree(frequencies);
+            start = metrics.begin();
+            tree.buildTree(frequencies, SymbolMode.BYTE, maxCodeLength);
+            metrics.endTree(tree, start);
+
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            HuffmanHeader.write(tree, header);
+            CheckpointIndex index = new CheckpointIndex(checkpointInterval);
+            index.setPayloadOffset(header.size());
+
+            long compressedBits;
+            try (InputStream in = metrics.timed(Files.newInputStream(inputPath));
+                 OutputStream file = metrics.timed(Files.newOutputStream(outputPath));
+                 BitOutputStream out = new BitOutputStream(file)) {
+                header.writeTo(file);
+                start = metrics.begin();
+                compressedBits = new HuffmanCompressor().compress(in, tree, out, index);
+                metrics.end(CompressionMetrics.Phase.ENCODE, start);
+            }
+            try (OutputStream out = new BufferedOutputStream(
+                    metrics.timed(Files.newOutputStream(CheckpointIndex.pathFor(outputPath))))) {
+                index.write(out);
+            }
+            metrics.setSymbols(tree.getSymbolCount(), compressedBits);
+            metrics.finish();
+
+            printReport(tree.getSymbolCount() * 8, compressedBits, tree.getLengthLimitLoss());
+            System.out.println("Puntos de control: " + index.getCount() + " (cada " + checkpointInterval + " bytes)");
+            printMetrics(metrics);
+
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("\nError durante la compresión: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Decompresses a range of a file compressed with a checkpoint index.
+     *
+     * @param inputFile  The path to the compressed file.
+     * @param fromSymbol The index of the first byte of the range.
+     * @param length     The number of bytes of the range.
+     * @param outputFile The path to the file that receives the range.
+     */
+    public static void decompressRange(String inputFile, long fromSymbol, int length, String outputFile) {
+        try {
+            CompressionMetrics metrics = new CompressionMetrics(CompressionMetrics.DECOMPRESS, inputFile);
+            byte[] range = new HuffmanDecompressor().decompressRange(inputFile, fromSymbol, length, metrics);
+            try (OutputStream out = metrics.timed(Files.newOutputStream(Paths.get(outputFile)))) {
+                out.write(range);
+            }
+            metrics.finish();
+            System.out.println("Bytes descomprimidos: " + range.length);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("\nError durante la descompresión: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Compresses any file byte by byte as independent blocks encoded in parallel.
+     * Each block gets its own Huffman code, and an index of block offsets at the end of the file
+     * lets decompression run in parallel as well. Blocks that coding would not shrink, such as
+     * already compressed media, are stored as they are.
+     *
+     * @param inputFile  The path to the input file to be compressed.
+     * @param outputFile The base path for the generated compressed file.
+     */
+    public static void compressBlocks(String inputFile, String outputFile) {
+        compressBlocks(inputFile, outputFile, BlockOptions.DEFAULT);
+    }
+
+    /**
+     * Compresses any file as independent blocks encoded in parallel, coded as the options say.
+     * Codes can be limited in length; interleaved blocks split their symbols across four streams
+     * that are decoded together, which speeds up decoding on a single core at the cost of a few bytes
+     * per block; an order-1 context model, one code per group of preceding bytes, gets below the
+     * order-0 entropy a single code is bound by on structured text such as logs; and a chain of
+     * transforms such as block sorting, move-to-front and run-length coding turns repetitive data
+     * into long runs of zeros, which a Huffman code alone would still spend a bit per byte on.
+     *
+     * @param inputFile  The path to the input file to be compressed.
+     * @param outputFile The base path for the generated compressed file.
+     * @param options    How the blocks are coded.
+     */
+    public static void compressBlocks(String inputFile, String outputFile, BlockOptions options) {
+        try (InputStream in = Files.newInputStream(Paths.get(inputFile));
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile + ".huff"),
+                     HuffmanCompressor.BUFFER_SIZE)) {
+            CompressionMetrics metrics = new CompressionMetrics(CompressionMetrics.COMPRESS, inputFile);
+            BlockCompressor compressor = new BlockCompressor(ForkJoinPool.commonPool(), options);
+            long symbols = compressor.compress(in, SymbolMode.BYTE, out, metrics);
+            out.flush();
+            metrics.finish();
+
+            printReport(symbols * 8, Files.size(Paths.get(outputFile + ".huff")) * 8,
+                    compressor.getLengthLimitLoss());
+            if (compressor.getStoredBlocks() > 0) {
+                System.out.println("Bloques guardados sin comprimir: " + compressor.getStoredBlocks());
+            }
+            if (compressor.getContextBlocks() > 0) {
+                System.out.println("Bloques codificados por contexto: " + compressor.getContextBlocks());
+            }
+
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("\nError durante la compresión: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Appends a file to an existing compressed file as new blocks, each with its own code, without
+     * decoding or re-encoding what the compressed file already holds. The compressed file is left in
+     * the block format, which {@link #decompress(String, String)} reads as usual.
+     *
+     * @param compressedFile The path to the compressed file (.huff) to append to.
+     * @param inputFile      The path to the file whose contents are appended.
+     */
+    public static void append(String compressedFile, String inputFile) {
+        try (InputStream in = Files.newInputStream(Paths.get(inputFile))) {
+            Path archive = Paths.get(compressedFile);
+            long before = Files.size(archive);
+            CompressionMetrics metrics = new CompressionMetrics(CompressionMetrics.COMPRESS, inputFile);
+            long symbols = new BlockAppender().append(archive, in, metrics);
+            metrics.finish();
+            long elapsed = metrics.getElapsedNanos();
 
-            Map<Character, String> huffmanCodes = tree.getHuffmanCodes();
+            System.out.println("\nDatos anexados exitosamente!");
+            System.out.println("Símbolos anexados: " + symbols);
+            System.out.println("Tamaño del archivo comprimido: " + before + " -> " + Files.size(archive) + " bytes");
+            System.out.println("Tiempo: " + elapsed / 1000000 + " ms");
 
-            String compressedText = compressor.compress(text, huffmanCodes);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("\nError al anexar los datos: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
 
-            compressor.writeCompressedFile(compressedText, outputFile + ".huff");
-            compressor.saveHuffmanTree(tree, outputFile + ".hufftree");
+    /**
+     * Compresses any file byte by byte as independent blocks, with reading, encoding and writing
+     * running as separate pipeline stages so that disk or network I/O overlaps with encoding.
+     * The output is the same block format as {@link #compressBlocks(String, String)}.
+     *
+     * @param inputFile  The path to the input file to be compressed.
+     * @param outputFile The base path for the generated compressed file.
+     * @param encoders   The number of encoder stages.
+     */
+    public static void compressPipelined(String inputFile, String outputFile, int encoders) {
+        try (InputStream in = Files.newInputStream(Paths.get(inputFile));
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile + ".huff"),
+                     HuffmanCompressor.BUFFER_SIZE)) {
+            CompressionMetrics metrics = new CompressionMetrics(CompressionMetrics.COMPRESS, inputFile);
+            PipelinedCompressor compressor = new PipelinedCompressor(encoders, BlockOptions.DEFAULT);
+            long symbols = compressor.compress(in, SymbolMode.BYTE, out, metrics);
+            out.flush();
+            metrics.finish();
 
-            System.out.println("\nCompresión completada exitosamente!");
+            printReport(symbols * 8, Files.size(Paths.get(outputFile + ".huff")) * 8);
+            System.out.println("Tiempo de lectura: " + compressor.getReadNanos() / 1000000
+                    + " ms, de codificación: " + compressor.getEncodeNanos() / 1000000
+                    + " ms, de escritura: " + compressor.getWriteNanos() / 1000000
+                    + " ms, total: " + compressor.getElapsedNanos() / 1000000 + " ms");
 
-            System.out.println("Tamaño original: " + text.length() * 8 + " bits");
-            System.out.println("Tamaño comprimido: " + compressedText.length() + " bits");
-            double ratio = (double) compressedText.length() / (text.length() * 8) * 100;
-            System.out.println("Ratio de compresión: " + String.format("%.2f", ratio) + "%");
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("\nError durante la compresión: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Compresses any file or standard input in a single pass with an adaptive Huffman code.
+     * Nothing is read ahead, so the input can be a pipe whose length is not known in advance.
+     *
+     * @param inputFile  The path to the input file to be compressed, or "-" for standard input.
+     * @param outputFile The base path for the generated compressed file.
+     */
+    public static void compressAdaptive(String inputFile, String outputFile) {
+        CompressionMetrics metrics = new CompressionMetrics(CompressionMetrics.COMPRESS, inputFile);
+        try {
+            // The code adapts as it goes, so the histogram is only counted for the entropy
+            long[] frequencies = new long[256];
+            long symbols;
+            try (InputStream in = metrics.timed(
+                         inputFile.equals("-") ? System.in : Files.newInputStream(Paths.get(inputFile)));
+                 AdaptiveHuffmanOutputStream out = new AdaptiveHuffmanOutputStream(new BufferedOutputStream(
+                         metrics.timed(new FileOutputStream(outputFile + ".huff")), HuffmanCompressor.BUFFER_SIZE))) {
+                byte[] buffer = new byte[HuffmanCompressor.BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    long start = metrics.begin();
+                    FrequencyHistogram.countBytes(buffer, 0, read, frequencies);
+                    metrics.end(CompressionMetrics.Phase.HISTOGRAM, start);
+                    start = metrics.begin();
+                    out.write(buffer, 0, read);
+                    metrics.end(CompressionMetrics.Phase.ENCODE, start);
+                }
+                symbols = out.getCount();
+            }
+            // Closing the stream wrote the end-of-stream code, so the file is complete
+            long compressedBits = Files.size(Paths.get(outputFile + ".huff")) * 8;
+            metrics.setFrequencies(frequencies);
+            metrics.setSymbols(symbols, compressedBits);
+            metrics.finish();
+
+            printReport(symbols * 8, compressedBits);
+            printMetrics(metrics);
+
+        } catch (IOException e) {
+            System.err.println("\nError durante la compresión: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Compresses or decompresses every file of a directory or of a list of paths in one process,
+     * with a task per file, and prints the totals of the batch.
+     *
+     * @param source          A directory, or a text file listing one path per line.
+     * @param outputDirectory The directory that receives the results.
+     * @param compress        True to compress, false to decompress.
+     */
+    public static void processBatch(String source, String outputDirectory, boolean compress) {
+        try {
+            Path sourcePath = Paths.get(source);
+            List<Path> files = BatchProcessor.listFiles(sourcePath);
+            Path base = Files.isDirectory(sourcePath) ? sourcePath : null;
+
+            BatchProcessor processor = new BatchProcessor();
+            BatchProcessor.Report report = compress
+                    ? processor.compress(files, base, Paths.get(outputDirectory))
+                    : processor.decompress(files, base, Paths.get(outputDirectory));
+
+            System.out.println("\nProcesamiento por lotes completado.");
+            System.out.println("Archivos procesados: " + report.getFiles() + " de " + files.size());
+            System.out.println("Bytes leídos: " + report.getInputBytes());
+            System.out.println("Bytes escritos: " + report.getOutputBytes());
+            System.out.println("Tiempo total: " + String.format("%.3f", report.getElapsedNanos() / 1e9) + " s");
+            System.out.println("Rendimiento: " + String.format("%.2f", report.getMegabytesPerSecond()) + " MB/s");
+            for (String failure : report.getFailures()) {
+                System.err.println("Error: " + failure);
+            }
 
         } catch (IOException e) {
+            System.err.println("\nError durante el procesamiento por lotes: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Trains a shared dictionary on sample files and saves it in a dictionary directory.
+     * Records compressed with the dictionary through {@link DictionaryStore} need no code of their own.
+     *
+     * @param id          The identifier of the new dictionary.
+     * @param directory   The directory the dictionary is saved in.
+     * @param sampleFiles The paths of the sample files.
+     */
+    public static void trainDictionary(int id, String directory, List<String> sampleFiles) {
+        try {
+            List<byte[]> samples = new ArrayList<>();
+            long sampleBytes = 0;
+            for (String sampleFile : sampleFiles) {
+                byte[] sample = Files.readAllBytes(Paths.get(sampleFile));
+                samples.add(sample);
+                sampleBytes += sample.length;
+            }
+
+            HuffmanDictionary dictionary = HuffmanDictionary.train(id, samples);
+            new DictionaryStore(Paths.get(directory)).save(dictionary);
+
+            long compressedBytes = 0;
+            for (byte[] sample : samples) {
+                compressedBytes += dictionary.compress(sample).length;
+            }
+            System.out.println("\nDiccionario " + id + " guardado en: "
+                    + Paths.get(directory).resolve(id + DictionaryStore.EXTENSION));
+            printReport(sampleBytes * 8, compressedBytes * 8);
+
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("\nError durante el entrenamiento: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Compresses any file byte by byte through memory-mapped I/O.
+     * The result is the same as {@link #compressBytes(String, String, int)}, but the input and output
+     * are accessed straight from the page cache instead of through read and write calls.
+     *
+     * @param inputFile     The path to the input file to be compressed.
+     * @param outputFile    The base path for the generated compressed file.
+     * @param maxCodeLength The maximum code length in bits, or 0 for no limit.
+     */
+    public static void compressMapped(String inputFile, String outputFile, int maxCodeLength) {
+        try {
+            CompressionMetrics metrics = new CompressionMetrics(CompressionMetrics.COMPRESS, inputFile);
+            HuffmanTree tree = new MappedHuffmanCoder().compress(Paths.get(inputFile),
+                    Paths.get(outputFile + ".huff"), maxCodeLength, metrics);
+            metrics.finish();
+
+            printReport(tree.getSymbolCount() * 8, tree.getEncodedBits(), tree.getLengthLimitLoss());
+            printMetrics(metrics);
+
+        } catch (IOException | IllegalArgumentException e) {
             System.err.println("\nError durante la compresión: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
     /**
-     * Decompresses a file using the Huffman tree.
+     * Decompresses a file compressed byte by byte through memory-mapped I/O.
      *
      * @param inputFile  The path to the compressed file (.huff).
-     * @param treeFile   The path to the Huffman tree file (.hufftree).
      * @param outputFile The path to the output decompressed file.
      */
-    public static void decompress(String inputFile, String treeFile, String outputFile) {
+    public static void decompressMapped(String inputFile, String outputFile) {
         try {
-            HuffmanDecompressor decompressor = new HuffmanDecompressor();
-            HuffmanTree tree = decompressor.loadHuffmanTree(treeFile);
+            CompressionMetrics metrics = new CompressionMetrics(CompressionMetrics.DECOMPRESS, inputFile);
+            new MappedHuffmanCoder().decompress(Paths.get(inputFile), Paths.get(outputFile), metrics);
+            metrics.finish();
+
+            System.out.println("\nDescompresión completada exitosamente!");
+            System.out.println("El archivo descomprimido se ha guardado como: " + outputFile);
+
+        } catch (IOException e) {
+            System.err.println("\nError durante la descompresión: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Prints the outcome of a compression, including the cost of the code length limit if any.
+     *
+     * @param originalBits    The size of the input in bits.
+     * @param compressedBits  The size of the encoded data in bits.
+     * @param lengthLimitLoss The relative size increase caused by limiting code lengths.
+     */
+    private static void printReport(long originalBits, long compressedBits, double lengthLimitLoss) {
+        printReport(originalBits, compressedBits);
+        if (lengthLimitLoss > 0) {
+            System.out.println("Pérdida por limitar la longitud de los códigos: "
+                    + String.format("%.3f", lengthLimitLoss * 100) + "%");
+        }
+    }
+
+    /**
+     * Prints the outcome of a compression.
+     *
+     * @param originalBits   The size of the input in bits.
+     * @param compressedBits The size of the encoded data in bits.
+     */
+    private static void printReport(long originalBits, long compressedBits) {
+        System.out.println("\nCompresión completada exitosamente!");
 
-            String decompressedText = decompressor.decompress(inputFile, tree.getRoot());
+        System.out.println("Tamaño original: " + originalBits + " bits");
+        System.out.println("Tamaño comprimido: " + compressedBits + " bits");
+        double ratio = originalBits == 0 ? 0 : (double) compressedBits / originalBits * 100;
+        System.out.println("Ratio de compresión: " + String.format("%.2f", ratio) + "%");
+    }
+
+    /**
+     * Prints the code statistics and speed of an operation.
+     *
+     * @param metrics The metrics of the finished operation.
+     */
+    private static void printMetrics(CompressionMetrics metrics) {
+        System.out.println("Bits por símbolo: " + String.format("%.3f", metrics.getBitsPerSymbol())
+                + " (entropía: " + String.format("%.3f", metrics.getEntropy())
+                + ", código más largo: " + metrics.getMaxCodeLength() + " bits)");
+        System.out.println("Velocidad: " + String.format("%.1f", metrics.getBytesPerSecond() / (1024 * 1024)) + " MB/s");
+    }
 
-            Files.write(Paths.get(outputFile), decompressedText.getBytes());
+    /**
+     * Opens a buffered reader over a stream using the platform charset.
+     *
+     * @param in The stream to read.
+     * @return A reader for the stream contents.
+     */
+    private static Reader openReader(InputStream in) {
+        return new BufferedReader(new InputStreamReader(in, Charset.defaultCharset()), HuffmanCompressor.BUFFER_SIZE);
+    }
+
+    /**
+     * Decompresses a file using the Huffman code stored in its header.
+     *
+     * @param inputFile  The path to the compressed file (.huff).
+     * @param outputFile The path to the output decompressed file.
+     */
+    public static void decompress(String inputFile, String outputFile) {
+        try {
+            if (BlockDecompressor.isBlockFile(inputFile)) {
+                decompressBlocks(inputFile, outputFile);
+            } else if (AdaptiveHuffmanInputStream.isAdaptiveFile(inputFile)) {
+                decompressAdaptive(inputFile, outputFile);
+            } else {
+                decompressStream(inputFile, outputFile);
+            }
 
             System.out.println("\nDescompresión completada exitosamente!");
             System.out.println("El archivo descomprimido se ha guardado como: " + outputFile);
 
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException e) {
             System.err.println("\nError durante la descompresión: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    /**
+     * Decompresses a file made of a single header followed by the encoded data.
+     * The output is written as it is decoded, so memory use does not grow with the file size.
+     *
+     * @param inputFile  The path to the compressed file.
+     * @param outputFile The path to the output decompressed file.
+     * @throws IOException If an I/O error occurs or the file is malformed.
+     */
+    private static void decompressStream(String inputFile, String outputFile) throws IOException {
+        CompressionMetrics metrics = new CompressionMetrics(CompressionMetrics.DECOMPRESS, inputFile);
+        try (InputStream in = new BufferedInputStream(metrics.timed(new FileInputStream(inputFile)));
+             OutputStream out = metrics.timed(Files.newOutputStream(Paths.get(outputFile)))) {
+            HuffmanDecompressor decompressor = new HuffmanDecompressor();
+            long start = metrics.begin();
+            HuffmanTree tree = HuffmanHeader.read(in);
+            SymbolWriter writer = decompressor.openWriter(in, tree, out); // Reads any token alphabet
+            metrics.end(CompressionMetrics.Phase.HEADER, start);
+
+            start = metrics.begin();
+            HuffmanTableDecoder decoder = new HuffmanTableDecoder(tree.getCodeLengths());
+            metrics.end(CompressionMetrics.Phase.TABLE_BUILD, start);
+            metrics.setMaxCodeLength(tree.getMaxCodeLength());
+
+            start = metrics.begin();
+            decompressor.decompress(in, tree, decoder, writer);
+            metrics.end(CompressionMetrics.Phase.DECODE, start);
+            metrics.setSymbols(tree.getSymbolCount(), 0); // The code lengths alone do not give the encoded size
+        }
+        metrics.finish();
+    }
+
+    /**
+     * Decompresses a block-format file, decoding its blocks in parallel.
+     *
+     * @param inputFile  The path to the compressed file.
+     * @param outputFile The path to the output decompressed file.
+     * @throws IOException If an I/O error occurs or the file is malformed.
+     */
+    private static void decompressBlocks(String inputFile, String outputFile) throws IOException {
+        CompressionMetrics metrics = new CompressionMetrics(CompressionMetrics.DECOMPRESS, inputFile);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile),
+                HuffmanCompressor.BUFFER_SIZE)) {
+            new BlockDecompressor().decompress(inputFile, out, metrics);
+        }
+        metrics.finish();
+    }
+
+    /**
+     * Decompresses a file compressed in a single pass with an adaptive Huffman code.
+     *
+     * @param inputFile  The path to the compressed file.
+     * @param outputFile The path to the output decompressed file.
+     * @throws IOException If an I/O error occurs or the file is malformed.
+     */
+    private static void decompressAdaptive(String inputFile, String outputFile) throws IOException {
+        try (InputStream in = new AdaptiveHuffmanInputStream(new BufferedInputStream(new FileInputStream(inputFile)));
+             OutputStream out = Files.newOutputStream(Paths.get(outputFile))) {
+            byte[] buffer = new byte[HuffmanCompressor.BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
     /**
      * Displays the main menu for the user to select an option.
      */
@@ -138,12 +824,33 @@ public class HuffmanCoding {
             return;
         }
 
-        System.out.print("Ingrese el nombre base para los archivos comprimidos (sin extensión): ");
+        System.out.print("Ingrese el nombre base para el archivo comprimido (sin extensión): ");
         String outputPrefix = scanner.nextLine();
 
+        System.out.print("¿Comprimir como archivo binario, byte por byte? (s/n): ");
+        boolean binary = scanner.nextLine().trim().equalsIgnoreCase("s");
+
+        boolean blocks = false;
+        if (binary) {
+            System.out.print("¿Comprimir por bloques en paralelo? (s/n): ");
+            blocks = scanner.nextLine().trim().equalsIgnoreCase("s");
+        }
+
+        boolean interleaved = false;
+        if (blocks) {
+            System.out.print("¿Intercalar cuatro flujos por bloque para descomprimir más rápido? (s/n): ");
+            interleaved = scanner.nextLine().trim().equalsIgnoreCase("s");
+        }
+
         String outputPath = getOutputPath(outputPrefix); // Use the default path
         System.out.println("\nComprimiendo archivo...");
-        compress(inputFile, outputPath);
+        if (blocks) {
+            compressBlocks(inputFile, outputPath, BlockOptions.DEFAULT.withInterleaved(interleaved));
+        } else if (binary) {
+            compressBytes(inputFile, outputPath);
+        } else {
+            compress(inputFile, outputPath);
+        }
     }
 
     /**
@@ -159,20 +866,12 @@ public class HuffmanCoding {
             return;
         }
 
-        System.out.print("Ingrese la ruta del archivo de árbol (.hufftree): ");
-        String treeFile = scanner.nextLine();
-
-        if (!fileExists(treeFile)) {
-            System.out.println("Error: El archivo .hufftree especificado no existe.");
-            return;
-        }
-
         System.out.print("Ingrese el nombre para el archivo descomprimido: ");
         String outputFile = scanner.nextLine();
 
         String outputPath = getOutputPath(outputFile); // Use the default path
         System.out.println("\nDescomprimiendo archivo...");
-        decompress(huffFile, treeFile, outputPath);
+        decompress(huffFile, outputPath);
     }
 
     /**
@@ -189,26 +888,176 @@ public class HuffmanCoding {
      * Main method that executes the program.
      *
      * @param args Command-line arguments:
-     *             - "-c <input_file> <output_prefix>": Compress a file.
-     *             - "-d <compressed_file> <tree_file> <output_file>": Decompress a file.
+     *             - "-c <input_file> <output_prefix> [max_bits]": Compress a file.
+     *             - "-cb <input_file> <output_prefix> [max_bits]": Compress any file byte by byte.
+     *             - "-cp <input_file> <output_prefix> [max_bits]": Compress any file as blocks in parallel.
+     *             - "-ci <input_file> <output_prefix> [max_bits]": Compress any file as blocks in parallel,
+     *               each split into interleaved streams.
+     *             - "-ca <input_file> <output_prefix>": Compress any file, or standard input given as "-",
+     *               in a single pass with an adaptive code.
+     *             - "-cm <input_file> <output_prefix> [max_bits]": Compress any file byte by byte
+     *               through memory-mapped I/O.
+     *             - "-cu <input_file> <output_prefix> [max_bits]": Compress a UTF-8 text by Unicode code point.
+     *             - "-cw <input_file> <output_prefix> [max_bits]": Compress a UTF-8 text by word.
+     *             - "-cx <input_file> <output_prefix> [interval]": Compress any file byte by byte with a
+     *               checkpoint index every interval bytes.
+     *             - "-cc <input_file> <output_prefix> [tables]": Compress any file as blocks coded with an
+     *               order-1 context model of at most the given number of code tables (16 by default).
+     *             - "-ct <input_file> <output_prefix> [transforms]": Compress any file as blocks passed through
+     *               a comma-separated chain of transforms (rle, mtf, bwt) before coding, "bwt,mtf,rle" by default.
+     *             - "-cs <input_file> <output_prefix> [percent]": Compress any file byte by byte with a code
+     *               built from a sample of percent of the file (2 by default).
+     *             - "-ce <input_file> <output_prefix> [encoders]": Compress any file as blocks with separate
+     *               reader, encoder and writer stages.
+     *             The optional max_bits limits the length of every code.
+     *             - "-a <file.huff> <input_file>": Append a file to a compressed file as new blocks.
+     *             - "-bc <directory_or_list> <output_directory>": Compress every file of a batch.
+     *             - "-bd <directory_or_list> <output_directory>": Decompress every file of a batch.
+     *             - "-t <id> <dictionary_directory> <sample_file>...": Train a shared dictionary for small records.
+     *             - "-d <compressed_file> <output_file>": Decompress a file.
+     *             - "-dm <compressed_file> <output_file>": Decompress a byte-mode file through memory-mapped I/O.
+     *             - "-dr <compressed_file> <from> <length> <output_file>": Decompress a range of bytes of a file
+     *               compressed with "-cx".
      *             If no arguments are provided, the program displays an interactive menu.
      */
     public static void main(String[] args) {
         if (args.length > 0) {
             String operation = args[0];
+            int maxCodeLength = args.length == 4 && MAX_BITS_OPERATIONS.contains(operation) ? parseLength(args[3]) : 0;
 
-            if (operation.equals("-c") && args.length == 3) {
-                compress(args[1], args[2]);
-            } else if (operation.equals("-d") && args.length == 4) {
-                decompress(args[1], args[2], args[3]);
+            if (operation.equals("-c") && (args.length == 3 || args.length == 4) && maxCodeLength >= 0) {
+                compress(args[1], args[2], maxCodeLength);
+            } else if (operation.equals("-cb") && (args.length == 3 || args.length == 4) && maxCodeLength >= 0) {
+                compressBytes(args[1], args[2], maxCodeLength);
+            } else if (operation.equals("-cp") && (args.length == 3 || args.length == 4) && maxCodeLength >= 0) {
+                compressBlocks(args[1], args[2], BlockOptions.DEFAULT.withMaxCodeLength(maxCodeLength));
+            } else if (operation.equals("-ci") && (args.length == 3 || args.length == 4) && maxCodeLength >= 0) {
+                compressBlocks(args[1], args[2],
+                        BlockOptions.DEFAULT.withMaxCodeLength(maxCodeLength).withInterleaved(true));
+            } else if (operation.equals("-ca") && args.length == 3) {
+                compressAdaptive(args[1], args[2]);
+            } else if (operation.equals("-cm") && (args.length == 3 || args.length == 4) && maxCodeLength >= 0) {
+                compressMapped(args[1], args[2], maxCodeLength);
+            } else if (operation.equals("-cu") && (args.length == 3 || args.length == 4) && maxCodeLength >= 0) {
+                compressSymbols(args[1], args[2], SymbolMode.CODE_POINT, maxCodeLength);
+            } else if (operation.equals("-cw") && (args.length == 3 || args.length == 4) && maxCodeLength >= 0) {
+                compressSymbols(args[1], args[2], SymbolMode.WORD, maxCodeLength);
+            } else if (operation.equals("-cx") && (args.length == 3 || args.length == 4)
+                    && (args.length == 3 || (parseCount(args[3]) > 0 && parseCount(args[3]) <= Integer.MAX_VALUE))) {
+                compressIndexed(args[1], args[2], 0,
+                        args.length == 4 ? (int) parseCount(args[3]) : CheckpointIndex.DEFAULT_INTERVAL);
+            } else if (operation.equals("-cc") && (args.length == 3 || args.length == 4)
+                    && (args.length == 3 || (parseCount(args[3]) > 0 && parseCount(args[3]) <= ContextModel.CONTEXTS))) {
+                compressBlocks(args[1], args[2], BlockOptions.DEFAULT.withContextTables(
+                        args.length == 4 ? (int) parseCount(args[3]) : ContextModel.DEFAULT_TABLES));
+            } else if (operation.equals("-ct") && (args.length == 3 || args.length == 4)
+                    && parseTransforms(args.length == 4 ? args[3] : BlockTransform.DEFAULT_CHAIN) != null) {
+                compressBlocks(args[1], args[2], BlockOptions.DEFAULT.withTransforms(
+                        parseTransforms(args.length == 4 ? args[3] : BlockTransform.DEFAULT_CHAIN)));
+            } else if (operation.equals("-cs") && (args.length == 3 || args.length == 4)
+                    && (args.length == 3 || (parseCount(args[3]) > 0 && parseCount(args[3]) <= 100))) {
+                compressSampled(args[1], args[2], (args.length == 4 ? parseCount(args[3]) : 2) / 100.0, 0);
+            } else if (operation.equals("-ce") && (args.length == 3 || args.length == 4)
+                    && (args.length == 3 || (parseCount(args[3]) > 0 && parseCount(args[3]) <= 256))) {
+                compressPipelined(args[1], args[2],
+                        args.length == 4 ? (int) parseCount(args[3]) : Runtime.getRuntime().availableProcessors());
+            } else if (operation.equals("-a") && args.length == 3) {
+                append(args[1], args[2]);
+            } else if (operation.equals("-bc") && args.length == 3) {
+                processBatch(args[1], args[2], true);
+            } else if (operation.equals("-bd") && args.length == 3) {
+                processBatch(args[1], args[2], false);
+            } else if (operation.equals("-t") && args.length >= 4 && parseId(args[1]) >= 0) {
+                trainDictionary(parseId(args[1]), args[2], Arrays.asList(args).subList(3, args.length));
+            } else if (operation.equals("-d") && args.length == 3) {
+                decompress(args[1], args[2]);
+            } else if (operation.equals("-dm") && args.length == 3) {
+                decompressMapped(args[1], args[2]);
+            } else if (operation.equals("-dr") && args.length == 5 && parseCount(args[2]) >= 0
+                    && parseCount(args[3]) >= 0 && parseCount(args[3]) <= Integer.MAX_VALUE) {
+                decompressRange(args[1], parseCount(args[2]), (int) parseCount(args[3]), args[4]);
             } else {
                 System.out.println("Uso:");
-                System.out.println("  Para comprimir: java HuffmanCoding -c <archivo_entrada> <prefijo_salida>");
-                System.out.println(
-                        "  Para descomprimir: java HuffmanCoding -d <archivo.huff> <archivo.hufftree> <archivo_salida>");
+                System.out.println("  Para comprimir: java HuffmanCoding -c <archivo_entrada> <prefijo_salida> [bits_máximos]");
+                System.out.println("  Para comprimir binarios: java HuffmanCoding -cb <archivo_entrada> <prefijo_salida> [bits_máximos]");
+                System.out.println("  Para comprimir en paralelo: java HuffmanCoding -cp <archivo_entrada> <prefijo_salida> [bits_máximos]");
+                System.out.println("  Para comprimir en paralelo con flujos intercalados: java HuffmanCoding -ci <archivo_entrada> <prefijo_salida> [bits_máximos]");
+                System.out.println("  Para comprimir en una sola pasada (adaptativo, \"-\" para la entrada estándar): java HuffmanCoding -ca <archivo_entrada> <prefijo_salida>");
+                System.out.println("  Para comprimir con archivos mapeados: java HuffmanCoding -cm <archivo_entrada> <prefijo_salida> [bits_máximos]");
+                System.out.println("  Para comprimir texto UTF-8 por punto de código: java HuffmanCoding -cu <archivo_entrada> <prefijo_salida> [bits_máximos]");
+                System.out.println("  Para comprimir texto UTF-8 por palabras: java HuffmanCoding -cw <archivo_entrada> <prefijo_salida> [bits_máximos]");
+                System.out.println("  Para comprimir con índice de acceso aleatorio: java HuffmanCoding -cx <archivo_entrada> <prefijo_salida> [intervalo]");
+                System.out.println("  Para comprimir con tablas por contexto (byte anterior): java HuffmanCoding -cc <archivo_entrada> <prefijo_salida> [tablas]");
+                System.out.println("  Para comprimir con transformaciones previas (rle, mtf, bwt): java HuffmanCoding -ct <archivo_entrada> <prefijo_salida> [bwt,mtf,rle]");
+                System.out.println("  Para comprimir a partir de una muestra (porcentaje del archivo): java HuffmanCoding -cs <archivo_entrada> <prefijo_salida> [porcentaje]");
+                System.out.println("  Para comprimir por etapas (lectura, codificación y escritura en paralelo): java HuffmanCoding -ce <archivo_entrada> <prefijo_salida> [codificadores]");
+                System.out.println("  Para anexar datos a un archivo comprimido: java HuffmanCoding -a <archivo.huff> <archivo_entrada>");
+                System.out.println("  Para comprimir por lotes: java HuffmanCoding -bc <directorio_o_lista> <directorio_salida>");
+                System.out.println("  Para descomprimir por lotes: java HuffmanCoding -bd <directorio_o_lista> <directorio_salida>");
+                System.out.println("  Para entrenar un diccionario: java HuffmanCoding -t <id> <directorio_diccionarios> <archivo_muestra>...");
+                System.out.println("  Para descomprimir: java HuffmanCoding -d <archivo.huff> <archivo_salida>");
+                System.out.println("  Para descomprimir con archivos mapeados: java HuffmanCoding -dm <archivo.huff> <archivo_salida>");
+                System.out.println("  Para descomprimir un rango: java HuffmanCoding -dr <archivo.huff> <desde> <longitud> <archivo_salida>");
             }
         } else {
             showMenu();
         }
     }
+
+    /**
+     * Parses a maximum code length given on the command line.
+     *
+     * @param value The text to parse.
+     * @return The length, or -1 if it is not a number between 1 and 63.
+     */
+    private static int parseLength(String value) {
+        try {
+            int length = Integer.parseInt(value);
+            return length >= 1 && length <= 63 ? length : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Parses a position or count given on the command line.
+     *
+     * @param value The text to parse.
+     * @return The number, or -1 if it is not a non-negative number.
+     */
+    private static long parseCount(String value) {
+        try {
+            return Math.max(-1, Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Parses a comma-separated chain of transforms given on the command line.
+     *
+     * @param value The text to parse.
+     * @return The transforms, or null if a name is not known.
+     */
+    private static BlockTransform[] parseTransforms(String value) {
+        try {
+            return BlockTransform.parseChain(value).toArray(new BlockTransform[0]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses a dictionary ID given on the command line.
+     *
+     * @param value The text to parse.
+     * @return The ID, or -1 if it is not a non-negative number.
+     */
+    private static int parseId(String value) {
+        try {
+            return Math.max(-1, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
 }
\ No newline at end of file
@@ -2,17 +2,20 @@ package uvg.edu;
 
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
+import java.io.InputStream;
+import java.io.Reader;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Class responsible for compressing text using the Huffman algorithm.
- * It provides methods to calculate character frequencies, compress text,
- * write compressed files, and save the Huffman tree.
+ * It provides methods to calculate character frequencies, compress text
+ * and write compressed files.
  */
 class HuffmanCompressor {
 
+    static final int BUFFER_SIZE = 64 * 1024; // Size of the chunks used when streaming the input
+
     /**
      * Calculates the frequency of each character in the given text.
      *
@@ -29,6 +32,48 @@ class HuffmanCompressor {
         return frequencies;
     }
 
+    /**
+     * Calculates the frequency of each character read from the given reader.
+     * The text is consumed in fixed-size chunks, so memory use does not depend on the input size.
+     *
+     * @param reader The reader supplying the text to analyze.
+     * @return A map where the keys are characters and the values are their frequencies.
+     * @throws IOException If an I/O error occurs while reading.
+     */
+    public Map<Character, Integer> calculateFrequencies(Reader reader) throws IOException {
+        Map<Character, Integer> frequencies = new HashMap<>();
+        char[] buffer = new char[BUFFER_SIZE];
+        int read;
+
+        while ((read = reader.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                frequencies.merge(buffer[i], 1, Integer::sum);
+            }
+        }
+
+        return frequencies;
+    }
+
+    /**
+     * Counts how many times each byte value occurs in the given stream.
+     * Bytes are counted directly, without any charset decoding, so any binary file can be analyzed.
+     *
+     * @param in The stream supplying the bytes to analyze.
+     * @return An array of 256 counts indexed by unsigned byte value.
+     * @throws IOException If an I/O error occurs while reading.
+     */
+    public long[] calculateByteFrequencies(InputStream in) throws IOException {
+        long[] frequencies = new long[256];
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+
+        while ((read = in.read(buffer)) != -1) {
+            FrequencyHistogram.countBytes(buffer, 0, read, frequencies);
+        }
+
+        return frequencies;
+    }
+
     /**
      * Compresses the given text using the provided Huffman codes.
      *
@@ -46,6 +91,113 @@ class HuffmanCompressor {
         return compressed.toString();
     }
 
+    /**
+     * Encodes the text read from the given reader straight into a bit stream.
+     * No intermediate string of bits is built, so the input can be arbitrarily large, and each
+     * character is written with a single lookup in the tree's packed code arrays.
+     *
+     * @param reader The reader supplying the text to compress.
+     * @param tree   The Huffman tree built from the frequencies of the text.
+     * @param out    The bit stream that receives the encoded data.
+     * @return The number of bits written.
+     * @throws IOException If an I/O error occurs while reading or writing.
+     */
+    public long compress(Reader reader, HuffmanTree tree, BitOutputStream out) throws IOException {
+        long[] codeValues = tree.getCodeValues();
+        byte[] codeLengths = tree.getCodeLengths();
+        char[] buffer = new char[BUFFER_SIZE];
+        long bits = 0;
+        int read;
+
+        while ((read = reader.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                char c = buffer[i];
+                out.writeBits(codeValues[c], codeLengths[c]);
+                bits += codeLengths[c];
+            }
+        }
+
+        return bits;
+    }
+
+    /**
+     * Encodes the symbols supplied by a symbol reader straight into a bit stream.
+     * This serves alphabets larger than a {@code char}, such as code points or word tokens.
+     *
+     * @param reader The reader supplying the symbols to compress.
+     * @param tree   The Huffman tree built from the frequencies of the symbols.
+     * @param out    The bit stream that receives the encoded data.
+     * @return The number of bits written.
+     * @throws IOException If an I/O error occurs while reading or writing.
+     */
+    public long compress(SymbolReader reader, HuffmanTree tree, BitOutputStream out) throws IOException {
+        long[] codeValues = tree.getCodeValues();
+        byte[] codeLengths = tree.getCodeLengths();
+        int[] buffer = new int[BUFFER_SIZE];
+        long bits = 0;
+        int read;
+
+        while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+            for (int i = 0; i < read; i++) {
+                int symbol = buffer[i];
+                out.writeBits(codeValues[symbol], codeLengths[symbol]);
+                bits += codeLengths[symbol];
+            }
+        }
+
+        return bits;
+    }
+
+    /**
+     * Encodes the bytes read from the given stream straight into a bit stream.
+     *
+     * @param in   The stream supplying the bytes to compress.
+     * @param tree The Huffman tree built from the byte frequencies of the stream.
+     * @param out  The bit stream that receives the encoded data.
+     * @return The number of bits written.
+     * @throws IOException If an I/O error occurs while reading or writing.
+     */
+    public long compress(InputStream in, HuffmanTree tree, BitOutputStream out) throws IOException {
+        return compress(in, tree, out, null);
+    }
+
+    /**
+     * Encodes the bytes read from the given stream straight into a bit stream,
+     * recording a checkpoint every {@link CheckpointIndex#getInterval()} bytes.
+     *
+     * @param in    The stream supplying the bytes to compress.
+     * @param tree  The Huffman tree built from the byte frequencies of the stream.
+     * @param out   The bit stream that receives the encoded data.
+     * @param index The index that receives the checkpoints, or null for none.
+     * @return The number of bits written.
+     * @throws IOException If an I/O error occurs while reading or writing.
+     */
+    public long compress(InputStream in, HuffmanTree tree, BitOutputStream out, CheckpointIndex index)
+            throws IOException {
+        long[] codeValues = tree.getCodeValues();
+        byte[] codeLengths = tree.getCodeLengths();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long bits = 0;
+        long symbols = 0;
+        int read;
+
+        while ((read = in.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                if (index != null && symbols++ % index.getInterval() == 0) {
+                    index.add(bits);
+                }
+                int b = buffer[i] & 0xFF;
+                out.writeBits(codeValues[b], codeLengths[b]);
+                bits += codeLengths[b];
+            }
+        }
+
+        if (index != null) {
+            index.setSymbolCount(symbols);
+        }
+        return bits;
+    }
+
     /**
      * Writes the compressed text to a file as a sequence of bits.
      *
@@ -60,17 +212,4 @@ class HuffmanCompressor {
             }
         }
     }
-
-    /**
-     * Saves the Huffman tree to a file by serializing it.
-     *
-     * @param tree       The Huffman tree to save.
-     * @param outputFile The path to the output file where the tree will be serialized.
-     * @throws IOException If an I/O error occurs while writing to the file.
-     */
-    public void saveHuffmanTree(HuffmanTree tree, String outputFile) throws IOException {
-        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(outputFile))) {
-            out.writeObject(tree);
-        }
-    }
 }
\ No newline at end of file
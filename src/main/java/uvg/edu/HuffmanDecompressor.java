@@ -1,67 +1,314 @@
 package uvg.edu;
 
+        import java.io.BufferedInputStream;
+        import java.io.ByteArrayOutputStream;
         import java.io.EOFException;
         import java.io.FileInputStream;
         import java.io.IOException;
-        import java.io.ObjectInputStream;
+        import java.io.InputStream;
+        import java.io.OutputStream;
+        import java.nio.channels.Channels;
+        import java.nio.channels.FileChannel;
+        import java.nio.file.Files;
+        import java.nio.file.Path;
+        import java.nio.file.Paths;
+        import java.nio.file.StandardOpenOption;
 
         /**
-         * HuffmanDecompressor class provides methods to load a Huffman tree from a file
-         * and decompress a file using the Huffman tree.
+         * HuffmanDecompressor class provides methods to decompress data using the Huffman tree
+         * described by the header of a compressed file.
          */
         class HuffmanDecompressor {
 
             /**
-             * Loads a Huffman tree from a file.
+             * Decompresses a text file, reading the Huffman code from its header.
              *
-             * @param treeFile The path to the file containing the serialized Huffman tree.
-             * @return The deserialized HuffmanTree object.
-             * @throws IOException            If an I/O error occurs while reading the file.
-             * @throws ClassNotFoundException If the class of the serialized object cannot be found.
+             * @param compressedFile The path to the compressed file.
+             * @return The decompressed text as a string.
+             * @throws IOException If an I/O error occurs while reading the compressed file.
              */
-            public HuffmanTree loadHuffmanTree(String treeFile) throws IOException, ClassNotFoundException {
-                try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(treeFile))) {
-                    return (HuffmanTree) in.readObject();
+            public String decompress(String compressedFile) throws IOException {
+                try (InputStream in = new BufferedInputStream(new FileInputStream(compressedFile))) {
+                    HuffmanTree tree = HuffmanHeader.read(in);
+                    return decompress(in, tree);
                 }
             }
 
             /**
-             * Decompresses a file using the provided Huffman tree root node.
+             * Decompresses the encoded data that follows a header straight into an output stream.
+             * Symbols are decoded a chunk at a time and handed to the writer of the file's symbol mode,
+             * so memory use stays constant however large the output is. Decoding stops after the number
+             * of symbols recorded in the header, so the padding bits of the last byte are never decoded.
              *
-             * @param compressedFile The path to the compressed file.
-             * @param root           The root node of the Huffman tree used for decompression.
+             * @param in   The stream positioned right after the header.
+             * @param tree The Huffman tree read from the header.
+             * @param out  The stream that receives the decompressed data; it is flushed but not closed.
+             * @return The number of symbols decoded.
+             * @throws IOException If an I/O error occurs or the data ends before all symbols are decoded.
+             */
+            public long decompress(InputStream in, HuffmanTree tree, OutputStream out) throws IOException {
+                SymbolWriter writer = openWriter(in, tree, out);
+                return decompress(in, tree, new HuffmanTableDecoder(tree.getCodeLengths()), writer);
+            }
+
+            /**
+             * Decompresses the encoded data that follows a header into a string.
+             * The whole text is kept in memory; {@link #decompress(InputStream, HuffmanTree, OutputStream)}
+             * streams it instead.
+             * Symbols are decoded with lookup tables built from the code lengths, one symbol per lookup,
+             * and decoding stops after the number of symbols recorded in the header.
+             *
+             * @param in   The stream positioned right after the header.
+             * @param tree The Huffman tree read from the header.
              * @return The decompressed text as a string.
-             * @throws IOException If an I/O error occurs while reading the compressed file.
+             * @throws IOException If an I/O error occurs while reading the stream.
+             */
+            public String decompress(InputStream in, HuffmanTree tree) throws IOException {
+                return decompress(in, tree, new HuffmanTableDecoder(tree.getCodeLengths()));
+            }
+
+            /**
+             * Decompresses the encoded data that follows a header with an already built decoder.
+             *
+             * @param in      The stream positioned right after the header.
+             * @param tree    The Huffman tree read from the header.
+             * @param decoder The decoder built from the code lengths of the tree.
+             * @return The decompressed text as a string.
+             * @throws IOException If an I/O error occurs while reading the stream.
+             */
+            public String decompress(InputStream in, HuffmanTree tree, HuffmanTableDecoder decoder) throws IOException {
+                StringBuilder decompressed = new StringBuilder();
+                BitInputStream bits = new BitInputStream(in);
+                long remaining = tree.getSymbolCount();
+
+                int symbol;
+                while (remaining-- > 0 && (symbol = decoder.decodeSymbol(bits)) != -1) {
+                    decompressed.append((char) symbol);
+                }
+
+                return decompressed.toString();
+            }
+
+            /**
+             * Decompresses the encoded data that follows a header, for files encoded over the byte alphabet.
+             * The whole output is kept in memory; {@link #decompress(InputStream, HuffmanTree, OutputStream)}
+             * streams it instead.
+             *
+             * @param in   The stream positioned right after the header.
+             * @param tree The Huffman tree read from the header.
+             * @return The original bytes.
+             * @throws IOException If an I/O error occurs while reading the stream.
+             */
+            public byte[] decompressBytes(InputStream in, HuffmanTree tree) throws IOException {
+                return decompressBytes(in, tree, new HuffmanTableDecoder(tree.getCodeLengths()));
+            }
+
+            /**
+             * Decompresses the encoded data that follows a header, for files encoded over the byte alphabet,
+             * with an already built decoder.
+             *
+             * @param in      The stream positioned right after the header.
+             * @param tree    The Huffman tree read from the header.
+             * @param decoder The decoder built from the code lengths of the tree.
+             * @return The original bytes.
+             * @throws IOException If an I/O error occurs while reading the stream.
+             */
+            public byte[] decompressBytes(InputStream in, HuffmanTree tree, HuffmanTableDecoder decoder)
+                    throws IOException {
+                ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+                BitInputStream bits = new BitInputStream(in);
+                long remaining = tree.getSymbolCount();
+
+                int symbol;
+                while (remaining-- > 0 && (symbol = decoder.decodeSymbol(bits)) != -1) {
+                    decompressed.write(symbol);
+                }
+
+                return decompressed.toByteArray();
+            }
+
+            /**
+             * Opens the writer that turns the symbols of a tree back into bytes.
+             * For files compressed by word, the token alphabet stored after the header is read first.
+             *
+             * @param in   The stream positioned right after the header.
+             * @param tree The Huffman tree read from the header.
+             * @param out  The stream that receives the decompressed data.
+             * @return A writer of the tree's symbols.
+             * @throws IOException If an I/O error occurs or the token alphabet does not match the tree.
+             */
+            public SymbolWriter openWriter(InputStream in, HuffmanTree tree, OutputStream out) throws IOException {
+                if (tree.getMode() != SymbolMode.WORD) {
+                    return tree.getMode().openWriter(out);
+                }
+                TokenAlphabet alphabet = TokenAlphabet.read(in);
+                if (tree.getCodeLengths().length > alphabet.size()) {
+                    throw new IOException("El código usa símbolos fuera del alfabeto de tokens.");
+                }
+                return alphabet.openWriter(out);
+            }
+
+            /**
+             * Decompresses the encoded data that follows a header into a symbol writer, a chunk of
+             * symbols at a time, for alphabets of any size.
+             *
+             * @param in      The stream positioned right after the header and any token alphabet.
+             * @param tree    The Huffman tree read from the header.
+             * @param decoder The decoder built from the code lengths of the tree.
+             * @param writer  The writer that receives the symbols; it is flushed at the end.
+             * @return The number of symbols decoded.
+             * @throws IOException If an I/O error occurs or the data ends before all symbols are decoded.
+             */
+            public long decompress(InputStream in, HuffmanTree tree, HuffmanTableDecoder decoder, SymbolWriter writer)
+                    throws IOException {
+                BitInputStream bits = new BitInputStream(in);
+                int[] symbols = new int[HuffmanCompressor.BUFFER_SIZE];
+                long remaining = tree.getSymbolCount();
+
+                while (remaining > 0) {
+                    int count = (int) Math.min(remaining, symbols.length);
+                    for (int i = 0; i < count; i++) {
+                        int symbol = decoder.decodeSymbol(bits);
+                        if (symbol == -1) {
+                            throw new IOException("Archivo comprimido incompleto.");
+                        }
+                        symbols[i] = symbol;
+                    }
+                    writer.write(symbols, 0, count);
+                    remaining -= count;
+                }
+                writer.flush();
+
+                return tree.getSymbolCount();
+            }
+
+            /**
+             * Decompresses a range of a file compressed byte by byte with a checkpoint index.
+             * Decoding starts at the last checkpoint before the range, so only the symbols between
+             * that checkpoint and the end of the range are decoded.
+             *
+             * @param compressedFile The path to the compressed file; its index must be next to it.
+             * @param fromSymbol     The index of the first byte to return.
+             * @param length         The number of bytes to return.
+             * @return The bytes of the range, fewer than requested if the range goes past the end of the data.
+             * @throws IOException If an I/O error occurs, the index is missing or the file is malformed.
+             */
+            public byte[] decompressRange(String compressedFile, long fromSymbol, int length) throws IOException {
+                return decompressRange(compressedFile, fromSymbol, length,
+                        new CompressionMetrics(CompressionMetrics.DECOMPRESS, compressedFile));
+            }
+
+            /**
+             * Decompresses a range of a file compressed with a checkpoint index, measuring the
+             * decompression: reading the index and the header, building the decoding table, and
+             * decoding from the checkpoint, the symbols skipped before the range included.
+             *
+             * @param compressedFile The path to the compressed file; its index must be next to it.
+             * @param fromSymbol     The index of the first byte to return.
+             * @param length         The number of bytes to return.
+             * @param metrics        The metrics of the operation; the caller finishes them.
+             * @return The bytes of the range, fewer than requested if the range goes past the end of the data.
+             * @throws IOException If an I/O error occurs, the index is missing or the file is malformed.
+             */
+            public byte[] decompressRange(String compressedFile, long fromSymbol, int length,
+                                          CompressionMetrics metrics) throws IOException {
+                Path path = Paths.get(compressedFile);
+                long start = metrics.begin();
+                CheckpointIndex index;
+                try (InputStream in = new BufferedInputStream(metrics.timed(
+                        Files.newInputStream(CheckpointIndex.pathFor(path))))) {
+                    index = CheckpointIndex.read(in);
+                }
+                HuffmanTree tree;
+                try (InputStream in = new BufferedInputStream(metrics.timed(Files.newInputStream(path)))) {
+                    tree = HuffmanHeader.read(in);
+                }
+                metrics.end(CompressionMetrics.Phase.HEADER, start);
+                metrics.setMaxCodeLength(tree.getMaxCodeLength());
+                if (tree.getMode() != SymbolMode.BYTE || tree.getSymbolCount() != index.getSymbolCount()) {
+                    throw new IOException("El índice no corresponde a un archivo comprimido byte por byte.");
+                }
+                if (fromSymbol < 0 || length < 0) {
+                    throw new IllegalArgumentException("El rango solicitado no es válido.");
+                }
+
+                byte[] range = new byte[(int) Math.max(0, Math.min(length, tree.getSymbolCount() - fromSymbol))];
+                int checkpoint = index.checkpointBefore(fromSymbol);
+                if (range.length == 0 || checkpoint < 0) {
+                    return range;
+                }
+
+                long bitOffset = index.getBitOffset(checkpoint);
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    channel.position(index.getPayloadOffset() + bitOffset / 8);
+                    BitInputStream bits = new BitInputStream(metrics.timed(Channels.newInputStream(channel)));
+                    if (bits.fill() > 0) {
+                        bits.skipBits((int) (bitOffset % 8));
+                    }
+
+                    start = metrics.begin();
+                    HuffmanTableDecoder decoder = new HuffmanTableDecoder(tree.getCodeLengths());
+                    metrics.end(CompressionMetrics.Phase.TABLE_BUILD, start);
+                    start = metrics.begin();
+                    for (long skip = fromSymbol - index.getSymbolOffset(checkpoint); skip > 0; skip--) {
+                        if (decoder.decodeSymbol(bits) == -1) {
+                            throw new IOException("Archivo comprimido incompleto.");
+                        }
+                    }
+                    for (int i = 0; i < range.length; i++) {
+                        int symbol = decoder.decodeSymbol(bits);
+                        if (symbol == -1) {
+                            throw new IOException("Archivo comprimido incompleto.");
+                        }
+                        range[i] = (byte) symbol;
+                    }
+                    metrics.end(CompressionMetrics.Phase.DECODE, start);
+                }
+                metrics.setSymbols(range.length, 0); // The symbols skipped before the range are not returned
+                return range;
+            }
+
+            /**
+             * Decompresses the encoded data that follows a header by walking the Huffman tree
+             * one bit at a time. This is the reference decoder the table-driven
+             * {@link #decompress(InputStream, HuffmanTree)} is measured against.
+             *
+             * @param in   The stream positioned right after the header.
+             * @param tree The Huffman tree read from the header.
+             * @return The decompressed text as a string.
+             * @throws IOException If an I/O error occurs while reading the stream.
              */
-            public String decompress(String compressedFile, HuffmanNode root) throws IOException {
+            public String decompressBitByBit(InputStream in, HuffmanTree tree) throws IOException {
                 StringBuilder decompressed = new StringBuilder();
+                HuffmanNode root = tree.getRoot();
                 HuffmanNode current = root;
+                BitInputStream bits = new BitInputStream(in);
+                long remaining = tree.getSymbolCount();
+
+                while (remaining > 0) {
+                    try {
+                        // Read the next bit from the compressed file
+                        boolean bit = bits.readBit();
+
+                        // Traverse the Huffman tree based on the bit value
+                        if (bit) {
+                            current = current.right;
+                        } else {
+                            current = current.left;
+                        }
 
-                try (BitInputStream in = new BitInputStream(new FileInputStream(compressedFile))) {
-                    while (true) {
-                        try {
-                            // Read the next bit from the compressed file
-                            boolean bit = in.readBit();
-
-                            // Traverse the Huffman tree based on the bit value
-                            if (bit) {
-                                current = current.right;
-                            } else {
-                                current = current.left;
-                            }
-
-                            // If a leaf node is reached, append the character to the result
-                            if (current.isLeaf) {
-                                decompressed.append(current.character);
-                                current = root; // Reset to the root for the next character
-                            }
-                        } catch (EOFException e) {
-                            // End of file reached
-                            break;
+                        // If a leaf node is reached, append the character to the result
+                        if (current.isLeaf) {
+                            decompressed.append(current.character);
+                            current = root; // Reset to the root for the next character
+                            remaining--;
                         }
+                    } catch (EOFException e) {
+                        // End of file reached
+                        break;
                     }
                 }
 
                 return decompressed.toString();
             }
-        }
\ No newline at end of file
+        }
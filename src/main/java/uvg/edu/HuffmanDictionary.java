@@ -0,0 +1,226 @@
+package uvg.edu;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A Huffman code over the byte alphabet trained once on a sample corpus and shared by many small records.
+ * Records compressed with a dictionary carry no code of their own: they are stored as their length
+ * followed by the encoded bytes, and the encode and decode tables are built only once per dictionary.
+ * Every byte value gets a code, so records may contain bytes that never occurred in the samples.
+ * A saved dictionary is laid out as:
+ * <pre>
+ *   'H' 'U' 'D' version    magic number and format version
+ *   id                     dictionary identifier (variable-length integer)
+ *   code lengths           as written by {@link HuffmanHeader#writeCodeLengths}
+ * </pre>
+ */
+class HuffmanDictionary {
+
+    static final byte[] MAGIC = {'H', 'U', 'D'};
+    static final int VERSION = 1; // Version of the dictionary format
+    static final int DEFAULT_MAX_CODE_LENGTH = 15; // Keeps the decode tables small and the encoder's accumulator safe
+
+    private final int id; // Identifier records refer to the dictionary by
+    private final byte[] codeLengths; // Code length of every byte value
+    private final long[] codeValues; // Canonical code of every byte value
+    private final HuffmanTableDecoder decoder; // Decode tables, built once
+
+    /**
+     * Constructs a dictionary from the code length of every byte value.
+     *
+     * @param id          The identifier of the dictionary.
+     * @param codeLengths The code length of each of the 256 byte values.
+     */
+    HuffmanDictionary(int id, byte[] codeLengths) {
+        this.id = id;
+        this.codeLengths = Arrays.copyOf(codeLengths, 256);
+        this.codeValues = CanonicalCode.assignCodes(this.codeLengths);
+        this.decoder = new HuffmanTableDecoder(this.codeLengths);
+    }
+
+    /**
+     * Trains a dictionary on sample records with codes of at most {@value #DEFAULT_MAX_CODE_LENGTH} bits.
+     *
+     * @param id      The identifier of the new dictionary.
+     * @param samples Records representative of the data to compress.
+     * @return The trained dictionary.
+     */
+    public static HuffmanDictionary train(int id, Iterable<byte[]> samples) {
+        return train(id, samples, DEFAULT_MAX_CODE_LENGTH);
+    }
+
+    /**
+     * Trains a dictionary on sample records.
+     * Every byte value is counted once more than it occurs, so unseen bytes still get a code.
+     *
+     * @param id            The identifier of the new dictionary.
+     * @param samples       Records representative of the data to compress.
+     * @param maxCodeLength The maximum code length in bits, between 8 and 56.
+     * @return The trained dictionary.
+     * @throws IllegalArgumentException If the maximum code length is out of range.
+     */
+    public static HuffmanDictionary train(int id, Iterable<byte[]> samples, int maxCodeLength) {
+        if (maxCodeLength < 8 || maxCodeLength > 56) {
+            throw new IllegalArgumentException("La longitud máxima de código debe estar entre 8 y 56 bits.");
+        }
+        long[] frequencies = new long[256];
+        Arrays.fill(frequencies, 1);
+        for (byte[] sample : samples) {
+            FrequencyHistogram.countBytes(sample, 0, sample.length, frequencies);
+        }
+
+        HuffmanTree tree = new HuffmanTree();
+        tree.buildTree(frequencies, SymbolMode.BYTE, maxCodeLength);
+        return new HuffmanDictionary(id, tree.getCodeLengths());
+    }
+
+    /**
+     * Returns the identifier of the dictionary.
+     *
+     * @return The dictionary ID.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Compresses a record.
+     *
+     * @param record The bytes of the record.
+     * @return The record length followed by the encoded bytes.
+     */
+    public byte[] compress(byte[] record) {
+        return compress(record, 0, record.length);
+    }
+
+    /**
+     * Compresses part of an array as a record.
+     * The output is allocated at its exact size, computed from the code lengths.
+     *
+     * @param record The array holding the record.
+     * @param offset The index of the first byte of the record.
+     * @param length The number of bytes of the record.
+     * @return The record length followed by the encoded bytes.
+     */
+    public byte[] compress(byte[] record, int offset, int length) {
+        long bits = 0;
+        for (int i = offset; i < offset + length; i++) {
+            bits += codeLengths[record[i] & 0xFF];
+        }
+        int headerSize = 1;
+        for (int value = length; value >= 0x80; value >>>= 7) {
+            headerSize++;
+        }
+        byte[] compressed = new byte[headerSize + (int) ((bits + 7) / 8)];
+
+        // Record length, in the variable-length format of HuffmanHeader
+        int position = 0;
+        int value = length;
+        while (value >= 0x80) {
+            compressed[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        compressed[position++] = (byte) value;
+
+        // Codes, most significant bit first; fewer than 8 bits stay in the accumulator between bytes
+        long accumulator = 0;
+        int pending = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int b = record[i] & 0xFF;
+            accumulator = (accumulator << codeLengths[b]) | codeValues[b];
+            pending += codeLengths[b];
+            while (pending >= 8) {
+                pending -= 8;
+                compressed[position++] = (byte) (accumulator >>> pending);
+            }
+        }
+        if (pending > 0) {
+            compressed[position] = (byte) (accumulator << (8 - pending));
+        }
+        return compressed;
+    }
+
+    /**
+     * Decompresses a record compressed with this dictionary.
+     *
+     * @param compressed The compressed record.
+     * @return The original bytes of the record.
+     * @throws IOException If the record is malformed.
+     */
+    public byte[] decompress(byte[] compressed) throws IOException {
+        int position = 0;
+        long length = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (position == compressed.length || shift > 28) {
+                throw new IOException("Registro comprimido inválido.");
+            }
+            int b = compressed[position++];
+            length |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        if (length > (compressed.length - position) * 8L) { // Every code takes at least one bit
+            throw new IOException("Registro comprimido inválido.");
+        }
+
+        byte[] record = new byte[(int) length];
+        BitInputStream in = new BitInputStream(compressed, position, compressed.length - position);
+        for (int i = 0; i < record.length; i++) {
+            int symbol = decoder.decodeSymbol(in);
+            if (symbol == -1) {
+                throw new IOException("Registro comprimido incompleto.");
+            }
+            record[i] = (byte) symbol;
+        }
+        return record;
+    }
+
+    /**
+     * Saves the dictionary.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public void write(OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+        HuffmanHeader.writeVarLong(out, id);
+        HuffmanHeader.writeCodeLengths(out, codeLengths);
+    }
+
+    /**
+     * Loads a dictionary saved by {@link #write(OutputStream)}.
+     *
+     * @param in The stream to read from.
+     * @return The dictionary, with its tables ready for use.
+     * @throws IOException If an I/O error occurs or the data is not a valid dictionary.
+     */
+    public static HuffmanDictionary read(InputStream in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        for (int i = 0; i < magic.length; i++) {
+            magic[i] = (byte) in.read();
+        }
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("El archivo no es un diccionario de Huffman.");
+        }
+        int version = in.read();
+        if (version != VERSION) {
+            throw new IOException("Versión de formato no soportada: " + version);
+        }
+        int id = (int) HuffmanHeader.readVarLong(in);
+        byte[] codeLengths = HuffmanHeader.readCodeLengths(in, 256);
+        if (codeLengths.length != 256) {
+            throw new IOException("El diccionario no asigna un código a cada byte.");
+        }
+        for (byte length : codeLengths) {
+            if (length == 0 || length > 56) {
+                throw new IOException("El diccionario no asigna un código válido a cada byte.");
+            }
+        }
+        return new HuffmanDictionary(id, codeLengths);
+    }
+}
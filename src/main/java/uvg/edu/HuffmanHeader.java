@@ -0,0 +1,202 @@
+package uvg.edu;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Reads and writes the header at the start of a compressed file.
+ * The header holds everything needed to rebuild the canonical Huffman code:
+ * <pre>
+ *   'H' 'U' 'F' version    magic number and format version
+ *   mode                   ordinal of the {@link SymbolMode}
+ *   symbolCount            number of encoded symbols (variable-length integer)
+ *   usedSymbols            number of symbols with a code (variable-length integer)
+ *   (gap &lt;&lt; 6 | length)*    per used symbol in increasing order: distance to the previous one
+ *                          minus one, and code length (variable-length integer)
+ * </pre>
+ * Neighbouring symbols are common, so most symbols take a single byte.
+ */
+final class HuffmanHeader {
+
+    static final int VERSION = 1; // Version of the file format
+    static final byte[] MAGIC = {'H', 'U', 'F'};
+
+    private HuffmanHeader() {
+    }
+
+    /**
+     * Writes the header describing the given tree.
+     *
+     * @param tree The Huffman tree used to encode the data that follows.
+     * @param out  The stream to write to.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public static void write(HuffmanTree tree, OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+        out.write(tree.getMode().ordinal());
+        writeVarLong(out, tree.getSymbolCount());
+        writeCodeLengths(out, tree.getCodeLengths());
+    }
+
+    /**
+     * Reads a header and rebuilds the Huffman tree it describes.
+     *
+     * @param in The stream to read from, positioned at the start of the file.
+     * @return The rebuilt Huffman tree.
+     * @throws IOException If an I/O error occurs or the data is not a valid header.
+     */
+    public static HuffmanTree read(InputStream in) throws IOException {
+        for (byte expected : MAGIC) {
+            if (readByte(in) != expected) {
+                throw new IOException("El archivo no es un archivo comprimido válido.");
+            }
+        }
+        int version = readByte(in);
+        if (version != VERSION) {
+            throw new IOException("Versión de formato no soportada: " + version);
+        }
+
+        int mode = readByte(in);
+        if (mode >= SymbolMode.values().length) {
+            throw new IOException("Modo de símbolos desconocido: " + mode);
+        }
+        long symbolCount = readVarLong(in);
+        byte[] codeLengths = readCodeLengths(in, SymbolMode.values()[mode].alphabetSize());
+
+        return HuffmanTree.fromCodeLengths(codeLengths, SymbolMode.values()[mode], symbolCount);
+    }
+
+    /**
+     * Writes the code lengths of the symbols that have a code.
+     *
+     * @param out         The stream to write to.
+     * @param codeLengths The code length of each symbol, 0 for symbols that do not occur.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    static void writeCodeLengths(OutputStream out, byte[] codeLengths) throws IOException {
+        int used = 0;
+        for (byte length : codeLengths) {
+            if (length > 0) {
+                used++;
+            }
+        }
+        writeVarLong(out, used);
+
+        int previous = -1;
+        for (int symbol = 0; symbol < codeLengths.length; symbol++) {
+            if (codeLengths[symbol] > 0) {
+                writeVarLong(out, ((long) (symbol - previous - 1) << 6) | codeLengths[symbol]);
+                previous = symbol;
+            }
+        }
+    }
+
+    /**
+     * Reads code lengths written by {@link #writeCodeLengths(OutputStream, byte[])}.
+     * Symbols are checked against the alphabet as they are read, so a corrupt entry is rejected
+     * before anything is allocated for it, and the lengths must satisfy the Kraft inequality, so
+     * that no code is the prefix of another.
+     *
+     * @param in           The stream to read from.
+     * @param alphabetSize The number of symbols of the alphabet the code is over.
+     * @return The code length of each symbol, up to the largest symbol with a code.
+     * @throws IOException If an I/O error occurs or the lengths are invalid.
+     */
+    static byte[] readCodeLengths(InputStream in, int alphabetSize) throws IOException {
+        long used = readVarLong(in);
+        if (used > alphabetSize) {
+            throw new IOException("Tabla de longitudes de código inválida.");
+        }
+        int[] symbols = new int[(int) Math.min(used, 1 << 16)];
+        byte[] lengths = new byte[symbols.length];
+        long[] lengthCounts = new long[0x40];
+        int count = 0;
+        int previous = -1;
+
+        for (long i = 0; i < used; i++) {
+            long entry = readVarLong(in);
+            long symbol = previous + 1 + (entry >>> 6);
+            int length = (int) (entry & 0x3F);
+            if (symbol >= alphabetSize || length == 0) {
+                throw new IOException("Tabla de longitudes de código inválida.");
+            }
+            if (count == symbols.length) {
+                symbols = Arrays.copyOf(symbols, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+            symbols[count] = (int) symbol;
+            lengths[count++] = (byte) length;
+            lengthCounts[length]++;
+            previous = (int) symbol;
+        }
+
+        // Codes left free at each length, capped far above any alphabet so that doubling cannot overflow
+        long free = 1;
+        for (int length = 1; length < lengthCounts.length; length++) {
+            free = Math.min(free, 1L << 40) * 2 - lengthCounts[length];
+            if (free < 0) {
+                throw new IOException("Tabla de longitudes de código inválida.");
+            }
+        }
+
+        byte[] codeLengths = new byte[previous + 1];
+        for (int i = 0; i < count; i++) {
+            codeLengths[symbols[i]] = lengths[i];
+        }
+        return codeLengths;
+    }
+
+    /**
+     * Writes a non-negative integer using 7 bits per byte, low-order groups first.
+     *
+     * @param out   The stream to write to.
+     * @param value The value to write.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Reads an integer written by {@link #writeVarLong(OutputStream, long)}.
+     *
+     * @param in The stream to read from.
+     * @return The value read.
+     * @throws IOException If an I/O error occurs or the stream ends early.
+     */
+    static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Entero de longitud variable inválido.");
+    }
+
+    /**
+     * Reads a single byte.
+     *
+     * @param in The stream to read from.
+     * @return The unsigned byte value.
+     * @throws IOException  If an I/O error occurs while reading.
+     * @throws EOFException If the stream ends.
+     */
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException();
+        }
+        return b;
+    }
+}
@@ -1,18 +1,19 @@
 package uvg.edu;
 
-import java.io.*;
 import java.util.*;
 
 /**
  * Represents a node in the Huffman tree.
  * Each node contains a frequency, a character (for leaf nodes), and references to its left and right children.
- * Implements Serializable for saving and loading the tree structure.
  */
-class HuffmanNode implements Serializable {
-    int frequency; // Frequency of the character or sum of frequencies for internal nodes
+class HuffmanNode {
+    long frequency; // Frequency of the character or sum of frequencies for internal nodes
     char character; // Character represented by the node (only for leaf nodes)
+    int symbol; // Symbol represented by the node (only for leaf nodes), equal to the character in text mode
     HuffmanNode left; // Reference to the left child
     HuffmanNode right; // Reference to the right child
+    HuffmanNode parent; // Reference to the parent, maintained only by adaptive trees
+    int order; // Position in the sibling ordering of an adaptive tree
     boolean isLeaf; // Indicates if the node is a leaf
 
     /**
@@ -22,7 +23,7 @@ class HuffmanNode implements Serializable {
      * @param left      The left child node.
      * @param right     The right child node.
      */
-    public HuffmanNode(int frequency, HuffmanNode left, HuffmanNode right) {
+    public HuffmanNode(long frequency, HuffmanNode left, HuffmanNode right) {
         this.frequency = frequency;
         this.left = left;
         this.right = right;
@@ -35,9 +36,20 @@ class HuffmanNode implements Serializable {
      * @param frequency The frequency of the character.
      * @param character The character represented by the node.
      */
-    public HuffmanNode(int frequency, char character) {
+    public HuffmanNode(long frequency, char character) {
+        this(frequency, (int) character);
+    }
+
+    /**
+     * Constructs a leaf HuffmanNode with the given frequency and symbol.
+     *
+     * @param frequency The frequency of the symbol.
+     * @param symbol    The symbol represented by the node, such as a byte value.
+     */
+    public HuffmanNode(long frequency, int symbol) {
         this.frequency = frequency;
-        this.character = character;
+        this.character = (char) symbol;
+        this.symbol = symbol;
         this.left = null;
         this.right = null;
         this.isLeaf = true;
@@ -58,17 +70,42 @@ class HuffmanComparator implements Comparator<HuffmanNode> {
      *         is less than, equal to, or greater than the second node's frequency.
      */
     public int compare(HuffmanNode node1, HuffmanNode node2) {
-        return node1.frequency - node2.frequency;
+        return Long.compare(node1.frequency, node2.frequency);
     }
 }
 
 /**
  * Represents a Huffman tree used for encoding and decoding text.
- * Implements Serializable for saving and loading the tree structure.
+ * Codes are canonical: they are fully determined by the code length of each symbol,
+ * which is all that needs to be stored to rebuild the tree.
  */
-class HuffmanTree implements Serializable {
+class HuffmanTree {
     private HuffmanNode root; // Root node of the Huffman tree
-    private Map<Character, String> huffmanCodes; // Map of characters to their Huffman codes
+    private SymbolMode mode = SymbolMode.CHARACTER; // Alphabet the symbols of the tree belong to
+    private long symbolCount; // Number of symbols encoded with the tree
+    private Map<Character, String> huffmanCodes; // Map of characters to their Huffman codes, built on demand
+    private long[] codeValues; // Huffman code of each symbol, indexed by symbol
+    private byte[] codeLengths; // Length in bits of the Huffman code of each symbol
+    private long encodedBits; // Bits needed to encode the symbols the tree was built from
+    private long unlimitedBits; // Bits an unrestricted Huffman code would need for the same symbols
+    private long codeGenerationNanos; // Time spent assigning canonical codes to the code lengths
+
+    /**
+     * Rebuilds a Huffman tree from the code length of each symbol.
+     *
+     * @param codeLengths The code length of each symbol, 0 for symbols that do not occur.
+     * @param mode        The alphabet the symbols belong to.
+     * @param symbolCount The number of symbols encoded with the tree.
+     * @return The rebuilt tree.
+     */
+    public static HuffmanTree fromCodeLengths(byte[] codeLengths, SymbolMode mode, long symbolCount) {
+        HuffmanTree tree = new HuffmanTree();
+        tree.mode = mode;
+        tree.symbolCount = symbolCount;
+        tree.codeLengths = codeLengths;
+        tree.codeValues = CanonicalCode.assignCodes(codeLengths);
+        return tree;
+    }
 
     /**
      * Builds the Huffman tree based on character frequencies.
@@ -76,67 +113,274 @@ class HuffmanTree implements Serializable {
      * @param frequencies A map of characters and their corresponding frequencies.
      */
     public void buildTree(Map<Character, Integer> frequencies) {
-        PriorityQueue<HuffmanNode> priorityQueue = new PriorityQueue<>(new HuffmanComparator());
+        buildTree(frequencies, 0);
+    }
 
-        // Create a leaf node for each character and add it to the priority queue
+    /**
+     * Builds the Huffman tree based on character frequencies, with codes no longer than a maximum.
+     *
+     * @param frequencies   A map of characters and their corresponding frequencies.
+     * @param maxCodeLength The maximum code length in bits, or 0 for no limit.
+     */
+    public void buildTree(Map<Character, Integer> frequencies, int maxCodeLength) {
+        int maxCharacter = -1;
+        for (char c : frequencies.keySet()) {
+            maxCharacter = Math.max(maxCharacter, c);
+        }
+
+        long[] counts = new long[maxCharacter + 1];
         for (Map.Entry<Character, Integer> entry : frequencies.entrySet()) {
-            priorityQueue.add(new HuffmanNode(entry.getValue(), entry.getKey()));
+            counts[entry.getKey()] = entry.getValue();
         }
+        buildTree(counts, SymbolMode.CHARACTER, maxCodeLength);
+    }
 
-        // Build the tree by combining the two nodes with the lowest frequency
-        while (priorityQueue.size() > 1) {
-            HuffmanNode left = priorityQueue.poll();
-            HuffmanNode right = priorityQueue.poll();
+    /**
+     * Builds the Huffman tree from a histogram indexed by symbol, such as the 256 byte values.
+     * Symbols with a frequency of zero are left out of the tree.
+     *
+     * @param frequencies The frequency of each symbol.
+     * @param mode        The alphabet the symbols belong to.
+     */
+    public void buildTree(long[] frequencies, SymbolMode mode) {
+        buildTree(frequencies, mode, 0);
+    }
 
-            int sum = left.frequency + right.frequency;
-            priorityQueue.add(new HuffmanNode(sum, left, right));
+    /**
+     * Builds the Huffman tree from a histogram indexed by symbol, with codes no longer than a maximum.
+     *
+     * @param frequencies   The frequency of each symbol.
+     * @param mode          The alphabet the symbols belong to.
+     * @param maxCodeLength The maximum code length in bits, or 0 for no limit.
+     */
+    public void buildTree(long[] frequencies, SymbolMode mode, int maxCodeLength) {
+        this.mode = mode;
+        symbolCount = 0;
+        for (long frequency : frequencies) {
+            symbolCount += frequency;
         }
+        codeLengths = computeCodeLengths(frequencies);
 
-        // Set the root of the tree
-        root = priorityQueue.poll();
+        long start = System.nanoTime();
+        codeValues = CanonicalCode.assignCodes(codeLengths);
+        root = null; // Built from the codes when first requested
+        huffmanCodes = null;
+        codeGenerationNanos = System.nanoTime() - start;
 
-        // Generate Huffman codes for each character
-        huffmanCodes = new HashMap<>();
-        generateCodes(root, "");
+        limitCodeLengths(frequencies, maxCodeLength);
     }
 
     /**
-     * Recursively generates Huffman codes for each character in the tree.
+     * Replaces the code lengths with optimal length-limited ones if any code is longer than allowed,
+     * and records the encoded size with and without the limit.
      *
-     * @param node The current node in the tree.
-     * @param code The Huffman code generated so far.
+     * @param frequencies   The frequency of each symbol.
+     * @param maxCodeLength The maximum code length in bits, or 0 for no limit.
      */
-    private void generateCodes(HuffmanNode node, String code) {
-        if (node == null) {
-            return;
+    private void limitCodeLengths(long[] frequencies, int maxCodeLength) {
+        unlimitedBits = LengthLimitedCode.encodedBits(frequencies, codeLengths);
+        encodedBits = unlimitedBits;
+
+        if (maxCodeLength > 0 && getMaxCodeLength() > maxCodeLength) {
+            codeLengths = LengthLimitedCode.computeLengths(frequencies, maxCodeLength);
+            encodedBits = LengthLimitedCode.encodedBits(frequencies, codeLengths);
+
+            long start = System.nanoTime();
+            codeValues = CanonicalCode.assignCodes(codeLengths);
+            codeGenerationNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Computes Huffman code lengths with the two-queue method, on primitive arrays only.
+     * Once the leaves are sorted by frequency, the merged nodes are created in order of increasing
+     * weight, so the two lightest nodes are always at the front of either the leaf queue or the
+     * queue of merged nodes and each merge takes constant time. Ties are resolved in favour of
+     * leaves, which keeps the longest code as short as possible. Depths are then filled in from
+     * the root down, without recursion.
+     *
+     * @param frequencies The frequency of each symbol; symbols with frequency 0 get no code.
+     * @return The code length of each symbol.
+     */
+    static byte[] computeCodeLengths(long[] frequencies) {
+        byte[] lengths = new byte[frequencies.length];
+        int count = 0;
+        for (long frequency : frequencies) {
+            if (frequency > 0) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return lengths;
+        }
+
+        int[] leaves = LengthLimitedCode.sortByFrequency(frequencies, count);
+        if (count == 1) {
+            lengths[leaves[0]] = 1; // A single symbol still needs a one-bit code
+            return lengths;
+        }
+
+        // Nodes 0..count-1 are the sorted leaves, count..2*count-2 the merged nodes in creation order
+        int nodes = 2 * count - 1;
+        long[] weights = new long[nodes];
+        int[] parents = new int[nodes];
+        for (int i = 0; i < count; i++) {
+            weights[i] = frequencies[leaves[i]];
         }
 
-        if (node.isLeaf) {
-            huffmanCodes.put(node.character, code);
+        int leaf = 0; // Next leaf not merged yet
+        int merged = count; // Next merged node not merged again yet
+        for (int node = count; node < nodes; node++) {
+            for (int child = 0; child < 2; child++) {
+                int lightest = leaf < count && (merged == node || weights[leaf] <= weights[merged]) ? leaf++ : merged++;
+                weights[node] += weights[lightest];
+                parents[lightest] = node;
+            }
         }
 
-        generateCodes(node.left, code + "0");
-        generateCodes(node.right, code + "1");
+        // A parent always comes after its children, so depths can be filled in from the root down
+        int[] depths = parents; // Each entry is read as a parent before it is overwritten as a depth
+        depths[nodes - 1] = 0;
+        for (int node = nodes - 2; node >= 0; node--) {
+            depths[node] = depths[parents[node]] + 1;
+        }
+        for (int i = 0; i < count; i++) {
+            lengths[leaves[i]] = (byte) depths[i];
+        }
+        return lengths;
     }
 
     /**
      * Returns the root node of the Huffman tree.
+     * The node tree is only needed to decode bit by bit, so it is built from the codes on first use.
      *
      * @return The root node.
      */
     public HuffmanNode getRoot() {
+        if (root == null && codeLengths != null) {
+            root = CanonicalCode.buildTree(codeValues, codeLengths);
+            if (root != null) {
+                root.frequency = symbolCount;
+            }
+        }
         return root;
     }
 
     /**
      * Returns the map of characters to their Huffman codes.
+     * The map is derived from the packed code arrays the first time it is requested.
      *
      * @return A map of characters and their corresponding Huffman codes.
      */
     public Map<Character, String> getHuffmanCodes() {
+        if (huffmanCodes == null && codeLengths != null) {
+            huffmanCodes = new HashMap<>();
+            for (int symbol = 0; symbol < codeLengths.length; symbol++) {
+                if (codeLengths[symbol] == 0) {
+                    continue;
+                }
+                StringBuilder code = new StringBuilder();
+                for (int i = codeLengths[symbol] - 1; i >= 0; i--) {
+                    code.append((codeValues[symbol] >>> i) & 1);
+                }
+                huffmanCodes.put((char) symbol, code.toString());
+            }
+        }
         return huffmanCodes;
     }
 
+    /**
+     * Returns the Huffman code of each symbol as an integer value, indexed by symbol.
+     * Only the lowest {@code getCodeLengths()[c]} bits of each value are meaningful.
+     *
+     * @return The array of code values.
+     */
+    public long[] getCodeValues() {
+        return codeValues;
+    }
+
+    /**
+     * Returns the length in bits of the Huffman code of each symbol, indexed by symbol.
+     * Symbols that do not appear in the tree have length 0.
+     *
+     * @return The array of code lengths.
+     */
+    public byte[] getCodeLengths() {
+        return codeLengths;
+    }
+
+    /**
+     * Returns the length of the longest code.
+     *
+     * @return The maximum code length in bits, or 0 for an empty tree.
+     */
+    public int getMaxCodeLength() {
+        if (codeLengths == null) {
+            return 0;
+        }
+        int maxLength = 0;
+        for (byte length : codeLengths) {
+            maxLength = Math.max(maxLength, length);
+        }
+        return maxLength;
+    }
+
+    /**
+     * Returns how much larger the encoded data is because of the code length limit,
+     * relative to an unrestricted Huffman code.
+     *
+     * @return The relative size increase, 0 when no limit was applied.
+     */
+    public double getLengthLimitLoss() {
+        return unlimitedBits == 0 ? 0 : (double) (encodedBits - unlimitedBits) / unlimitedBits;
+    }
+
+    /**
+     * Returns the number of bits needed to encode the symbols the tree was built from.
+     *
+     * @return The encoded size in bits.
+     */
+    public long getEncodedBits() {
+        return encodedBits;
+    }
+
+    /**
+     * Returns the number of bits an unrestricted Huffman code would need for the same symbols.
+     *
+     * @return The unrestricted encoded size in bits.
+     */
+    public long getUnlimitedBits() {
+        return unlimitedBits;
+    }
+
+    /**
+     * Returns the time the last build spent assigning canonical codes to the code lengths,
+     * as opposed to merging nodes to find the lengths.
+     *
+     * @return The code generation time in nanoseconds.
+     */
+    public long getCodeGenerationNanos() {
+        return codeGenerationNanos;
+    }
+
+    /**
+     * Returns the alphabet the symbols of the tree belong to.
+     *
+     * @return The symbol mode of the tree.
+     */
+    public SymbolMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns the number of symbols encoded with the tree.
+     *
+     * @return The total number of symbols, or 0 for an empty tree.
+     */
+    public long getSymbolCount() {
+        return symbolCount;
+    }
+
     /**
      * Sets the root node of the Huffman tree.
      *
@@ -145,4 +389,4 @@ class HuffmanTree implements Serializable {
     public void setRoot(HuffmanNode root) {
         this.root = root;
     }
-}
\ No newline at end of file
+}
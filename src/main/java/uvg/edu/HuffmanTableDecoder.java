@@ -0,0 +1,279 @@
+package uvg.edu;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes Huffman-coded data with lookup tables instead of walking the tree bit by bit.
+ * The primary table is indexed by the next {@value #PRIMARY_BITS} bits of the stream; codes longer
+ * than that continue in secondary tables indexed by the following bits, so a whole symbol is
+ * resolved with one lookup per table level.
+ */
+class HuffmanTableDecoder {
+
+    static final int PRIMARY_BITS = 10; // Width of the primary lookup table
+    static final int SECONDARY_BITS = 6; // Maximum width of each secondary lookup table
+
+    private static final int LENGTH_BITS = 6; // Bits of an entry holding the code length
+    private static final int LENGTH_MASK = (1 << LENGTH_BITS) - 1;
+
+    // Entries are (symbol << LENGTH_BITS | length) for symbols, -index for links to a
+    // secondary table and 0 for bit patterns that do not belong to any code.
+    private final List<int[]> tableList = new ArrayList<>();
+    private final List<Integer> tableBitList = new ArrayList<>();
+    private final int[][] tables;
+    private final int[] tableBits;
+    private final long[] codeValues; // Canonical code of each symbol, used while building the tables
+    private final byte[] codeLengths; // Code length of each symbol
+    private int maxLength; // Length of the longest code
+
+    /**
+     * Builds the lookup tables directly from the code length of each symbol,
+     * assuming the canonical code described by those lengths.
+     *
+     * @param codeLengths The code length of each symbol, 0 for symbols that do not occur.
+     */
+    public HuffmanTableDecoder(byte[] codeLengths) {
+        this.codeValues = CanonicalCode.assignCodes(codeLengths);
+        this.codeLengths = codeLengths;
+
+        int[] symbols = CanonicalCode.sortedSymbols(codeLengths);
+        for (int symbol : symbols) {
+            maxLength = Math.max(maxLength, codeLengths[symbol]);
+        }
+        buildTable(symbols, 0, symbols.length, 0);
+
+        tables = tableList.toArray(new int[0][]);
+        tableBits = new int[tableBitList.size()];
+        for (int i = 0; i < tableBits.length; i++) {
+            tableBits[i] = tableBitList.get(i);
+        }
+    }
+
+    /**
+     * Decodes the next symbol from the bit stream.
+     *
+     * @param in The bit stream to decode from.
+     * @return The decoded symbol, or -1 if the remaining bits do not form a complete code.
+     * @throws IOException If an I/O error occurs while reading the stream.
+     */
+    public int decodeSymbol(BitInputStream in) throws IOException {
+        int available = in.fill();
+        int table = 0;
+
+        while (true) {
+            int bits = tableBits[table];
+            int entry = tables[table][in.peekBits(bits)];
+
+            if (entry > 0) { // The code ends within this table
+                int length = entry & LENGTH_MASK;
+                if (length > available) {
+                    return -1; // Only padding bits are left
+                }
+                in.skipBits(length);
+                return entry >>> LENGTH_BITS;
+            }
+
+            if (entry == 0 || bits > available) {
+                return -1;
+            }
+
+            // Follow the link to the secondary table for longer codes
+            in.skipBits(bits);
+            available = in.fill();
+            table = -entry;
+        }
+    }
+
+    /**
+     * Decodes symbols written round-robin to four streams stored one after another in an array.
+     * The four cursors keep their bits in local variables and advance together, one symbol from each
+     * per iteration, so the lookups of different streams do not depend on each other. Each cursor
+     * refills 32 bits at a time while its stream has at least four bytes left; the end of the
+     * streams is decoded through {@link #decodeSymbol(BitInputStream)}.
+     *
+     * @param data          The array holding the streams.
+     * @param streamOffsets The start of each of the four streams, followed by the end of the last one.
+     * @param symbols       The array that receives the symbols.
+     * @param count         The number of symbols to decode.
+     * @throws IOException If a stream ends before all of its symbols are decoded.
+     */
+    public void decodeInterleaved(byte[] data, int[] streamOffsets, int[] symbols, int count) throws IOException {
+        // Bits are kept left-aligned: n valid bits at the top of b, the next one in the highest position
+        int p0 = streamOffsets[0], p1 = streamOffsets[1], p2 = streamOffsets[2], p3 = streamOffsets[3];
+        int e0 = streamOffsets[1], e1 = streamOffsets[2], e2 = streamOffsets[3], e3 = streamOffsets[4];
+        long b0 = 0, b1 = 0, b2 = 0, b3 = 0;
+        int n0 = 0, n1 = 0, n2 = 0, n3 = 0;
+        int i = 0;
+
+        if (maxLength <= 32) { // A single 32-bit refill always covers the next code
+            while (i + 4 <= count && p0 + 4 <= e0 && p1 + 4 <= e1 && p2 + 4 <= e2 && p3 + 4 <= e3) {
+                if (n0 < 32) {
+                    b0 |= readInt(data, p0) << (32 - n0);
+                    p0 += 4;
+                    n0 += 32;
+                }
+                if (n1 < 32) {
+                    b1 |= readInt(data, p1) << (32 - n1);
+                    p1 += 4;
+                    n1 += 32;
+                }
+                if (n2 < 32) {
+                    b2 |= readInt(data, p2) << (32 - n2);
+                    p2 += 4;
+                    n2 += 32;
+                }
+                if (n3 < 32) {
+                    b3 |= readInt(data, p3) << (32 - n3);
+                    p3 += 4;
+                    n3 += 32;
+                }
+
+                int x0 = lookup(b0);
+                int x1 = lookup(b1);
+                int x2 = lookup(b2);
+                int x3 = lookup(b3);
+                if ((x0 | x1 | x2 | x3) < 0) {
+                    throw new IOException("Bloque comprimido incompleto.");
+                }
+                int l0 = x0 & LENGTH_MASK, l1 = x1 & LENGTH_MASK, l2 = x2 & LENGTH_MASK, l3 = x3 & LENGTH_MASK;
+                b0 <<= l0;
+                b1 <<= l1;
+                b2 <<= l2;
+                b3 <<= l3;
+                n0 -= l0;
+                n1 -= l1;
+                n2 -= l2;
+                n3 -= l3;
+                symbols[i] = x0 >>> LENGTH_BITS;
+                symbols[i + 1] = x1 >>> LENGTH_BITS;
+                symbols[i + 2] = x2 >>> LENGTH_BITS;
+                symbols[i + 3] = x3 >>> LENGTH_BITS;
+                i += 4;
+            }
+        }
+
+        // Resume each stream at its first unread bit and decode the rest one symbol at a time
+        BitInputStream[] streams = {
+                resume(data, p0 * 8L - n0, e0), resume(data, p1 * 8L - n1, e1),
+                resume(data, p2 * 8L - n2, e2), resume(data, p3 * 8L - n3, e3)
+        };
+        for (; i < count; i++) {
+            int symbol = decodeSymbol(streams[i & 3]);
+            if (symbol == -1) {
+                throw new IOException("Bloque comprimido incompleto.");
+            }
+            symbols[i] = symbol;
+        }
+    }
+
+    /**
+     * Resolves the code at the top of a left-aligned bit buffer.
+     *
+     * @param window Bits holding at least the whole next code, the first one in the highest position.
+     * @return The symbol shifted left by {@value #LENGTH_BITS} bits and combined with the code length,
+     *         or -1 if the bits do not start any code.
+     */
+    private int lookup(long window) {
+        int entry = tables[0][(int) (window >>> (64 - tableBits[0]))];
+        if (entry > 0) {
+            return entry;
+        }
+
+        int consumed = tableBits[0];
+        while (entry < 0) {
+            int table = -entry;
+            int bits = tableBits[table];
+            entry = tables[table][(int) ((window << consumed) >>> (64 - bits))];
+            if (entry > 0) {
+                return (entry & ~LENGTH_MASK) | (consumed + (entry & LENGTH_MASK));
+            }
+            consumed += bits;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads four bytes as an unsigned big-endian value.
+     */
+    private static long readInt(byte[] data, int position) {
+        return ((data[position] & 0xFFL) << 24) | ((data[position + 1] & 0xFF) << 16)
+                | ((data[position + 2] & 0xFF) << 8) | (data[position + 3] & 0xFF);
+    }
+
+    /**
+     * Opens a bit stream over the rest of a stream, starting at an arbitrary bit.
+     */
+    private static BitInputStream resume(byte[] data, long bitPosition, int end) throws IOException {
+        int start = (int) (bitPosition >>> 3);
+        BitInputStream in = new BitInputStream(data, start, end - start);
+        if (in.fill() > 0) {
+            in.skipBits((int) (bitPosition & 7));
+        }
+        return in;
+    }
+
+    /**
+     * Creates a table for a run of symbols whose codes share their first bits, and fills its entries.
+     * The symbols are given in canonical order, which is also the lexicographic order of their codes,
+     * so the codes that continue in the same secondary table are always contiguous.
+     *
+     * @param symbols  The symbols in canonical order.
+     * @param from     The index of the first symbol of the run.
+     * @param to       The index after the last symbol of the run.
+     * @param consumed The number of leading bits shared by the run and already resolved.
+     * @return The index of the new table.
+     */
+    private int buildTable(int[] symbols, int from, int to, int consumed) {
+        int maxLength = consumed;
+        for (int i = from; i < to; i++) {
+            maxLength = Math.max(maxLength, codeLengths[symbols[i]]);
+        }
+        int bits = Math.min(consumed == 0 ? PRIMARY_BITS : SECONDARY_BITS, maxLength - consumed);
+
+        int index = tableList.size();
+        int[] table = new int[1 << bits];
+        tableList.add(table);
+        tableBitList.add(bits);
+
+        int i = from;
+        while (i < to) {
+            int symbol = symbols[i];
+            int remaining = codeLengths[symbol] - consumed;
+
+            if (remaining <= bits) {
+                // Every index starting with the rest of the code decodes to the same symbol
+                int first = (int) (codeValues[symbol] & ((1L << remaining) - 1)) << (bits - remaining);
+                int entry = (symbol << LENGTH_BITS) | remaining;
+                for (int j = first; j < first + (1 << (bits - remaining)); j++) {
+                    table[j] = entry;
+                }
+                i++;
+            } else {
+                // Group the longer codes that share the next bits into a secondary table
+                int prefix = tablePrefix(symbol, consumed, bits);
+                int end = i + 1;
+                while (end < to && tablePrefix(symbols[end], consumed, bits) == prefix) {
+                    end++;
+                }
+                table[prefix] = -buildTable(symbols, i, end, consumed + bits);
+                i = end;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Extracts the bits of a code that index a table.
+     *
+     * @param symbol   The symbol whose code is inspected.
+     * @param consumed The number of leading bits of the code already resolved.
+     * @param bits     The number of bits used to index the table.
+     * @return The table index selected by the code.
+     */
+    private int tablePrefix(int symbol, int consumed, int bits) {
+        int shift = codeLengths[symbol] - consumed - bits;
+        return (int) ((codeValues[symbol] >>> shift) & ((1L << bits) - 1));
+    }
+}
@@ -0,0 +1,161 @@
+package uvg.edu;
+
+import java.util.Arrays;
+
+/**
+ * Computes optimal code lengths that do not exceed a maximum, using the package-merge algorithm.
+ * Bounding the code length keeps every code within a fixed number of bits, at the cost of a
+ * slightly worse compression ratio than an unrestricted Huffman code.
+ */
+final class LengthLimitedCode {
+
+    private LengthLimitedCode() {
+    }
+
+    /**
+     * Computes the code lengths of minimal encoded size among those not longer than {@code maxLength}.
+     *
+     * @param frequencies The frequency of each symbol; symbols with frequency 0 get no code.
+     * @param maxLength   The maximum code length allowed.
+     * @return The code length of each symbol.
+     * @throws IllegalArgumentException If the symbols do not fit in codes of the given length.
+     */
+    public static byte[] computeLengths(long[] frequencies, int maxLength) {
+        byte[] lengths = new byte[frequencies.length];
+
+        // Count the used symbols
+        int count = 0;
+        for (long frequency : frequencies) {
+            if (frequency > 0) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return lengths;
+        }
+        if (count == 1) {
+            for (int symbol = 0; symbol < frequencies.length; symbol++) {
+                if (frequencies[symbol] > 0) {
+                    lengths[symbol] = 1; // A single symbol still needs a one-bit code
+                }
+            }
+            return lengths;
+        }
+        if (maxLength < 31 && count > (1 << maxLength)) {
+            throw new IllegalArgumentException(count + " símbolos no caben en códigos de " + maxLength + " bits.");
+        }
+
+        int[] symbols = sortByFrequency(frequencies, count);
+        long[] weights = new long[count];
+        for (int i = 0; i < count; i++) {
+            weights[i] = frequencies[symbols[i]];
+        }
+
+        // Each level merges the leaves with the packages (pairs) of the previous level's items
+        boolean[][] isPackage = new boolean[maxLength][];
+        long[] items = weights;
+        isPackage[0] = new boolean[count];
+        for (int level = 1; level < maxLength; level++) {
+            int packages = items.length / 2;
+            long[] merged = new long[count + packages];
+            boolean[] flags = new boolean[count + packages];
+            int leaf = 0;
+            int pack = 0;
+            for (int i = 0; i < merged.length; i++) {
+                long packageWeight = pack < packages ? items[2 * pack] + items[2 * pack + 1] : Long.MAX_VALUE;
+                if (leaf < count && weights[leaf] <= packageWeight) {
+                    merged[i] = weights[leaf++];
+                } else {
+                    merged[i] = packageWeight;
+                    flags[i] = true;
+                    pack++;
+                }
+            }
+            items = merged;
+            isPackage[level] = flags;
+        }
+
+        // The cheapest 2n - 2 items of the last level decide the lengths: every time a symbol's
+        // leaf is selected, directly or inside a selected package, its code grows by one bit
+        int selected = 2 * count - 2;
+        for (int level = maxLength - 1; level >= 0 && selected > 0; level--) {
+            int leaves = 0;
+            for (int i = 0; i < selected; i++) {
+                if (!isPackage[level][i]) {
+                    leaves++;
+                }
+            }
+            for (int i = 0; i < leaves; i++) {
+                lengths[symbols[i]]++;
+            }
+            selected = 2 * (selected - leaves);
+        }
+        return lengths;
+    }
+
+    /**
+     * Computes the number of bits needed to encode symbols with the given frequencies and code lengths.
+     *
+     * @param frequencies The frequency of each symbol.
+     * @param lengths     The code length of each symbol.
+     * @return The total number of encoded bits.
+     */
+    public static long encodedBits(long[] frequencies, byte[] lengths) {
+        long bits = 0;
+        for (int symbol = 0; symbol < Math.min(frequencies.length, lengths.length); symbol++) {
+            bits += frequencies[symbol] * lengths[symbol];
+        }
+        return bits;
+    }
+
+    /**
+     * Lists the used symbols by increasing frequency, breaking ties by symbol.
+     * When frequency and symbol fit together in a long, they are packed into one key and sorted
+     * as primitives, which keeps large alphabets fast; otherwise the symbols are sorted boxed.
+     *
+     * @param frequencies The frequency of each symbol.
+     * @param count       The number of symbols with a non-zero frequency.
+     * @return The sorted symbols.
+     */
+    static int[] sortByFrequency(long[] frequencies, int count) {
+        int symbolBits = 32 - Integer.numberOfLeadingZeros(Math.max(1, frequencies.length - 1));
+        long maxFrequency = 0;
+        for (long frequency : frequencies) {
+            maxFrequency = Math.max(maxFrequency, frequency);
+        }
+
+        if (64 - Long.numberOfLeadingZeros(maxFrequency) + symbolBits <= 63) {
+            long[] keys = new long[count];
+            int k = 0;
+            for (int symbol = 0; symbol < frequencies.length; symbol++) {
+                if (frequencies[symbol] > 0) {
+                    keys[k++] = frequencies[symbol] << symbolBits | symbol;
+                }
+            }
+            Arrays.sort(keys);
+
+            int[] sorted = new int[count];
+            long symbolMask = (1L << symbolBits) - 1;
+            for (int i = 0; i < count; i++) {
+                sorted[i] = (int) (keys[i] & symbolMask);
+            }
+            return sorted;
+        }
+
+        Integer[] boxed = new Integer[count];
+        int k = 0;
+        for (int symbol = 0; symbol < frequencies.length; symbol++) {
+            if (frequencies[symbol] > 0) {
+                boxed[k++] = symbol;
+            }
+        }
+        Arrays.sort(boxed, (a, b) -> frequencies[a] != frequencies[b]
+                ? Long.compare(frequencies[a], frequencies[b]) : Integer.compare(a, b));
+
+        int[] sorted = new int[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = boxed[i];
+        }
+        return sorted;
+    }
+}
@@ -0,0 +1,278 @@
+package uvg.edu;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compresses and decompresses files over the byte alphabet through memory-mapped I/O.
+ * Both passes of the compressor read the input straight from the page cache, and the output is
+ * mapped at its final size, computed from the code lengths before any bit is written, so no
+ * read or write system call is issued per buffer. The files produced are the same as those
+ * of {@link HuffmanCoding#compressBytes(String, String)}.
+ * Files larger than {@value #WINDOW_SIZE} bytes are mapped as several consecutive windows.
+ */
+class MappedHuffmanCoder {
+
+    static final int WINDOW_SIZE = 1 << 30; // Largest region mapped at once
+
+    /**
+     * Compresses a file byte by byte.
+     *
+     * @param inputFile     The path of the file to compress.
+     * @param outputFile    The path of the compressed file to create.
+     * @param maxCodeLength The maximum code length in bits, or 0 for no limit.
+     * @return The Huffman tree used, which records the symbol count and encoded size.
+     * @throws IOException If an I/O error occurs.
+     */
+    public HuffmanTree compress(Path inputFile, Path outputFile, int maxCodeLength) throws IOException {
+        return compress(inputFile, outputFile, maxCodeLength,
+                new CompressionMetrics(CompressionMetrics.COMPRESS, inputFile.toString()));
+    }
+
+    /**
+     * Compresses a file byte by byte, measuring the compression. The mapped pages are read and
+     * written inside the histogram and encoding passes, whose times include them.
+     *
+     * @param inputFile     The path of the file to compress.
+     * @param outputFile    The path of the compressed file to create.
+     * @param maxCodeLength The maximum code length in bits, or 0 for no limit.
+     * @param metrics       The metrics of the operation; the caller finishes them.
+     * @return The Huffman tree used, which records the symbol count and encoded size.
+     * @throws IOException If an I/O error occurs.
+     */
+    public HuffmanTree compress(Path inputFile, Path outputFile, int maxCodeLength, CompressionMetrics metrics)
+            throws IOException {
+        try (FileChannel input = FileChannel.open(inputFile, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(outputFile, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = input.size();
+
+            // First pass: histogram straight from the mapped pages
+            long start = metrics.begin();
+            long[] frequencies = new long[256];
+            for (long position = 0; position < size; position += WINDOW_SIZE) {
+                MappedByteBuffer window = map(input, FileChannel.MapMode.READ_ONLY, position, size);
+                for (int i = 0, limit = window.limit(); i < limit; i++) {
+                    frequencies[window.get(i) & 0xFF]++;
+                }
+            }
+            metrics.end(CompressionMetrics.Phase.HISTOGRAM, start);
+            metrics.setFrequencies(frequencies);
+
+            start = metrics.begin();
+            HuffmanTree tree = new HuffmanTree();
+            tree.buildTree(frequencies, SymbolMode.BYTE, maxCodeLength);
+            metrics.endTree(tree, start);
+            long[] codeValues = tree.getCodeValues();
+            byte[] codeLengths = tree.getCodeLengths();
+
+            // The exact output size is known from the code lengths
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            HuffmanHeader.write(tree, header);
+            long outputSize = header.size() + (tree.getEncodedBits() + 7) / 8;
+
+            // Second pass: encode into the pre-sized output mapping
+            start = metrics.begin();
+            try (MappedOutputStream mapped = new MappedOutputStream(output, outputSize);
+                 BitOutputStream out = new BitOutputStream(mapped)) {
+                header.writeTo(mapped);
+                for (long position = 0; position < size; position += WINDOW_SIZE) {
+                    MappedByteBuffer window = map(input, FileChannel.MapMode.READ_ONLY, position, size);
+                    for (int i = 0, limit = window.limit(); i < limit; i++) {
+                        int b = window.get(i) & 0xFF;
+                        out.writeBits(codeValues[b], codeLengths[b]);
+                    }
+                }
+            }
+            metrics.end(CompressionMetrics.Phase.ENCODE, start);
+            metrics.addBytes(size, outputSize);
+            metrics.setSymbols(tree.getSymbolCount(), tree.getEncodedBits());
+            return tree;
+        }
+    }
+
+    /**
+     * Decompresses a file compressed over the byte alphabet.
+     * The output is mapped at its final size, the symbol count recorded in the header.
+     *
+     * @param inputFile  The path of the compressed file.
+     * @param outputFile The path of the decompressed file to create.
+     * @return The number of bytes decompressed.
+     * @throws IOException If an I/O error occurs or the file was not compressed byte by byte.
+     */
+    public long decompress(Path inputFile, Path outputFile) throws IOException {
+        return decompress(inputFile, outputFile,
+                new CompressionMetrics(CompressionMetrics.DECOMPRESS, inputFile.toString()));
+    }
+
+    /**
+     * Decompresses a file compressed over the byte alphabet, measuring the decompression. The mapped
+     * pages are read and written inside the header and decoding phases, whose times include them.
+     *
+     * @param inputFile  The path of the compressed file.
+     * @param outputFile The path of the decompressed file to create.
+     * @param metrics    The metrics of the operation; the caller finishes them.
+     * @return The number of bytes decompressed.
+     * @throws IOException If an I/O error occurs or the file was not compressed byte by byte.
+     */
+    public long decompress(Path inputFile, Path outputFile, CompressionMetrics metrics) throws IOException {
+        try (FileChannel input = FileChannel.open(inputFile, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(outputFile, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             InputStream in = new MappedInputStream(input)) {
+            long start = metrics.begin();
+            HuffmanTree tree = HuffmanHeader.read(in);
+            metrics.end(CompressionMetrics.Phase.HEADER, start);
+            if (tree.getMode() != SymbolMode.BYTE) {
+                throw new IOException("El modo mapeado solo admite archivos comprimidos byte por byte.");
+            }
+
+            start = metrics.begin();
+            HuffmanTableDecoder decoder = new HuffmanTableDecoder(tree.getCodeLengths());
+            metrics.end(CompressionMetrics.Phase.TABLE_BUILD, start);
+            metrics.setMaxCodeLength(tree.getMaxCodeLength());
+            start = metrics.begin();
+            BitInputStream bits = new BitInputStream(in);
+            long size = tree.getSymbolCount();
+
+            for (long position = 0; position < size; position += WINDOW_SIZE) {
+                MappedByteBuffer window = map(output, FileChannel.MapMode.READ_WRITE, position, size);
+                for (int i = 0, limit = window.limit(); i < limit; i++) {
+                    int symbol = decoder.decodeSymbol(bits);
+                    if (symbol == -1) {
+                        throw new IOException("Archivo comprimido incompleto.");
+                    }
+                    window.put(i, (byte) symbol);
+                }
+            }
+            metrics.end(CompressionMetrics.Phase.DECODE, start);
+            metrics.addBytes(input.size(), size);
+            metrics.setSymbols(size, 0); // As for other single-header files, the encoded size is not measured
+            return size;
+        }
+    }
+
+    /**
+     * Maps the window of a file that starts at the given position.
+     *
+     * @param channel  The channel of the file.
+     * @param mode     The mapping mode.
+     * @param position The start of the window.
+     * @param size     The total size of the mapped region of the file.
+     * @return The mapped window, at most {@value #WINDOW_SIZE} bytes long.
+     * @throws IOException If the file cannot be mapped.
+     */
+    private static MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long position, long size)
+            throws IOException {
+        return channel.map(mode, position, Math.min(WINDOW_SIZE, size - position));
+    }
+
+    /**
+     * Input stream that reads a file through consecutive mapped windows.
+     */
+    private static class MappedInputStream extends InputStream {
+        private final FileChannel channel; // The channel of the file
+        private final long size; // The size of the file
+        private long windowStart; // The position of the current window in the file
+        private MappedByteBuffer window; // The current window
+
+        MappedInputStream(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!nextWindow()) {
+                return -1;
+            }
+            return window.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!nextWindow()) {
+                return -1;
+            }
+            int count = Math.min(len, window.remaining());
+            window.get(b, off, count);
+            return count;
+        }
+
+        /**
+         * Makes sure the current window has bytes left, mapping the next one if needed.
+         *
+         * @return False at the end of the file.
+         */
+        private boolean nextWindow() throws IOException {
+            if (window != null && window.hasRemaining()) {
+                return true;
+            }
+            if (window != null) {
+                windowStart += window.limit();
+            }
+            if (windowStart >= size) {
+                return false;
+            }
+            window = map(channel, FileChannel.MapMode.READ_ONLY, windowStart, size);
+            return true;
+        }
+    }
+
+    /**
+     * Output stream that writes into consecutive mapped windows of a file of known size.
+     */
+    private static class MappedOutputStream extends OutputStream {
+        private final FileChannel channel; // The channel of the file
+        private final long size; // The final size of the file
+        private long windowStart; // The position of the current window in the file
+        private MappedByteBuffer window; // The current window
+
+        MappedOutputStream(FileChannel channel, long size) {
+            this.channel = channel;
+            this.size = size;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            nextWindow();
+            window.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                nextWindow();
+                int count = Math.min(len, window.remaining());
+                window.put(b, off, count);
+                off += count;
+                len -= count;
+            }
+        }
+
+        /**
+         * Makes sure the current window has room left, mapping the next one if needed.
+         */
+        private void nextWindow() throws IOException {
+            if (window != null && window.hasRemaining()) {
+                return;
+            }
+            if (window != null) {
+                windowStart += window.limit();
+            }
+            if (windowStart >= size) {
+                throw new IOException("Se excedió el tamaño calculado del archivo comprimido.");
+            }
+            window = map(channel, FileChannel.MapMode.READ_WRITE, windowStart, size);
+        }
+    }
+}
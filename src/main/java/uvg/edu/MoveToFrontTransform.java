@@ -0,0 +1,85 @@
+package uvg.edu;
+
+/**
+ * Replaces every byte with its position in a list of recently used bytes, then moves it to the front.
+ * Bytes that recur close together, as they do after block sorting, become runs of small numbers,
+ * mostly zeros, which a Huffman code and a run-length stage both handle well.
+ */
+class MoveToFrontTransform implements BlockTransform {
+
+    static final int ID = 2;
+
+    /**
+     * Returns the identifier of the transform.
+     *
+     * @return {@value #ID}.
+     */
+    @Override
+    public int id() {
+        return ID;
+    }
+
+    /**
+     * Returns the name of the transform.
+     *
+     * @return "mtf".
+     */
+    @Override
+    public String name() {
+        return "mtf";
+    }
+
+    /**
+     * Replaces every byte with its position in the list of recently used bytes.
+     *
+     * @param data The bytes to transform.
+     * @return The positions, one per byte.
+     */
+    @Override
+    public byte[] forward(byte[] data) {
+        byte[] order = initialOrder();
+        byte[] out = new byte[data.length];
+        for (int i = 0; i < data.length; i++) {
+            byte value = data[i];
+            int position = 0;
+            while (order[position] != value) {
+                position++;
+            }
+            System.arraycopy(order, 0, order, 1, position);
+            order[0] = value;
+            out[i] = (byte) position;
+        }
+        return out;
+    }
+
+    /**
+     * Replaces every position with the byte found there in the list of recently used bytes.
+     *
+     * @param data The positions.
+     * @return The original bytes.
+     */
+    @Override
+    public byte[] inverse(byte[] data) {
+        byte[] order = initialOrder();
+        byte[] out = new byte[data.length];
+        for (int i = 0; i < data.length; i++) {
+            int position = data[i] & 0xFF;
+            byte value = order[position];
+            System.arraycopy(order, 0, order, 1, position);
+            order[0] = value;
+            out[i] = value;
+        }
+        return out;
+    }
+
+    /**
+     * Returns the list every block starts from: all byte values in increasing order.
+     */
+    private static byte[] initialOrder() {
+        byte[] order = new byte[256];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = (byte) i;
+        }
+        return order;
+    }
+}
@@ -0,0 +1,294 @@
+package uvg.edu;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compresses data into the block format of {@link BlockCompressor} with a pipeline of stages running
+ * on their own threads: a reader that fills blocks, one or more encoders, and a writer that puts the
+ * encoded blocks in order, so reading and writing overlap with encoding instead of alternating with it.
+ * <p>
+ * The stages are connected by bounded queues, and the symbol arrays of the blocks come from a fixed
+ * pool of {@code 2 * encoders + 2} buffers. The reader waits for a free buffer before filling one and
+ * the writer returns a buffer to the pool once its block is written, so the number of blocks in
+ * flight, and with it the memory used, stays bounded however fast or slow each stage is.
+ */
+class PipelinedCompressor {
+
+    private final int encoders; // Number of encoder stages
+    private final BlockOptions options; // How the blocks are coded
+    private long readNanos; // Time the reader spent reading
+    private final AtomicLong encodeNanos = new AtomicLong(); // Time the encoders spent encoding, added up
+    private long writeNanos; // Time the writer spent writing
+    private long elapsedNanos; // Wall-clock time of the last compression
+
+    /**
+     * Constructs a PipelinedCompressor with the default options and one encoder per processor.
+     */
+    public PipelinedCompressor() {
+        this(Runtime.getRuntime().availableProcessors(), BlockOptions.DEFAULT);
+    }
+
+    /**
+     * Constructs a PipelinedCompressor.
+     *
+     * @param encoders The number of encoder stages.
+     * @param options  How the blocks are coded.
+     * @throws IllegalArgumentException If the number of encoders is not positive.
+     */
+    public PipelinedCompressor(int encoders, BlockOptions options) {
+        if (encoders <= 0) {
+            throw new IllegalArgumentException("El número de codificadores debe ser positivo.");
+        }
+        this.encoders = encoders;
+        this.options = options;
+    }
+
+    /**
+     * Compresses a stream into the block format.
+     * The output should be buffered, since the writer stage hands it every block piece by piece.
+     *
+     * @param in   The stream supplying the data to compress.
+     * @param mode The alphabet the data is split into.
+     * @param out  The stream that receives the compressed file.
+     * @return The number of symbols compressed.
+     * @throws IOException If an I/O error occurs in any stage, or the compression is interrupted.
+     * @throws IllegalArgumentException If the alphabet is words, or transforms are configured and the
+     *                                  alphabet is not bytes.
+     */
+    public long compress(InputStream in, SymbolMode mode, OutputStream out) throws IOException {
+        return compress(in, mode, out, new CompressionMetrics(CompressionMetrics.COMPRESS, null));
+    }
+
+    /**
+     * Compresses a stream into the block format, measuring the compression. Each stage times its
+     * work into metrics of its own, and every block is timed by the encoder that encodes it; they
+     * are merged into the metrics of the operation once all the stages are done.
+     *
+     * @param in      The stream supplying the data to compress.
+     * @param mode    The alphabet the data is split into.
+     * @param out     The stream that receives the compressed file.
+     * @param metrics The metrics of the operation, which receive the time spent reading and writing,
+     *                the encoding time of every block added up and the symbols and bits encoded;
+     *                the caller finishes them.
+     * @return The number of symbols compressed.
+     * @throws IOException If an I/O error occurs in any stage, or the compression is interrupted.
+     * @throws IllegalArgumentException If the alphabet is words, or transforms are configured and the
+     *                                  alphabet is not bytes.
+     */
+    public long compress(InputStream in, SymbolMode mode, OutputStream out, CompressionMetrics metrics)
+            throws IOException {
+        options.checkMode(mode);
+        int buffers = 2 * encoders + 2;
+        BlockingQueue<int[]> pool = new ArrayBlockingQueue<>(buffers);
+        for (int i = 0; i < buffers; i++) {
+            pool.add(new int[options.getBlockSize()]);
+        }
+        BlockingQueue<Block> toEncode = new ArrayBlockingQueue<>(buffers + encoders); // Room for the end markers
+        BlockingQueue<Block> toWrite = new ArrayBlockingQueue<>(buffers + 1);
+
+        readNanos = 0;
+        encodeNanos.set(0);
+        writeNanos = 0;
+        long start = System.nanoTime();
+        ExecutorService threads = Executors.newFixedThreadPool(encoders + 2);
+        ExecutorCompletionService<Long> stages = new ExecutorCompletionService<>(threads);
+        CompressionMetrics reading = metrics.forTask();
+        CompressionMetrics writing = metrics.forTask(); // Also collects the metrics of every block
+        try {
+            stages.submit(() -> read(reading.timed(in), mode, pool, toEncode, toWrite));
+            for (int i = 0; i < encoders; i++) {
+                stages.submit(() -> encode(mode, toEncode, toWrite, metrics));
+            }
+            stages.submit(() -> write(mode, toWrite, pool, writing.timed(out), writing));
+
+            // The first stage to fail stops the others, which would otherwise wait on the queues forever
+            long symbols = 0;
+            for (int i = 0; i < encoders + 2; i++) {
+                symbols += stages.take().get();
+            }
+            metrics.merge(reading);
+            metrics.merge(writing);
+            return symbols;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Compresión interrumpida.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            threads.shutdownNow();
+            elapsedNanos = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Reader stage: fills pooled buffers with blocks of symbols and queues them for encoding,
+     * then queues an end marker for every encoder and one for the writer with the number of blocks.
+     *
+     * @return The number of symbols read.
+     */
+    private long read(InputStream in, SymbolMode mode, BlockingQueue<int[]> pool, BlockingQueue<Block> toEncode,
+                      BlockingQueue<Block> toWrite) throws IOException, InterruptedException {
+        SymbolReader reader = mode.openReader(in);
+        long sequence = 0;
+        long symbols = 0;
+        while (true) {
+            int[] buffer = pool.take();
+            long begin = System.nanoTime();
+            int count = BlockCompressor.readBlock(reader, buffer);
+            readNanos += System.nanoTime() - begin;
+            if (count == 0) {
+                break;
+            }
+            toEncode.put(new Block(sequence++, buffer, count));
+            symbols += count;
+        }
+        for (int i = 0; i < encoders; i++) {
+            toEncode.put(new Block(sequence, null, 0));
+        }
+        toWrite.put(new Block(sequence, null, 0));
+        return symbols;
+    }
+
+    /**
+     * Encoder stage: encodes queued blocks until it takes an end marker, timing each block into
+     * metrics of its own that travel with it to the writer.
+     *
+     * @return Zero, since the symbols are counted by the reader.
+     */
+    private long encode(SymbolMode mode, BlockingQueue<Block> toEncode, BlockingQueue<Block> toWrite,
+                        CompressionMetrics metrics) throws IOException, InterruptedException {
+        while (true) {
+            Block block = toEncode.take();
+            if (block.symbols == null) {
+                return 0;
+            }
+            block.metrics = metrics.forTask();
+            long begin = System.nanoTime();
+            block.encoded = HuffmanBlock.encode(block.symbols, block.count, mode, options, block.metrics);
+            encodeNanos.addAndGet(System.nanoTime() - begin);
+            block.metrics.setSymbols(block.count, block.encoded.getEncodedBits());
+            block.metrics.setMaxCodeLength(block.encoded.getMaxCodeLength());
+            toWrite.put(block);
+        }
+    }
+
+    /**
+     * Writer stage: writes the header, then the encoded blocks in the order they were read as they
+     * become available, returning their buffers to the pool and merging their metrics into its own,
+     * and finally the index and trailer.
+     *
+     * @return Zero, since the symbols are counted by the reader.
+     */
+    private long write(SymbolMode mode, BlockingQueue<Block> toWrite, BlockingQueue<int[]> pool, OutputStream out,
+                       CompressionMetrics metrics) throws IOException, InterruptedException {
+        BlockCompressor.CountingOutputStream counter = new BlockCompressor.CountingOutputStream(out);
+        DataOutputStream data = new DataOutputStream(counter);
+        Map<Long, Block> waiting = new HashMap<>(); // Encoded blocks that finished ahead of their turn
+        List<long[]> index = new ArrayList<>();
+        long next = 0; // Sequence number of the next block to write
+        long total = -1; // Number of blocks, known once the reader is done
+
+        long begin = System.nanoTime();
+        BlockCompressor.writeHeader(data, mode, options);
+        writeNanos += System.nanoTime() - begin;
+        while (total < 0 || next < total) {
+            Block block = toWrite.take();
+            if (block.symbols == null) {
+                total = block.sequence;
+                continue;
+            }
+            waiting.put(block.sequence, block);
+
+            Block ready;
+            while ((ready = waiting.remove(next)) != null) {
+                begin = System.nanoTime();
+                index.add(new long[]{counter.count, ready.count});
+                ready.encoded.write(data);
+                writeNanos += System.nanoTime() - begin;
+                metrics.merge(ready.metrics);
+                pool.put(ready.symbols);
+                next++;
+            }
+        }
+
+        begin = System.nanoTime();
+        BlockCompressor.writeIndex(data, index, counter.count);
+        data.flush();
+        writeNanos += System.nanoTime() - begin;
+        return 0;
+    }
+
+    /**
+     * Returns the time the reader stage spent reading during the last compression.
+     *
+     * @return The read time in nanoseconds.
+     */
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    /**
+     * Returns the time the encoder stages spent encoding during the last compression, added up.
+     *
+     * @return The encode time in nanoseconds.
+     */
+    public long getEncodeNanos() {
+        return encodeNanos.get();
+    }
+
+    /**
+     * Returns the time the writer stage spent writing during the last compression.
+     *
+     * @return The write time in nanoseconds.
+     */
+    public long getWriteNanos() {
+        return writeNanos;
+    }
+
+    /**
+     * Returns the wall-clock time of the last compression. When the stages overlap it is
+     * shorter than the read, encode and write times added up.
+     *
+     * @return The elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * A block moving through the pipeline, or an end marker when it has no symbols.
+     */
+    private static final class Block {
+        final long sequence; // Position of the block in the input, or the number of blocks for an end marker
+        final int[] symbols; // Pooled buffer holding the symbols, null for an end marker
+        final int count; // Number of symbols in the buffer
+        HuffmanBlock encoded; // The block once encoded
+        CompressionMetrics metrics; // Metrics of the encoder task, set with the encoded block
+
+        Block(long sequence, int[] symbols, int count) {
+            this.sequence = sequence;
+            this.symbols = symbols;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package uvg.edu;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Shortens runs of a repeated byte: after {@value #MIN_RUN} equal bytes comes a count byte with the
+ * number of further repetitions, up to 255. A run of any length then costs a handful of symbols
+ * instead of at least one bit per byte, and data without runs grows by at most one byte in four.
+ */
+class RunLengthTransform implements BlockTransform {
+
+    static final int ID = 1;
+    static final int MIN_RUN = 4; // Equal bytes written out before a count follows
+    private static final int MAX_COUNT = 255; // Largest number of repetitions a count byte holds
+
+    /**
+     * Returns the identifier of the transform.
+     *
+     * @return {@value #ID}.
+     */
+    @Override
+    public int id() {
+        return ID;
+    }
+
+    /**
+     * Returns the name of the transform.
+     *
+     * @return "rle".
+     */
+    @Override
+    public String name() {
+        return "rle";
+    }
+
+    /**
+     * Replaces every run of at least {@value #MIN_RUN} equal bytes with its first
+     * {@value #MIN_RUN} bytes and a count.
+     *
+     * @param data The bytes to transform.
+     * @return The run-length encoded bytes.
+     */
+    @Override
+    public byte[] forward(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length + data.length / MIN_RUN + 1);
+        int i = 0;
+        while (i < data.length) {
+            byte value = data[i];
+            int run = 1;
+            while (i + run < data.length && data[i + run] == value && run < MIN_RUN + MAX_COUNT) {
+                run++;
+            }
+            for (int j = 0; j < Math.min(run, MIN_RUN); j++) {
+                out.write(value);
+            }
+            if (run >= MIN_RUN) {
+                out.write(run - MIN_RUN);
+            }
+            i += run;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Expands the runs written by {@link #forward(byte[])}.
+     *
+     * @param data The run-length encoded bytes.
+     * @return The original bytes.
+     * @throws IOException If the data ends right after a run, where a count belongs.
+     */
+    @Override
+    public byte[] inverse(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 2);
+        int run = 0;
+        byte previous = 0;
+        for (int i = 0; i < data.length; i++) {
+            byte value = data[i];
+            out.write(value);
+            run = run > 0 && value == previous ? run + 1 : 1;
+            previous = value;
+            if (run == MIN_RUN) {
+                if (++i == data.length) {
+                    throw new IOException("Bloque transformado inválido.");
+                }
+                for (int j = data[i] & 0xFF; j > 0; j--) {
+                    out.write(value);
+                }
+                run = 0;
+            }
+        }
+        return out.toByteArray();
+    }
+}
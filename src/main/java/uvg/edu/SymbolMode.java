@@ -0,0 +1,199 @@
+package uvg.edu;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Alphabets a Huffman tree can be built over.
+ * Each mode knows how to turn a byte stream into symbols and back, except {@link #WORD}, whose
+ * alphabet depends on the text and is handled by a {@link TokenAlphabet}.
+ * The ordinal of a mode is stored in compressed files, so new modes are only ever added at the end.
+ */
+enum SymbolMode {
+    CHARACTER(1 << 16) { // Characters of a text decoded with the platform charset
+        @Override
+        public SymbolReader openReader(InputStream in) {
+            Reader reader = new BufferedReader(new InputStreamReader(in, Charset.defaultCharset()),
+                    HuffmanCompressor.BUFFER_SIZE);
+            char[] chars = new char[HuffmanCompressor.BUFFER_SIZE];
+            return (symbols, offset, length) -> {
+                int read = reader.read(chars, 0, Math.min(length, chars.length));
+                for (int i = 0; i < read; i++) {
+                    symbols[offset + i] = chars[i];
+                }
+                return read;
+            };
+        }
+
+        @Override
+        public SymbolWriter openWriter(OutputStream out) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, Charset.defaultCharset()),
+                    HuffmanCompressor.BUFFER_SIZE);
+            return new SymbolWriter() {
+                @Override
+                public void write(int[] symbols, int offset, int length) throws IOException {
+                    for (int i = offset; i < offset + length; i++) {
+                        writer.write(symbols[i]);
+                    }
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    writer.flush();
+                }
+            };
+        }
+    },
+    BYTE(1 << 8) { // Raw byte values, for arbitrary binary files
+        @Override
+        public SymbolReader openReader(InputStream in) {
+            byte[] bytes = new byte[HuffmanCompressor.BUFFER_SIZE];
+            return (symbols, offset, length) -> {
+                int read = in.read(bytes, 0, Math.min(length, bytes.length));
+                for (int i = 0; i < read; i++) {
+                    symbols[offset + i] = bytes[i] & 0xFF;
+                }
+                return read;
+            };
+        }
+
+        @Override
+        public SymbolWriter openWriter(OutputStream out) {
+            byte[] bytes = new byte[HuffmanCompressor.BUFFER_SIZE];
+            return new SymbolWriter() {
+                @Override
+                public void write(int[] symbols, int offset, int length) throws IOException {
+                    while (length > 0) {
+                        int count = Math.min(length, bytes.length);
+                        for (int i = 0; i < count; i++) {
+                            bytes[i] = (byte) symbols[offset + i];
+                        }
+                        out.write(bytes, 0, count);
+                        offset += count;
+                        length -= count;
+                    }
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    out.flush();
+                }
+            };
+        }
+    },
+    CODE_POINT(Character.MAX_CODE_POINT + 1) { // Unicode code points of a UTF-8 text, supplementary ones whole
+        @Override
+        public SymbolReader openReader(InputStream in) {
+            Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+            char[] chars = new char[HuffmanCompressor.BUFFER_SIZE + 1];
+            return new SymbolReader() {
+                private int carried; // Chars left over from the last chunk, at most one
+
+                @Override
+                public int read(int[] symbols, int offset, int length) throws IOException {
+                    int read = reader.read(chars, carried, Math.min(length, HuffmanCompressor.BUFFER_SIZE));
+                    if (read == -1) {
+                        if (carried == 0) {
+                            return -1;
+                        }
+                        carried = 0;
+                        symbols[offset] = chars[0]; // Unpaired surrogate at the end of the text
+                        return 1;
+                    }
+
+                    int end = carried + read;
+                    int limit = Character.isHighSurrogate(chars[end - 1]) ? end - 1 : end; // Its pair may follow
+                    int count = 0;
+                    int i = 0;
+                    while (i < limit && count < length) {
+                        int codePoint = Character.codePointAt(chars, i, limit);
+                        symbols[offset + count++] = codePoint;
+                        i += Character.charCount(codePoint);
+                    }
+                    carried = end - i; // At most one char, since no more chars were read than symbols requested
+                    if (carried == 1) {
+                        chars[0] = chars[i];
+                    }
+                    return count;
+                }
+            };
+        }
+
+        @Override
+        public SymbolWriter openWriter(OutputStream out) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8),
+                    HuffmanCompressor.BUFFER_SIZE);
+            return new SymbolWriter() {
+                @Override
+                public void write(int[] symbols, int offset, int length) throws IOException {
+                    for (int i = offset; i < offset + length; i++) {
+                        int codePoint = symbols[i];
+                        if (Character.isBmpCodePoint(codePoint)) {
+                            writer.write(codePoint);
+                        } else {
+                            writer.write(Character.highSurrogate(codePoint));
+                            writer.write(Character.lowSurrogate(codePoint));
+                        }
+                    }
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    writer.flush();
+                }
+            };
+        }
+    },
+    WORD(TokenAlphabet.MAX_TOKENS) { // Words and other tokens of a UTF-8 text, numbered by a TokenAlphabet
+        @Override
+        public SymbolReader openReader(InputStream in) {
+            throw new UnsupportedOperationException("El modo de palabras necesita un alfabeto de tokens.");
+        }
+
+        @Override
+        public SymbolWriter openWriter(OutputStream out) {
+            throw new UnsupportedOperationException("El modo de palabras necesita un alfabeto de tokens.");
+        }
+    };
+
+    private final int alphabetSize; // Number of distinct symbols of the alphabet
+
+    SymbolMode(int alphabetSize) {
+        this.alphabetSize = alphabetSize;
+    }
+
+    /**
+     * Returns the number of distinct symbols of the alphabet.
+     *
+     * @return One more than the largest symbol value.
+     */
+    public int alphabetSize() {
+        return alphabetSize;
+    }
+
+    /**
+     * Opens a reader that turns the bytes of a stream into symbols of this alphabet.
+     *
+     * @param in The stream to read from.
+     * @return A reader of symbols.
+     */
+    public abstract SymbolReader openReader(InputStream in);
+
+    /**
+     * Opens a writer that turns symbols of this alphabet back into bytes.
+     * The writer must be flushed once all symbols have been written.
+     *
+     * @param out The stream to write to.
+     * @return A writer of symbols.
+     */
+    public abstract SymbolWriter openWriter(OutputStream out);
+}
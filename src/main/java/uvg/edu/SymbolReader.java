@@ -0,0 +1,20 @@
+package uvg.edu;
+
+import java.io.IOException;
+
+/**
+ * Source of symbols read from an input, as produced by {@link SymbolMode#openReader}.
+ */
+interface SymbolReader {
+
+    /**
+     * Reads up to {@code length} symbols into the given array.
+     *
+     * @param symbols The array that receives the symbols.
+     * @param offset  The index of the first symbol to store.
+     * @param length  The maximum number of symbols to read.
+     * @return The number of symbols read, or -1 at the end of the input.
+     * @throws IOException If an I/O error occurs while reading.
+     */
+    int read(int[] symbols, int offset, int length) throws IOException;
+}
@@ -0,0 +1,26 @@
+package uvg.edu;
+
+import java.io.IOException;
+
+/**
+ * Sink of decoded symbols, as produced by {@link SymbolMode#openWriter}.
+ */
+interface SymbolWriter {
+
+    /**
+     * Writes symbols to the output.
+     *
+     * @param symbols The array holding the symbols.
+     * @param offset  The index of the first symbol to write.
+     * @param length  The number of symbols to write.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    void write(int[] symbols, int offset, int length) throws IOException;
+
+    /**
+     * Writes any buffered output to the underlying stream.
+     *
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    void flush() throws IOException;
+}
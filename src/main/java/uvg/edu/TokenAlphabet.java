@@ -0,0 +1,309 @@
+package uvg.edu;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Alphabet of the words and other tokens of a text, for Huffman coding at the word level.
+ * A UTF-8 text is split into tokens: maximal runs of letters and digits, maximal runs of whitespace,
+ * and single other characters, none longer than {@value #MAX_TOKEN_LENGTH} code points, so the tokens
+ * put back together give the text again. The alphabet lists every distinct token in sorted order and
+ * the symbol of a token is its position in the list.
+ * <p>
+ * Files compressed with {@link SymbolMode#WORD} store the alphabet right after the header, with
+ * each token front-coded against the previous one:
+ * <pre>
+ *   count                          number of tokens (variable-length integer)
+ *   (shared, suffixLength, suffix)*  per token: UTF-8 bytes shared with the previous token, then the
+ *                                  length and bytes of the rest (variable-length integers and bytes)
+ * </pre>
+ */
+class TokenAlphabet {
+
+    static final int MAX_TOKENS = 1 << 22; // Most distinct tokens a text may have
+    static final int MAX_TOKEN_LENGTH = 64; // Longest token, in code points; longer runs are split
+
+    private final String[] tokens; // Token of each symbol, in sorted order
+    private final long[] frequencies; // Occurrences of each token, or null for an alphabet read from a file
+    private Map<String, Integer> symbols; // Symbol of each token, built on demand for encoding
+
+    /**
+     * Constructs an alphabet from its tokens.
+     */
+    private TokenAlphabet(String[] tokens, long[] frequencies) {
+        this.tokens = tokens;
+        this.frequencies = frequencies;
+    }
+
+    /**
+     * Builds the alphabet of a text and counts its tokens.
+     *
+     * @param in The stream supplying the UTF-8 text.
+     * @return The alphabet, with the frequency of every token.
+     * @throws IOException If an I/O error occurs or the text has more than {@value #MAX_TOKENS} distinct tokens.
+     */
+    public static TokenAlphabet build(InputStream in) throws IOException {
+        Map<String, long[]> counts = new HashMap<>();
+        Tokenizer tokenizer = new Tokenizer(in);
+        String token;
+        while ((token = tokenizer.next()) != null) {
+            long[] count = counts.get(token);
+            if (count == null) {
+                if (counts.size() == MAX_TOKENS) {
+                    throw new IOException("El texto tiene más de " + MAX_TOKENS + " tokens distintos.");
+                }
+                count = new long[1];
+                counts.put(token, count);
+            }
+            count[0]++;
+        }
+
+        String[] tokens = counts.keySet().toArray(new String[0]);
+        Arrays.sort(tokens);
+        long[] frequencies = new long[tokens.length];
+        for (int symbol = 0; symbol < tokens.length; symbol++) {
+            frequencies[symbol] = counts.get(tokens[symbol])[0];
+        }
+        return new TokenAlphabet(tokens, frequencies);
+    }
+
+    /**
+     * Returns the number of tokens.
+     *
+     * @return The size of the alphabet.
+     */
+    public int size() {
+        return tokens.length;
+    }
+
+    /**
+     * Returns the token of a symbol.
+     *
+     * @param symbol The symbol, between 0 and the size of the alphabet minus one.
+     * @return The token.
+     */
+    public String getToken(int symbol) {
+        return tokens[symbol];
+    }
+
+    /**
+     * Returns how many times each token occurs in the text the alphabet was built from.
+     *
+     * @return The frequency of each symbol, or null for an alphabet read from a file.
+     */
+    public long[] getFrequencies() {
+        return frequencies;
+    }
+
+    /**
+     * Opens a reader that splits a UTF-8 text into tokens and returns their symbols.
+     *
+     * @param in The stream supplying the text, which may only contain tokens of this alphabet.
+     * @return A reader of symbols.
+     */
+    public SymbolReader openReader(InputStream in) {
+        if (symbols == null) {
+            symbols = new HashMap<>(tokens.length * 2);
+            for (int symbol = 0; symbol < tokens.length; symbol++) {
+                symbols.put(tokens[symbol], symbol);
+            }
+        }
+        Tokenizer tokenizer = new Tokenizer(in);
+        return (buffer, offset, length) -> {
+            int count = 0;
+            String token;
+            while (count < length && (token = tokenizer.next()) != null) {
+                Integer symbol = symbols.get(token);
+                if (symbol == null) {
+                    throw new IOException("Token fuera del alfabeto: " + token);
+                }
+                buffer[offset + count++] = symbol;
+            }
+            return count == 0 ? -1 : count;
+        };
+    }
+
+    /**
+     * Opens a writer that turns symbols back into their tokens, written as UTF-8.
+     * The writer must be flushed once all symbols have been written.
+     *
+     * @param out The stream to write to.
+     * @return A writer of symbols.
+     */
+    public SymbolWriter openWriter(OutputStream out) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8),
+                HuffmanCompressor.BUFFER_SIZE);
+        return new SymbolWriter() {
+            @Override
+            public void write(int[] symbols, int offset, int length) throws IOException {
+                for (int i = offset; i < offset + length; i++) {
+                    writer.write(tokens[symbols[i]]);
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                writer.flush();
+            }
+        };
+    }
+
+    /**
+     * Writes the tokens of the alphabet.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public void write(OutputStream out) throws IOException {
+        HuffmanHeader.writeVarLong(out, tokens.length);
+        byte[] previous = new byte[0];
+        for (String token : tokens) {
+            byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+            int shared = 0;
+            int limit = Math.min(previous.length, bytes.length);
+            while (shared < limit && previous[shared] == bytes[shared]) {
+                shared++;
+            }
+            HuffmanHeader.writeVarLong(out, shared);
+            HuffmanHeader.writeVarLong(out, bytes.length - shared);
+            out.write(bytes, shared, bytes.length - shared);
+            previous = bytes;
+        }
+    }
+
+    /**
+     * Reads an alphabet written by {@link #write(OutputStream)}.
+     *
+     * @param in The stream to read from.
+     * @return The alphabet read, without frequencies.
+     * @throws IOException If an I/O error occurs or the data is not a valid alphabet.
+     */
+    public static TokenAlphabet read(InputStream in) throws IOException {
+        long count = HuffmanHeader.readVarLong(in);
+        if (count > MAX_TOKENS) {
+            throw new IOException("Alfabeto de tokens inválido.");
+        }
+
+        String[] tokens = new String[(int) count];
+        byte[] previous = new byte[0];
+        for (int i = 0; i < tokens.length; i++) {
+            long shared = HuffmanHeader.readVarLong(in);
+            long suffix = HuffmanHeader.readVarLong(in);
+            if (shared > previous.length || shared + suffix > 4 * MAX_TOKEN_LENGTH) {
+                throw new IOException("Alfabeto de tokens inválido.");
+            }
+            byte[] bytes = Arrays.copyOf(previous, (int) (shared + suffix));
+            for (int j = (int) shared; j < bytes.length; j++) {
+                int b = in.read();
+                if (b == -1) {
+                    throw new IOException("Alfabeto de tokens incompleto.");
+                }
+                bytes[j] = (byte) b;
+            }
+            tokens[i] = new String(bytes, StandardCharsets.UTF_8);
+            previous = bytes;
+        }
+        return new TokenAlphabet(tokens, null);
+    }
+
+    /**
+     * Splits a UTF-8 text into tokens.
+     */
+    private static final class Tokenizer {
+        private static final int OTHER = 0; // Characters that make up a token on their own
+        private static final int WORD = 1; // Letters and digits
+        private static final int SPACE = 2; // Whitespace
+
+        private final Reader reader; // The text
+        private final char[] buffer = new char[HuffmanCompressor.BUFFER_SIZE]; // Chars read but not consumed
+        private final StringBuilder token = new StringBuilder(); // The token being collected
+        private int position; // Next char of the buffer
+        private int limit; // End of the chars in the buffer
+        private int next = -2; // Next code point, -1 at the end of the text, -2 if not read yet
+
+        Tokenizer(InputStream in) {
+            this.reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Returns the next token.
+         *
+         * @return The token, or null at the end of the text.
+         */
+        String next() throws IOException {
+            int codePoint = peek();
+            if (codePoint == -1) {
+                return null;
+            }
+
+            token.setLength(0);
+            int kind = kind(codePoint);
+            int length = 0;
+            do {
+                token.appendCodePoint(codePoint);
+                length++;
+                next = -2;
+                codePoint = peek();
+            } while (kind != OTHER && codePoint != -1 && kind(codePoint) == kind && length < MAX_TOKEN_LENGTH);
+            return token.toString();
+        }
+
+        /**
+         * Returns the next code point without consuming it.
+         */
+        private int peek() throws IOException {
+            if (next == -2) {
+                next = readChar();
+                if (next != -1 && Character.isHighSurrogate((char) next) && fill()
+                        && Character.isLowSurrogate(buffer[position])) {
+                    next = Character.toCodePoint((char) next, buffer[position++]);
+                }
+            }
+            return next;
+        }
+
+        /**
+         * Reads the next char.
+         */
+        private int readChar() throws IOException {
+            return fill() ? buffer[position++] : -1;
+        }
+
+        /**
+         * Makes sure the buffer has chars left, reading more if needed.
+         *
+         * @return False at the end of the text.
+         */
+        private boolean fill() throws IOException {
+            if (position == limit) {
+                int read = reader.read(buffer);
+                if (read <= 0) {
+                    return false;
+                }
+                position = 0;
+                limit = read;
+            }
+            return true;
+        }
+
+        /**
+         * Returns the kind of token a code point belongs to.
+         */
+        private static int kind(int codePoint) {
+            if (Character.isLetterOrDigit(codePoint)) {
+                return WORD;
+            }
+            return Character.isWhitespace(codePoint) ? SPACE : OTHER;
+        }
+    }
+}
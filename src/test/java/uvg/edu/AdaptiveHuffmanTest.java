@@ -0,0 +1,79 @@
+package uvg.edu;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+public class AdaptiveHuffmanTest {
+
+    private static byte[] compress(byte[] data) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (AdaptiveHuffmanOutputStream out = new AdaptiveHuffmanOutputStream(compressed)) {
+            out.write(data);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] compressed) throws IOException {
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        try (InputStream in = new AdaptiveHuffmanInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] buffer = new byte[1000];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                decompressed.write(buffer, 0, read);
+            }
+        }
+        return decompressed.toByteArray();
+    }
+
+    @Test
+    public void testRoundTripCloseToStaticHuffman() throws IOException {
+        byte[] data = new byte[200000];
+        Random random = new Random(21);
+        for (int i = 0; i < data.length; i++) {
+            // Distribución sesgada que cambia a mitad del flujo
+            int spread = i < data.length / 2 ? 8 : 40;
+            data[i] = (byte) (Math.abs(random.nextGaussian()) * spread);
+        }
+
+        byte[] compressed = compress(data);
+        assertArrayEquals(data, decompress(compressed));
+
+        HuffmanTree tree = new HuffmanTree();
+        tree.buildTree(new HuffmanCompressor().calculateByteFrequencies(new ByteArrayInputStream(data)),
+                SymbolMode.BYTE);
+        assertTrue(compressed.length * 8L < tree.getEncodedBits() * 1.05);
+    }
+
+    @Test
+    public void testEveryByteValueAndEmptyInput() throws IOException {
+        byte[] data = new byte[256 * 3 + 1];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 7);
+        }
+        assertArrayEquals(data, decompress(compress(data)));
+        assertArrayEquals(new byte[0], decompress(compress(new byte[0])));
+        assertArrayEquals(new byte[]{42}, decompress(compress(new byte[]{42})));
+    }
+
+    @Test
+    public void testFlushWritesCompleteBytes() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        AdaptiveHuffmanOutputStream out = new AdaptiveHuffmanOutputStream(compressed);
+        byte[] data = "registro de prueba\n".getBytes();
+        out.write(data);
+        out.flush();
+
+        // Lo escrito hasta ahora se puede leer antes de cerrar el flujo, salvo los últimos bits pendientes
+        InputStream in = new AdaptiveHuffmanInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+        for (int i = 0; i < data.length - 1; i++) {
+            assertEquals(data[i], (byte) in.read());
+        }
+        out.close();
+    }
+}
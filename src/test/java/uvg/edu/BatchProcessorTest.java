@@ -0,0 +1,110 @@
+package uvg.edu;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class BatchProcessorTest {
+
+    private static void deleteTree(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void testBatchRoundTripWithinSmallBudget() throws IOException {
+        Path root = Files.createTempDirectory("lote");
+        try {
+            Path source = root.resolve("entrada");
+            Files.createDirectories(source.resolve("sub"));
+            Random random = new Random(14);
+            for (int i = 0; i < 40; i++) {
+                byte[] data = new byte[random.nextInt(20000)];
+                for (int j = 0; j < data.length; j++) {
+                    data[j] = (byte) ('a' + random.nextInt(1 + i % 26));
+                }
+                Files.write(source.resolve(i % 2 == 0 ? "archivo" + i : "sub/archivo" + i), data);
+            }
+
+            // El presupuesto es menor que la suma de los archivos, así que las tareas esperan su turno
+            BatchProcessor processor = new BatchProcessor(64 * 1024);
+            List<Path> files = BatchProcessor.listFiles(source);
+            BatchProcessor.Report compressed = processor.compress(files, source, root.resolve("comprimidos"));
+            assertTrue(compressed.getFailures().isEmpty());
+            assertEquals(40, compressed.getFiles());
+            assertTrue(compressed.getOutputBytes() < compressed.getInputBytes());
+
+            Path compressedDirectory = root.resolve("comprimidos");
+            BatchProcessor.Report restored = processor.decompress(BatchProcessor.listFiles(compressedDirectory),
+                    compressedDirectory, root.resolve("restaurados"));
+            assertTrue(restored.getFailures().isEmpty());
+            for (Path file : files) {
+                Path copy = root.resolve("restaurados").resolve(source.relativize(file));
+                assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(copy));
+            }
+        } finally {
+            deleteTree(root);
+        }
+    }
+
+    @Test
+    public void testListedFilesWithSameNameDoNotCollide() throws IOException {
+        Path root = Files.createTempDirectory("lote");
+        try {
+            Path first = Files.write(Files.createDirectories(root.resolve("a")).resolve("app.log"),
+                    "primer registro\n".getBytes(StandardCharsets.UTF_8));
+            Path second = Files.write(Files.createDirectories(root.resolve("b")).resolve("app.log"),
+                    "segundo registro, distinto\n".getBytes(StandardCharsets.UTF_8));
+            Path list = Files.write(root.resolve("lista.txt"),
+                    Arrays.asList(first.toString(), second.toString()), StandardCharsets.UTF_8);
+
+            // Cada archivo conserva su carpeta relativa al directorio común
+            Path output = root.resolve("comprimidos");
+            BatchProcessor.Report report = new BatchProcessor().compress(BatchProcessor.listFiles(list), null, output);
+            assertTrue(report.getFailures().isEmpty());
+            assertEquals(2, report.getFiles());
+            assertTrue(Files.exists(output.resolve("a/app.log.huff")));
+            assertTrue(Files.exists(output.resolve("b/app.log.huff")));
+
+            Path restored = root.resolve("restaurados");
+            report = new BatchProcessor().decompress(BatchProcessor.listFiles(output), output, restored);
+            assertTrue(report.getFailures().isEmpty());
+            assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(restored.resolve("a/app.log")));
+            assertArrayEquals(Files.readAllBytes(second), Files.readAllBytes(restored.resolve("b/app.log")));
+
+            // Si dos archivos van a la misma salida, el segundo falla en lugar de sobrescribir al primero
+            report = new BatchProcessor().compress(Arrays.asList(first, second), root.resolve("otra"),
+                    root.resolve("planos"));
+            assertEquals(1, report.getFiles());
+            assertEquals(1, report.getFailures().size());
+            assertTrue(report.getFailures().get(0).startsWith(second.toString()));
+        } finally {
+            deleteTree(root);
+        }
+    }
+
+    @Test
+    public void testFailuresAreReportedPerFile() throws IOException {
+        Path root = Files.createTempDirectory("lote");
+        try {
+            Path bad = Files.write(root.resolve("malo.huff"), new byte[]{1, 2, 3});
+            BatchProcessor.Report report = new BatchProcessor().decompress(List.of(bad), root, root.resolve("salida"));
+            assertEquals(0, report.getFiles());
+            assertEquals(1, report.getFailures().size());
+        } finally {
+            deleteTree(root);
+        }
+    }
+}
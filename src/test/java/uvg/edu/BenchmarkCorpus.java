@@ -0,0 +1,85 @@
+package uvg.edu;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generated inputs of different entropy used by the JMH benchmarks.
+ * The data is deterministic for a given size, so results are comparable between runs.
+ * Public because the code JMH generates for the parameters lives in another package.
+ */
+public enum BenchmarkCorpus {
+    ENGLISH { // Zipf-distributed English words
+        @Override
+        byte[] generate(int size, Random random) {
+            StringBuilder text = new StringBuilder(size + 32);
+            while (text.length() < size) {
+                int index = (int) (WORDS.length * Math.pow(random.nextDouble(), 2.5));
+                text.append(WORDS[index]).append(random.nextInt(12) == 0 ? '\n' : ' ');
+            }
+            return Arrays.copyOf(text.toString().getBytes(StandardCharsets.ISO_8859_1), size);
+        }
+    },
+    LOG { // Structured application log lines
+        @Override
+        byte[] generate(int size, Random random) {
+            StringBuilder text = new StringBuilder(size + 128);
+            long millis = 1745971200000L;
+            while (text.length() < size) {
+                millis += random.nextInt(250);
+                text.append(String.format("2025-04-30 %02d:%02d:%02d.%03d %s [worker-%d] request %d served in %d ms%n",
+                        millis / 3600000 % 24, millis / 60000 % 60, millis / 1000 % 60, millis % 1000,
+                        LEVELS[random.nextInt(20) == 0 ? 1 + random.nextInt(2) : 0],
+                        random.nextInt(16), random.nextInt(1000000), random.nextInt(500)));
+            }
+            return Arrays.copyOf(text.toString().getBytes(StandardCharsets.ISO_8859_1), size);
+        }
+    },
+    RANDOM { // Uniformly random bytes, which do not compress
+        @Override
+        byte[] generate(int size, Random random) {
+            byte[] data = new byte[size];
+            random.nextBytes(data);
+            return data;
+        }
+    },
+    SINGLE_SYMBOL { // One repeated byte
+        @Override
+        byte[] generate(int size, Random random) {
+            byte[] data = new byte[size];
+            Arrays.fill(data, (byte) 'a');
+            return data;
+        }
+    };
+
+    private static final String[] WORDS = {
+            "the", "of", "and", "to", "in", "is", "that", "for", "it", "as", "was", "with", "be", "by",
+            "on", "not", "he", "this", "are", "or", "his", "from", "at", "which", "but", "have", "an",
+            "had", "they", "you", "were", "their", "one", "all", "we", "can", "her", "has", "there",
+            "compression", "Huffman", "symbol", "table", "decoder", "frequency", "Guatemala", "tree"
+    };
+    private static final String[] LEVELS = {"INFO", "WARN", "ERROR"};
+
+    /**
+     * Generates the corpus.
+     *
+     * @param size The number of bytes to generate.
+     * @return The generated bytes.
+     */
+    byte[] generate(int size) {
+        return generate(size, new Random(42));
+    }
+
+    abstract byte[] generate(int size, Random random);
+
+    /**
+     * Returns the corpus as text, one character per byte.
+     *
+     * @param data Bytes returned by {@link #generate(int)}.
+     * @return The same data as a string.
+     */
+    static String asText(byte[] data) {
+        return new String(data, StandardCharsets.ISO_8859_1);
+    }
+}
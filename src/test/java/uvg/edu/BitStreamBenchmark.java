@@ -0,0 +1,105 @@
+package uvg.edu;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for the raw throughput of {@link BitOutputStream} and {@link BitInputStream}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitStreamBenchmark {
+
+    @Param({"4194304"})
+    public int size;
+
+    private byte[] data; // Random bytes to read bits from
+    private long[] codes; // Random code values to write
+    private int[] lengths; // Length of each code, between 1 and 16 bits
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        data = new byte[size];
+        random.nextBytes(data);
+
+        // Codes of 1 to 16 bits, as many as needed to write size bytes
+        codes = new long[size * 8];
+        lengths = new int[codes.length];
+        long bits = 0;
+        int count = 0;
+        while (bits < size * 8L) {
+            lengths[count] = 1 + random.nextInt(16);
+            codes[count] = random.nextInt(1 << lengths[count]);
+            bits += lengths[count++];
+        }
+        codes = Arrays.copyOf(codes, count);
+        lengths = Arrays.copyOf(lengths, count);
+    }
+
+    @Benchmark
+    public void writeBit() throws IOException {
+        try (BitOutputStream out = new BitOutputStream(OutputStream.nullOutputStream())) {
+            for (byte b : data) {
+                for (int i = 7; i >= 0; i--) {
+                    out.writeBit(((b >> i) & 1) == 1);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void writeBits() throws IOException {
+        try (BitOutputStream out = new BitOutputStream(OutputStream.nullOutputStream())) {
+            for (int i = 0; i < codes.length; i++) {
+                out.writeBits(codes[i], lengths[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public int readBit() throws IOException {
+        int ones = 0;
+        try (BitInputStream in = new BitInputStream(new ByteArrayInputStream(data))) {
+            for (long i = 0; i < size * 8L; i++) {
+                if (in.readBit()) {
+                    ones++;
+                }
+            }
+        }
+        return ones;
+    }
+
+    @Benchmark
+    public long peekAndSkipBits() throws IOException {
+        long sum = 0;
+        try (BitInputStream in = new BitInputStream(new ByteArrayInputStream(data))) {
+            for (int i = 0; i < lengths.length; i++) {
+                in.fill();
+                sum += in.peekBits(lengths[i]);
+                in.skipBits(lengths[i]);
+            }
+        }
+        return sum;
+    }
+}
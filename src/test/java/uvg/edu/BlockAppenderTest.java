@@ -0,0 +1,313 @@
+package uvg.edu;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class BlockAppenderTest {
+
+    private static byte[] sampleData(int length, long seed) {
+        byte[] data = new byte[length];
+        Random random = new Random(seed);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + Math.min(random.nextInt(26), random.nextInt(26)));
+        }
+        return data;
+    }
+
+    private static byte[] decompress(Path file) throws IOException {
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        new BlockDecompressor().decompress(file.toString(), decompressed);
+        return decompressed.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            bytes.write(part, 0, part.length);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int blockCount(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            List<long[]> index = new ArrayList<>();
+            BlockDecompressor.readIndex(channel, index);
+            return index.size();
+        }
+    }
+
+    @Test
+    public void testAppendKeepsExistingBlocks() throws IOException {
+        File file = File.createTempFile("anexar", ".huff");
+        try {
+            byte[] first = sampleData(10000, 1);
+            try (OutputStream out = Files.newOutputStream(file.toPath())) {
+                new BlockCompressor(ForkJoinPool.commonPool(), BlockOptions.DEFAULT.withBlockSize(4096))
+                        .compress(new ByteArrayInputStream(first), SymbolMode.BYTE, out);
+            }
+            byte[] before = Files.readAllBytes(file.toPath());
+            assertEquals(3, blockCount(file.toPath()));
+
+            byte[] second = sampleData(5000, 2);
+            byte[] third = new byte[3000]; // Otra distribución, con su propio código
+            new Random(3).nextBytes(third);
+            BlockAppender appender = new BlockAppender();
+            assertEquals(second.length, appender.append(file.toPath(), new ByteArrayInputStream(second)));
+            assertEquals(third.length, appender.append(file.toPath(), new ByteArrayInputStream(third)));
+            assertEquals(0, appender.append(file.toPath(), new ByteArrayInputStream(new byte[0])));
+
+            // Nada de lo que había se sobrescribe: el archivo viejo, índice incluido, sigue al principio
+            byte[] after = Files.readAllBytes(file.toPath());
+            assertArrayEquals(before, Arrays.copyOf(after, before.length));
+            assertEquals(3 + 2 + 1, blockCount(file.toPath()));
+            assertArrayEquals(concat(first, second, third), decompress(file.toPath()));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testAppendKeepsRecordedOptions() throws IOException {
+        File file = File.createTempFile("anexar", ".huff");
+        try {
+            BlockOptions options = BlockOptions.DEFAULT.withBlockSize(4096).withInterleaved(true)
+                    .withTransforms(new MoveToFrontTransform(), new RunLengthTransform());
+            byte[] first = sampleData(10000, 7);
+            try (OutputStream out = Files.newOutputStream(file.toPath())) {
+                new BlockCompressor(ForkJoinPool.commonPool(), options)
+                        .compress(new ByteArrayInputStream(first), SymbolMode.BYTE, out);
+            }
+            byte[] second = sampleData(9000, 8);
+            new BlockAppender().append(file.toPath(), new ByteArrayInputStream(second));
+
+            // El encabezado guarda las opciones, y los bloques nuevos se codifican igual que los viejos
+            try (FileChannel channel = FileChannel.open(file.toPath())) {
+                BlockOptions recorded = BlockDecompressor.readOptions(BlockDecompressor.openHeader(channel));
+                assertEquals(4096, recorded.getBlockSize());
+                assertTrue(recorded.isInterleaved());
+                assertEquals(2, recorded.getTransforms().length);
+
+                List<long[]> index = new ArrayList<>();
+                long end = BlockDecompressor.readIndex(channel, index);
+                assertEquals(3 + 3, index.size());
+                for (int i = 0; i < index.size(); i++) {
+                    long next = i + 1 < index.size() ? index.get(i + 1)[0] : end;
+                    byte[] bytes = BlockDecompressor.readFully(channel, index.get(i)[0],
+                            (int) (next - index.get(i)[0]));
+                    assertTrue(HuffmanBlock.read(new ByteArrayInputStream(bytes), SymbolMode.BYTE, 4096)
+                            .isTransformed());
+                }
+            }
+            assertArrayEquals(concat(first, second), decompress(file.toPath()));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testSingleHeaderFileIsConverted() throws IOException {
+        File input = File.createTempFile("anexar", ".txt");
+        File output = File.createTempFile("anexar", "");
+        Path archive = new File(output.getPath() + ".huff").toPath();
+        try {
+            byte[] first = sampleData(20000, 4);
+            Files.write(input.toPath(), first);
+            HuffmanCoding.compressBytes(input.getPath(), output.getPath());
+            assertFalse(BlockDecompressor.isBlockFile(archive.toString()));
+
+            byte[] second = sampleData(7000, 5);
+            new BlockAppender().append(archive, new ByteArrayInputStream(second));
+            assertTrue(BlockDecompressor.isBlockFile(archive.toString()));
+            assertArrayEquals(concat(first, second), decompress(archive));
+        } finally {
+            input.delete();
+            output.delete();
+            Files.deleteIfExists(archive);
+        }
+    }
+
+    @Test
+    public void testConvertedFileIsSplitIntoBlocks() throws IOException {
+        File input = File.createTempFile("anexar", ".txt");
+        File output = File.createTempFile("anexar", "");
+        Path archive = new File(output.getPath() + ".huff").toPath();
+        try {
+            // Los datos codificados se reparten en bloques del tamaño indicado sin volver a codificarlos
+            byte[] first = sampleData(20000, 12);
+            Files.write(input.toPath(), first);
+            HuffmanCoding.compressBytes(input.getPath(), output.getPath());
+            byte[] second = sampleData(5000, 13);
+            new BlockAppender().append(archive, new ByteArrayInputStream(second),
+                    BlockOptions.DEFAULT.withBlockSize(4096), new CompressionMetrics(CompressionMetrics.COMPRESS, null));
+            assertEquals(5 + 2, blockCount(archive));
+            try (FileChannel channel = FileChannel.open(archive)) {
+                assertEquals(4096, BlockDecompressor.readOptions(BlockDecompressor.openHeader(channel)).getBlockSize());
+            }
+            assertArrayEquals(concat(first, second), decompress(archive));
+
+            // Un archivo con un solo símbolo distinto también se reparte
+            byte[] same = new byte[9000];
+            Arrays.fill(same, (byte) 'z');
+            Files.write(input.toPath(), same);
+            HuffmanCoding.compressBytes(input.getPath(), output.getPath());
+            new BlockAppender().append(archive, new ByteArrayInputStream(new byte[0]),
+                    BlockOptions.DEFAULT.withBlockSize(4096), new CompressionMetrics(CompressionMetrics.COMPRESS, null));
+            assertEquals(3, blockCount(archive));
+            assertArrayEquals(same, decompress(archive));
+        } finally {
+            input.delete();
+            output.delete();
+            Files.deleteIfExists(archive);
+        }
+    }
+
+    @Test
+    public void testFailedAppendRestoresFile() throws IOException {
+        File file = File.createTempFile("anexar", ".huff");
+        try {
+            byte[] first = sampleData(10000, 6);
+            try (OutputStream out = Files.newOutputStream(file.toPath())) {
+                new BlockCompressor(ForkJoinPool.commonPool(), BlockOptions.DEFAULT.withBlockSize(4096))
+                        .compress(new ByteArrayInputStream(first), SymbolMode.BYTE, out);
+            }
+            byte[] before = Files.readAllBytes(file.toPath());
+
+            // La entrada falla después de que ya se escribieron bloques nuevos
+            InputStream failing = new InputStream() {
+                private int remaining = 20000;
+
+                @Override
+                public int read() throws IOException {
+                    throw new IOException("Disco no disponible");
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (remaining <= 0) {
+                        throw new IOException("Disco no disponible");
+                    }
+                    int n = Math.min(len, remaining);
+                    Arrays.fill(b, off, off + n, (byte) 'x');
+                    remaining -= n;
+                    return n;
+                }
+            };
+            try {
+                new BlockAppender().append(file.toPath(), failing);
+                fail("Se esperaba el error de lectura");
+            } catch (IOException e) {
+                assertEquals("Disco no disponible", e.getMessage());
+            }
+            assertArrayEquals(before, Files.readAllBytes(file.toPath()));
+            assertArrayEquals(first, decompress(file.toPath()));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testTornAppendIsRecovered() throws IOException {
+        File file = File.createTempFile("anexar", ".huff");
+        try {
+            byte[] first = sampleData(10000, 9);
+            try (OutputStream out = Files.newOutputStream(file.toPath())) {
+                new BlockCompressor(ForkJoinPool.commonPool(), BlockOptions.DEFAULT.withBlockSize(4096))
+                        .compress(new ByteArrayInputStream(first), SymbolMode.BYTE, out);
+            }
+            byte[] before = Files.readAllBytes(file.toPath());
+            new BlockAppender().append(file.toPath(), new ByteArrayInputStream(sampleData(9000, 10)));
+            byte[] after = Files.readAllBytes(file.toPath());
+
+            // Un corte en cualquier punto del anexo, incluso dentro del nuevo tráiler, no se lee en silencio,
+            // y el siguiente anexo lo recorta hasta el archivo anterior
+            byte[] third = sampleData(3000, 11);
+            int[] cuts = {before.length + 1, (before.length + after.length) / 2,
+                    after.length - BlockCompressor.TRAILER_SIZE - 1, after.length - 5, after.length - 1};
+            for (int cut : cuts) {
+                Files.write(file.toPath(), Arrays.copyOf(after, cut));
+                try {
+                    decompress(file.toPath());
+                    fail("Se esperaba un índice dañado");
+                } catch (IOException e) {
+                    // Esperado
+                }
+
+                new BlockAppender().append(file.toPath(), new ByteArrayInputStream(third));
+                assertArrayEquals(before, Arrays.copyOf(Files.readAllBytes(file.toPath()), before.length));
+                assertArrayEquals(concat(first, third), decompress(file.toPath()));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testDamagedTrailerIsNotCutOff() throws IOException {
+        File file = File.createTempFile("anexar", ".huff");
+        try {
+            byte[] first = sampleData(10000, 14);
+            try (OutputStream out = Files.newOutputStream(file.toPath())) {
+                new BlockCompressor(ForkJoinPool.commonPool(), BlockOptions.DEFAULT.withBlockSize(4096))
+                        .compress(new ByteArrayInputStream(first), SymbolMode.BYTE, out);
+            }
+            new BlockAppender().append(file.toPath(), new ByteArrayInputStream(sampleData(9000, 15)));
+            byte[] after = Files.readAllBytes(file.toPath());
+
+            // Un tráiler completo que se dañó después del anexo no es una cola rota: no se lee ni se recorta
+            for (int damaged : new int[] {after.length - 1, after.length - 2, after.length - 12}) {
+                byte[] corrupt = after.clone();
+                corrupt[damaged] ^= 0x5A;
+                Files.write(file.toPath(), corrupt);
+                try {
+                    decompress(file.toPath());
+                    fail("Se esperaba un tráiler dañado");
+                } catch (IOException e) {
+                    // Esperado
+                }
+                try {
+                    new BlockAppender().append(file.toPath(), new ByteArrayInputStream(sampleData(3000, 16)));
+                    fail("Se esperaba que el anexo se rechazara");
+                } catch (IOException e) {
+                    // Esperado
+                }
+                assertArrayEquals(corrupt, Files.readAllBytes(file.toPath()));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testRejectsOtherFormats() throws IOException {
+        File file = File.createTempFile("anexar", ".huff");
+        try {
+            byte[] data = "no es un archivo comprimido".getBytes("UTF-8");
+            Files.write(file.toPath(), data);
+            try {
+                new BlockAppender().append(file.toPath(), new ByteArrayInputStream(new byte[10]));
+                fail("Se esperaba un formato no admitido");
+            } catch (IOException e) {
+                // Esperado
+            }
+            assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+            assertFalse(new File(file.getPath() + ".tmp").exists());
+        } finally {
+            file.delete();
+        }
+    }
+}
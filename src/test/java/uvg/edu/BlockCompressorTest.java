@@ -0,0 +1,252 @@
+package uvg.edu;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class BlockCompressorTest {
+
+    private static byte[] roundTrip(byte[] data, int blockSize) throws IOException {
+        return roundTrip(data, blockSize, false);
+    }
+
+    private static byte[] roundTrip(byte[] data, int blockSize, boolean interleaved) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        File file = File.createTempFile("blocks", ".huff");
+        try {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            long symbols = new BlockCompressor(pool,
+                    BlockOptions.DEFAULT.withBlockSize(blockSize).withInterleaved(interleaved))
+                    .compress(new ByteArrayInputStream(data), SymbolMode.BYTE, compressed);
+            assertEquals(data.length, symbols);
+            Files.write(file.toPath(), compressed.toByteArray());
+
+            assertTrue(BlockDecompressor.isBlockFile(file.getPath()));
+            ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+            new BlockDecompressor(pool).decompress(file.getPath(), decompressed);
+            return decompressed.toByteArray();
+        } finally {
+            pool.shutdown();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testRoundTripAcrossManyBlocks() throws IOException {
+        byte[] data = new byte[50000];
+        Random random = new Random(11);
+        for (int i = 0; i < data.length; i++) {
+            // Cada tramo tiene una distribución distinta, y por lo tanto un código distinto
+            data[i] = (byte) (i / 5000 * 10 + random.nextInt(1 + i / 5000));
+        }
+
+        assertArrayEquals(data, roundTrip(data, 4096));
+    }
+
+    @Test
+    public void testEmptyInput() throws IOException {
+        assertArrayEquals(new byte[0], roundTrip(new byte[0], 4096));
+    }
+
+    @Test
+    public void testInterleavedRoundTrip() throws IOException {
+        byte[] data = new byte[50003];
+        Random random = new Random(12);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (random.nextInt(3) == 0 ? random.nextInt(256) : 'a' + random.nextInt(6));
+        }
+
+        // 4099 no es múltiplo de cuatro, y el último bloque tiene solo unos pocos símbolos
+        assertArrayEquals(data, roundTrip(data, 4099, true));
+        assertArrayEquals(new byte[]{7, 7, 8}, roundTrip(new byte[]{7, 7, 8}, 4099, true));
+    }
+
+    @Test
+    public void testInterleavedBlockMatchesSingleStream() throws IOException {
+        int[] symbols = new int[1001];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = (i * i) % 17;
+        }
+        HuffmanBlock single = HuffmanBlock.encode(symbols, symbols.length, SymbolMode.BYTE, BlockOptions.DEFAULT);
+        HuffmanBlock interleaved = HuffmanBlock.encode(symbols, symbols.length, SymbolMode.BYTE,
+                BlockOptions.DEFAULT.withInterleaved(true));
+        assertFalse(single.isInterleaved());
+        assertTrue(interleaved.isInterleaved());
+        assertEquals(single.getEncodedBits(), interleaved.getEncodedBits());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        interleaved.write(bytes);
+        HuffmanBlock read = HuffmanBlock.read(new ByteArrayInputStream(bytes.toByteArray()), SymbolMode.BYTE, symbols.length);
+        assertTrue(read.isInterleaved());
+        int[] decoded = new int[symbols.length];
+        read.decode(decoded);
+        assertArrayEquals(symbols, decoded);
+    }
+
+    @Test
+    public void testIncompressibleBlocksAreStored() throws IOException {
+        byte[] data = new byte[40000];
+        Random random = new Random(21);
+        random.nextBytes(data);
+        for (int i = data.length / 2; i < data.length; i++) {
+            data[i] = (byte) ('a' + Math.min(random.nextInt(8), random.nextInt(8))); // Segunda mitad comprimible
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        BlockCompressor compressor = new BlockCompressor(ForkJoinPool.commonPool(),
+                BlockOptions.DEFAULT.withBlockSize(4000));
+        compressor.compress(new ByteArrayInputStream(data), SymbolMode.BYTE, compressed);
+        assertEquals(5, compressor.getStoredBlocks());
+        assertArrayEquals(data, roundTrip(data, 4000));
+
+        // Con un ahorro mínimo del 90 % ningún bloque vale la pena codificarlo
+        compressor = new BlockCompressor(ForkJoinPool.commonPool(),
+                BlockOptions.DEFAULT.withBlockSize(4000).withMinSavings(0.9));
+        compressed.reset();
+        compressor.compress(new ByteArrayInputStream(data), SymbolMode.BYTE, compressed);
+        assertEquals(10, compressor.getStoredBlocks());
+        assertTrue(compressed.size() < data.length + 200);
+
+        HuffmanBlock stored = HuffmanBlock.encode(new int[] {1, 2, 3}, 3, SymbolMode.BYTE,
+                BlockOptions.DEFAULT.withMinSavings(0.5));
+        assertTrue(stored.isStored());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        stored.write(bytes);
+        int[] decoded = new int[3];
+        HuffmanBlock.read(new ByteArrayInputStream(bytes.toByteArray()), SymbolMode.BYTE, 3).decode(decoded);
+        assertArrayEquals(new int[] {1, 2, 3}, decoded);
+    }
+
+    @Test
+    public void testOptionsAreImmutableAndChecked() throws IOException {
+        // Cada cambio devuelve una copia; las opciones por defecto no cambian
+        BlockOptions options = BlockOptions.DEFAULT.withBlockSize(4096).withMaxCodeLength(12)
+                .withContextTables(4).withTransforms(new RunLengthTransform());
+        assertEquals(BlockCompressor.DEFAULT_BLOCK_SIZE, BlockOptions.DEFAULT.getBlockSize());
+        assertFalse(BlockOptions.DEFAULT.hasTransforms());
+        assertEquals(4096, options.getBlockSize());
+        assertEquals(12, options.getMaxCodeLength());
+        assertEquals(4, options.getContextTables());
+        options.getTransforms()[0] = null; // Modificar la copia no afecta a las opciones
+        assertNotNull(options.getTransforms()[0]);
+
+        Runnable[] invalid = {
+                () -> options.withBlockSize(0), () -> options.withMaxCodeLength(64),
+                () -> options.withMinSavings(1), () -> options.withContextTables(ContextModel.CONTEXTS + 1)
+        };
+        for (Runnable setting : invalid) {
+            try {
+                setting.run();
+                fail("Se esperaba un valor inválido");
+            } catch (IllegalArgumentException e) {
+                // Esperado
+            }
+        }
+        try {
+            HuffmanBlock.encode(new int[] {1}, 1, SymbolMode.CHARACTER, options);
+            fail("Se esperaba que las transformaciones rechazaran el modo");
+        } catch (IllegalArgumentException e) {
+            // Esperado
+        }
+
+        // El modo por palabras necesita su alfabeto de tokens, que los bloques no guardan
+        try {
+            new BlockCompressor(ForkJoinPool.commonPool(), BlockOptions.DEFAULT)
+                    .compress(new ByteArrayInputStream(new byte[] {'a'}), SymbolMode.WORD, new ByteArrayOutputStream());
+            fail("Se esperaba que el modo por palabras se rechazara");
+        } catch (IllegalArgumentException e) {
+            // Esperado
+        }
+
+        // Las mismas opciones sirven para la compresión por etapas
+        byte[] data = BenchmarkCorpus.LOG.generate(30000);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        new PipelinedCompressor(2, options).compress(new ByteArrayInputStream(data), SymbolMode.BYTE, compressed);
+        File file = File.createTempFile("opciones", ".huff");
+        try {
+            Files.write(file.toPath(), compressed.toByteArray());
+            ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+            new BlockDecompressor().decompress(file.getPath(), decompressed);
+            assertArrayEquals(data, decompressed.toByteArray());
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Escribe un bloque codificado con un número de símbolos y una longitud de carga arbitrarios.
+     */
+    private static byte[] craftBlock(long symbolCount, long payloadLength, int payloadBytes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(HuffmanBlock.HUFFMAN);
+        HuffmanHeader.writeVarLong(bytes, symbolCount);
+        HuffmanHeader.writeCodeLengths(bytes, new byte[] {1, 1});
+        HuffmanHeader.writeVarLong(bytes, payloadLength);
+        bytes.write(new byte[payloadBytes]);
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testMalformedCountsAreRejectedBeforeAllocating() throws IOException {
+        // Conteos que no caben en un int, que superan el tamaño de bloque o que la carga no puede contener
+        byte[][] malformed = {
+                craftBlock(1L << 31, 4, 4), craftBlock(1L << 30, 4, 4), craftBlock((1L << 32) + 5, 4, 4),
+                craftBlock(-1, 4, 4), craftBlock(40, 4, 4), craftBlock(5, 1L << 31, 4), craftBlock(5, 100, 4)
+        };
+        for (byte[] block : malformed) {
+            for (int maxSymbols : new int[] {4096, Integer.MAX_VALUE}) {
+                try {
+                    HuffmanBlock.read(new ByteArrayInputStream(block), SymbolMode.BYTE, maxSymbols);
+                    fail("Se esperaba un bloque inválido");
+                } catch (IOException e) {
+                    // Esperado
+                }
+            }
+        }
+        assertEquals(5, HuffmanBlock.read(new ByteArrayInputStream(craftBlock(5, 4, 4)), SymbolMode.BYTE, 4096)
+                .getSymbolCount());
+
+        // Un bloque almacenado no puede tener más símbolos que bytes
+        ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        stored.write(HuffmanBlock.STORED);
+        HuffmanHeader.writeVarLong(stored, 1L << 30);
+        stored.write(new byte[16]);
+        try {
+            HuffmanBlock.read(new ByteArrayInputStream(stored.toByteArray()), SymbolMode.BYTE, Integer.MAX_VALUE);
+            fail("Se esperaba un bloque almacenado incompleto");
+        } catch (IOException e) {
+            // Esperado
+        }
+
+        // El índice debe registrar los mismos símbolos que el bloque, y no más que el tamaño de bloque
+        byte[] data = BenchmarkCorpus.LOG.generate(10000);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        new BlockCompressor(ForkJoinPool.commonPool(), BlockOptions.DEFAULT.withBlockSize(4096))
+                .compress(new ByteArrayInputStream(data), SymbolMode.BYTE, compressed);
+        File file = File.createTempFile("conteos", ".huff");
+        try {
+            for (int count : new int[] {4095, 4097}) {
+                byte[] bytes = compressed.toByteArray();
+                long indexOffset = ByteBuffer.wrap(bytes, bytes.length - BlockCompressor.TRAILER_SIZE, 8).getLong();
+                ByteBuffer.wrap(bytes).putInt((int) indexOffset + 8, count);
+                Files.write(file.toPath(), bytes);
+                try {
+                    new BlockDecompressor().decompress(file.getPath(), new ByteArrayOutputStream());
+                    fail("Se esperaba un índice que no coincide con el bloque");
+                } catch (IOException e) {
+                    // Esperado
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package uvg.edu;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Utilidades compartidas por las pruebas del formato por bloques.
+ */
+final class BlockFiles {
+
+    private BlockFiles() {
+    }
+
+    /**
+     * Descomprime un archivo por bloques que está en memoria. Pasa por un archivo temporal porque
+     * el descompresor lee el índice desde el final del archivo.
+     */
+    static byte[] decompress(byte[] compressed) throws IOException {
+        File file = File.createTempFile("bloques", ".huff");
+        try {
+            Files.write(file.toPath(), compressed);
+            ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+            new BlockDecompressor().decompress(file.getPath(), decompressed);
+            return decompressed.toByteArray();
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package uvg.edu;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class BlockTransformTest {
+
+    private static byte[][] samples() {
+        byte[] random = new byte[3000];
+        new Random(24).nextBytes(random);
+        byte[] runs = new byte[5000];
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = (byte) (i / 700); // Tramos más largos que el máximo de una cuenta
+        }
+        return new byte[][] {
+                new byte[0], {7}, {1, 1, 1, 1}, {1, 1, 1, 1, 1}, new byte[1000], random, runs,
+                "banana".getBytes(StandardCharsets.US_ASCII), BenchmarkCorpus.LOG.generate(20000)
+        };
+    }
+
+    private static byte[] compress(byte[] data, int blockSize, BlockTransform[] transforms) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        new BlockCompressor(ForkJoinPool.commonPool(),
+                BlockOptions.DEFAULT.withBlockSize(blockSize).withTransforms(transforms)).compress(new ByteArrayInputStream(data), SymbolMode.BYTE, compressed);
+        return compressed.toByteArray();
+    }
+
+    @Test
+    public void testEveryTransformRoundTrips() throws IOException {
+        for (BlockTransform transform : BlockTransform.available()) {
+            for (byte[] data : samples()) {
+                assertArrayEquals(transform.name(), data, transform.inverse(transform.forward(data)));
+            }
+        }
+    }
+
+    @Test
+    public void testBurrowsWheelerOutput() throws IOException {
+        // "banana" con el final como centinela: las rotaciones ordenadas terminan en a, n, n, b, $, a, a
+        byte[] output = new BurrowsWheelerTransform().forward("banana".getBytes(StandardCharsets.US_ASCII));
+        assertArrayEquals(new byte[] {0, 0, 0, 4}, Arrays.copyOf(output, 4));
+        assertEquals("annbaa", new String(output, 4, 6, StandardCharsets.US_ASCII));
+
+        // El arreglo de sufijos coincide con el que da ordenar los sufijos uno por uno
+        byte[] data = new byte[2000];
+        Random random = new Random(25);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (random.nextInt(8) == 0 ? random.nextInt(3) : 1);
+        }
+        Integer[] expected = new Integer[data.length];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = i;
+        }
+        Arrays.sort(expected, (a, b) -> {
+            for (int i = 0; a + i < data.length && b + i < data.length; i++) {
+                if (data[a + i] != data[b + i]) {
+                    return Integer.compare(data[a + i], data[b + i]);
+                }
+            }
+            return Integer.compare(data.length - a, data.length - b); // El sufijo más corto va primero
+        });
+        int[] suffixes = BurrowsWheelerTransform.suffixArray(data);
+        for (int i = 0; i < data.length; i++) {
+            assertEquals(expected[i].intValue(), suffixes[i]);
+        }
+    }
+
+    @Test
+    public void testChainShrinksRepetitiveData() throws IOException {
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(26);
+        while (text.length() < 200000) {
+            text.append("GET /api/v1/items/").append(random.nextInt(20)).append(" 200\n");
+        }
+        byte[] data = text.toString().getBytes(StandardCharsets.US_ASCII);
+        BlockTransform[] chain = BlockTransform.parseChain(BlockTransform.DEFAULT_CHAIN).toArray(new BlockTransform[0]);
+
+        byte[] plain = compress(data, 1 << 16, new BlockTransform[0]);
+        byte[] transformed = compress(data, 1 << 16, chain);
+        assertArrayEquals(data, BlockFiles.decompress(transformed));
+        // Cada línea repite casi todo de la anterior, lo que Huffman solo no aprovecha
+        assertTrue(transformed.length + " >= " + plain.length, transformed.length * 3 < plain.length);
+
+        // Los datos aleatorios no crecen: el bloque se guarda sin transformar
+        byte[] noise = new byte[10000];
+        random.nextBytes(noise);
+        byte[] stored = compress(noise, 4096, chain);
+        assertArrayEquals(noise, BlockFiles.decompress(stored));
+        assertTrue(stored.length < noise.length + 100);
+    }
+
+    @Test
+    public void testRejectsInvalidInput() {
+        try {
+            BlockTransform.parseChain("bwt,zip");
+            fail("Se esperaba una transformación desconocida");
+        } catch (IllegalArgumentException e) {
+            // Esperado
+        }
+        byte[][] invalid = {{0, 0, 0, 9, 1, 2}, {0, 0}};
+        for (byte[] data : invalid) {
+            try {
+                new BurrowsWheelerTransform().inverse(data);
+                fail("Se esperaba un bloque inválido");
+            } catch (IOException e) {
+                // Esperado
+            }
+        }
+        try {
+            new RunLengthTransform().inverse(new byte[] {5, 5, 5, 5});
+            fail("Se esperaba un bloque inválido");
+        } catch (IOException e) {
+            // Esperado
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package uvg.edu;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+public class CheckpointIndexTest {
+
+    @Test
+    public void testIndexRoundTrip() throws IOException {
+        CheckpointIndex index = new CheckpointIndex(100);
+        index.setPayloadOffset(37);
+        index.setSymbolCount(450);
+        for (long bits : new long[] {0, 310, 655, 1001, 1333}) {
+            index.add(bits);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.write(out);
+        CheckpointIndex read = CheckpointIndex.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(37, read.getPayloadOffset());
+        assertEquals(450, read.getSymbolCount());
+        assertEquals(100, read.getInterval());
+        assertEquals(5, read.getCount());
+        assertEquals(1001, read.getBitOffset(3));
+        assertEquals(300, read.getSymbolOffset(3));
+        // Un símbolo más allá del último punto de control usa el último
+        assertEquals(4, read.checkpointBefore(449));
+        assertEquals(2, read.checkpointBefore(299));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws IOException {
+        CheckpointIndex.read(new ByteArrayInputStream(new byte[] {'H', 'U', 'F', 1, 0, 0, 0, 0}));
+    }
+
+    @Test
+    public void testRangesMatchFullDecode() throws IOException {
+        Random random = new Random(15);
+        byte[] data = new byte[50000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (random.nextInt(4) == 0 ? random.nextInt(256) : 'a' + random.nextInt(6));
+        }
+
+        Path directory = Files.createTempDirectory("indice");
+        Path input = directory.resolve("entrada.bin");
+        Path compressed = directory.resolve("salida.huff");
+        try {
+            Files.write(input, data);
+            HuffmanCoding.compressIndexed(input.toString(), directory.resolve("salida").toString(), 0, 1000);
+            assertTrue(Files.exists(CheckpointIndex.pathFor(compressed)));
+
+            HuffmanDecompressor decompressor = new HuffmanDecompressor();
+            long[][] ranges = {{0, 10}, {999, 2}, {1000, 1}, {12345, 4321}, {49990, 10}, {0, data.length}};
+            for (long[] range : ranges) {
+                int from = (int) range[0];
+                byte[] expected = Arrays.copyOfRange(data, from, from + (int) range[1]);
+                assertArrayEquals(expected, decompressor.decompressRange(compressed.toString(), from, (int) range[1]));
+            }
+
+            // Los rangos que pasan del final se recortan
+            assertArrayEquals(Arrays.copyOfRange(data, 49995, data.length),
+                    decompressor.decompressRange(compressed.toString(), 49995, 100));
+            assertEquals(0, decompressor.decompressRange(compressed.toString(), 60000, 10).length);
+        } finally {
+            Files.deleteIfExists(CheckpointIndex.pathFor(compressed));
+            Files.deleteIfExists(compressed);
+            Files.deleteIfExists(input);
+            Files.delete(directory);
+        }
+    }
+}
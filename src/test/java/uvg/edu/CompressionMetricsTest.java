@@ -0,0 +1,218 @@
+package uvg.edu;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import javax.management.JMX;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class CompressionMetricsTest {
+
+    @Test
+    public void testEntropy() {
+        assertEquals(0, CompressionMetrics.entropy(new long[] {0, 7, 0}), 1e-9);
+        assertEquals(1, CompressionMetrics.entropy(new long[] {5, 5}), 1e-9);
+        assertEquals(1.5, CompressionMetrics.entropy(new long[] {2, 1, 1}), 1e-9);
+    }
+
+    @Test
+    public void testPhasesAreExclusive() throws IOException {
+        CompressionMetrics metrics = new CompressionMetrics(CompressionMetrics.COMPRESS, "memoria");
+        long start = metrics.begin();
+        // La lectura dentro de la fase se cuenta como READ y no como HISTOGRAM
+        byte[] data = metrics.timed(new ByteArrayInputStream(new byte[1000])).readAllBytes();
+        metrics.end(CompressionMetrics.Phase.HISTOGRAM, start);
+        metrics.finish();
+
+        assertEquals(1000, data.length);
+        assertEquals(1000, metrics.getInputBytes());
+        assertTrue(metrics.getNanos(CompressionMetrics.Phase.READ) > 0);
+        assertTrue(metrics.getNanos(CompressionMetrics.Phase.HISTOGRAM) + metrics.getNanos(CompressionMetrics.Phase.READ)
+                <= metrics.getElapsedNanos());
+    }
+
+    @Test
+    public void testCompressionPublishesEventsAndTotals() throws IOException, MalformedObjectNameException {
+        Random random = new Random(16);
+        byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + Math.min(random.nextInt(8), random.nextInt(8)));
+        }
+
+        Path directory = Files.createTempDirectory("metricas");
+        Path input = directory.resolve("entrada.bin");
+        Path recordingFile = directory.resolve("grabacion.jfr");
+        try {
+            Files.write(input, data);
+            CompressionStatsMXBean stats = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+                    new ObjectName(CompressionStats.OBJECT_NAME), CompressionStatsMXBean.class);
+            CompressionStats.getInstance(); // Registra el MXBean
+            long compressions = stats.getCompressions();
+            long decompressions = stats.getDecompressions();
+
+            try (Recording recording = new Recording()) {
+                recording.enable(CompressionEvent.NAME);
+                recording.enable(CompressionPhaseEvent.NAME);
+                recording.start();
+                HuffmanCoding.compressBytes(input.toString(), directory.resolve("salida").toString());
+                HuffmanCoding.decompress(directory.resolve("salida.huff").toString(),
+                        directory.resolve("restaurado.bin").toString());
+                recording.stop();
+                recording.dump(recordingFile);
+            }
+            assertArrayEquals(data, Files.readAllBytes(directory.resolve("restaurado.bin")));
+
+            // Las métricas llegan por JMX
+            assertEquals(compressions + 1, stats.getCompressions());
+            assertEquals(decompressions + 1, stats.getDecompressions());
+            assertTrue(stats.getLastBitsPerSymbol() >= stats.getLastEntropy());
+            assertTrue(stats.getLastBitsPerSymbol() < stats.getLastEntropy() + 1);
+            assertTrue(stats.getLastMaxCodeLength() > 0);
+            assertTrue(stats.getPhaseNanos().get("ENCODE") > 0);
+
+            // Y como eventos de JFR
+            List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+            Set<String> phases = new HashSet<>();
+            int operations = 0;
+            for (RecordedEvent event : events) {
+                if (event.getEventType().getName().equals(CompressionPhaseEvent.NAME)) {
+                    phases.add(event.getString("phase"));
+                } else if (event.getEventType().getName().equals(CompressionEvent.NAME)) {
+                    operations++;
+                    if (event.getString("operation").equals(CompressionMetrics.COMPRESS)) {
+                        assertEquals(data.length, event.getLong("inputBytes"));
+                        assertEquals(data.length, event.getLong("symbols"));
+                    }
+                }
+            }
+            assertEquals(2, operations);
+            assertTrue(phases.contains("HISTOGRAM"));
+            assertTrue(phases.contains("ENCODE"));
+            assertTrue(phases.contains("DECODE"));
+        } finally {
+            for (String name : new String[] {"entrada.bin", "salida.huff", "restaurado.bin", "grabacion.jfr"}) {
+                Files.deleteIfExists(directory.resolve(name));
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testBlockOperationsMergeTaskMetrics() throws IOException {
+        byte[] data = BenchmarkCorpus.LOG.generate(200000);
+        Path directory = Files.createTempDirectory("metricas");
+        Path archive = directory.resolve("bloques.huff");
+        try {
+            // Cada bloque se mide en su propia tarea y las tareas se suman al terminar
+            CompressionMetrics compress = new CompressionMetrics(CompressionMetrics.COMPRESS, "memoria");
+            try (OutputStream out = Files.newOutputStream(archive)) {
+                new BlockCompressor(ForkJoinPool.commonPool(), BlockOptions.DEFAULT.withBlockSize(16384))
+                        .compress(new ByteArrayInputStream(data), SymbolMode.BYTE, out, compress);
+            }
+            compress.finish();
+            assertEquals(data.length, compress.getInputBytes());
+            assertEquals(Files.size(archive), compress.getOutputBytes());
+            assertEquals(data.length, compress.getSymbolCount());
+            // Cada fase de la codificación se mide por separado, y la entropía se promedia entre bloques
+            for (CompressionMetrics.Phase phase : new CompressionMetrics.Phase[] {CompressionMetrics.Phase.HISTOGRAM,
+                    CompressionMetrics.Phase.TREE_BUILD, CompressionMetrics.Phase.ENCODE}) {
+                assertTrue(phase.name(), compress.getNanos(phase) > 0);
+            }
+            assertTrue(compress.getBitsPerSymbol() > 0 && compress.getBitsPerSymbol() < 8);
+            assertTrue(compress.getEntropy() > 0 && compress.getEntropy() < 8);
+            assertTrue(compress.getMaxCodeLength() > 0);
+
+            CompressionMetrics append = new CompressionMetrics(CompressionMetrics.COMPRESS, "memoria");
+            new BlockAppender().append(archive, new ByteArrayInputStream(data, 0, 5000), append);
+            append.finish();
+            assertEquals(5000, append.getInputBytes());
+            assertEquals(5000, append.getSymbolCount());
+
+            CompressionMetrics pipelined = new CompressionMetrics(CompressionMetrics.COMPRESS, "memoria");
+            new PipelinedCompressor(2, BlockOptions.DEFAULT.withBlockSize(16384))
+                    .compress(new ByteArrayInputStream(data), SymbolMode.BYTE, new ByteArrayOutputStream(), pipelined);
+            pipelined.finish();
+            assertEquals(data.length, pipelined.getInputBytes());
+            assertEquals(data.length, pipelined.getSymbolCount());
+            assertTrue(pipelined.getNanos(CompressionMetrics.Phase.ENCODE) > 0);
+            assertTrue(pipelined.getNanos(CompressionMetrics.Phase.HISTOGRAM) > 0);
+            assertEquals(compress.getEntropy(), pipelined.getEntropy(), 1e-9);
+
+            CompressionMetrics decompress = new CompressionMetrics(CompressionMetrics.DECOMPRESS, "memoria");
+            ByteArrayOutputStream restored = new ByteArrayOutputStream();
+            new BlockDecompressor().decompress(archive.toString(), restored, decompress);
+            decompress.finish();
+            assertEquals(data.length + 5000, restored.size());
+            assertEquals(data.length + 5000, decompress.getSymbolCount());
+            assertEquals(restored.size(), decompress.getOutputBytes());
+            assertTrue(decompress.getInputBytes() > 0 && decompress.getInputBytes() < Files.size(archive));
+            assertTrue(decompress.getNanos(CompressionMetrics.Phase.DECODE) > 0);
+        } finally {
+            Files.deleteIfExists(archive);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testMappedAndRangeOperationsAreMeasured() throws IOException {
+        byte[] data = BenchmarkCorpus.LOG.generate(100000);
+        Path directory = Files.createTempDirectory("metricas");
+        Path input = directory.resolve("entrada.bin");
+        Path mapped = directory.resolve("mapeado.huff");
+        Path restored = directory.resolve("restaurado.bin");
+        try {
+            Files.write(input, data);
+            CompressionMetrics compress = new CompressionMetrics(CompressionMetrics.COMPRESS, input.toString());
+            new MappedHuffmanCoder().compress(input, mapped, 0, compress);
+            compress.finish();
+            assertEquals(data.length, compress.getInputBytes());
+            assertEquals(Files.size(mapped), compress.getOutputBytes());
+            assertEquals(data.length, compress.getSymbolCount());
+            assertTrue(compress.getNanos(CompressionMetrics.Phase.HISTOGRAM) > 0);
+            assertTrue(compress.getNanos(CompressionMetrics.Phase.ENCODE) > 0);
+            assertTrue(compress.getEntropy() > 0 && compress.getEntropy() <= compress.getBitsPerSymbol());
+
+            CompressionMetrics decompress = new CompressionMetrics(CompressionMetrics.DECOMPRESS, mapped.toString());
+            new MappedHuffmanCoder().decompress(mapped, restored, decompress);
+            decompress.finish();
+            assertEquals(data.length, decompress.getSymbolCount());
+            assertEquals(data.length, decompress.getOutputBytes());
+            assertTrue(decompress.getNanos(CompressionMetrics.Phase.DECODE) > 0);
+
+            // Un rango se mide aunque el archivo tenga un índice aparte
+            HuffmanCoding.compressIndexed(input.toString(), directory.resolve("indexado").toString(), 0, 1000);
+            Path indexed = directory.resolve("indexado.huff");
+            CompressionMetrics range = new CompressionMetrics(CompressionMetrics.DECOMPRESS, indexed.toString());
+            byte[] bytes = new HuffmanDecompressor().decompressRange(indexed.toString(), 50000, 300, range);
+            range.finish();
+            assertArrayEquals(Arrays.copyOfRange(data, 50000, 50300), bytes);
+            assertEquals(300, range.getSymbolCount());
+            assertTrue(range.getInputBytes() > 0);
+            assertTrue(range.getNanos(CompressionMetrics.Phase.HEADER) > 0);
+            assertTrue(range.getNanos(CompressionMetrics.Phase.DECODE) > 0);
+        } finally {
+            Files.deleteIfExists(CheckpointIndex.pathFor(directory.resolve("indexado.huff")));
+            for (String name : new String[] {"entrada.bin", "mapeado.huff", "restaurado.bin", "indexado.huff"}) {
+                Files.deleteIfExists(directory.resolve(name));
+            }
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package uvg.edu;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class ContextModelTest {
+
+    private static byte[] compress(byte[] data, int blockSize, int contextTables) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        new BlockCompressor(ForkJoinPool.commonPool(),
+                BlockOptions.DEFAULT.withBlockSize(blockSize).withContextTables(contextTables)).compress(new ByteArrayInputStream(data), SymbolMode.BYTE, compressed);
+        return compressed.toByteArray();
+    }
+
+    private static int[] unsigned(byte[] data) {
+        int[] symbols = new int[data.length];
+        for (int i = 0; i < data.length; i++) {
+            symbols[i] = data[i] & 0xFF;
+        }
+        return symbols;
+    }
+
+    @Test
+    public void testLogsCompressBelowOrderZero() throws IOException {
+        byte[] data = BenchmarkCorpus.LOG.generate(300000);
+        byte[] orderZero = compress(data, 1 << 16, 0);
+        byte[] orderOne = compress(data, 1 << 16, ContextModel.DEFAULT_TABLES);
+
+        assertArrayEquals(data, BlockFiles.decompress(orderOne));
+        // El byte anterior predice bien el siguiente en los registros, así que el modelo de contexto gana
+        assertTrue(orderOne.length + " >= " + orderZero.length, orderOne.length < orderZero.length * 0.9);
+    }
+
+    @Test
+    public void testGroupsAreBounded() throws IOException {
+        byte[] data = BenchmarkCorpus.ENGLISH.generate(100000);
+        int[] symbols = unsigned(data);
+        for (int tables : new int[] {1, 4, 256}) {
+            ContextModel model = ContextModel.build(symbols, symbols.length, tables, 0);
+            assertTrue(model.getGroupCount() <= tables);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (BitOutputStream out = new BitOutputStream(bytes)) {
+                model.encode(symbols, symbols.length, out);
+            }
+            assertEquals((model.getEncodedBits() + 7) / 8, bytes.size());
+
+            // El modelo se guarda con las longitudes de código compactas y se recupera igual
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            model.write(header);
+            ContextModel read = ContextModel.read(new ByteArrayInputStream(header.toByteArray()));
+            int[] decoded = new int[symbols.length];
+            byte[] payload = bytes.toByteArray();
+            read.decode(new BitInputStream(payload, 0, payload.length), decoded, decoded.length);
+            assertArrayEquals(symbols, decoded);
+        }
+    }
+
+    @Test
+    public void testOtherDataKeepsItsBlockType() throws IOException {
+        byte[] random = new byte[40000];
+        new Random(23).nextBytes(random);
+        HuffmanBlock block = HuffmanBlock.encode(unsigned(random), random.length, SymbolMode.BYTE,
+                BlockOptions.DEFAULT.withContextTables(ContextModel.DEFAULT_TABLES));
+        assertTrue(block.isStored());
+
+        // Sin relación entre bytes vecinos, un único código es más pequeño que varias tablas
+        byte[] skewed = new byte[40000];
+        Random independent = new Random(24);
+        for (int i = 0; i < skewed.length; i++) {
+            skewed[i] = (byte) ('a' + Math.min(independent.nextInt(16), independent.nextInt(16)));
+        }
+        block = HuffmanBlock.encode(unsigned(skewed), skewed.length, SymbolMode.BYTE,
+                BlockOptions.DEFAULT.withContextTables(ContextModel.DEFAULT_TABLES));
+        assertFalse(block.isContextCoded());
+        assertArrayEquals(skewed, BlockFiles.decompress(compress(skewed, 4096, ContextModel.DEFAULT_TABLES)));
+    }
+
+    @Test
+    public void testRejectsInvalidModel() {
+        byte[][] models = {
+                {0}, // Sin grupos
+                {2, 0, 0}, // Mapa de contextos incompleto
+        };
+        for (byte[] model : models) {
+            try {
+                ContextModel.read(new ByteArrayInputStream(model));
+                fail("Se esperaba un modelo inválido");
+            } catch (IOException e) {
+                // Esperado
+            }
+        }
+    }
+}
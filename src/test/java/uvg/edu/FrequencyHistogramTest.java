@@ -0,0 +1,80 @@
+package uvg.edu;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class FrequencyHistogramTest {
+
+    @Test
+    public void testParallelCountsMatchSequentialCounts() throws IOException {
+        // Más de un rango por hilo, con longitud que no es múltiplo de las franjas
+        byte[] data = new byte[3 * FrequencyHistogram.MIN_PARALLEL_SIZE + 7];
+        Random random = new Random(5);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (random.nextInt(4) == 0 ? random.nextInt(256) : 'e');
+        }
+        long[] expected = new long[256];
+        for (byte b : data) {
+            expected[b & 0xFF]++;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        File file = File.createTempFile("histogram", ".bin");
+        try {
+            FrequencyHistogram histogram = new FrequencyHistogram(pool);
+            assertArrayEquals(expected, histogram.countBytes(data, 0, data.length));
+
+            Files.write(file.toPath(), data);
+            assertArrayEquals(expected, histogram.countBytes(file.toPath()));
+        } finally {
+            pool.shutdown();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testCharacterCountsMatchMap() {
+        String text = "Universidad del Valle de Guatemala — árbol de Huffman";
+        Map<Character, Integer> map = new HuffmanCompressor().calculateFrequencies(text);
+        long[] counts = new FrequencyHistogram().countCharacters(text);
+
+        long total = 0;
+        for (int c = 0; c < counts.length; c++) {
+            assertEquals(map.getOrDefault((char) c, 0).longValue(), counts[c]);
+            total += counts[c];
+        }
+        assertEquals(text.length(), total);
+    }
+
+    @Test
+    public void testSymbolCountsFeedBuildTree() {
+        int[] symbols = {3, 3, 3, 1, 0, 3, 1, 2, 3};
+        long[] frequencies = new long[SymbolMode.BYTE.alphabetSize()];
+        FrequencyHistogram.countSymbols(symbols, symbols.length, frequencies);
+        assertEquals(1, frequencies[0]);
+        assertEquals(2, frequencies[1]);
+        assertEquals(1, frequencies[2]);
+        assertEquals(5, frequencies[3]);
+
+        HuffmanTree tree = new HuffmanTree();
+        tree.buildTree(frequencies, SymbolMode.BYTE);
+        assertEquals(symbols.length, tree.getSymbolCount());
+        assertEquals(1, tree.getCodeLengths()[3]);
+
+        // Con un alfabeto grande se cuenta directamente en el histograma, con el mismo resultado
+        int[] codePoints = {0x1F600, 'a', 0x10FFFF, 'a', 0x1F600, 'a', 'a'};
+        long[] large = new long[SymbolMode.CODE_POINT.alphabetSize()];
+        large[0x1F600] = 10; // Se suma a lo que ya hay
+        FrequencyHistogram.countSymbols(codePoints, codePoints.length, large);
+        assertEquals(4, large['a']);
+        assertEquals(12, large[0x1F600]);
+        assertEquals(1, large[0x10FFFF]);
+    }
+}
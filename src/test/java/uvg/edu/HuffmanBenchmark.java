@@ -0,0 +1,236 @@
+package uvg.edu;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for each stage of the Huffman pipeline, over corpora of different sizes and entropies.
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec}, or pick benchmarks and parameters with
+ * {@code -Djmh.args="HuffmanBenchmark.decompress -p corpus=LOG"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HuffmanBenchmark {
+
+    @Param({"ENGLISH", "LOG", "RANDOM", "SINGLE_SYMBOL"})
+    public BenchmarkCorpus corpus;
+
+    @Param({"65536", "4194304"})
+    public int size;
+
+    private byte[] data; // The corpus as bytes
+    private String text; // The corpus as text, one character per byte
+    private Map<Character, Integer> frequencies; // Character frequencies of the text
+    private long[] byteFrequencies; // Byte histogram of the data
+    private HuffmanTree textTree; // Tree built from the character frequencies
+    private HuffmanTree byteTree; // Tree built from the byte histogram
+    private String bitString; // The text compressed to a string of '0' and '1'
+    private byte[] compressedText; // Header and payload of the compressed text
+    private byte[] compressedBytes; // Header and payload of the compressed bytes
+    private HuffmanBlock block; // The data as a single-stream block
+    private HuffmanBlock interleavedBlock; // The data as an interleaved block
+    private HuffmanBlock contextBlock; // The data as a block coded with an order-1 context model
+    private int[] symbols; // Buffer the blocks are decoded into
+    private File outputFile; // Target of the file-writing benchmark
+    private HuffmanBufferCodec codec; // Codec reused by the buffer benchmarks
+    private ByteBuffer sourceBuffer; // The data in a direct buffer
+    private ByteBuffer encodedBuffer; // The data encoded by the codec
+    private ByteBuffer targetBuffer; // Direct buffer the codec writes into
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        HuffmanCompressor compressor = new HuffmanCompressor();
+        data = corpus.generate(size);
+        text = BenchmarkCorpus.asText(data);
+        frequencies = compressor.calculateFrequencies(text);
+        byteFrequencies = compressor.calculateByteFrequencies(new ByteArrayInputStream(data));
+
+        textTree = new HuffmanTree();
+        textTree.buildTree(frequencies);
+        byteTree = new HuffmanTree();
+        byteTree.buildTree(byteFrequencies, SymbolMode.BYTE);
+        bitString = compressor.compress(text, textTree.getHuffmanCodes());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BitOutputStream out = new BitOutputStream(bytes)) {
+            HuffmanHeader.write(textTree, bytes);
+            compressor.compress(new StringReader(text), textTree, out);
+        }
+        compressedText = bytes.toByteArray();
+
+        bytes = new ByteArrayOutputStream();
+        try (BitOutputStream out = new BitOutputStream(bytes)) {
+            HuffmanHeader.write(byteTree, bytes);
+            compressor.compress(new ByteArrayInputStream(data), byteTree, out);
+        }
+        compressedBytes = bytes.toByteArray();
+
+        symbols = new int[size];
+        for (int i = 0; i < size; i++) {
+            symbols[i] = data[i] & 0xFF;
+        }
+        block = HuffmanBlock.encode(symbols, size, SymbolMode.BYTE, BlockOptions.DEFAULT);
+        interleavedBlock = HuffmanBlock.encode(symbols, size, SymbolMode.BYTE,
+                BlockOptions.DEFAULT.withInterleaved(true));
+        ContextModel model = ContextModel.build(symbols, size, ContextModel.DEFAULT_TABLES, 0);
+        bytes = new ByteArrayOutputStream();
+        try (BitOutputStream out = new BitOutputStream(bytes)) {
+            model.encode(symbols, size, out);
+        }
+        contextBlock = new HuffmanBlock(size, model, bytes.toByteArray());
+
+        outputFile = File.createTempFile("huffman-benchmark", ".huff");
+
+        codec = new HuffmanBufferCodec();
+        sourceBuffer = ByteBuffer.allocateDirect(size).put(data).flip();
+        encodedBuffer = ByteBuffer.allocateDirect(HuffmanBufferCodec.maxCompressedLength(size));
+        codec.encode(sourceBuffer, encodedBuffer);
+        encodedBuffer.flip();
+        targetBuffer = ByteBuffer.allocateDirect(HuffmanBufferCodec.maxCompressedLength(size));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        outputFile.delete();
+    }
+
+    @Benchmark
+    public Map<Character, Integer> calculateFrequencies() {
+        return new HuffmanCompressor().calculateFrequencies(text);
+    }
+
+    @Benchmark
+    public long[] calculateByteFrequencies() throws IOException {
+        return new HuffmanCompressor().calculateByteFrequencies(new ByteArrayInputStream(data));
+    }
+
+    @Benchmark
+    public long[] countBytes() {
+        return new FrequencyHistogram().countBytes(data, 0, data.length);
+    }
+
+    @Benchmark
+    public long[] countCharacters() {
+        return new FrequencyHistogram().countCharacters(text);
+    }
+
+    @Benchmark
+    public HuffmanTree buildTree() {
+        HuffmanTree tree = new HuffmanTree();
+        tree.buildTree(frequencies);
+        return tree;
+    }
+
+    @Benchmark
+    public HuffmanTree buildByteTree() {
+        HuffmanTree tree = new HuffmanTree();
+        tree.buildTree(byteFrequencies, SymbolMode.BYTE);
+        return tree;
+    }
+
+    @Benchmark
+    public String compressToBitString() {
+        return new HuffmanCompressor().compress(text, textTree.getHuffmanCodes());
+    }
+
+    @Benchmark
+    public void writeCompressedFile() throws IOException {
+        new HuffmanCompressor().writeCompressedFile(bitString, outputFile.getPath());
+    }
+
+    @Benchmark
+    public long compressText() throws IOException {
+        try (BitOutputStream out = new BitOutputStream(OutputStream.nullOutputStream())) {
+            return new HuffmanCompressor().compress(new StringReader(text), textTree, out);
+        }
+    }
+
+    @Benchmark
+    public long compressBytes() throws IOException {
+        try (BitOutputStream out = new BitOutputStream(OutputStream.nullOutputStream())) {
+            return new HuffmanCompressor().compress(new ByteArrayInputStream(data), byteTree, out);
+        }
+    }
+
+    @Benchmark
+    public void compressAdaptive() throws IOException {
+        try (AdaptiveHuffmanOutputStream out = new AdaptiveHuffmanOutputStream(OutputStream.nullOutputStream())) {
+            out.write(data);
+        }
+    }
+
+    @Benchmark
+    public String decompress() throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(compressedText);
+        return new HuffmanDecompressor().decompress(in, HuffmanHeader.read(in));
+    }
+
+    @Benchmark
+    public String decompressBitByBit() throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(compressedText);
+        return new HuffmanDecompressor().decompressBitByBit(in, HuffmanHeader.read(in));
+    }
+
+    @Benchmark
+    public byte[] decompressBytes() throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(compressedBytes);
+        return new HuffmanDecompressor().decompressBytes(in, HuffmanHeader.read(in));
+    }
+
+    @Benchmark
+    public int[] decodeBlock() throws IOException {
+        block.decode(symbols);
+        return symbols;
+    }
+
+    @Benchmark
+    public int[] decodeInterleavedBlock() throws IOException {
+        interleavedBlock.decode(symbols);
+        return symbols;
+    }
+
+    @Benchmark
+    public int[] decodeContextBlock() throws IOException {
+        contextBlock.decode(symbols);
+        return symbols;
+    }
+
+    @Benchmark
+    public int encodeBuffer() {
+        sourceBuffer.rewind();
+        targetBuffer.clear();
+        return codec.encode(sourceBuffer, targetBuffer);
+    }
+
+    @Benchmark
+    public int decodeBuffer() throws IOException {
+        encodedBuffer.rewind();
+        targetBuffer.clear();
+        return codec.decode(encodedBuffer, targetBuffer);
+    }
+}
@@ -0,0 +1,135 @@
+package uvg.edu;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+public class HuffmanBufferCodecTest {
+
+    private static byte[] skewedData(int length, long seed) {
+        Random random = new Random(seed);
+        byte[] data = new byte[length];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + Math.min(random.nextInt(26), random.nextInt(26)));
+        }
+        return data;
+    }
+
+    private static byte[] roundTrip(HuffmanBufferCodec codec, byte[] data, boolean direct) throws IOException {
+        ByteBuffer src = direct ? ByteBuffer.allocateDirect(data.length) : ByteBuffer.allocate(data.length);
+        src.put(data).flip();
+        int max = HuffmanBufferCodec.maxCompressedLength(data.length);
+        ByteBuffer compressed = direct ? ByteBuffer.allocateDirect(max) : ByteBuffer.allocate(max);
+        int written = codec.encode(src, compressed);
+        assertFalse(src.hasRemaining());
+        assertEquals(written, compressed.position());
+        assertTrue(written <= max);
+
+        compressed.flip();
+        ByteBuffer restored = direct ? ByteBuffer.allocateDirect(data.length) : ByteBuffer.allocate(data.length);
+        assertEquals(data.length, codec.decode(compressed, restored));
+        assertFalse(compressed.hasRemaining());
+
+        byte[] result = new byte[data.length];
+        restored.flip();
+        restored.get(result);
+        return result;
+    }
+
+    @Test
+    public void testRoundTripHeapAndDirect() throws IOException {
+        HuffmanBufferCodec codec = new HuffmanBufferCodec();
+        byte[] random = new byte[5000];
+        new Random(19).nextBytes(random);
+        byte[][] inputs = {
+                skewedData(10000, 1), random, new byte[0], new byte[300],
+                "GET /api/v1/usuarios?id=42 HTTP/1.1".getBytes(StandardCharsets.UTF_8)
+        };
+        for (byte[] data : inputs) {
+            assertArrayEquals(data, roundTrip(codec, data, false));
+            assertArrayEquals(data, roundTrip(codec, data, true));
+        }
+    }
+
+    @Test
+    public void testCompressesAndBoundsOutput() throws IOException {
+        HuffmanBufferCodec codec = new HuffmanBufferCodec();
+        byte[] data = skewedData(10000, 2);
+        ByteBuffer compressed = ByteBuffer.allocate(HuffmanBufferCodec.maxCompressedLength(data.length));
+        assertTrue(codec.encode(ByteBuffer.wrap(data), compressed) < data.length * 6 / 10);
+
+        // Los datos aleatorios se guardan tal cual y no crecen más que el encabezado
+        byte[] random = new byte[10000];
+        new Random(3).nextBytes(random);
+        compressed.clear();
+        assertEquals(HuffmanBufferCodec.maxCompressedLength(random.length),
+                codec.encode(ByteBuffer.wrap(random), compressed));
+    }
+
+    @Test
+    public void testConsecutiveMessagesAndBadInput() throws IOException {
+        HuffmanBufferCodec codec = new HuffmanBufferCodec();
+        byte[] first = skewedData(700, 4);
+        byte[] second = skewedData(900, 5);
+        ByteBuffer compressed = ByteBuffer.allocate(4096);
+        codec.encode(ByteBuffer.wrap(first), compressed);
+        codec.encode(ByteBuffer.wrap(second), compressed);
+        compressed.flip();
+
+        // Cada mensaje se delimita solo, uno tras otro en el mismo búfer
+        ByteBuffer restored = ByteBuffer.allocate(first.length + second.length);
+        codec.decode(compressed, restored);
+        codec.decode(compressed, restored);
+        assertFalse(compressed.hasRemaining());
+        assertArrayEquals(first, Arrays.copyOf(restored.array(), first.length));
+
+        ByteBuffer truncated = ByteBuffer.allocate(4096);
+        codec.encode(ByteBuffer.wrap(first), truncated);
+        truncated.flip().limit(truncated.limit() - 20);
+        try {
+            codec.decode(truncated, ByteBuffer.allocate(first.length));
+            fail("Se esperaba un mensaje incompleto");
+        } catch (IOException e) {
+            // Esperado
+        }
+        try {
+            codec.decode(ByteBuffer.wrap(new byte[] {(byte) 0x84, 0x01}), ByteBuffer.allocate(first.length));
+            fail("Se esperaba un mensaje inválido");
+        } catch (IOException e) {
+            // Esperado
+        }
+    }
+
+    @Test
+    public void testNoAllocationPerCall() throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        HuffmanBufferCodec codec = new HuffmanBufferCodec();
+        byte[] data = skewedData(4000, 6);
+        ByteBuffer src = ByteBuffer.allocateDirect(data.length).put(data);
+        ByteBuffer compressed = ByteBuffer.allocateDirect(HuffmanBufferCodec.maxCompressedLength(data.length));
+        ByteBuffer restored = ByteBuffer.allocateDirect(data.length);
+
+        long before = 0;
+        for (int round = 0; round < 2000; round++) {
+            if (round == 1000) {
+                before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+            src.flip();
+            compressed.clear();
+            codec.encode(src, compressed);
+            compressed.flip();
+            restored.clear();
+            codec.decode(compressed, restored);
+        }
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+
+        // Mil compresiones y descompresiones no deben reservar memoria, salvo la de la propia medición
+        assertTrue("Bytes reservados: " + allocated, allocated < 1024);
+    }
+}
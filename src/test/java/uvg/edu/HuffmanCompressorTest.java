@@ -3,8 +3,10 @@ package uvg.edu;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.HashMap;
@@ -40,6 +42,50 @@ public class HuffmanCompressorTest {
         assertEquals("01011", compressedText);
     }
 
+    @Test
+    public void testStreamingCompressMatchesStringCompress() throws IOException {
+        HuffmanCompressor compressor = new HuffmanCompressor();
+        String text = "abracadabra, esto es una prueba";
+
+        Map<Character, Integer> frequencies = compressor.calculateFrequencies(new StringReader(text));
+        assertEquals(compressor.calculateFrequencies(text), frequencies);
+
+        HuffmanTree tree = new HuffmanTree();
+        tree.buildTree(frequencies);
+        String expected = compressor.compress(text, tree.getHuffmanCodes());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long bits;
+        try (BitOutputStream out = new BitOutputStream(bytes)) {
+            bits = compressor.compress(new StringReader(text), tree, out);
+        }
+
+        // Verificar que el flujo de bits coincida con la versión en memoria
+        assertEquals(expected.length(), bits);
+        StringBuilder written = new StringBuilder();
+        for (byte b : bytes.toByteArray()) {
+            for (int i = 7; i >= 0; i--) {
+                written.append((b >> i) & 1);
+            }
+        }
+        assertEquals(expected, written.substring(0, expected.length()));
+    }
+
+    @Test
+    public void testWriteBitsPacksWordsInOrder() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BitOutputStream out = new BitOutputStream(bytes)) {
+            out.writeBits(0b101, 3);
+            out.writeBits(0x0123456789ABCDEFL, 64);
+            out.writeBit(true);
+        }
+
+        // 101 + 64 bits + 1, rellenado con ceros hasta 9 bytes
+        byte[] expected = {(byte) 0xA0, (byte) 0x24, (byte) 0x68, (byte) 0xAC, (byte) 0xF1,
+                (byte) 0x35, (byte) 0x79, (byte) 0xBD, (byte) 0xF0};
+        assertArrayEquals(expected, bytes.toByteArray());
+    }
+
     @Test
 public void testWriteCompressedFileCreation() throws IOException {
     HuffmanCompressor compressor = new HuffmanCompressor();
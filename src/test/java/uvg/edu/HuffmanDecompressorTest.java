@@ -0,0 +1,211 @@
+package uvg.edu;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Random;
+
+public class HuffmanDecompressorTest {
+
+    /**
+     * Builds a text whose character frequencies follow the Fibonacci sequence,
+     * which produces a maximally skewed tree with very long codes.
+     */
+    private static String skewedText() {
+        StringBuilder text = new StringBuilder();
+        int previous = 1;
+        int current = 1;
+        for (char c = 'a'; c <= 'w'; c++) {
+            for (int i = 0; i < previous; i++) {
+                text.append(c);
+            }
+            int next = previous + current;
+            previous = current;
+            current = next;
+        }
+        return text.toString();
+    }
+
+    private static HuffmanTree compressToBytes(String text, ByteArrayOutputStream bytes) throws IOException {
+        HuffmanCompressor compressor = new HuffmanCompressor();
+        HuffmanTree tree = new HuffmanTree();
+        tree.buildTree(compressor.calculateFrequencies(text));
+        try (BitOutputStream out = new BitOutputStream(bytes)) {
+            HuffmanHeader.write(tree, bytes);
+            compressor.compress(new StringReader(text), tree, out);
+        }
+        return tree;
+    }
+
+    @Test
+    public void testTableDecoderMatchesTreeWalk() throws IOException {
+        String text = skewedText();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        HuffmanTree tree = compressToBytes(text, bytes);
+
+        // Verificar que existan códigos más largos que la tabla primaria
+        int longest = 0;
+        for (byte length : tree.getCodeLengths()) {
+            longest = Math.max(longest, length);
+        }
+        assertTrue(longest > HuffmanTableDecoder.PRIMARY_BITS + HuffmanTableDecoder.SECONDARY_BITS);
+
+        HuffmanDecompressor decompressor = new HuffmanDecompressor();
+        ByteArrayInputStream in = new ByteArrayInputStream(bytes.toByteArray());
+        String byTable = decompressor.decompress(in, HuffmanHeader.read(in));
+        in = new ByteArrayInputStream(bytes.toByteArray());
+        String byTree = decompressor.decompressBitByBit(in, HuffmanHeader.read(in));
+
+        assertEquals(text, byTable);
+        assertEquals(text, byTree);
+    }
+
+    @Test
+    public void testHeaderRestoresCanonicalCodes() throws IOException {
+        String text = "Hola, esto es una prueba para la compresión y descompresión.";
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        HuffmanTree tree = compressToBytes(text, bytes);
+
+        HuffmanTree loaded = HuffmanHeader.read(new ByteArrayInputStream(bytes.toByteArray()));
+
+        // El encabezado solo guarda longitudes, pero los códigos deben ser idénticos
+        assertEquals(SymbolMode.CHARACTER, loaded.getMode());
+        assertEquals(text.length(), loaded.getSymbolCount());
+        assertEquals(tree.getHuffmanCodes(), loaded.getHuffmanCodes());
+
+        // Verificar que el encabezado ocupe pocos bytes por símbolo
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        HuffmanHeader.write(tree, header);
+        assertTrue(header.size() <= 8 + 2 * tree.getHuffmanCodes().size());
+    }
+
+    private static byte[] roundTripBytes(byte[] data) throws IOException {
+        HuffmanCompressor compressor = new HuffmanCompressor();
+        HuffmanTree tree = new HuffmanTree();
+        tree.buildTree(compressor.calculateByteFrequencies(new ByteArrayInputStream(data)), SymbolMode.BYTE);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BitOutputStream out = new BitOutputStream(bytes)) {
+            HuffmanHeader.write(tree, bytes);
+            compressor.compress(new ByteArrayInputStream(data), tree, out);
+        }
+
+        ByteArrayInputStream in = new ByteArrayInputStream(bytes.toByteArray());
+        return new HuffmanDecompressor().decompressBytes(in, HuffmanHeader.read(in));
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws IOException {
+        byte[] data = new byte[100000];
+        new Random(7).nextBytes(data);
+        for (int i = 0; i < data.length; i += 3) {
+            data[i] = 0; // Sesgar la distribución para que haya códigos de distinta longitud
+        }
+
+        assertArrayEquals(data, roundTripBytes(data));
+        assertArrayEquals(new byte[0], roundTripBytes(new byte[0]));
+    }
+
+    @Test
+    public void testSingleSymbolRoundTrip() throws IOException {
+        byte[] data = new byte[1001];
+        assertArrayEquals(data, roundTripBytes(data));
+    }
+
+    @Test
+    public void testStreamingStopsAtSymbolCount() throws IOException {
+        String text = skewedText() + "ñandú";
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        HuffmanTree tree = compressToBytes(text, bytes);
+
+        // Bytes extra después de los datos no deben convertirse en caracteres falsos
+        bytes.write(new byte[] {(byte) 0xFF, 0x00, (byte) 0xAA});
+        ByteArrayInputStream in = new ByteArrayInputStream(bytes.toByteArray());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long symbols = new HuffmanDecompressor().decompress(in, HuffmanHeader.read(in), out);
+
+        assertEquals(tree.getSymbolCount(), symbols);
+        assertArrayEquals(text.getBytes(), out.toByteArray());
+    }
+
+    @Test(expected = IOException.class)
+    public void testStreamingRejectsTruncatedData() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        compressToBytes(skewedText(), bytes);
+
+        byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 10);
+        ByteArrayInputStream in = new ByteArrayInputStream(truncated);
+        new HuffmanDecompressor().decompress(in, HuffmanHeader.read(in), new ByteArrayOutputStream());
+    }
+
+    @Test
+    public void testRejectsCodeLengthsOutsideAlphabet() throws IOException {
+        // Una sola entrada que salta casi hasta 2^31: se rechaza sin reservar memoria para ella
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(HuffmanHeader.MAGIC);
+        bytes.write(HuffmanHeader.VERSION);
+        bytes.write(SymbolMode.BYTE.ordinal());
+        HuffmanHeader.writeVarLong(bytes, 10);
+        HuffmanHeader.writeVarLong(bytes, 1);
+        HuffmanHeader.writeVarLong(bytes, ((long) Integer.MAX_VALUE - 2) << 6 | 5);
+        try {
+            HuffmanHeader.read(new ByteArrayInputStream(bytes.toByteArray()));
+            fail("Se esperaba una tabla inválida");
+        } catch (IOException e) {
+            // Esperado
+        }
+
+        // Lo mismo con un símbolo apenas fuera del alfabeto de bytes, o más símbolos de los que caben en él
+        bytes.reset();
+        HuffmanHeader.writeVarLong(bytes, 1);
+        HuffmanHeader.writeVarLong(bytes, 256L << 6 | 1);
+        byte[] outside = bytes.toByteArray();
+        bytes.reset();
+        HuffmanHeader.writeVarLong(bytes, 257);
+        byte[] tooMany = bytes.toByteArray();
+
+        // Tres códigos de un bit no forman un código prefijo (no cumplen la desigualdad de Kraft)
+        bytes.reset();
+        HuffmanHeader.writeVarLong(bytes, 3);
+        for (int i = 0; i < 3; i++) {
+            HuffmanHeader.writeVarLong(bytes, 1);
+        }
+        byte[] overfull = bytes.toByteArray();
+        for (byte[] table : new byte[][] {outside, tooMany, overfull}) {
+            try {
+                HuffmanHeader.readCodeLengths(new ByteArrayInputStream(table), 256);
+                fail("Se esperaba una tabla inválida");
+            } catch (IOException e) {
+                // Esperado
+            }
+        }
+
+        // Una tabla completa sí se acepta: longitudes 1, 2 y 2
+        bytes.reset();
+        HuffmanHeader.writeVarLong(bytes, 3);
+        HuffmanHeader.writeVarLong(bytes, 1);
+        HuffmanHeader.writeVarLong(bytes, 2);
+        HuffmanHeader.writeVarLong(bytes, 2);
+        assertArrayEquals(new byte[] {1, 2, 2},
+                HuffmanHeader.readCodeLengths(new ByteArrayInputStream(bytes.toByteArray()), 256));
+    }
+
+    @Test
+    public void testPeekAndSkipBits() throws IOException {
+        byte[] data = {(byte) 0b10110010, (byte) 0b01111111};
+        BitInputStream in = new BitInputStream(data, 0, data.length);
+
+        assertEquals(16, in.fill());
+        assertEquals(0b1011, in.peekBits(4));
+        in.skipBits(3);
+        assertEquals(0b10010011, in.peekBits(8));
+        in.skipBits(12);
+        assertTrue(in.readBit());
+        assertEquals(0, in.fill());
+    }
+}
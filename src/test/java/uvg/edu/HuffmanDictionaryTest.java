@@ -0,0 +1,67 @@
+package uvg.edu;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class HuffmanDictionaryTest {
+
+    private static byte[] record(Random random) {
+        return String.format("{\"id\":%d,\"nivel\":\"%s\",\"mensaje\":\"solicitud atendida en %d ms\"}%n",
+                random.nextInt(100000), random.nextBoolean() ? "INFO" : "WARN", random.nextInt(500))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testTrainedDictionaryRoundTripThroughStore() throws IOException {
+        Random random = new Random(8);
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            samples.add(record(random));
+        }
+
+        Path directory = Files.createTempDirectory("diccionarios");
+        try {
+            new DictionaryStore(directory).save(HuffmanDictionary.train(7, samples));
+
+            // Un almacén nuevo carga el diccionario desde el archivo
+            DictionaryStore store = new DictionaryStore(directory);
+            assertSame(store.get(7), store.get(7));
+            for (int i = 0; i < 100; i++) {
+                byte[] record = record(random);
+                byte[] compressed = store.compress(7, record);
+                assertTrue(compressed.length < record.length);
+                assertArrayEquals(record, store.decompress(7, compressed));
+            }
+        } finally {
+            Files.deleteIfExists(directory.resolve(7 + DictionaryStore.EXTENSION));
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testBytesMissingFromSamplesStillHaveCodes() throws IOException {
+        List<byte[]> samples = new ArrayList<>();
+        samples.add("aaaaabbbc".getBytes(StandardCharsets.UTF_8));
+        HuffmanDictionary dictionary = HuffmanDictionary.train(1, samples);
+
+        byte[] record = new byte[256];
+        for (int i = 0; i < record.length; i++) {
+            record[i] = (byte) i;
+        }
+        assertArrayEquals(record, dictionary.decompress(dictionary.compress(record)));
+        assertArrayEquals(new byte[0], dictionary.decompress(dictionary.compress(new byte[0])));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingDictionary() throws IOException {
+        new DictionaryStore(Files.createTempDirectory("vacio")).get(3);
+    }
+}
@@ -0,0 +1,165 @@
+package uvg.edu;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+public class LargeAlphabetTest {
+
+    private static final String TEXT = "Hola 𝔘𝔫𝔦𝔠𝔬𝔡𝔢 😀😀 naïve, error=42; 日本語 \n\t fin 😀";
+
+    @Test
+    public void testCodeLengthsAreOptimal() {
+        Random random = new Random(17);
+        for (int round = 0; round < 20; round++) {
+            long[] frequencies = new long[1 + random.nextInt(300)];
+            for (int i = 0; i < frequencies.length; i++) {
+                frequencies[i] = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(1 + random.nextInt(100000));
+            }
+
+            // Costo de referencia: la suma de todas las fusiones de una cola de prioridad
+            PriorityQueue<Long> queue = new PriorityQueue<>();
+            for (long frequency : frequencies) {
+                if (frequency > 0) {
+                    queue.add(frequency);
+                }
+            }
+            long expected = 0;
+            while (queue.size() > 1) {
+                long merged = queue.poll() + queue.poll();
+                expected += merged;
+                queue.add(merged);
+            }
+
+            byte[] lengths = HuffmanTree.computeCodeLengths(frequencies);
+            double kraft = 0;
+            for (byte length : lengths) {
+                kraft += length > 0 ? Math.pow(2, -length) : 0;
+            }
+            if (queue.size() == 1 && expected > 0) {
+                assertEquals(1.0, kraft, 1e-12);
+                assertEquals(expected, LengthLimitedCode.encodedBits(frequencies, lengths));
+            }
+        }
+    }
+
+    @Test
+    public void testFiftyThousandSymbolTree() {
+        // Frecuencias tipo Zipf, como las palabras de un texto
+        long[] frequencies = new long[50000];
+        for (int i = 0; i < frequencies.length; i++) {
+            frequencies[i] = 1 + 10000000L / (i + 1);
+        }
+
+        HuffmanTree tree = new HuffmanTree();
+        tree.buildTree(frequencies, SymbolMode.WORD);
+        assertEquals(50000, CanonicalCode.sortedSymbols(tree.getCodeLengths()).length);
+        assertTrue(tree.getMaxCodeLength() < 32);
+
+        HuffmanTableDecoder decoder = new HuffmanTableDecoder(tree.getCodeLengths());
+        assertNotNull(decoder);
+    }
+
+    @Test
+    public void testCodePointReaderKeepsSurrogatePairs() throws IOException {
+        byte[] utf8 = TEXT.getBytes(StandardCharsets.UTF_8);
+        int[] expected = TEXT.codePoints().toArray();
+
+        // Se piden símbolos de uno en uno para que los pares queden partidos entre lecturas
+        SymbolReader reader = SymbolMode.CODE_POINT.openReader(new ByteArrayInputStream(utf8));
+        int[] symbols = new int[expected.length + 1];
+        int count = 0;
+        int read;
+        while ((read = reader.read(symbols, count, 1)) != -1) {
+            count += read;
+        }
+        assertEquals(expected.length, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(expected[i], symbols[i]);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SymbolWriter writer = SymbolMode.CODE_POINT.openWriter(out);
+        writer.write(symbols, 0, count);
+        writer.flush();
+        assertArrayEquals(utf8, out.toByteArray());
+    }
+
+    @Test
+    public void testTokenAlphabetRoundTrip() throws IOException {
+        byte[] utf8 = (TEXT + TEXT + "palabra".repeat(20)).getBytes(StandardCharsets.UTF_8);
+        TokenAlphabet alphabet = TokenAlphabet.build(new ByteArrayInputStream(utf8));
+        // Las palabras largas se parten en tokens de longitud máxima
+        boolean split = false;
+        for (int symbol = 0; symbol < alphabet.size(); symbol++) {
+            assertTrue(alphabet.getToken(symbol).codePointCount(0, alphabet.getToken(symbol).length())
+                    <= TokenAlphabet.MAX_TOKEN_LENGTH);
+            split |= alphabet.getToken(symbol).equals("palabra".repeat(20).substring(128));
+        }
+        assertTrue(split);
+
+        ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        alphabet.write(stored);
+        TokenAlphabet read = TokenAlphabet.read(new ByteArrayInputStream(stored.toByteArray()));
+        assertEquals(alphabet.size(), read.size());
+        for (int symbol = 0; symbol < alphabet.size(); symbol++) {
+            assertEquals(alphabet.getToken(symbol), read.getToken(symbol));
+        }
+
+        SymbolReader reader = alphabet.openReader(new ByteArrayInputStream(utf8));
+        int[] symbols = new int[utf8.length];
+        int count = 0;
+        int n;
+        while ((n = reader.read(symbols, count, symbols.length - count)) != -1) {
+            count += n;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SymbolWriter writer = read.openWriter(out);
+        writer.write(symbols, 0, count);
+        writer.flush();
+        assertArrayEquals(utf8, out.toByteArray());
+    }
+
+    @Test
+    public void testFileRoundTrips() throws IOException {
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(170);
+        String[] words = {"error", "info", "usuario", "conexión", "😀", "𝔘𝔫𝔦", "tiempo", "db"};
+        for (int i = 0; i < 3000; i++) {
+            text.append(words[random.nextInt(words.length)]).append(i % 10 == 0 ? "\n" : " ");
+        }
+        byte[] data = text.toString().getBytes(StandardCharsets.UTF_8);
+
+        Path directory = Files.createTempDirectory("alfabetos");
+        Path input = directory.resolve("entrada.txt");
+        try {
+            Files.write(input, data);
+            long[] sizes = new long[2];
+            SymbolMode[] modes = {SymbolMode.CODE_POINT, SymbolMode.WORD};
+            for (int i = 0; i < modes.length; i++) {
+                SymbolMode mode = modes[i];
+                Path compressed = directory.resolve(mode + ".huff");
+                Path restored = directory.resolve(mode + ".txt");
+                HuffmanCoding.compressSymbols(input.toString(), directory.resolve(mode.toString()).toString(), mode, 0);
+                HuffmanCoding.decompress(compressed.toString(), restored.toString());
+                assertArrayEquals(data, Files.readAllBytes(restored));
+                sizes[i] = Files.size(compressed);
+                Files.delete(compressed);
+                Files.delete(restored);
+            }
+            // Por palabras se comprime mejor que por punto de código
+            assertTrue(sizes[1] < sizes[0]);
+        } finally {
+            Files.deleteIfExists(input);
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package uvg.edu;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+public class LengthLimitedCodeTest {
+
+    private static long[] fibonacciFrequencies(int symbols) {
+        long[] frequencies = new long[symbols];
+        frequencies[0] = 1;
+        frequencies[1] = 1;
+        for (int i = 2; i < symbols; i++) {
+            frequencies[i] = frequencies[i - 1] + frequencies[i - 2];
+        }
+        return frequencies;
+    }
+
+    private static double kraftSum(byte[] lengths) {
+        double sum = 0;
+        for (byte length : lengths) {
+            if (length > 0) {
+                sum += Math.pow(2, -length);
+            }
+        }
+        return sum;
+    }
+
+    @Test
+    public void testLimitIsRespected() {
+        long[] frequencies = fibonacciFrequencies(40);
+        HuffmanTree tree = new HuffmanTree();
+        tree.buildTree(frequencies, SymbolMode.BYTE, 12);
+
+        // El código debe respetar el límite y seguir siendo completo
+        assertEquals(12, tree.getMaxCodeLength());
+        assertEquals(1.0, kraftSum(tree.getCodeLengths()), 1e-12);
+        assertTrue(tree.getEncodedBits() > tree.getUnlimitedBits());
+        assertTrue(tree.getLengthLimitLoss() > 0);
+    }
+
+    @Test
+    public void testPackageMergeMatchesHuffmanWhenLimitIsLoose() {
+        long[] frequencies = new long[256];
+        Random random = new Random(3);
+        for (int i = 0; i < frequencies.length; i++) {
+            frequencies[i] = random.nextInt(1000);
+        }
+        HuffmanTree tree = new HuffmanTree();
+        tree.buildTree(frequencies, SymbolMode.BYTE);
+
+        // Con un límite holgado, package-merge es tan bueno como Huffman
+        byte[] lengths = LengthLimitedCode.computeLengths(frequencies, 40);
+        assertEquals(tree.getEncodedBits(), LengthLimitedCode.encodedBits(frequencies, lengths));
+        assertEquals(0.0, tree.getLengthLimitLoss(), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManySymbolsForLimit() {
+        long[] frequencies = new long[9];
+        java.util.Arrays.fill(frequencies, 1);
+        LengthLimitedCode.computeLengths(frequencies, 3);
+    }
+}
@@ -0,0 +1,46 @@
+package uvg.edu;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+public class MappedHuffmanCoderTest {
+
+    @Test
+    public void testMappedRoundTrip() throws IOException {
+        byte[] data = new byte[300000];
+        Random random = new Random(5);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (random.nextGaussian() * 20);
+        }
+
+        File input = File.createTempFile("mapped", ".bin");
+        File compressed = File.createTempFile("mapped", ".huff");
+        File output = File.createTempFile("mapped", ".out");
+        try {
+            Files.write(input.toPath(), data);
+            MappedHuffmanCoder coder = new MappedHuffmanCoder();
+
+            HuffmanTree tree = coder.compress(input.toPath(), compressed.toPath(), 0);
+            assertEquals(data.length, tree.getSymbolCount());
+
+            // Verificar que el tamaño calculado de antemano sea exacto
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            HuffmanHeader.write(tree, header);
+            assertEquals(header.size() + (tree.getEncodedBits() + 7) / 8, compressed.length());
+            assertTrue(compressed.length() < data.length);
+
+            assertEquals(data.length, coder.decompress(compressed.toPath(), output.toPath()));
+            assertArrayEquals(data, Files.readAllBytes(output.toPath()));
+        } finally {
+            input.delete();
+            compressed.delete();
+            output.delete();
+        }
+    }
+}
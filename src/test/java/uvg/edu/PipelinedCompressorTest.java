@@ -0,0 +1,128 @@
+package uvg.edu;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class PipelinedCompressorTest {
+
+    private static byte[] sampleData(int length) {
+        byte[] data = new byte[length];
+        Random random = new Random(20);
+        for (int i = 0; i < data.length; i++) {
+            // Cada tramo tiene una distribución distinta, y por lo tanto un código distinto
+            data[i] = (byte) (i / 7000 * 10 + random.nextInt(1 + i / 7000));
+        }
+        return data;
+    }
+
+    /**
+     * Espera en cada llamada, como un disco de red con mucha latencia.
+     */
+    private static void pause() throws InterruptedIOException {
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    @Test
+    public void testMatchesBlockCompressor() throws IOException {
+        byte[] data = sampleData(70001);
+        for (int encoders = 1; encoders <= 3; encoders++) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            long symbols = new PipelinedCompressor(encoders, BlockOptions.DEFAULT.withBlockSize(4096))
+                    .compress(new ByteArrayInputStream(data), SymbolMode.BYTE, compressed);
+            assertEquals(data.length, symbols);
+            assertArrayEquals(data, BlockFiles.decompress(compressed.toByteArray()));
+        }
+
+        // Los bloques se escriben en orden, así que el archivo es idéntico al del compresor por bloques
+        ByteArrayOutputStream pipelined = new ByteArrayOutputStream();
+        new PipelinedCompressor(2, BlockOptions.DEFAULT.withBlockSize(4096))
+                .compress(new ByteArrayInputStream(data), SymbolMode.BYTE, pipelined);
+        ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+        new BlockCompressor(ForkJoinPool.commonPool(), BlockOptions.DEFAULT.withBlockSize(4096))
+                .compress(new ByteArrayInputStream(data), SymbolMode.BYTE, blocks);
+        assertArrayEquals(blocks.toByteArray(), pipelined.toByteArray());
+
+        ByteArrayOutputStream empty = new ByteArrayOutputStream();
+        new PipelinedCompressor(2, BlockOptions.DEFAULT.withBlockSize(4096))
+                .compress(new ByteArrayInputStream(new byte[0]), SymbolMode.BYTE, empty);
+        assertArrayEquals(new byte[0], BlockFiles.decompress(empty.toByteArray()));
+    }
+
+    @Test
+    public void testSlowReadsAndWritesOverlap() throws IOException {
+        byte[] data = sampleData(40000);
+        InputStream slowIn = new FilterInputStream(new ByteArrayInputStream(data)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                pause();
+                return super.read(b, off, Math.min(len, 4096));
+            }
+        };
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        OutputStream slowOut = new FilterOutputStream(compressed) {
+            @Override
+            public void flush() throws IOException {
+                pause();
+                super.flush();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (len > 100) {
+                    pause(); // Solo las cargas útiles de los bloques
+                }
+                out.write(b, off, len);
+            }
+        };
+
+        PipelinedCompressor compressor = new PipelinedCompressor(1, BlockOptions.DEFAULT.withBlockSize(4096));
+        compressor.compress(slowIn, SymbolMode.BYTE, slowOut);
+        assertArrayEquals(data, BlockFiles.decompress(compressed.toByteArray()));
+
+        // Mientras un bloque se escribe, el siguiente ya se está leyendo
+        assertTrue(compressor.getReadNanos() > 0 && compressor.getWriteNanos() > 0);
+        assertTrue(compressor.getElapsedNanos() < compressor.getReadNanos() + compressor.getWriteNanos());
+    }
+
+    @Test
+    public void testReadErrorStopsAllStages() {
+        InputStream failing = new InputStream() {
+            private int calls;
+
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Disco no disponible");
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (++calls > 3) {
+                    throw new IOException("Disco no disponible");
+                }
+                return len;
+            }
+        };
+        try {
+            new PipelinedCompressor(2, BlockOptions.DEFAULT.withBlockSize(1000))
+                    .compress(failing, SymbolMode.BYTE, new ByteArrayOutputStream());
+            fail("Se esperaba el error de lectura");
+        } catch (IOException e) {
+            assertEquals("Disco no disponible", e.getMessage());
+        }
+    }
+}
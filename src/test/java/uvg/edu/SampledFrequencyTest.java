@@ -0,0 +1,65 @@
+package uvg.edu;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+public class SampledFrequencyTest {
+
+    @Test
+    public void testSampleIsScaledAndCoversEveryByte() throws IOException {
+        File file = File.createTempFile("muestra", ".bin");
+        try {
+            // Dos millones de bytes entre 'a' y 'd', con 'a' tres veces más frecuente que los demás
+            byte[] data = new byte[2_000_000];
+            Random random = new Random(22);
+            for (int i = 0; i < data.length; i++) {
+                int r = random.nextInt(6);
+                data[i] = (byte) ('a' + Math.max(0, r - 2));
+            }
+            Files.write(file.toPath(), data);
+
+            long[] estimated = new FrequencyHistogram().sampleBytes(file.toPath(), 0.02);
+            assertEquals(data.length / 2.0, estimated['a'], data.length * 0.02);
+            assertEquals(data.length / 6.0, estimated['d'], data.length * 0.02);
+            // Los bytes ausentes de la muestra conservan una frecuencia mínima para poder codificarse
+            assertEquals(1, estimated[0]);
+            assertEquals(1, estimated[255]);
+
+            Files.write(file.toPath(), new byte[0]);
+            assertArrayEquals(new long[256], new FrequencyHistogram().sampleBytes(file.toPath(), 0.02));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testSampledCompressionRoundTrip() throws IOException {
+        File input = File.createTempFile("muestra", ".txt");
+        File output = File.createTempFile("muestra", "");
+        File restored = File.createTempFile("muestra", ".out");
+        try {
+            // La muestra solo ve las letras; los dígitos del final no aparecen en ella
+            StringBuilder text = new StringBuilder();
+            Random random = new Random(23);
+            while (text.length() < 500_000) {
+                text.append((char) ('a' + Math.min(random.nextInt(26), random.nextInt(26))));
+            }
+            text.append("0123456789");
+            Files.write(input.toPath(), text.toString().getBytes("UTF-8"));
+
+            HuffmanCoding.compressSampled(input.getPath(), output.getPath(), 0.05, 0);
+            HuffmanCoding.decompress(output.getPath() + ".huff", restored.getPath());
+            assertArrayEquals(Files.readAllBytes(input.toPath()), Files.readAllBytes(restored.toPath()));
+        } finally {
+            input.delete();
+            output.delete();
+            new File(output.getPath() + ".huff").delete();
+            restored.delete();
+        }
+    }
+}
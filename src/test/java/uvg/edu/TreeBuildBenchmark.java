@@ -0,0 +1,53 @@
+package uvg.edu;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for building a Huffman code over alphabets from bytes up to word tokens,
+ * with Zipf-like frequencies as found in natural-language text.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeBuildBenchmark {
+
+    @Param({"256", "50000"})
+    public int alphabetSize;
+
+    private long[] frequencies; // Frequency of each symbol
+
+    @Setup
+    public void setUp() {
+        frequencies = new long[alphabetSize];
+        for (int i = 0; i < alphabetSize; i++) {
+            frequencies[i] = 1 + 10000000L / (i + 1);
+        }
+    }
+
+    @Benchmark
+    public HuffmanTree buildTree() {
+        HuffmanTree tree = new HuffmanTree();
+        tree.buildTree(frequencies, SymbolMode.WORD);
+        return tree;
+    }
+
+    @Benchmark
+    public HuffmanTableDecoder buildDecoder() {
+        return new HuffmanTableDecoder(HuffmanTree.computeCodeLengths(frequencies));
+    }
+}